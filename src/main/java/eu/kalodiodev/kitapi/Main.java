@@ -19,11 +19,15 @@ package eu.kalodiodev.kitapi;
 import com.sun.javafx.application.LauncherImpl;
 import eu.kalodiodev.kitapi.controller.MainController;
 import eu.kalodiodev.kitapi.dao.DaoFactory;
+import eu.kalodiodev.kitapi.db.BackupService;
+import eu.kalodiodev.kitapi.db.ChangeWatcher;
+import eu.kalodiodev.kitapi.db.CompactionService;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
 import eu.kalodiodev.kitapi.service.CategoryService;
 import eu.kalodiodev.kitapi.service.ICategoryService;
 import eu.kalodiodev.kitapi.service.ITransactionService;
 import eu.kalodiodev.kitapi.service.TransactionService;
+import eu.kalodiodev.kitapi.service.TrashPurger;
 import eu.kalodiodev.kitapi.utils.BuildResource;
 import eu.kalodiodev.kitapi.utils.LanguageResource;
 import javafx.application.Application;
@@ -37,7 +41,9 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
+import java.nio.file.Paths;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
 
 
 public class Main extends Application {
@@ -47,12 +53,31 @@ public class Main extends Application {
     // Database type
     private static final int DATABASE_TYPE = DaoFactory.SQLITE;
 
+    // Length of descriptions loaded with transactions lists, full text is loaded on edit
+    private static final int DESCRIPTION_PREVIEW = 80;
+
     // Services
     private ICategoryService incomeCategoryService = new CategoryService();
     private ICategoryService expensesCategoryService = new CategoryService();
     private ITransactionService incomeService = new TransactionService();
     private ITransactionService expensesService = new TransactionService();
 
+    // Database backups, one per day, last week kept
+    private static final int BACKUPS_KEPT = 7;
+    private BackupService backupService = new BackupService(Paths.get("backups"), BACKUPS_KEPT);
+
+    // Details of compacted transactions
+    private CompactionService compactionService = new CompactionService(Paths.get("kitapi-archive.db"));
+
+    // Changes of other application instances, scripts or restores
+    private static final long CHANGES_POLL_SECONDS = 2;
+    private ChangeWatcher changeWatcher;
+
+    // Deleted transactions kept in trash for a month, purged hourly in chunks
+    private static final long TRASH_RETENTION_DAYS = 30;
+    private static final int TRASH_PURGE_CHUNK = 500;
+    private TrashPurger trashPurger;
+
 
     private void setupServices() {
 
@@ -72,11 +97,25 @@ public class Main extends Application {
                 // Transaction Services
                 expensesService.setDao(DaoFactory.getFactory(DATABASE_TYPE).getExpensesDao());
                 incomeService.setDao(DaoFactory.getFactory(DATABASE_TYPE).getIncomeDao());
+                expensesService.getDao().setDescriptionPreview(DESCRIPTION_PREVIEW);
+                incomeService.getDao().setDescriptionPreview(DESCRIPTION_PREVIEW);
+                expensesService.getDao().setSoftDelete(true);
+                incomeService.getDao().setSoftDelete(true);
+                expensesCategoryService.setTransactionService(expensesService);
+                incomeCategoryService.setTransactionService(incomeService);
 
                 // Load all
                 expensesService.all();
                 incomeService.all();
 
+                // Periodic backups
+                backupService.schedule(1, TimeUnit.DAYS);
+
+                // Periodic trash purge
+                trashPurger = new TrashPurger(TRASH_RETENTION_DAYS, TimeUnit.DAYS, TRASH_PURGE_CHUNK,
+                        expensesService.getDao(), incomeService.getDao());
+                trashPurger.start(1, TimeUnit.HOURS);
+
                 // After init is ready, the app is ready to be shown
                 ready.setValue(Boolean.TRUE);
 
@@ -114,13 +153,31 @@ public class Main extends Application {
                 Platform.runLater(() -> {
                     mainController.setCategoryServices(expensesCategoryService, incomeCategoryService);
                     mainController.setTransactionServices(expensesService, incomeService);
+                    mainController.setBackupService(backupService);
+                    mainController.setCompactionService(compactionService);
+                    mainController.setTrashRetentionDays(TRASH_RETENTION_DAYS);
                     mainController.updateTotals();
                     primaryStage.show();
+
+                    changeWatcher = new ChangeWatcher(() -> Platform.runLater(mainController::refresh));
+                    changeWatcher.start(CHANGES_POLL_SECONDS, TimeUnit.SECONDS);
                 });
             }
         });
     }
 
+    @Override
+    public void stop() throws Exception {
+        backupService.shutdown();
+        if (changeWatcher != null) {
+            changeWatcher.stop();
+        }
+        if (trashPurger != null) {
+            trashPurger.stop();
+        }
+        super.stop();
+    }
+
     public static void main(String[] args) {
         LauncherImpl.launchApplication(Main.class, SplashScreenLoader.class, args);
         //launch(args);
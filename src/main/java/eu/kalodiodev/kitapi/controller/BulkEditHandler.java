@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.controller;
+
+import eu.kalodiodev.kitapi.exceptions.NullInputException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.service.ICategoryService;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.view.CategoryComboBox;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+/**
+ * Handle Bulk Edit of Selected Transactions
+ *
+ * <p>Selected transactions are re-categorized, have their dates shifted or are deleted
+ * with a single request to transaction service.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class BulkEditHandler {
+
+    // Maximum days dates can be shifted by, either way
+    private static final int MAX_SHIFT_DAYS = 3650;
+
+    private Window window;
+    private ITransactionService transactionService;
+    private ICategoryService categoryService;
+    private ResourceBundle resourceBundle;
+
+    /**
+     * Bulk Edit Handler Constructor
+     *
+     * @param window parent window
+     * @param transactionService transaction service of ledger
+     * @param categoryService category service of ledger
+     * @param resourceBundle resources bundle
+     */
+    public BulkEditHandler(Window window, ITransactionService transactionService, ICategoryService categoryService,
+                           ResourceBundle resourceBundle) {
+        this.window = window;
+        this.transactionService = transactionService;
+        this.categoryService = categoryService;
+        this.resourceBundle = resourceBundle;
+    }
+
+    /**
+     * Change category of selected transactions
+     *
+     * <p>Shows category selection dialog and changes category after confirm.</p>
+     *
+     * @param selected selected transactions
+     */
+    public void recategorize(List<Transaction> selected) {
+        List<Transaction> transactions = new ArrayList<>(selected);
+
+        CategoryComboBox categoriesComboBox = new CategoryComboBox();
+        categoriesComboBox.setItems(categoryService.getSortedList());
+        categoriesComboBox.getSelectionModel().selectFirst();
+
+        Optional<ButtonType> result = showDialog(resourceBundle.getString("transaction.recategorize.title"),
+                transactions.size(), new Label(resourceBundle.getString("property.category")), categoriesComboBox);
+
+        Category category = categoriesComboBox.getSelectionModel().getSelectedItem();
+        if (!isConfirmed(result) || (category == null)) {
+            return;
+        }
+
+        try {
+            transactionService.recategorize(transactions, category);
+        } catch (NullInputException | RequestFailException e) {
+            showFailure();
+        }
+    }
+
+    /**
+     * Shift dates of selected transactions
+     *
+     * <p>Shows days input dialog and shifts dates after confirm.</p>
+     *
+     * @param selected selected transactions
+     */
+    public void shiftDates(List<Transaction> selected) {
+        List<Transaction> transactions = new ArrayList<>(selected);
+
+        Spinner<Integer> daysSpinner = new Spinner<>(-MAX_SHIFT_DAYS, MAX_SHIFT_DAYS, 0);
+        daysSpinner.setEditable(true);
+
+        Optional<ButtonType> result = showDialog(resourceBundle.getString("transaction.shift.title"),
+                transactions.size(), new Label(resourceBundle.getString("transaction.shift.days")), daysSpinner);
+
+        if (!isConfirmed(result)) {
+            return;
+        }
+
+        try {
+            transactionService.shiftDates(transactions, daysSpinner.getValue());
+        } catch (NullInputException | RequestFailException e) {
+            showFailure();
+        }
+    }
+
+    /**
+     * Delete selected transactions
+     *
+     * <p>Shows confirmation dialog and deletes transactions after confirm.</p>
+     *
+     * @param selected selected transactions
+     */
+    public void delete(List<Transaction> selected) {
+        List<Transaction> transactions = new ArrayList<>(selected);
+
+        Optional<ButtonType> result = AlertDialog.showAlertConfirmation(
+                resourceBundle.getString("transaction.delete.confirmation"),
+                String.format(resourceBundle.getString("transaction.bulk.delete.message"), transactions.size()),
+                resourceBundle.getString("delete.confirm"));
+
+        if (!isConfirmed(result)) {
+            return;
+        }
+
+        try {
+            transactionService.remove(transactions);
+        } catch (NullInputException | RequestFailException e) {
+            AlertDialog.showAlertError(resourceBundle.getString("fail"),
+                    resourceBundle.getString("transaction.delete.fail"),
+                    resourceBundle.getString("transaction.delete.fail.message"));
+        }
+    }
+
+    /**
+     * Show bulk edit dialog
+     *
+     * @param title dialog's title
+     * @param count number of selected transactions
+     * @param content dialog's input nodes
+     * @return pressed button
+     */
+    private Optional<ButtonType> showDialog(String title, int count, Node... content) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(window);
+        dialog.setTitle(title);
+        dialog.setHeaderText(String.format(resourceBundle.getString("transaction.bulk.selected"), count));
+        dialog.getDialogPane().getStylesheets().add(getClass().getResource("/styles/style.css").toExternalForm());
+        dialog.getDialogPane().setContent(new VBox(8, content));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("action.ok"), ButtonBar.ButtonData.OK_DONE));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("action.cancel"), ButtonBar.ButtonData.CANCEL_CLOSE));
+
+        return dialog.showAndWait();
+    }
+
+    /**
+     * Check if dialog was confirmed
+     *
+     * @param result pressed button
+     * @return true if confirmed
+     */
+    private static boolean isConfirmed(Optional<ButtonType> result) {
+        return result.isPresent() && (result.get().getButtonData() == ButtonBar.ButtonData.OK_DONE);
+    }
+
+    /**
+     * Bulk edit failed dialog
+     */
+    private void showFailure() {
+        AlertDialog.showAlertError(resourceBundle.getString("fail"),
+                resourceBundle.getString("transaction.bulk.fail"),
+                resourceBundle.getString("transaction.bulk.fail.message"));
+    }
+}
@@ -19,6 +19,7 @@ package eu.kalodiodev.kitapi.controller;
 import eu.kalodiodev.kitapi.model.Category;
 import eu.kalodiodev.kitapi.service.ICategoryService;
 import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.utils.CollationKeys;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -43,6 +44,8 @@ public class CategoryController implements Initializable{
     @FXML
     private TableView<Category> categoriesTableView;
     @FXML
+    private TableColumn<Category, String> nameColumn;
+    @FXML
     private Label categoriesTitleLabel;
     @FXML
     public Button editCategoryButton;
@@ -60,6 +63,9 @@ public class CategoryController implements Initializable{
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         this.bundle = resources;
+
+        // Name column sorted by cached collation keys
+        nameColumn.setComparator(CollationKeys.getInstance().comparator());
     }
 
     /**
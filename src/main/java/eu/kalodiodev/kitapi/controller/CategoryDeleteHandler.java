@@ -23,7 +23,9 @@ import eu.kalodiodev.kitapi.exceptions.NullInputException;
 import eu.kalodiodev.kitapi.exceptions.RequestFailException;
 import eu.kalodiodev.kitapi.model.Category;
 import eu.kalodiodev.kitapi.service.ICategoryService;
+import eu.kalodiodev.kitapi.service.ITransactionService;
 import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.utils.MoneyFormat;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
 
@@ -54,7 +56,8 @@ public class CategoryDeleteHandler {
     /**
      * Delete category action
      *
-     * <p>Shows confirmation dialog and deletes category after confirm.</p>
+     * <p>Shows confirmation dialog, with number and amount of category's transactions to be deleted too,
+     * and deletes category after confirm.</p>
      *
      * @param categoryToDelete transaction to be deleted
      */
@@ -62,7 +65,8 @@ public class CategoryDeleteHandler {
 
         Optional<ButtonType> result = AlertDialog.showAlertConfirmation(
                 resourceBundle.getString("category.delete.confirmation"),
-                resourceBundle.getString("category.delete.message") + "\n" + categoryToDelete.getName(),
+                resourceBundle.getString("category.delete.message") + "\n" + categoryToDelete.getName() +
+                        impact(categoryToDelete),
                 resourceBundle.getString("delete.confirm"));
 
         if (result.isPresent() && (result.get().getButtonData() == ButtonBar.ButtonData.OK_DONE)) {
@@ -70,6 +74,31 @@ public class CategoryDeleteHandler {
         }
     }
 
+    /**
+     * Impact of category's deletion on its transactions
+     *
+     * @param category category to be deleted
+     * @return message line of transactions to be deleted, empty if there are none or they could not be counted
+     */
+    private String impact(Category category) {
+        ITransactionService transactionService = categoryService.getTransactionService();
+        if (transactionService == null) {
+            return "";
+        }
+
+        try {
+            int count = transactionService.count(category);
+            if (count == 0) {
+                return "";
+            }
+            long amount = transactionService.totalAmount(category);
+            return "\n\n" + String.format(resourceBundle.getString("category.delete.impact"),
+                    count, MoneyFormat.format(amount / 100d));
+        } catch (NullInputException | RequestFailException e) {
+            return "";
+        }
+    }
+
     /**
      * Delete category from storage
      *
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.controller;
+
+import eu.kalodiodev.kitapi.export.ExportFormat;
+import eu.kalodiodev.kitapi.export.LedgerExporter;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.service.ICategoryService;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.view.CategoryComboBox;
+import javafx.concurrent.Task;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+/**
+ * Handle Ledger Export
+ *
+ * <p>Ask for export options and file, then export transactions or categories of a ledger
+ * in the background.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class ExportHandler {
+
+    private Window window;
+    private ITransactionService transactionService;
+    private ICategoryService categoryService;
+    private ResourceBundle resourceBundle;
+
+    /**
+     * Export Handler Constructor
+     *
+     * @param window parent window
+     * @param transactionService transaction service of ledger
+     * @param categoryService category service of ledger
+     * @param resourceBundle resources bundle
+     */
+    public ExportHandler(Window window, ITransactionService transactionService, ICategoryService categoryService,
+                         ResourceBundle resourceBundle) {
+        this.window = window;
+        this.transactionService = transactionService;
+        this.categoryService = categoryService;
+        this.resourceBundle = resourceBundle;
+    }
+
+    /**
+     * Show export dialog
+     */
+    public void show() {
+        String transactions = resourceBundle.getString("export.content.transactions");
+        String categories = resourceBundle.getString("export.content.categories");
+
+        ChoiceBox<String> contentChoice = new ChoiceBox<>();
+        contentChoice.getItems().addAll(transactions, categories);
+        contentChoice.getSelectionModel().selectFirst();
+
+        ChoiceBox<ExportFormat> formatChoice = new ChoiceBox<>();
+        formatChoice.getItems().addAll(ExportFormat.values());
+        formatChoice.getSelectionModel().selectFirst();
+
+        DatePicker sincePicker = new DatePicker();
+        DatePicker untilPicker = new DatePicker();
+
+        CategoryComboBox categoryComboBox = new CategoryComboBox();
+        categoryComboBox.getItems().addAll(categoryService.getObservableList());
+        categoryComboBox.setPromptText(resourceBundle.getString("all"));
+
+        // Filters apply to transactions only
+        sincePicker.disableProperty().bind(contentChoice.valueProperty().isEqualTo(categories));
+        untilPicker.disableProperty().bind(contentChoice.valueProperty().isEqualTo(categories));
+        categoryComboBox.disableProperty().bind(contentChoice.valueProperty().isEqualTo(categories));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(8);
+        grid.setVgap(8);
+        grid.addRow(0, new Label(resourceBundle.getString("export.content")), contentChoice);
+        grid.addRow(1, new Label(resourceBundle.getString("export.format")), formatChoice);
+        grid.addRow(2, new Label(resourceBundle.getString("time.since")), sincePicker);
+        grid.addRow(3, new Label(resourceBundle.getString("time.until")), untilPicker);
+        grid.addRow(4, new Label(resourceBundle.getString("category")), categoryComboBox);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(window);
+        dialog.setTitle(resourceBundle.getString("export.title"));
+        dialog.getDialogPane().getStylesheets().add(getClass().getResource("/styles/style.css").toExternalForm());
+        dialog.getDialogPane().setContent(grid);
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("export.action"), ButtonBar.ButtonData.OK_DONE));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("app.close"), ButtonBar.ButtonData.CANCEL_CLOSE));
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+            return;
+        }
+
+        ExportFormat format = formatChoice.getValue();
+        File file = chooseFile(format);
+        if (file == null) {
+            return;
+        }
+
+        if (categories.equals(contentChoice.getValue())) {
+            // Snapshot on application thread, categories list is observed by the views
+            List<Category> categoriesList = new ArrayList<>(categoryService.getObservableList());
+            export(file, () -> new LedgerExporter(format).exportCategories(categoriesList, file.toPath()));
+        } else {
+            LocalDate since = sincePicker.getValue();
+            LocalDate until = untilPicker.getValue();
+            Category category = categoryComboBox.getValue();
+            export(file, () -> new LedgerExporter(format).exportTransactions(transactionService,
+                    since, until, category, file.toPath()));
+        }
+    }
+
+    /**
+     * Choose file to export to
+     *
+     * @param format export format
+     * @return chosen file, null if canceled
+     */
+    private File chooseFile(ExportFormat format) {
+        String description = resourceBundle.getString(format == ExportFormat.CSV ?
+                "export.filter.csv" : "export.filter.jsonl");
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(resourceBundle.getString("export.title"));
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(description, "*." + format.getExtension()));
+
+        return fileChooser.showSaveDialog(window);
+    }
+
+    /**
+     * Run export in the background and report its result
+     *
+     * @param file file exported to
+     * @param export export to run
+     */
+    private void export(File file, Export export) {
+        Task<Long> task = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                return export.run();
+            }
+        };
+
+        task.setOnSucceeded(event -> AlertDialog.showAlertInformation(resourceBundle.getString("export.title"),
+                file.getName(), String.format(resourceBundle.getString("export.result"), task.getValue())));
+        task.setOnFailed(event -> AlertDialog.showAlertError(resourceBundle.getString("problem"),
+                resourceBundle.getString("export.fail"), task.getException().getMessage()));
+
+        Thread thread = new Thread(task, "export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Export operation
+     */
+    @FunctionalInterface
+    private interface Export {
+
+        /**
+         * Run export
+         *
+         * @return number of exported rows
+         * @throws Exception if export failed
+         */
+        long run() throws Exception;
+    }
+}
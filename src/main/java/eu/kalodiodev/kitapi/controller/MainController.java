@@ -16,24 +16,47 @@
 
 package eu.kalodiodev.kitapi.controller;
 
+import eu.kalodiodev.kitapi.db.BackupService;
+import eu.kalodiodev.kitapi.db.CompactionService;
+import eu.kalodiodev.kitapi.db.QueryCache;
+import eu.kalodiodev.kitapi.db.YearPartitions;
+import eu.kalodiodev.kitapi.exceptions.EntryNotFoundException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.importer.OfxStatementParser;
+import eu.kalodiodev.kitapi.importer.QifStatementParser;
+import eu.kalodiodev.kitapi.importer.StatementImporter;
+import eu.kalodiodev.kitapi.importer.StatementParser;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.service.AggregateView;
+import eu.kalodiodev.kitapi.service.ChangeBus;
+import eu.kalodiodev.kitapi.service.ChangeEvent;
 import eu.kalodiodev.kitapi.service.ICategoryService;
 import eu.kalodiodev.kitapi.service.ITransactionService;
+import eu.kalodiodev.kitapi.service.ReportExecutor;
+import eu.kalodiodev.kitapi.service.TransactionSnapshot;
 import eu.kalodiodev.kitapi.utils.AlertDialog;
 import eu.kalodiodev.kitapi.utils.DatePeriod;
 import eu.kalodiodev.kitapi.utils.MoneyFormat;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 /**
@@ -48,6 +71,11 @@ public class MainController implements Initializable {
     private ICategoryService expensesCategoryService;
     private ITransactionService incomeService;
     private ITransactionService expensesService;
+    private BackupService backupService;
+    private CompactionService compactionService;
+
+    // Days deleted transactions are kept in trash
+    private long trashRetentionDays;
 
     @FXML
     private BorderPane mainPanel;
@@ -60,6 +88,12 @@ public class MainController implements Initializable {
     @FXML
     private MenuItem expensesMenuItem;
     @FXML
+    private MenuItem incomeMergeNamesMenuItem;
+    @FXML
+    private MenuItem incomeTrashMenuItem;
+    @FXML
+    private MenuItem incomeExportMenuItem;
+    @FXML
     private Button incomeCategoriesButton;
     @FXML
     private Button expensesCategoriesButton;
@@ -87,12 +121,22 @@ public class MainController implements Initializable {
 
     private ResourceBundle bundle;
 
+    // Latest totals calculation, results of earlier ones are dropped
+    private long totalsRequest;
+
     /**
      * Controller initialize
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         this.bundle = resources;
+
+        // Totals follow transaction changes, once per pulse
+        ChangeBus.getInstance().addListener(events -> {
+            if (ChangeEvent.changed(events, incomeService) || ChangeEvent.changed(events, expensesService)) {
+                updateTotals();
+            }
+        });
     }
 
     /**
@@ -117,10 +161,39 @@ public class MainController implements Initializable {
         this.incomeService = incomeService;
     }
 
+    /**
+     * Set backup service
+     *
+     * @param backupService database backup service
+     */
+    public void setBackupService(BackupService backupService) {
+        this.backupService = backupService;
+    }
+
+    /**
+     * Set compaction service
+     *
+     * @param compactionService historical compaction service
+     */
+    public void setCompactionService(CompactionService compactionService) {
+        this.compactionService = compactionService;
+    }
+
+    /**
+     * Set trash retention
+     *
+     * @param trashRetentionDays days deleted transactions are kept in trash, before purged
+     */
+    public void setTrashRetentionDays(long trashRetentionDays) {
+        this.trashRetentionDays = trashRetentionDays;
+    }
+
     /**
      * Update review total summaries
      */
     public void updateTotals() {
+        totalsRequest++;
+
         // Initial balance value
         balanceField.setText(MoneyFormat.format(0.0));
 
@@ -145,9 +218,32 @@ public class MainController implements Initializable {
                 currentMonthExpensesText, lastMonthExpensesText, currentYearExpensesText, expensesTotal);
     }
 
+    /**
+     * Refresh lists with changes of database
+     *
+     * <p>Called when database changed outside of this window, i.e. by another application instance.
+     * Cached query results may predate the change, as data version is not checked on every query,
+     * so they are dropped first. Lists that changed publish their changes, so totals are updated
+     * only if a list changed.</p>
+     */
+    public void refresh() {
+        QueryCache.getInstance().changed();
+        try {
+            incomeCategoryService.refresh();
+            expensesCategoryService.refresh();
+            incomeService.refresh();
+            expensesService.refresh();
+        } catch (RequestFailException e) {
+            System.out.println("Refresh failed: " + e.getMessage());
+        }
+    }
+
     /**
      * Calculate and show totals
      *
+     * <p>Totals are calculated in parallel on a snapshot of service's transactions, each one is shown
+     * as soon as it is calculated.</p>
+     *
      * @param service transaction service
      * @param totalField total Text control
      * @param currentMonthField current month Text control
@@ -158,19 +254,38 @@ public class MainController implements Initializable {
     private void calculateTotals(ITransactionService service, Text totalField, Text currentMonthField,
                                  Text lastMonthField, Text currentYearField, SimpleDoubleProperty total) {
 
+        TransactionSnapshot snapshot = service.snapshot();
+        ReportExecutor reports = ReportExecutor.getInstance();
+        long request = totalsRequest;
+
         // Calculations
-        total.set(service.calculateTotal());
-        double expensesLastMonthTotal = service.calculateTotal(
-                DatePeriod.lastMonthsStart(1), DatePeriod.lastMonthsEnd(1));
-        double expensesCurrentMonthTotal = service.calculateTotal(
-                DatePeriod.lastMonthsStart(0), LocalDate.now());
-        double expensesCurrentYear = service.calculateTotal(DatePeriod.currentYearStart(), LocalDate.now());
-
-        // Show results
-        totalField.setText(MoneyFormat.format(total.get()));
-        currentMonthField.setText(MoneyFormat.format(expensesCurrentMonthTotal));
-        lastMonthField.setText(MoneyFormat.format(expensesLastMonthTotal));
-        currentYearField.setText(MoneyFormat.format(expensesCurrentYear));
+        reports.submit(snapshot, ReportExecutor.sum(AggregateView.filter(null, null, null)), sum -> {
+            if (request == totalsRequest) {
+                total.set(sum / 100d);
+                totalField.setText(MoneyFormat.format(total.get()));
+            }
+        });
+        showTotal(snapshot, DatePeriod.lastMonthsStart(1), DatePeriod.lastMonthsEnd(1), lastMonthField, request);
+        showTotal(snapshot, DatePeriod.lastMonthsStart(0), LocalDate.now(), currentMonthField, request);
+        showTotal(snapshot, DatePeriod.currentYearStart(), LocalDate.now(), currentYearField, request);
+    }
+
+    /**
+     * Calculate total of period and show it when calculated
+     *
+     * @param snapshot transactions snapshot
+     * @param start period start date
+     * @param end period end date
+     * @param field Text control
+     * @param request totals calculation
+     */
+    private void showTotal(TransactionSnapshot snapshot, LocalDate start, LocalDate end, Text field, long request) {
+        ReportExecutor.getInstance().submit(snapshot, ReportExecutor.sum(AggregateView.filter(null, start, end)),
+                sum -> {
+                    if (request == totalsRequest) {
+                        field.setText(MoneyFormat.format(sum / 100d));
+                    }
+                });
     }
 
     /**
@@ -192,9 +307,6 @@ public class MainController implements Initializable {
             showCategoriesDialog(expensesCategoryService, bundle.getString("category.expenses.window.title"),
                     bundle.getString("category.expenses.list"));
         }
-
-        // Update totals
-        updateTotals();
     }
 
     /**
@@ -229,8 +341,6 @@ public class MainController implements Initializable {
             showTransactionsDialog(incomeService, incomeCategoryService,
                     bundle.getString("income"), bundle.getString("transaction.income.list"));
         }
-        // Update review totals
-        updateTotals();
     }
 
     /**
@@ -253,6 +363,46 @@ public class MainController implements Initializable {
         }
     }
 
+    /**
+     * Handle merge similar transaction names
+     *
+     * @param actionEvent action event
+     */
+    @FXML
+    public void handleMergeNames(ActionEvent actionEvent) {
+        ITransactionService service = actionEvent.getSource().equals(incomeMergeNamesMenuItem) ?
+                incomeService : expensesService;
+
+        new MergeNamesHandler(mainPanel.getScene().getWindow(), service, bundle).show();
+    }
+
+    /**
+     * Handle trash of deleted transactions
+     *
+     * @param actionEvent action event
+     */
+    @FXML
+    public void handleTrash(ActionEvent actionEvent) {
+        ITransactionService service = actionEvent.getSource().equals(incomeTrashMenuItem) ?
+                incomeService : expensesService;
+
+        new TrashHandler(mainPanel.getScene().getWindow(), service, trashRetentionDays, bundle).show();
+    }
+
+    /**
+     * Handle export of income or expenses ledger
+     *
+     * @param actionEvent action event
+     */
+    @FXML
+    public void handleExport(ActionEvent actionEvent) {
+        if (actionEvent.getSource().equals(incomeExportMenuItem)) {
+            new ExportHandler(mainPanel.getScene().getWindow(), incomeService, incomeCategoryService, bundle).show();
+        } else {
+            new ExportHandler(mainPanel.getScene().getWindow(), expensesService, expensesCategoryService, bundle).show();
+        }
+    }
+
     /**
      * Handle show about dialog
      */
@@ -276,8 +426,6 @@ public class MainController implements Initializable {
         } catch (IOException e) {
             AlertDialog.showAlertInformation("Problem","Add Expense","Could not load dialog.");
         }
-
-        updateTotals();
     }
 
     /**
@@ -290,8 +438,6 @@ public class MainController implements Initializable {
         } catch (IOException e) {
             AlertDialog.showAlertInformation("Problem","Add Income","Could not load dialog.");
         }
-
-        updateTotals();
     }
 
     /**
@@ -310,6 +456,257 @@ public class MainController implements Initializable {
         transactionDialogHandler.show();
     }
 
+    /**
+     * Handle import bank statement
+     *
+     * <p>OFX and QIF statements are supported. Credits are imported as income and debits as expenses,
+     * under "Imported" category of each ledger.</p>
+     * <p>Statement is read in the background, imported batches are added to transactions lists
+     * in application thread.</p>
+     */
+    @FXML
+    public void handleImportStatement() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(bundle.getString("import.title"));
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                bundle.getString("import.filter.statements"), "*.ofx", "*.qfx", "*.qif"));
+
+        File file = fileChooser.showOpenDialog(mainPanel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        Category incomeCategory;
+        Category expensesCategory;
+        try {
+            incomeCategory = importCategory(incomeCategoryService);
+            expensesCategory = importCategory(expensesCategoryService);
+        } catch (Exception e) {
+            AlertDialog.showAlertError(bundle.getString("problem"), bundle.getString("import.fail"), e.getMessage());
+            return;
+        }
+
+        StatementImporter importer = new StatementImporter(incomeService, expensesService);
+        importer.setPayeeMatching(true);
+        importer.setStoreExecutor(Platform::runLater);
+
+        Task<StatementImporter.Result> task = new Task<StatementImporter.Result>() {
+            @Override
+            protected StatementImporter.Result call() throws Exception {
+                try (StatementParser parser = openStatement(file)) {
+                    return importer.importStatement(parser, incomeCategory, expensesCategory);
+                }
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            StatementImporter.Result result = task.getValue();
+            AlertDialog.showAlertInformation(bundle.getString("import.title"), file.getName(),
+                    String.format(bundle.getString("import.result"), result.getRead(),
+                            result.getIncome(), result.getExpenses(), result.getSkipped(), result.getDuplicates()));
+        });
+        task.setOnFailed(event -> AlertDialog.showAlertError(bundle.getString("problem"),
+                bundle.getString("import.fail"), task.getException().getMessage()));
+
+        runInBackground(task, "import");
+    }
+
+    /**
+     * Open statement parser
+     *
+     * @param file statement file, QIF if its extension is .qif, otherwise OFX
+     * @return statement parser
+     * @throws IOException if statement file could not be opened
+     */
+    private StatementParser openStatement(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+
+        if (file.getName().toLowerCase().endsWith(".qif")) {
+            return new QifStatementParser(reader);
+        }
+        return new OfxStatementParser(reader);
+    }
+
+    /**
+     * Get category of imported transactions
+     *
+     * <p>Category is created if it does not exist.</p>
+     *
+     * @param categoryService category service of ledger
+     * @return imported transactions category
+     * @throws Exception if category could not be loaded or created
+     */
+    private Category importCategory(ICategoryService categoryService) throws Exception {
+        String name = bundle.getString("import.category");
+        try {
+            return categoryService.get(name);
+        } catch (EntryNotFoundException e) {
+            Category category = new Category();
+            category.setName(name);
+            category.setDescription(bundle.getString("import.title"));
+            category.setId(categoryService.add(category));
+            return category;
+        }
+    }
+
+    /**
+     * Handle backup Menu item
+     *
+     * <p>Database is backed up in the background.</p>
+     */
+    @FXML
+    public void handleBackup() {
+        Task<Path> task = new Task<Path>() {
+            @Override
+            protected Path call() throws Exception {
+                return backupService.backup();
+            }
+        };
+
+        task.setOnSucceeded(event -> AlertDialog.showAlertInformation(bundle.getString("backup.title"),
+                bundle.getString("backup.done"), task.getValue().toAbsolutePath().toString()));
+        task.setOnFailed(event -> AlertDialog.showAlertError(bundle.getString("problem"),
+                bundle.getString("backup.fail"), task.getException().getMessage()));
+
+        runInBackground(task, "backup");
+    }
+
+    /**
+     * Handle restore backup Menu item
+     *
+     * <p>Selected backup is verified and restored in the background, then all entries are reloaded.</p>
+     */
+    @FXML
+    public void handleRestore() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(bundle.getString("restore.title"));
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(bundle.getString("backup.filter"), "*.db.gz"));
+        if (Files.isDirectory(backupService.getDirectory())) {
+            fileChooser.setInitialDirectory(backupService.getDirectory().toFile());
+        }
+
+        File file = fileChooser.showOpenDialog(mainPanel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        Optional<ButtonType> result = AlertDialog.showAlertConfirmation(bundle.getString("restore.title"),
+                file.getName(), bundle.getString("restore.confirm"));
+        if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+            return;
+        }
+
+        Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() throws Exception {
+                backupService.restore(file.toPath());
+                return null;
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            try {
+                incomeCategoryService.all();
+                expensesCategoryService.all();
+                incomeService.all();
+                expensesService.all();
+                AlertDialog.showAlertInformation(bundle.getString("restore.title"),
+                        bundle.getString("restore.done"), file.getName());
+            } catch (RequestFailException e) {
+                AlertDialog.showAlertError(bundle.getString("problem"),
+                        bundle.getString("restore.fail"), e.getMessage());
+            }
+        });
+        task.setOnFailed(event -> AlertDialog.showAlertError(bundle.getString("problem"),
+                bundle.getString("restore.fail"), task.getException().getMessage()));
+
+        runInBackground(task, "restore");
+    }
+
+    /**
+     * Handle partition past years Menu item
+     *
+     * <p>Transactions of past years are moved to year partitions in the background.</p>
+     */
+    @FXML
+    public void handlePartition() {
+        Optional<ButtonType> result = AlertDialog.showAlertConfirmation(bundle.getString("partition.title"),
+                bundle.getString("partition.title"), bundle.getString("partition.confirm"));
+        if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+            return;
+        }
+
+        Task<List<Integer>> task = new Task<List<Integer>>() {
+            @Override
+            protected List<Integer> call() throws Exception {
+                return YearPartitions.partitionBefore(LocalDate.now().getYear());
+            }
+        };
+
+        task.setOnSucceeded(event -> AlertDialog.showAlertInformation(bundle.getString("partition.title"),
+                bundle.getString("partition.done"), String.format(bundle.getString("partition.result"),
+                        YearPartitions.getPartitions().keySet())));
+        task.setOnFailed(event -> AlertDialog.showAlertError(bundle.getString("problem"),
+                bundle.getString("partition.fail"), task.getException().getMessage()));
+
+        runInBackground(task, "partition");
+    }
+
+    /**
+     * Handle compact old transactions Menu item
+     *
+     * <p>Transactions before last year are rolled into monthly summaries in the background,
+     * then all transactions are reloaded.</p>
+     */
+    @FXML
+    public void handleCompact() {
+        LocalDate cutoff = DatePeriod.currentYearStart().minusYears(1);
+
+        Optional<ButtonType> result = AlertDialog.showAlertConfirmation(bundle.getString("compact.title"),
+                bundle.getString("compact.title"), String.format(bundle.getString("compact.confirm"),
+                        cutoff, compactionService.getArchive().getFileName()));
+        if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+            return;
+        }
+
+        Task<CompactionService.Result> task = new Task<CompactionService.Result>() {
+            @Override
+            protected CompactionService.Result call() throws Exception {
+                return compactionService.compact(cutoff, bundle.getString("compact.summary.name"));
+            }
+        };
+
+        task.setOnSucceeded(event -> {
+            try {
+                incomeService.all();
+                expensesService.all();
+                AlertDialog.showAlertInformation(bundle.getString("compact.title"),
+                        bundle.getString("compact.done"), String.format(bundle.getString("compact.result"),
+                                task.getValue().getArchived(), task.getValue().getSummaries()));
+            } catch (RequestFailException e) {
+                AlertDialog.showAlertError(bundle.getString("problem"),
+                        bundle.getString("compact.fail"), e.getMessage());
+            }
+        });
+        task.setOnFailed(event -> AlertDialog.showAlertError(bundle.getString("problem"),
+                bundle.getString("compact.fail"), task.getException().getMessage()));
+
+        runInBackground(task, "compact");
+    }
+
+    /**
+     * Run task in a background thread
+     *
+     * @param task task to run
+     * @param name thread's name
+     */
+    private static void runInBackground(Task<?> task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     /**
      * Handle exit Menu item
      */
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.controller;
+
+import eu.kalodiodev.kitapi.exceptions.EmptyInputException;
+import eu.kalodiodev.kitapi.exceptions.NullInputException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.matching.PayeeMatcher;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+import eu.kalodiodev.kitapi.utils.AlertDialog;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+/**
+ * Handle Merge Similar Names
+ *
+ * <p>Show clusters of similar transaction names and merge the selected cluster to its most used name.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class MergeNamesHandler {
+
+    private Window window;
+    private ITransactionService transactionService;
+    private ResourceBundle resourceBundle;
+
+    /**
+     * Merge Names Handler Constructor
+     *
+     * @param window parent window
+     * @param transactionService transaction service of ledger
+     * @param resourceBundle resources bundle
+     */
+    public MergeNamesHandler(Window window, ITransactionService transactionService, ResourceBundle resourceBundle) {
+        this.window = window;
+        this.transactionService = transactionService;
+        this.resourceBundle = resourceBundle;
+    }
+
+    /**
+     * Show merge names dialog
+     *
+     * <p>Dialog shows until closed, clusters are refreshed after each merge.</p>
+     */
+    public void show() {
+        ListView<PayeeMatcher.Cluster> clustersList = new ListView<>();
+        clustersList.setPlaceholder(new Label(resourceBundle.getString("merge.names.none")));
+        clustersList.setPrefSize(560, 360);
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(window);
+        dialog.setTitle(resourceBundle.getString("merge.names.title"));
+        dialog.getDialogPane().getStylesheets().add(getClass().getResource("/styles/style.css").toExternalForm());
+        dialog.getDialogPane().setContent(new VBox(8,
+                new Label(resourceBundle.getString("merge.names.message")), clustersList));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("merge.names.action"), ButtonBar.ButtonData.OK_DONE));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("app.close"), ButtonBar.ButtonData.CANCEL_CLOSE));
+
+        while (true) {
+            clustersList.getItems().setAll(transactionService.createPayeeMatcher().clusters());
+
+            Optional<ButtonType> result = dialog.showAndWait();
+            if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+                // Closed
+                return;
+            }
+
+            PayeeMatcher.Cluster cluster = clustersList.getSelectionModel().getSelectedItem();
+            if (cluster == null) {
+                continue;
+            }
+
+            try {
+                transactionService.mergeNames(cluster.getNames(), cluster.getName());
+            } catch (NullInputException | EmptyInputException | RequestFailException e) {
+                AlertDialog.showAlertError(resourceBundle.getString("problem"),
+                        resourceBundle.getString("merge.names.fail"), cluster.getName());
+            }
+        }
+    }
+}
@@ -124,6 +124,15 @@ public class TransactionDialogHandler {
      */
     public boolean show(Transaction transactionToEdit) throws IOException {
 
+        // Transactions list may hold a description preview, edit full description
+        try {
+            transactionService.loadDescription(transactionToEdit);
+        } catch (NullInputException | EntryNotFoundException | RequestFailException e) {
+            AlertDialog.showAlertError(resourceBundle.getString("problem"),
+                    resourceBundle.getString("transaction.edit.title"), e.getMessage());
+            return false;
+        }
+
         Dialog<ButtonType> dialog = setupDialog(resourceBundle.getString("transaction.edit.title"));
 
         dialogController.editTransaction(transactionToEdit);
@@ -202,6 +211,7 @@ public class TransactionDialogHandler {
      * Add Transaction to Storage
      *
      * <p>Store new transaction using transaction service.</p>
+     * <p>If transaction duplicates a stored one, user is asked to confirm.</p>
      * <p>If error occurs, feedback is provided through dialog controller.</p>
      *
      * @param transactionService transaction service
@@ -211,6 +221,20 @@ public class TransactionDialogHandler {
      */
     private boolean addTransaction(ITransactionService transactionService, Transaction newTransaction,
                                    TransactionDialogController dialogController) {
+
+        // Warn for exact duplicate
+        if(transactionService.isDuplicate(newTransaction)) {
+            Optional<ButtonType> result = AlertDialog.showAlertConfirmation(
+                    resourceBundle.getString("transaction.duplicate.title"),
+                    resourceBundle.getString("transaction.duplicate.message"),
+                    resourceBundle.getString("transaction.duplicate.confirm"));
+
+            if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+                // Not confirmed, keep editing
+                return false;
+            }
+        }
+
         try {
             // Add Transaction
             transactionService.add(newTransaction);
@@ -17,14 +17,21 @@
 package eu.kalodiodev.kitapi.controller;
 
 import eu.kalodiodev.kitapi.exceptions.EmptyDateException;
+import eu.kalodiodev.kitapi.exceptions.NullInputException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Category;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
+import eu.kalodiodev.kitapi.service.AggregateView;
 import eu.kalodiodev.kitapi.service.ICategoryService;
 import eu.kalodiodev.kitapi.service.ITransactionService;
 import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.utils.CollationKeys;
 import eu.kalodiodev.kitapi.utils.MoneyFormat;
 import eu.kalodiodev.kitapi.view.AmountCellFactory;
-import eu.kalodiodev.kitapi.view.CategoryComboBox;
 import eu.kalodiodev.kitapi.view.CategoryTableColumnCellValueFactory;
+import javafx.beans.binding.Bindings;
+import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -36,7 +43,9 @@ import javafx.stage.Stage;
 import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.Predicate;
 
 /**
  * Transaction Controller
@@ -51,13 +60,20 @@ public class TransactionsController implements Initializable{
 
     private ResourceBundle bundle;
 
+    // Shown transactions, filtered only in this window
+    private FilteredList<Transaction> filteredTransactions;
+    // Total amount of shown transactions, follows changes
+    private AggregateView totalView;
+
     @FXML
     private BorderPane transactionsPanel;
     @FXML
-    private CategoryComboBox categoriesComboBox;
+    private ListView<Category> categoriesListView;
     @FXML
     private TableView<Transaction> transactionsTableView;
     @FXML
+    private TableColumn<Transaction, String> nameColumn;
+    @FXML
     private TableColumn<Transaction, String> categoryColumn;
     @FXML
     private TableColumn<Transaction, Long> amountColumn;
@@ -77,6 +93,12 @@ public class TransactionsController implements Initializable{
     private Label sinceLabel;
     @FXML
     private Label untilLabel;
+    @FXML
+    private TextField minAmountField;
+    @FXML
+    private TextField maxAmountField;
+    @FXML
+    private TextField textField;
 
 
     /**
@@ -91,14 +113,29 @@ public class TransactionsController implements Initializable{
         categoryColumn.setCellValueFactory(new CategoryTableColumnCellValueFactory());
         // Amount column, cell factory
         amountColumn.setCellFactory(new AmountCellFactory());
+        // Name columns sorted by cached collation keys
+        nameColumn.setComparator(CollationKeys.getInstance().comparator());
+        categoryColumn.setComparator(CollationKeys.getInstance().comparator());
+        // Several transactions can be selected for bulk edit
+        transactionsTableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // RadioButtons, transactions not filtered by default
         allCategoriesRadioButton.setSelected(true);
         allPeriodRadioButton.setSelected(true);
 
-        // Toggle categories ComboBox status
+        // Several categories can be selected, showing only category's name
+        categoriesListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        categoriesListView.setCellFactory(list -> new ListCell<Category>() {
+            @Override
+            protected void updateItem(Category category, boolean empty) {
+                super.updateItem(category, empty);
+                setText(empty || category == null ? null : category.getName());
+            }
+        });
+
+        // Toggle categories list status
         allCategoriesRadioButton.selectedProperty().addListener((observable, oldValue, newValue) -> {
-            categoriesComboBox.setDisable(newValue);
+            categoriesListView.setDisable(newValue);
         });
 
         // Toggle time period input status
@@ -130,16 +167,48 @@ public class TransactionsController implements Initializable{
      * Show available categories, using @see {@link ICategoryService}
      */
     public void showData() {
-        SortedList<Transaction> transactionSortedList = transactionService.getSortedList();
+        // Sorted in this window only, by table's columns, names by cached collation keys
+        filteredTransactions = new FilteredList<>(transactionService.getSortedList());
+        SortedList<Transaction> transactionSortedList = new SortedList<>(filteredTransactions);
         transactionSortedList.comparatorProperty().bind(transactionsTableView.comparatorProperty());
 
         transactionsTableView.setItems(transactionSortedList);
 
-        // Categories comboBox
-        categoriesComboBox.setItems(categoryService.getSortedList());
-        categoriesComboBox.getSelectionModel().selectFirst();
+        // Categories list
+        categoriesListView.setItems(categoryService.getSortedList());
+        categoriesListView.getSelectionModel().selectFirst();
+
+        showTotalAmount(AggregateView.filter(null, null, null));
+    }
+
+    /**
+     * Stop following transactions changes
+     *
+     * <p>Should be called when transactions window is closed.</p>
+     */
+    public void dispose() {
+        totalAmountLabel.textProperty().unbind();
+        if (totalView != null) {
+            transactionService.removeView(totalView);
+            totalView = null;
+        }
+    }
+
+    /**
+     * Show total amount of filtered transactions
+     *
+     * <p>Total amount is kept by an aggregate view of the service, so it follows transactions
+     * changes without filtering or summing shown transactions again.</p>
+     *
+     * @param filter shown transactions filter
+     */
+    private void showTotalAmount(Predicate<Transaction> filter) {
+        dispose();
 
-        totalAmountLabel.setText(MoneyFormat.format(transactionService.listTotalAmount()));
+        AggregateView view = transactionService.createView(filter);
+        totalAmountLabel.textProperty().bind(Bindings.createStringBinding(
+                () -> MoneyFormat.format(view.getSum() / 100d), view.sumProperty()));
+        totalView = view;
     }
 
     /**
@@ -213,24 +282,79 @@ public class TransactionsController implements Initializable{
      * Handle delete transaction Action
      *
      * <p>Get's selected transaction and calls transaction deletion after user confirmation.</p>
-     * <p>Transaction deleted by {@link TransactionDeleteHandler}</p>
+     * <p>Transaction deleted by {@link TransactionDeleteHandler}, several selected transactions
+     * are deleted together by {@link BulkEditHandler}</p>
      * <p>If no transaction is selected, an info alert is shown.</p>
      */
     @FXML
     public void handleDeleteTransaction() {
-        // Get selected category
-        Transaction selectedTransaction = transactionsTableView.getSelectionModel().getSelectedItem();
+        // Get selected transactions
+        List<Transaction> selectedTransactions = transactionsTableView.getSelectionModel().getSelectedItems();
 
         // No selection warning
-        if(selectedTransaction == null) {
+        if(selectedTransactions.isEmpty()) {
             AlertDialog.showAlertInformation(bundle.getString("transaction.selected.none"), null,
                     bundle.getString("transaction.delete.select"));
             return;
         }
 
+        if(selectedTransactions.size() > 1) {
+            // Delete transactions using bulk edit handler
+            createBulkEditHandler().delete(selectedTransactions);
+            return;
+        }
+
         // Delete transaction using transaction delete handler
         TransactionDeleteHandler transactionDeleteHandler = new TransactionDeleteHandler(transactionService, bundle);
-        transactionDeleteHandler.delete(selectedTransaction);
+        transactionDeleteHandler.delete(selectedTransactions.get(0));
+    }
+
+    /**
+     * Handle change category of selected transactions Action
+     *
+     * <p>If no transaction is selected, an info alert is shown.</p>
+     */
+    @FXML
+    public void handleRecategorizeTransactions() {
+        List<Transaction> selectedTransactions = transactionsTableView.getSelectionModel().getSelectedItems();
+
+        // No selection warning
+        if(selectedTransactions.isEmpty()) {
+            AlertDialog.showAlertInformation(bundle.getString("transaction.selected.none"), null,
+                    bundle.getString("transaction.bulk.select"));
+            return;
+        }
+
+        createBulkEditHandler().recategorize(selectedTransactions);
+    }
+
+    /**
+     * Handle shift dates of selected transactions Action
+     *
+     * <p>If no transaction is selected, an info alert is shown.</p>
+     */
+    @FXML
+    public void handleShiftDates() {
+        List<Transaction> selectedTransactions = transactionsTableView.getSelectionModel().getSelectedItems();
+
+        // No selection warning
+        if(selectedTransactions.isEmpty()) {
+            AlertDialog.showAlertInformation(bundle.getString("transaction.selected.none"), null,
+                    bundle.getString("transaction.bulk.select"));
+            return;
+        }
+
+        createBulkEditHandler().shiftDates(selectedTransactions);
+    }
+
+    /**
+     * Create bulk edit handler of this window
+     *
+     * @return bulk edit handler
+     */
+    private BulkEditHandler createBulkEditHandler() {
+        return new BulkEditHandler(transactionsPanel.getScene().getWindow(), transactionService, categoryService,
+                bundle);
     }
 
     /**
@@ -239,25 +363,54 @@ public class TransactionsController implements Initializable{
     @FXML
     public void handleFilter() {
         try {
-            totalAmountLabel.setText(MoneyFormat.format(
-                    filterCalculation(!allCategoriesRadioButton.isSelected(), !allPeriodRadioButton.isSelected())
-            ));
+            Predicate<Transaction> filter = createFilter(
+                    !allCategoriesRadioButton.isSelected(), !allPeriodRadioButton.isSelected());
+
+            filteredTransactions.setPredicate(filter);
+            showTotalAmount(filter);
         } catch (EmptyDateException e) {
             // Empty Date
             AlertDialog.showAlertError(bundle.getString("problem"),
                     bundle.getString("filter.fail"), bundle.getString("transaction.empty.date"));
+        } catch (NumberFormatException e) {
+            // Invalid amount
+            AlertDialog.showAlertError(bundle.getString("problem"),
+                    bundle.getString("filter.fail"), bundle.getString("filter.amount.invalid"));
+        } catch (NullInputException | RequestFailException e) {
+            AlertDialog.showAlertError(bundle.getString("problem"),
+                    bundle.getString("filter.fail"), e.getMessage());
         }
     }
 
     /**
-     * Filter entries and calculate transactions amount summary
+     * Create filter of shown transactions
+     *
+     * <p>Transactions are filtered by selected categories, time period, amount range and text
+     * contained in name or description. Empty amount or text inputs are not applied.</p>
      *
-     * @param filterByCategory if should be filtered by category
+     * @param filterByCategory if should be filtered by selected categories
      * @param filterByPeriod if should be filtered by time period
-     * @return total amount
+     * @return transactions filter
      * @throws EmptyDateException if date input is empty
+     * @throws NumberFormatException if amount input is not a number
+     * @throws NullInputException if query is null
+     * @throws RequestFailException if persistence storage operation failed
      */
-    private double filterCalculation(boolean filterByCategory, boolean filterByPeriod) throws EmptyDateException {
+    private Predicate<Transaction> createFilter(boolean filterByCategory, boolean filterByPeriod)
+            throws EmptyDateException, NullInputException, RequestFailException {
+
+        TransactionQuery.QueryBuilder builder = new TransactionQuery.QueryBuilder()
+                .setMinAmount(parseAmount(minAmountField.getText()))
+                .setMaxAmount(parseAmount(maxAmountField.getText()));
+
+        String text = textField.getText();
+        if(text != null && !text.trim().isEmpty())
+            builder.setText(text.trim());
+
+        if(filterByCategory) {
+            for (Category category : categoriesListView.getSelectionModel().getSelectedItems())
+                builder.addCategory(category);
+        }
 
         if(filterByPeriod) {
             // Transactions should be filtered by time period, getting time period
@@ -273,51 +426,24 @@ public class TransactionsController implements Initializable{
                 since = until;
                 until = tmp;
             }
-            // Total amount, Filtered by period and optionally by category
-            return calculateFilteredByPeriod(since, until, filterByCategory);
+            builder.setStart(since).setEnd(until);
         }
-        // Total amount, filtered by given category
-        return calculateFilteredByCategory(filterByCategory);
-    }
 
-    /**
-     * Calculate transactions amount summary
-     * Transactions filtered by time period and optionally by category
-     *
-     * @param start period start date
-     * @param end period end date
-     * @param filterByCategory filter also by category
-     * @return total amount
-     * @throws EmptyDateException if date input is empty
-     */
-    private double calculateFilteredByPeriod(LocalDate start, LocalDate end,
-                                             boolean filterByCategory) throws EmptyDateException {
-
-        if (filterByCategory) {
-            // Transactions filtered by time period and category
-            return transactionService.listTotalAmount(
-                    categoriesComboBox.getSelectionModel().getSelectedItem(), start, end);
-        } else {
-            // Transactions filtered only by time period
-            return transactionService.listTotalAmount(start, end);
-        }
+        return transactionService.filter(builder.build());
     }
 
     /**
-     * Calculate transactions amount summary
-     * Transactions may be filtered by category
+     * Parse amount input
      *
-     * @param filterByCategory is filtering by category enabled
-     * @return total amount
+     * @param input amount input, comma or dot as decimal separator
+     * @return amount in cents, null if input is empty
+     * @throws NumberFormatException if input is not a number
      */
-    private double calculateFilteredByCategory(boolean filterByCategory) {
-        if(filterByCategory) {
-            // Transactions filtered only by category
-            return transactionService.listTotalAmount(categoriesComboBox.getSelectionModel().getSelectedItem());
-        } else {
-            // Transactions not filtered
-            return transactionService.listTotalAmount();
-        }
+    private Long parseAmount(String input) {
+        if(input == null || input.trim().isEmpty())
+            return null;
+
+        return Math.round(Double.valueOf(input.trim().replace(',', '.')) * 100);
     }
 
     /**
@@ -79,5 +79,6 @@ public class TransactionsHandler {
         transactionsController.setTableTitle(title);
 
         stage.showAndWait();
+        transactionsController.dispose();
     }
 }
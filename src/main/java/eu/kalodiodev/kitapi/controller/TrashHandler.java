@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.controller;
+
+import eu.kalodiodev.kitapi.exceptions.NullInputException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+import eu.kalodiodev.kitapi.utils.AlertDialog;
+import eu.kalodiodev.kitapi.utils.MoneyFormat;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+/**
+ * Handle Trash
+ *
+ * <p>Show deleted transactions kept in trash and restore the selected ones.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class TrashHandler {
+
+    private Window window;
+    private ITransactionService transactionService;
+    private long retentionDays;
+    private ResourceBundle resourceBundle;
+
+    /**
+     * Trash Handler Constructor
+     *
+     * @param window parent window
+     * @param transactionService transaction service of ledger
+     * @param retentionDays days deleted transactions are kept in trash
+     * @param resourceBundle resources bundle
+     */
+    public TrashHandler(Window window, ITransactionService transactionService, long retentionDays,
+                        ResourceBundle resourceBundle) {
+        this.window = window;
+        this.transactionService = transactionService;
+        this.retentionDays = retentionDays;
+        this.resourceBundle = resourceBundle;
+    }
+
+    /**
+     * Show trash dialog
+     *
+     * <p>Dialog shows until closed, trash is reloaded after each restore.</p>
+     */
+    public void show() {
+        ListView<Transaction> trashList = new ListView<>();
+        trashList.setPlaceholder(new Label(resourceBundle.getString("trash.none")));
+        trashList.setPrefSize(560, 360);
+        trashList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        trashList.setCellFactory(list -> new ListCell<Transaction>() {
+            @Override
+            protected void updateItem(Transaction transaction, boolean empty) {
+                super.updateItem(transaction, empty);
+                setText(empty || transaction == null ? null : transaction.getDate() + "  " +
+                        transaction.getName() + "  " + MoneyFormat.format(transaction.getAmount() / 100d));
+            }
+        });
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(window);
+        dialog.setTitle(resourceBundle.getString("trash.title"));
+        dialog.getDialogPane().getStylesheets().add(getClass().getResource("/styles/style.css").toExternalForm());
+        dialog.getDialogPane().setContent(new VBox(8,
+                new Label(String.format(resourceBundle.getString("trash.message"), retentionDays)), trashList));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("trash.restore"), ButtonBar.ButtonData.OK_DONE));
+        dialog.getDialogPane().getButtonTypes().add(
+                new ButtonType(resourceBundle.getString("app.close"), ButtonBar.ButtonData.CANCEL_CLOSE));
+
+        while (true) {
+            try {
+                trashList.getItems().setAll(transactionService.trash());
+            } catch (RequestFailException e) {
+                AlertDialog.showAlertError(resourceBundle.getString("problem"),
+                        resourceBundle.getString("trash.load.fail"), e.getMessage());
+                return;
+            }
+
+            Optional<ButtonType> result = dialog.showAndWait();
+            if (!result.isPresent() || (result.get().getButtonData() != ButtonBar.ButtonData.OK_DONE)) {
+                // Closed
+                return;
+            }
+
+            List<Transaction> selected = new ArrayList<>(trashList.getSelectionModel().getSelectedItems());
+            if (selected.isEmpty()) {
+                continue;
+            }
+
+            try {
+                transactionService.restore(selected);
+            } catch (NullInputException | RequestFailException e) {
+                AlertDialog.showAlertError(resourceBundle.getString("problem"),
+                        resourceBundle.getString("trash.restore.fail"), e.getMessage());
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package eu.kalodiodev.kitapi.dao;
 
+import eu.kalodiodev.kitapi.exceptions.DaoException;
 
 /**
  * Dao Factory Abstract Class
@@ -59,6 +60,15 @@ public abstract class DaoFactory {
      */
     public abstract TransactionDao getIncomeDao();
 
+    /**
+     * Begin Unit Of Work
+     * Abstract method that any Dao Factory Class must extend to provide tha appropriate database
+     *
+     * @return Unit of work, sharing one storage transaction across its Data Access Objects
+     * @throws DaoException if unit of work could not begin
+     */
+    public abstract UnitOfWork beginWork() throws DaoException;
+
     /**
      * Get Factory that extends from this class
      * To work with the desired database
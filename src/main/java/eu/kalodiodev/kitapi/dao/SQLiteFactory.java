@@ -21,6 +21,8 @@ import eu.kalodiodev.kitapi.dao.impl.SQLiteExpenseDaoImpl;
 import eu.kalodiodev.kitapi.dao.impl.SQLiteExpensesCategoryDaoImpl;
 import eu.kalodiodev.kitapi.dao.impl.SQLiteIncomeCategoryDaoImpl;
 import eu.kalodiodev.kitapi.dao.impl.SQLiteIncomeDaoImpl;
+import eu.kalodiodev.kitapi.dao.impl.SQLiteUnitOfWork;
+import eu.kalodiodev.kitapi.exceptions.DaoException;
 
 /**
  * SQLite DAO Factory
@@ -70,4 +72,15 @@ public class SQLiteFactory extends DaoFactory {
     public TransactionDao getIncomeDao() {
         return new SQLiteIncomeDaoImpl();
     }
+
+    /**
+     * SQLite Unit Of Work
+     *
+     * @return unit of work on a shared connection
+     * @throws DaoException if shared connection could not be opened
+     */
+    @Override
+    public UnitOfWork beginWork() throws DaoException {
+        return new SQLiteUnitOfWork();
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.dao;
+
+/**
+ * Transaction Cursor Interface
+ *
+ * <p>Read-only view of the current row of a streamed query. The same cursor instance is reused
+ * for every row, so its values must be consumed before the handler returns.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public interface TransactionCursor {
+
+    /**
+     * Get transaction's id
+     *
+     * @return id
+     */
+    int getId();
+
+    /**
+     * Get transaction's name
+     *
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Get transaction's description
+     *
+     * @return description, may be null
+     */
+    String getDescription();
+
+    /**
+     * Get transaction's date
+     *
+     * @return date as days since 1970-01-01 (epoch day)
+     */
+    long getEpochDay();
+
+    /**
+     * Get transaction's amount
+     *
+     * @return amount in cents
+     */
+    long getAmount();
+
+    /**
+     * Get transaction's category id
+     *
+     * @return category id
+     */
+    int getCategoryId();
+
+    /**
+     * Get transaction's category name
+     *
+     * @return category name
+     */
+    String getCategoryName();
+
+    /**
+     * Get transaction's external id
+     *
+     * @return external id, null if transaction has no external source
+     */
+    String getExternalId();
+}
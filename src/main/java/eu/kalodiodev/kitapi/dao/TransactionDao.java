@@ -18,10 +18,17 @@ package eu.kalodiodev.kitapi.dao;
 
 import eu.kalodiodev.kitapi.exceptions.DaoEntryNotFoundException;
 import eu.kalodiodev.kitapi.exceptions.DaoException;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.SmartView;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -31,6 +38,11 @@ import java.util.List;
  */
 public interface TransactionDao extends GenericDao<Transaction>{
 
+    /**
+     * Description preview length of full descriptions
+     */
+    int FULL_DESCRIPTION = -1;
+
     /**
      * Get Entry Item
      *
@@ -41,6 +53,106 @@ public interface TransactionDao extends GenericDao<Transaction>{
      */
     Transaction get(int id) throws DaoException, DaoEntryNotFoundException;
 
+    /**
+     * Add Entry Items
+     *
+     * <p>Batched insert, executed as a single unit: either all given transactions are stored or none.
+     * Transactions whose external id is already stored are skipped.</p>
+     *
+     * @param transactions transactions to add
+     * @return added transactions, with their ids set
+     * @throws DaoException if database query fails
+     */
+    List<Transaction> addAll(List<Transaction> transactions) throws DaoException;
+
+    /**
+     * Rename transactions
+     *
+     * <p>Transactions named with any of given names are renamed, as a single unit.</p>
+     *
+     * @param names names to replace
+     * @param name new name
+     * @return number of renamed transactions
+     * @throws DaoException if database query fails
+     */
+    int rename(Collection<String> names, String name) throws DaoException;
+
+    /**
+     * Merge category into another
+     *
+     * <p>Transactions of source category are moved to target category and source category is removed,
+     * as a single unit.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws DaoException if database query fails, or source category has transactions of a closed year
+     */
+    int mergeCategory(Category source, Category target) throws DaoException;
+
+    /**
+     * Remove category and its transactions
+     *
+     * <p>Transactions of category, of every year, and category are removed as a single unit.</p>
+     *
+     * @param category category to remove
+     * @return number of removed transactions
+     * @throws DaoException if database query fails, or category has transactions of a closed year
+     */
+    int removeCategory(Category category) throws DaoException;
+
+    /**
+     * Change category of transactions
+     *
+     * <p>Transactions are changed as a single unit.</p>
+     *
+     * @param transactions transactions to change
+     * @param category new category
+     * @return number of changed transactions
+     * @throws DaoException if database query fails, or a transaction is of a closed year
+     */
+    int recategorize(Collection<Transaction> transactions, Category category) throws DaoException;
+
+    /**
+     * Shift dates of transactions
+     *
+     * <p>Transactions are changed as a single unit, moved to the partition of their new year if needed.</p>
+     *
+     * @param transactions transactions to change
+     * @param days days to shift dates by, negative to shift them back
+     * @return number of changed transactions
+     * @throws DaoException if database query fails, or a transaction is of a closed year before or after shift
+     */
+    int shiftDates(Collection<Transaction> transactions, int days) throws DaoException;
+
+    /**
+     * Remove transactions
+     *
+     * <p>Transactions are removed as a single unit.</p>
+     *
+     * @param transactions transactions to remove
+     * @return number of removed transactions
+     * @throws DaoException if database query fails, or a transaction is of a closed year
+     */
+    int remove(Collection<Transaction> transactions) throws DaoException;
+
+    /**
+     * Stream transactions
+     *
+     * <p>Transactions are read with a cursor and passed to handler one row at a time, ordered by date.
+     * No list of transactions is built, so memory use does not depend on the number of rows.</p>
+     *
+     * @param start stream transactions since date, null for no lower limit
+     * @param end stream transactions until date, null for no upper limit
+     * @param category stream only transactions of category, null for all categories
+     * @param handler rows handler
+     * @return number of streamed rows
+     * @throws DaoException if database query fails
+     * @throws IOException if handler failed
+     */
+    long stream(LocalDate start, LocalDate end, Category category, TransactionRowHandler handler)
+            throws DaoException, IOException;
+
     /**
      * Get latest transactions
      *
@@ -99,4 +211,171 @@ public interface TransactionDao extends GenericDao<Transaction>{
      * @throws DaoException if database query failed
      */
     long getTotalAmount(LocalDate since) throws DaoException;
+
+    /**
+     * Count transactions of category
+     *
+     * @param category transactions' category
+     * @return number of transactions
+     * @throws DaoException if database query failed
+     */
+    int count(Category category) throws DaoException;
+
+    /**
+     * Get total amount of category's transactions
+     *
+     * @param category transactions' category
+     * @return transactions amount summary
+     * @throws DaoException if database query failed
+     */
+    long getTotalAmount(Category category) throws DaoException;
+
+    /**
+     * Get total transactions amount per category
+     *
+     * <p>Amounts summaries of specific time period, grouped by category.</p>
+     *
+     * @param start calculate amounts summaries since date, null for no lower limit
+     * @param end calculate amounts summaries until date, null for no upper limit
+     * @return amounts summaries mapped by category id
+     * @throws DaoException if database query failed
+     */
+    Map<Integer, Long> getCategoryTotals(LocalDate start, LocalDate end) throws DaoException;
+
+    /**
+     * Get total transactions amount per payee
+     *
+     * @param start calculate amounts summaries since date, null for no lower limit
+     * @param end calculate amounts summaries until date, null for no upper limit
+     * @param limit maximum number of payees
+     * @return amounts summaries mapped by payee's name, highest first
+     * @throws DaoException if database query failed
+     */
+    Map<String, Long> getPayeeTotals(LocalDate start, LocalDate end, int limit) throws DaoException;
+
+    /**
+     * Set length of descriptions loaded by lists queries
+     *
+     * <p>Longer descriptions are loaded partially, see {@link Transaction#isDescriptionPartial()}.</p>
+     *
+     * @param length preview length in characters, zero to leave descriptions out,
+     *               {@link #FULL_DESCRIPTION} for full descriptions
+     */
+    void setDescriptionPreview(int length);
+
+    /**
+     * Get full description of transaction
+     *
+     * @param id transaction's id
+     * @return description, null if transaction has none
+     * @throws DaoException if database query failed
+     * @throws DaoEntryNotFoundException if transaction not found
+     */
+    String getDescription(int id) throws DaoException, DaoEntryNotFoundException;
+
+    /**
+     * Set soft delete mode
+     *
+     * <p>In soft delete mode removed transactions are marked with their deletion time and kept in trash,
+     * where they can be restored until purged. Transactions in trash are left out of every other query.</p>
+     *
+     * @param softDelete true to soft delete removed transactions, false to delete them
+     */
+    void setSoftDelete(boolean softDelete);
+
+    /**
+     * Get transactions in trash
+     *
+     * @return soft deleted transactions, latest deleted first
+     * @throws DaoException if database query failed
+     */
+    List<Transaction> trash() throws DaoException;
+
+    /**
+     * Restore transactions from trash
+     *
+     * <p>Transactions are restored as a single unit. Transactions no longer in trash, purged or
+     * restored meanwhile, are skipped.</p>
+     *
+     * @param transactions soft deleted transactions
+     * @return restored transactions
+     * @throws DaoException if database query fails, or a transaction is of a closed year
+     */
+    List<Transaction> restore(Collection<Transaction> transactions) throws DaoException;
+
+    /**
+     * Purge transactions from trash
+     *
+     * <p>At most limit transactions are deleted, so a large trash is purged in short chunks.
+     * Transactions of closed years are kept.</p>
+     *
+     * @param deletedBefore purge transactions deleted before this time, milliseconds since epoch
+     * @param limit maximum number of transactions to purge
+     * @return number of purged transactions, less than limit if no more are left to purge
+     * @throws DaoException if database query failed
+     */
+    int purge(long deletedBefore, int limit) throws DaoException;
+
+    /**
+     * Get changed transactions
+     *
+     * <p>Transactions added after the last known id, or changed since a time.</p>
+     *
+     * @param afterId transactions added after this id
+     * @param updatedSince transactions changed since this time, milliseconds since epoch
+     * @return added or changed transactions
+     * @throws DaoException if database query failed
+     */
+    List<Transaction> changed(int afterId, long updatedSince) throws DaoException;
+
+    /**
+     * Get latest change time of transactions
+     *
+     * @return latest change time, milliseconds since epoch, 0 if none
+     * @throws DaoException if database query failed
+     */
+    long lastUpdate() throws DaoException;
+
+    /**
+     * Get ids of transactions
+     *
+     * @return transactions' ids
+     * @throws DaoException if database query failed
+     */
+    Set<Integer> ids() throws DaoException;
+
+    /**
+     * Get transactions matching query
+     *
+     * @param query transaction query
+     * @return matching transactions, sorted and limited as query defines
+     * @throws DaoException if database query failed
+     */
+    List<Transaction> query(TransactionQuery query) throws DaoException;
+
+    /**
+     * Get saved smart views of ledger
+     *
+     * <p>Views with an invalid definition are skipped.</p>
+     *
+     * @return smart views, ordered by name
+     * @throws DaoException if database query failed
+     */
+    List<SmartView> smartViews() throws DaoException;
+
+    /**
+     * Save smart view, replacing a view with the same name
+     *
+     * @param view smart view to save
+     * @throws DaoException if database query failed
+     */
+    void saveSmartView(SmartView view) throws DaoException;
+
+    /**
+     * Remove smart view
+     *
+     * @param name view's name
+     * @throws DaoException if database query failed
+     */
+    void removeSmartView(String name) throws DaoException;
 }
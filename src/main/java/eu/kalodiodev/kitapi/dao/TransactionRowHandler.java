@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.dao;
+
+import java.io.IOException;
+
+/**
+ * Transaction Row Handler Interface
+ *
+ * <p>Receives streamed transaction rows one at a time.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+@FunctionalInterface
+public interface TransactionRowHandler {
+
+    /**
+     * Handle row
+     *
+     * @param row current row, valid only until this method returns
+     * @throws IOException if handling row failed, streaming stops
+     */
+    void handle(TransactionCursor row) throws IOException;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.dao;
+
+import eu.kalodiodev.kitapi.exceptions.DaoException;
+
+/**
+ * Unit Of Work
+ *
+ * <p>Data access objects of a unit of work share one connection and one storage transaction, so an
+ * operation spanning categories and transactions, of both income and expenses, is stored atomically
+ * with a single commit. Changes are discarded unless the unit is committed before it is closed.</p>
+ * <p>Units nest through {@link #nested()}: a nested unit's changes are discarded on its own, or kept
+ * and committed with its parent.</p>
+ *
+ * <pre>{@code
+ * try (UnitOfWork work = DaoFactory.getFactory(DaoFactory.SQLITE).beginWork()) {
+ *     int id = work.getExpensesCategoryDao().add(category);
+ *     work.getExpensesDao().addAll(transactions);
+ *     work.commit();
+ * }
+ * }</pre>
+ *
+ * @author Raptodimos Thanos
+ */
+public interface UnitOfWork extends AutoCloseable {
+
+    /**
+     * Get Income Category Dao of this unit
+     *
+     * @return Income category Data Access Object
+     */
+    CategoryDao getIncomeCategoryDao();
+
+    /**
+     * Get Expenses Category Dao of this unit
+     *
+     * @return Expenses category Data Access Object
+     */
+    CategoryDao getExpensesCategoryDao();
+
+    /**
+     * Get Income Dao of this unit
+     *
+     * @return Income Data Access Object
+     */
+    TransactionDao getIncomeDao();
+
+    /**
+     * Get Expenses Dao of this unit
+     *
+     * @return Expenses Data Access Object
+     */
+    TransactionDao getExpensesDao();
+
+    /**
+     * Begin nested unit of work
+     *
+     * <p>Nested unit shares this unit's data access objects. It must be closed before this unit
+     * continues.</p>
+     *
+     * @return nested unit of work
+     * @throws DaoException if nested unit could not begin
+     */
+    UnitOfWork nested() throws DaoException;
+
+    /**
+     * Commit unit's changes
+     *
+     * <p>A nested unit's changes are kept in its parent, and stored when parent is committed.</p>
+     *
+     * @throws DaoException if commit failed
+     */
+    void commit() throws DaoException;
+
+    /**
+     * Close unit, discarding its changes if it was not committed
+     *
+     * @throws DaoException if changes could not be discarded
+     */
+    @Override
+    void close() throws DaoException;
+}
@@ -19,12 +19,14 @@ package eu.kalodiodev.kitapi.dao.impl;
 import eu.kalodiodev.kitapi.dao.CategoryDao;
 import eu.kalodiodev.kitapi.dao.GenericDao;
 import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
+import eu.kalodiodev.kitapi.db.QueryCache;
 import eu.kalodiodev.kitapi.exceptions.DaoEntryNotFoundException;
 import eu.kalodiodev.kitapi.exceptions.DaoException;
 import eu.kalodiodev.kitapi.model.Category;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -47,6 +49,11 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
      */
     private JdbcSqliteConnection connection = new JdbcSqliteConnection();
 
+    /**
+     * Query results cache, cleared on every write
+     */
+    private final QueryCache cache = QueryCache.getInstance();
+
     /**
      * SQLite Category Data Access Object Constructor
      *
@@ -62,6 +69,21 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
         this.columnDescription = columnDescription;
     }
 
+    /**
+     * SQLite Category Data Access Object Constructor
+     *
+     * @param table categories table
+     * @param columnId name of column with ids
+     * @param columnName name of column with names
+     * @param columnDescription name of column with descriptions
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    SQLiteCategoryDaoImpl(String table, String columnId, String columnName, String columnDescription,
+                          JdbcSqliteConnection connection) {
+        this(table, columnId, columnName, columnDescription);
+        this.connection = connection;
+    }
+
 
     /**
      * Get all Categories
@@ -80,8 +102,6 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
                 columnDescription + " FROM " +
                 table;
 
-        List<Category> categories = new ArrayList<>();
-
         //Order By Query
         StringBuilder sb = new StringBuilder(query);
         if(!orderBy.equals(OrderBy.NONE)) {
@@ -96,25 +116,36 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
         }
 
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 Statement statement = conn.createStatement();
-                 ResultSet results = statement.executeQuery(sb.toString())) {
-
-                while (results.next()) {
-                    // Get category
-                    Category category = new Category();
-                    category.setId(results.getInt(columnId));
-                    category.setName(results.getString(columnName));
-                    category.setDescription(results.getString(columnDescription));
-
-                    // Add category to list
-                    categories.add(category);
+            List<Category> cached = cache.get(sb.toString(), Collections.emptyList(),
+                    SQLiteCategoryDaoImpl::weigh, () -> {
+                try (Connection conn = connection.connect();
+                     Statement statement = conn.createStatement();
+                     ResultSet results = statement.executeQuery(sb.toString())) {
+
+                    List<Category> categories = new ArrayList<>();
+                    while (results.next()) {
+                        // Get category
+                        Category category = new Category();
+                        category.setId(results.getInt(columnId));
+                        category.setName(results.getString(columnName));
+                        category.setDescription(results.getString(columnDescription));
+
+                        // Add category to list
+                        categories.add(category);
+                    }
+                    return categories;
+
+                } catch (SQLException e) {
+                    throw new DaoException("Could not load categories: " + e.getMessage());
                 }
-                return categories;
+            });
 
-            } catch (SQLException e) {
-                throw new DaoException("Could not load categories: " + e.getMessage());
+            // Cached categories are shared, callers get their own copies
+            List<Category> categories = new ArrayList<>(cached.size());
+            for (Category category : cached) {
+                categories.add(new Category(category.getId(), category.getName(), category.getDescription()));
             }
+            return categories;
         }
     }
 
@@ -129,15 +160,19 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
         String query = "SELECT COUNT(*) AS count FROM " + table;
 
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 Statement queryCategory = conn.createStatement();
-                 ResultSet results = queryCategory.executeQuery(query)) {
+            Integer count = cache.get(query, () -> {
+                try (Connection conn = connection.connect();
+                     Statement queryCategory = conn.createStatement();
+                     ResultSet results = queryCategory.executeQuery(query)) {
 
-                return results.getInt("count");
+                    return results.getInt("count");
 
-            } catch (SQLException e) {
-                return -1;
-            }
+                } catch (SQLException e) {
+                    // Failures are not cached
+                    return null;
+                }
+            });
+            return count == null ? -1 : count;
         }
     }
 
@@ -266,6 +301,8 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
 
             } catch (Exception e) {
                 throw new DaoException("Insert new Category query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
@@ -330,6 +367,8 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
             } catch (SQLException e) {
                 // Connection failed
                 throw new DaoException("Update category query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
@@ -354,6 +393,8 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
 
             } catch (SQLException e) {
                 throw new DaoException("Delete category query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
@@ -378,6 +419,8 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
 
             } catch (SQLException e) {
                 throw new DaoException("Delete category query failed");
+            } finally {
+                cache.changed();
             }
         }
     }
@@ -400,7 +443,25 @@ abstract class SQLiteCategoryDaoImpl implements CategoryDao {
 
             } catch (SQLException e) {
                 throw new DaoException("Delete all categories failed " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
+
+    /**
+     * Estimate size of cached categories
+     *
+     * @param categories categories list
+     * @return estimated size in bytes
+     */
+    private static long weigh(List<Category> categories) {
+        long size = 16;
+        for (Category category : categories) {
+            size += 128;
+            size += 2L * (category.getName() == null ? 0 : category.getName().length());
+            size += 2L * (category.getDescription() == null ? 0 : category.getDescription().length());
+        }
+        return size;
+    }
 }
\ No newline at end of file
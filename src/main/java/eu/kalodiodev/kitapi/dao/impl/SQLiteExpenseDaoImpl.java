@@ -16,6 +16,7 @@
 
 package eu.kalodiodev.kitapi.dao.impl;
 
+import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
 import eu.kalodiodev.kitapi.model.CategoryTable;
 import eu.kalodiodev.kitapi.model.TransactionTable;
@@ -40,7 +41,11 @@ public class SQLiteExpenseDaoImpl extends SQLiteTransactionDaoImpl{
                 .setDescriptionColumn(SqliteDatabase.EXPENSES_COLUMN_DESCRIPTION)
                 .setDateColumn(SqliteDatabase.EXPENSES_COLUMN_DATE)
                 .setAmountColumn(SqliteDatabase.EXPENSES_COLUMN_AMOUNT)
-                .setCategoryColumn(SqliteDatabase.EXPENSES_COLUMN_CATEGORY);
+                .setCategoryColumn(SqliteDatabase.EXPENSES_COLUMN_CATEGORY)
+                .setExternalIdColumn(SqliteDatabase.EXPENSES_COLUMN_EXTERNAL_ID)
+                .setUpdatedAtColumn(SqliteDatabase.EXPENSES_COLUMN_UPDATED_AT)
+                .setPayeeColumn(SqliteDatabase.EXPENSES_COLUMN_PAYEE)
+                .setDeletedAtColumn(SqliteDatabase.EXPENSES_COLUMN_DELETED_AT);
 
         expensesCategoryTableBuilder.setTableName(SqliteDatabase.TABLE_EXPENSES_CATEGORY)
                 .setIdColumn(SqliteDatabase.EXPENSES_CATEGORY_COLUMN_ID)
@@ -54,4 +59,13 @@ public class SQLiteExpenseDaoImpl extends SQLiteTransactionDaoImpl{
     public SQLiteExpenseDaoImpl() {
         super(expensesTableBuilder.build(), expensesCategoryTableBuilder.build());
     }
+
+    /**
+     * SQLite Expenses Dao Constructor
+     *
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    public SQLiteExpenseDaoImpl(JdbcSqliteConnection connection) {
+        super(expensesTableBuilder.build(), expensesCategoryTableBuilder.build(), connection);
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package eu.kalodiodev.kitapi.dao.impl;
 
 import eu.kalodiodev.kitapi.dao.GenericDao;
+import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
 import eu.kalodiodev.kitapi.model.Category;
 
@@ -38,4 +39,17 @@ public class SQLiteExpensesCategoryDaoImpl extends SQLiteCategoryDaoImpl impleme
                 SqliteDatabase.EXPENSES_CATEGORY_COLUMN_NAME,
                 SqliteDatabase.EXPENSES_CATEGORY_COLUMN_DESCRIPTION);
     }
+
+    /**
+     * SQLite Expenses Category Data Access Object Constructor
+     *
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    public SQLiteExpensesCategoryDaoImpl(JdbcSqliteConnection connection) {
+        super(SqliteDatabase.TABLE_EXPENSES_CATEGORY,
+                SqliteDatabase.EXPENSES_CATEGORY_COLUMN_ID,
+                SqliteDatabase.EXPENSES_CATEGORY_COLUMN_NAME,
+                SqliteDatabase.EXPENSES_CATEGORY_COLUMN_DESCRIPTION,
+                connection);
+    }
 }
@@ -17,6 +17,7 @@
 package eu.kalodiodev.kitapi.dao.impl;
 
 import eu.kalodiodev.kitapi.dao.GenericDao;
+import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
 import eu.kalodiodev.kitapi.model.Category;
 
@@ -38,4 +39,17 @@ public class SQLiteIncomeCategoryDaoImpl extends SQLiteCategoryDaoImpl implement
                 SqliteDatabase.INCOME_CATEGORY_COLUMN_NAME,
                 SqliteDatabase.INCOME_CATEGORY_COLUMN_DESCRIPTION);
     }
+
+    /**
+     * SQLite Income Category Data Access Object Constructor
+     *
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    public SQLiteIncomeCategoryDaoImpl(JdbcSqliteConnection connection) {
+        super(SqliteDatabase.TABLE_INCOME_CATEGORY,
+                SqliteDatabase.INCOME_CATEGORY_COLUMN_ID,
+                SqliteDatabase.INCOME_CATEGORY_COLUMN_NAME,
+                SqliteDatabase.INCOME_CATEGORY_COLUMN_DESCRIPTION,
+                connection);
+    }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 
 package eu.kalodiodev.kitapi.dao.impl;
 
+import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
 import eu.kalodiodev.kitapi.model.CategoryTable;
 import eu.kalodiodev.kitapi.model.TransactionTable;
@@ -40,7 +41,11 @@ public class SQLiteIncomeDaoImpl extends SQLiteTransactionDaoImpl{
                 .setDescriptionColumn(SqliteDatabase.INCOME_COLUMN_DESCRIPTION)
                 .setDateColumn(SqliteDatabase.INCOME_COLUMN_DATE)
                 .setAmountColumn(SqliteDatabase.INCOME_COLUMN_AMOUNT)
-                .setCategoryColumn(SqliteDatabase.INCOME_COLUMN_CATEGORY);
+                .setCategoryColumn(SqliteDatabase.INCOME_COLUMN_CATEGORY)
+                .setExternalIdColumn(SqliteDatabase.INCOME_COLUMN_EXTERNAL_ID)
+                .setUpdatedAtColumn(SqliteDatabase.INCOME_COLUMN_UPDATED_AT)
+                .setPayeeColumn(SqliteDatabase.INCOME_COLUMN_PAYEE)
+                .setDeletedAtColumn(SqliteDatabase.INCOME_COLUMN_DELETED_AT);
 
         incomeCategoryTableBuilder.setTableName(SqliteDatabase.TABLE_INCOME_CATEGORY)
                 .setIdColumn(SqliteDatabase.INCOME_CATEGORY_COLUMN_ID)
@@ -54,4 +59,13 @@ public class SQLiteIncomeDaoImpl extends SQLiteTransactionDaoImpl{
     public SQLiteIncomeDaoImpl() {
         super(incomeTableBuilder.build(), incomeCategoryTableBuilder.build());
     }
+
+    /**
+     * SQLite Income Dao Constructor
+     *
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    public SQLiteIncomeDaoImpl(JdbcSqliteConnection connection) {
+        super(incomeTableBuilder.build(), incomeCategoryTableBuilder.build(), connection);
+    }
 }
\ No newline at end of file
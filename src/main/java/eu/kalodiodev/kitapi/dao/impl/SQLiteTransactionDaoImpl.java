@@ -17,19 +17,37 @@
 package eu.kalodiodev.kitapi.dao.impl;
 
 import eu.kalodiodev.kitapi.dao.GenericDao;
+import eu.kalodiodev.kitapi.dao.TransactionCursor;
 import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.dao.TransactionRowHandler;
 import eu.kalodiodev.kitapi.db.JdbcSqliteConnection;
+import eu.kalodiodev.kitapi.db.QueryCache;
+import eu.kalodiodev.kitapi.db.SharedSqliteConnection;
+import eu.kalodiodev.kitapi.db.SqliteDatabase;
+import eu.kalodiodev.kitapi.db.YearPartitions;
 import eu.kalodiodev.kitapi.exceptions.DaoEntryNotFoundException;
 import eu.kalodiodev.kitapi.exceptions.DaoException;
 import eu.kalodiodev.kitapi.model.Category;
 import eu.kalodiodev.kitapi.model.CategoryTable;
+import eu.kalodiodev.kitapi.model.SmartView;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
 import eu.kalodiodev.kitapi.model.TransactionTable;
+import org.sqlite.Function;
+import org.sqlite.SQLiteConnection;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * Abstract Class of SQLite Transaction DAO
@@ -41,6 +59,20 @@ import java.util.List;
  */
 abstract class SQLiteTransactionDaoImpl implements TransactionDao {
 
+    // Maximum parameters bound to a single statement, new name takes two
+    private static final int MAX_PARAMETERS = 997;
+    // Maximum transactions removed by a single statement of remove all
+    private static final int REMOVE_CHUNK = 500;
+
+    // SQL function folding text as TransactionQuery does, registered on query connections
+    private static final String FOLD_FUNCTION = "kitapi_fold";
+    // Maximum compiled queries kept
+    private static final int COMPILED_QUERIES = 64;
+
+    // Payee id of a name bound as parameter, name must have been added to payees
+    private static final String PAYEE_ID = "(SELECT p." + SqliteDatabase.PAYEES_COLUMN_ID + " FROM main." +
+            SqliteDatabase.TABLE_PAYEES + " AS p WHERE p." + SqliteDatabase.PAYEES_COLUMN_NAME + " = ?)";
+
     // Tables
     private TransactionTable transactionTable;
     private CategoryTable categoryTable;
@@ -50,6 +82,37 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
      */
     private JdbcSqliteConnection connection = new JdbcSqliteConnection();
 
+    /**
+     * Query results cache, cleared on every write
+     */
+    private final QueryCache cache = QueryCache.getInstance();
+
+    /**
+     * Pool of names read, shared by loaded transactions
+     */
+    private final StringPool names = StringPool.getInstance();
+
+    /**
+     * Length of descriptions loaded by lists queries, full descriptions if negative
+     */
+    private volatile int descriptionPreview = FULL_DESCRIPTION;
+
+    /**
+     * Removed transactions are kept in trash if set
+     */
+    private volatile boolean softDelete;
+
+    /**
+     * Compiled transaction queries, least recently used are evicted
+     */
+    private final Map<TransactionQuery, CompiledQuery> compiledQueries =
+            new LinkedHashMap<TransactionQuery, CompiledQuery>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TransactionQuery, CompiledQuery> eldest) {
+                    return size() > COMPILED_QUERIES;
+                }
+            };
+
     /**
      * SQLite Transaction Data Access Object constructor
      *
@@ -62,6 +125,220 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
         this.categoryTable = categoryTable;
     }
 
+    /**
+     * SQLite Transaction Data Access Object constructor
+     *
+     * @param transactionTable transactions table structure
+     * @param categoryTable categories table structure
+     * @param connection database connection, i.e. shared by a unit of work
+     */
+    SQLiteTransactionDaoImpl(TransactionTable transactionTable, CategoryTable categoryTable,
+                             JdbcSqliteConnection connection) {
+        this(transactionTable, categoryTable);
+        this.connection = connection;
+    }
+
+    /**
+     * Set length of descriptions loaded by lists queries
+     *
+     * <p>Only a preview of each description is read from storage, longer descriptions are
+     * loaded partially, see {@link Transaction#isDescriptionPartial()}. Single transactions
+     * and streamed rows are always loaded with their full description.</p>
+     *
+     * @param length preview length in characters, zero to leave descriptions out,
+     *               {@link #FULL_DESCRIPTION} for full descriptions
+     */
+    @Override
+    public void setDescriptionPreview(int length) {
+        this.descriptionPreview = length;
+    }
+
+    /**
+     * Get full description of transaction
+     *
+     * @param id transaction's id
+     * @return description, null if transaction has none
+     * @throws DaoException if database query failed
+     * @throws DaoEntryNotFoundException if transaction not found
+     */
+    @Override
+    public String getDescription(int id) throws DaoException, DaoEntryNotFoundException {
+        String query = "SELECT " + transactionTable.getDescriptionColumn() + " FROM " + source(null, null) +
+                " WHERE " + transactionTable.getIdColumn() + " = ?";
+
+        try (Connection conn = connection.connect();
+             PreparedStatement statement = conn.prepareStatement(query)) {
+            statement.setInt(1, id);
+            try (ResultSet results = statement.executeQuery()) {
+                if (!results.next()) {
+                    throw new DaoEntryNotFoundException("Transaction entry not found!");
+                }
+                return results.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new DaoException("Failed to get transaction's description: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Set soft delete mode
+     *
+     * <p>Soft deleting a transaction is a single column update, its indexes are left unchanged
+     * until it is purged.</p>
+     *
+     * @param softDelete true to soft delete removed transactions, false to delete them
+     */
+    @Override
+    public void setSoftDelete(boolean softDelete) {
+        this.softDelete = softDelete;
+    }
+
+    /**
+     * Get transactions in trash
+     *
+     * @return soft deleted transactions, latest deleted first
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public List<Transaction> trash() throws DaoException {
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + YearPartitions.source(transactionTable.getTableName(), null, null,
+                        transactionTable.getDeletedAtColumn() + " IS NOT NULL") +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " ORDER BY " + transactionTable.getTableName() + "." + transactionTable.getDeletedAtColumn() + " DESC";
+
+        synchronized (this) {
+            try {
+                return getTransactions(query);
+            } catch (SQLException e) {
+                throw new DaoException("Could not load transactions in trash: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Restore transactions from trash
+     *
+     * <p>Transactions still in trash are selected first, then restored, by ids bound in chunks of at most
+     * {@value #MAX_PARAMETERS} parameters, per chunk of each year's table, all within a single database
+     * transaction. Transactions purged or restored meanwhile are not included.</p>
+     *
+     * @param transactions soft deleted transactions
+     * @return restored transactions
+     * @throws DaoException if database query failed, or a transaction is of a closed year, nothing is restored
+     */
+    @Override
+    public List<Transaction> restore(Collection<Transaction> transactions) throws DaoException {
+        Map<String, List<Integer>> ids = idsByTable(transactions);
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+
+                    Set<Integer> trashed = new HashSet<>();
+                    for (Map.Entry<String, List<Integer>> table : ids.entrySet()) {
+                        List<Integer> tableTrashed = selectIds(conn, "SELECT " + transactionTable.getIdColumn() +
+                                " FROM " + table.getKey() + " WHERE " + transactionTable.getDeletedAtColumn() +
+                                " IS NOT NULL AND " + transactionTable.getIdColumn() + " IN ", table.getValue());
+
+                        executeByIds(conn, "UPDATE " + table.getKey() + " SET " +
+                                        transactionTable.getDeletedAtColumn() + " = NULL, " +
+                                        transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                        " WHERE " + transactionTable.getIdColumn() + " IN ",
+                                Collections.emptyList(), tableTrashed);
+                        trashed.addAll(tableTrashed);
+                    }
+
+                    conn.commit();
+
+                    List<Transaction> restored = new ArrayList<>(trashed.size());
+                    for (Transaction transaction : transactions) {
+                        if (trashed.remove(transaction.getId())) {
+                            restored.add(transaction);
+                        }
+                    }
+                    return restored;
+
+                } catch (SQLException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Restore transactions failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Restore transactions query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Restore transactions query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Purge transactions from trash
+     *
+     * <p>Each table is purged by a single delete of at most the remaining limit of rows, selected by
+     * the deletion time index. Rows are not cascaded, so a chunk holds the database lock briefly.</p>
+     *
+     * @param deletedBefore purge transactions deleted before this time, milliseconds since epoch
+     * @param limit maximum number of transactions to purge
+     * @return number of purged transactions, less than limit if no more are left to purge
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public int purge(long deletedBefore, int limit) throws DaoException {
+        // Closed years are not changed
+        List<String> tables = YearPartitions.openTables(transactionTable.getTableName());
+
+        synchronized (this) {
+            int purged = 0;
+            try (Connection conn = connection.connect()) {
+                for (String table : tables) {
+                    if (purged >= limit) {
+                        break;
+                    }
+
+                    try (PreparedStatement purge = conn.prepareStatement("DELETE FROM " + table +
+                            " WHERE " + transactionTable.getIdColumn() + " IN (SELECT " +
+                            transactionTable.getIdColumn() + " FROM " + table + " WHERE " +
+                            transactionTable.getDeletedAtColumn() + " < ? LIMIT ?)")) {
+                        purge.setLong(1, deletedBefore);
+                        purge.setInt(2, limit - purged);
+                        purged += purge.executeUpdate();
+                    }
+                }
+                return purged;
+            } catch (SQLException e) {
+                throw new DaoException("Purge transactions query failed: " + e.getMessage());
+            } finally {
+                if (purged > 0) {
+                    cache.changed();
+                }
+            }
+        }
+    }
+
     /**
      * Get all transactions
      *
@@ -76,28 +353,22 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
         String query = "SELECT " +
                 transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
                 transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
+                description() + ", " +
                 transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
                 transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
                 categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
                 categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
                 categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
-                " FROM " + transactionTable.getTableName() +
+                " FROM " + source(null, null) +
                 " INNER JOIN " + categoryTable.getTableName() +
                 " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
                 " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn();
 
-        // Order By Query
+        // Order By Query, by indexed date column and id for a stable order
         StringBuilder sb = new StringBuilder(query);
         if(!orderBy.equals(GenericDao.OrderBy.NONE)) {
-            sb.append(" ORDER BY ");
-            sb.append(transactionTable.getDateColumn());
-            sb.append(" COLLATE NOCASE ");
-            if(orderBy.equals(GenericDao.OrderBy.ASC)) {
-                sb.append("ASC");
-            } else {
-                sb.append("DESC");
-            }
+            String direction = orderBy.equals(GenericDao.OrderBy.ASC) ? " ASC" : " DESC";
+            sb.append(" ORDER BY ").append(dateOrder(direction));
         }
 
         // Get transactions
@@ -119,7 +390,7 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
     @Override
     public boolean exists(int id) throws DaoException {
         // Database query
-        String query = "SELECT COUNT(*) AS count FROM " + transactionTable.getTableName() +
+        String query = "SELECT COUNT(*) AS count FROM " + source(null, null) +
                 " WHERE " + transactionTable.getIdColumn() + " = ?";
 
         synchronized (this) {
@@ -145,18 +416,22 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
     @Override
     public int count() {
         // Database query
-        String query = "SELECT COUNT(*) AS count FROM " + transactionTable.getTableName();
+        String query = "SELECT COUNT(*) AS count FROM " + source(null, null);
 
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 Statement queryCategory = conn.createStatement();
-                 ResultSet results = queryCategory.executeQuery(query)) {
+            Integer count = cache.get(query, () -> {
+                try (Connection conn = connection.connect();
+                     Statement queryCategory = conn.createStatement();
+                     ResultSet results = queryCategory.executeQuery(query)) {
 
-                return results.getInt("count");
+                    return results.getInt("count");
 
-            } catch (SQLException e) {
-                return -1;
-            }
+                } catch (SQLException e) {
+                    // Failures are not cached
+                    return null;
+                }
+            });
+            return count == null ? -1 : count;
         }
     }
 
@@ -170,7 +445,7 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
     @Override
     public int count(String name, CountCriteria criteria) {
         // Database query
-        String query = "SELECT COUNT(*) AS count FROM " + transactionTable.getTableName() +
+        String query = "SELECT COUNT(*) AS count FROM " + source(null, null) +
                 " WHERE " + transactionTable.getNameColumn();
 
         if (criteria.equals(CountCriteria.EQUAL)) {
@@ -200,185 +475,913 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
                 transactionTable.getDescriptionColumn() + ", " +
                 transactionTable.getDateColumn() + ", " +
                 transactionTable.getAmountColumn() + ", " +
-                transactionTable.getCategoryColumn() +
-                ") VALUES(?, ?, ?, ?, ?)";
+                transactionTable.getCategoryColumn() + ", " +
+                transactionTable.getExternalIdColumn() +
+                ") VALUES(?, ?, ?, ?, ?, ?)";
+
+        checkWritable(transaction.getDate());
 
         synchronized (this) {
             try (Connection conn = connection.connect();
                  PreparedStatement insertIntoTransactions = conn.prepareStatement(query)) {
-                // Set Data to query
-                insertIntoTransactions.setString(1, transaction.getName());
-                insertIntoTransactions.setString(2, transaction.getDescription());
-                insertIntoTransactions.setDate(3, Date.valueOf(transaction.getDate()));
-                insertIntoTransactions.setLong(4, transaction.getAmount());
-                insertIntoTransactions.setInt(5, transaction.getCategory().getId());
 
-                // Execute query and get affected rows
-                int affectedRows = insertIntoTransactions.executeUpdate();
-                if (affectedRows == 0) {
-                    throw new SQLException("The transaction insert failed!");
+                // Transaction of a partitioned year is moved to its partition, within the same transaction
+                conn.setAutoCommit(false);
+                try {
+                    // Set Data to query
+                    setInsertParameters(insertIntoTransactions, transaction);
+
+                    // Execute query and get affected rows
+                    int affectedRows = insertIntoTransactions.executeUpdate();
+                    if (affectedRows == 0) {
+                        throw new SQLException("The transaction insert failed!");
+                    }
+                    // Get Generated Key
+                    int id = SQLiteHelper.getGeneratedKey(insertIntoTransactions.getGeneratedKeys(), 1);
+                    route(conn, id, transaction.getDate(), false);
+
+                    conn.commit();
+                    return id;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
                 }
-                // Get Generated Key
-                return SQLiteHelper.getGeneratedKey(insertIntoTransactions.getGeneratedKeys(), 1);
 
             } catch (Exception e) {
                 System.out.println("Insert transaction exception: " + e.getMessage());
                 throw new DaoException("Insert new transaction query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
 
     /**
-     * Update Transaction
+     * Add Transactions
      *
-     * @param transaction transaction to update
-     * @param updatedTransaction update transaction with this one
-     * @throws DaoException if database query failed
+     * <p>All transactions are inserted within a single database transaction, reusing one prepared
+     * statement. Transactions with an external id already stored are skipped.</p>
+     *
+     * @param transactions transactions to add
+     * @return added transactions, with their new ids set
+     * @throws DaoException if insert transactions database query failed, no transaction is added
      */
     @Override
-    public void update(Transaction transaction, Transaction updatedTransaction) throws DaoException {
-
+    public List<Transaction> addAll(List<Transaction> transactions) throws DaoException {
         // Database query
-        String query = "UPDATE " + transactionTable.getTableName() + " SET " +
-                transactionTable.getNameColumn() + " = ? ," +
-                transactionTable.getDescriptionColumn() + " = ? ," +
-                transactionTable.getDateColumn() + " = ? ," +
-                transactionTable.getAmountColumn() + " = ? ," +
-                transactionTable.getCategoryColumn() + " = ? " +
-                " WHERE " + transactionTable.getIdColumn() + " = ?";
+        String query = "INSERT OR IGNORE INTO " + transactionTable.getTableName() + "(" +
+                transactionTable.getNameColumn() + ", " +
+                transactionTable.getDescriptionColumn() + ", " +
+                transactionTable.getDateColumn() + ", " +
+                transactionTable.getAmountColumn() + ", " +
+                transactionTable.getCategoryColumn() + ", " +
+                transactionTable.getExternalIdColumn() +
+                ") VALUES(?, ?, ?, ?, ?, ?)";
+
+        List<Transaction> added = new ArrayList<>(transactions.size());
 
         synchronized (this) {
             try (Connection conn = connection.connect()) {
 
-                try (PreparedStatement updateCategory = conn.prepareStatement(query)) {
+                try (PreparedStatement insertIntoTransactions = conn.prepareStatement(query);
+                     PreparedStatement compacted = conn.prepareStatement("SELECT 1 FROM main." +
+                             SqliteDatabase.TABLE_COMPACTED_IDS + " WHERE " +
+                             SqliteDatabase.COMPACTED_IDS_COLUMN_LEDGER + " = ? AND " +
+                             SqliteDatabase.COMPACTED_IDS_COLUMN_EXTERNAL_ID + " = ?")) {
 
                     conn.setAutoCommit(false);
 
-                    //Set Data to query
-                    updateCategory.setString(1, updatedTransaction.getName());
-                    updateCategory.setString(2, updatedTransaction.getDescription());
-                    updateCategory.setDate(3, Date.valueOf(updatedTransaction.getDate()));
-                    updateCategory.setLong(4, updatedTransaction.getAmount());
-                    updateCategory.setInt(5, updatedTransaction.getCategory().getId());
-                    updateCategory.setInt(6, transaction.getId());
-
-                    //Execute query and get affected rows
-                    int affectedRows = updateCategory.executeUpdate();
-                    if (affectedRows == 1) {
-                        conn.commit();
-                    } else {
-                        // No affected rows, throw exception
-                        throw new SQLException("The transaction update query failed!");
+                    for (Transaction transaction : transactions) {
+                        // Closed years are read-only
+                        if (YearPartitions.isClosed(transaction.getDate().getYear())) {
+                            continue;
+                        }
+                        // Compacted transactions are counted in their summary rows
+                        if (isCompacted(compacted, transaction.getExternalId())) {
+                            continue;
+                        }
+
+                        // Set Data to query
+                        setInsertParameters(insertIntoTransactions, transaction);
+
+                        // Execute query, no affected rows when external id already exists
+                        if (insertIntoTransactions.executeUpdate() == 0) {
+                            continue;
+                        }
+                        // Get Generated Key
+                        int id;
+                        try (ResultSet keys = insertIntoTransactions.getGeneratedKeys()) {
+                            id = SQLiteHelper.getGeneratedKey(keys, 1);
+                        }
+                        // Dropped if external id already exists in partition
+                        if (!route(conn, id, transaction.getDate(), true)) {
+                            continue;
+                        }
+                        transaction.setId(id);
+                        added.add(transaction);
                     }
 
+                    conn.commit();
+                    return added;
+
                 } catch (Exception e) {
                     // Statement failed, Rollback
                     try {
                         conn.rollback();
                     } catch (SQLException e2) {
                         // RollBack failed
-                        throw new DaoException("Update transaction failed, rolling back failed: " + e2.getMessage());
+                        throw new DaoException("Insert transactions failed, rolling back failed: " + e2.getMessage());
                     }
-                    // Throw DaoException, statement execution failed
-                    throw new DaoException("Update transaction query failed!");
+                    throw new DaoException("Insert transactions query failed: " + e.getMessage());
                 } finally {
                     // Reset auto commit to default
                     try {
-                        connection.getConnection().setAutoCommit(true);
+                        conn.setAutoCommit(true);
                     } catch (SQLException e) {
-                        // Failed to reset auto-commit
                         System.out.println("Couldn't reset auto-commit! " + e.getMessage());
                     }
                 }
             } catch (SQLException e) {
                 // Connection failed
-                throw new DaoException("Update transaction query failed: " + e.getMessage());
+                throw new DaoException("Insert transactions query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
 
     /**
-     * Remove Transaction
+     * Check if a transaction with external id was compacted to archive
      *
-     * @param transaction transaction to delete
-     * @throws DaoException if delete transaction database query failed
+     * @param compacted compacted external ids query, ledger and external id parameters
+     * @param externalId transaction's external id, may be null
+     * @return true if external id belongs to an archived transaction
+     * @throws SQLException if query failed
+     */
+    private boolean isCompacted(PreparedStatement compacted, String externalId) throws SQLException {
+        if (externalId == null) {
+            return false;
+        }
+
+        compacted.setString(1, transactionTable.getTableName());
+        compacted.setString(2, externalId);
+        try (ResultSet results = compacted.executeQuery()) {
+            return results.next();
+        }
+    }
+
+    /**
+     * Rename Transactions
+     *
+     * <p>Names are bound in chunks of at most {@value #MAX_PARAMETERS} parameters,
+     * all chunks are executed within a single database transaction.</p>
+     *
+     * @param names names to replace
+     * @param name new name
+     * @return number of renamed transactions
+     * @throws DaoException if rename database query failed, or a transaction of a closed year has one of names,
+     * no transaction is renamed
      */
     @Override
-    public void remove(Transaction transaction) throws DaoException {
-        // Query
-        String query = "DELETE FROM " + transactionTable.getTableName() +
-                " WHERE " + transactionTable.getIdColumn() + " = ?";
+    public int rename(Collection<String> names, String name) throws DaoException {
+        List<String> oldNames = new ArrayList<>(names);
 
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 PreparedStatement deleteTransaction = conn.prepareStatement(query)) {
-                // Delete transaction
-                deleteTransaction.setInt(1, transaction.getId());
-                deleteTransaction.executeUpdate();
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+                    addPayee(conn, name);
+
+                    int renamed = 0;
+                    for (int start = 0; start < oldNames.size(); start += MAX_PARAMETERS) {
+                        List<String> chunk = oldNames.subList(start, Math.min(oldNames.size(), start + MAX_PARAMETERS));
+
+                        // Closed years are not changed
+                        checkClosedPartitions(conn, transactionTable.getNameColumn() + " IN (" +
+                                placeholders(chunk.size()) + ")", new ArrayList<>(chunk));
+
+                        for (String table : YearPartitions.openTables(transactionTable.getTableName())) {
+                            // Database query
+                            String query = "UPDATE " + table + " SET " +
+                                    transactionTable.getNameColumn() + " = ?, " +
+                                    transactionTable.getPayeeColumn() + " = " + PAYEE_ID + ", " +
+                                    transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                    " WHERE " +
+                                    transactionTable.getNameColumn() + " IN (" + placeholders(chunk.size()) + ")";
+
+                            try (PreparedStatement renameTransactions = conn.prepareStatement(query)) {
+                                renameTransactions.setString(1, name);
+                                renameTransactions.setString(2, name);
+                                for (int i = 0; i < chunk.size(); i++) {
+                                    renameTransactions.setString(i + 3, chunk.get(i));
+                                }
+                                renamed += renameTransactions.executeUpdate();
+                            }
+                        }
+                    }
+
+                    conn.commit();
+                    return renamed;
 
+                } catch (SQLException | DaoException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Rename transactions failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Rename transactions query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
             } catch (SQLException e) {
-                // Failed throw DaoException
-                throw new DaoException("Delete transaction query failed: " + e.getMessage());
+                // Connection failed
+                throw new DaoException("Rename transactions query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
 
     /**
-     * Remove all transactions
+     * Merge category into another
      *
-     * @throws DaoException if delete all transactions database query failed
+     * <p>Transactions are moved by one indexed update per table, of main table and of each year partition,
+     * and source category is removed within the same database transaction.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws DaoException if merge database query failed, or source category has transactions of a closed year,
+     * no transaction is moved
      */
     @Override
-    public void removeAll() throws DaoException {
-        // Database query
-        String query = "DELETE FROM " + transactionTable.getTableName();
-
+    public int mergeCategory(Category source, Category target) throws DaoException {
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 Statement deleteTransactions = conn.createStatement()) {
-                // Delete all transactions
-                deleteTransactions.executeUpdate(query);
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+
+                    // Closed years are not changed
+                    checkCategoryWritable(conn, source);
+
+                    int moved = 0;
+                    for (String table : YearPartitions.tables(transactionTable.getTableName())) {
+                        // Database query
+                        String query = "UPDATE " + table + " SET " +
+                                transactionTable.getCategoryColumn() + " = ?, " +
+                                transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                " WHERE " + transactionTable.getCategoryColumn() + " = ?";
+
+                        try (PreparedStatement moveTransactions = conn.prepareStatement(query)) {
+                            moveTransactions.setInt(1, target.getId());
+                            moveTransactions.setInt(2, source.getId());
+                            moved += moveTransactions.executeUpdate();
+                        }
+                    }
+
+                    try (PreparedStatement removeCategory = conn.prepareStatement("DELETE FROM " +
+                            categoryTable.getTableName() + " WHERE " + categoryTable.getIdColumn() + " = ?")) {
+                        removeCategory.setInt(1, source.getId());
+                        removeCategory.executeUpdate();
+                    }
+
+                    conn.commit();
+                    return moved;
 
+                } catch (SQLException | DaoException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Merge category failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Merge category query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
             } catch (SQLException e) {
-                throw new DaoException("Delete all transactions query failed: " + e.getMessage());
+                // Connection failed
+                throw new DaoException("Merge category query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
             }
         }
     }
 
     /**
-     * Get transaction
+     * Remove category and its transactions
      *
-     * @param id item's id
-     * @return transaction
-     * @throws DaoException if database query failed
-     * @throws DaoEntryNotFoundException if transaction entry not found
+     * <p>Transactions are removed from main table and from each year partition, whose tables have
+     * no foreign key to cascade removal of category, within the same database transaction.</p>
+     *
+     * @param category category to remove
+     * @return number of removed transactions
+     * @throws DaoException if remove database query failed, or category has transactions of a closed year,
+     * nothing is removed
      */
     @Override
-    public Transaction get(int id) throws DaoException, DaoEntryNotFoundException {
-        // Database query
-        String query = "SELECT " +
-                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
-                " FROM " + transactionTable.getTableName() +
-                " INNER JOIN " + categoryTable.getTableName() +
-                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
-                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
-                " WHERE " + transactionTable.getTableName() + "." + transactionTable.getIdColumn() + " = ?";
-
+    public int removeCategory(Category category) throws DaoException {
+        String categoryColumn = transactionTable.getCategoryColumn();
 
         synchronized (this) {
-            try (Connection conn = connection.connect();
-                 PreparedStatement queryCategory = conn.prepareStatement(query)) {
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
 
-                queryCategory.setInt(1, id);
+                    // Closed years are not changed
+                    checkCategoryWritable(conn, category);
 
-                // Execute query and get result
+                    int removed = 0;
+                    for (String table : YearPartitions.tables(transactionTable.getTableName())) {
+                        try (PreparedStatement removeTransactions = conn.prepareStatement("DELETE FROM " + table +
+                                " WHERE " + categoryColumn + " = ?")) {
+                            removeTransactions.setInt(1, category.getId());
+                            removed += removeTransactions.executeUpdate();
+                        }
+                    }
+
+                    try (PreparedStatement removeCategory = conn.prepareStatement("DELETE FROM " +
+                            categoryTable.getTableName() + " WHERE " + categoryTable.getIdColumn() + " = ?")) {
+                        removeCategory.setInt(1, category.getId());
+                        removeCategory.executeUpdate();
+                    }
+
+                    conn.commit();
+                    return removed;
+
+                } catch (SQLException | DaoException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Remove category failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Remove category query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Remove category query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Check that category has no transactions of a closed year
+     *
+     * @param conn connection
+     * @param category category to be changed
+     * @throws SQLException if query failed
+     * @throws DaoException if category has transactions of a closed year
+     */
+    private void checkCategoryWritable(Connection conn, Category category) throws SQLException, DaoException {
+        checkClosedPartitions(conn, transactionTable.getCategoryColumn() + " = ?",
+                Collections.singletonList(category.getId()));
+    }
+
+    /**
+     * Check that no transaction of a closed year meets condition
+     *
+     * @param conn connection
+     * @param condition condition of transactions to be changed
+     * @param parameters condition's parameters
+     * @throws SQLException if query failed
+     * @throws DaoException if a transaction of a closed year meets condition
+     */
+    private void checkClosedPartitions(Connection conn, String condition, List<Object> parameters)
+            throws SQLException, DaoException {
+        for (Map.Entry<Integer, Boolean> partition : YearPartitions.getPartitions().entrySet()) {
+            if (!partition.getValue()) {
+                continue;
+            }
+            try (PreparedStatement closed = prepare(conn, "SELECT 1 FROM " +
+                    YearPartitions.tableName(transactionTable.getTableName(), partition.getKey()) +
+                    " WHERE " + condition + " LIMIT 1", parameters);
+                 ResultSet results = closed.executeQuery()) {
+                if (results.next()) {
+                    throw new DaoException("Transactions of " + partition.getKey() + " are closed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Change category of transactions
+     *
+     * <p>Ids are bound in chunks of at most {@value #MAX_PARAMETERS} parameters, one update per chunk
+     * of each year's table, all within a single database transaction.</p>
+     *
+     * @param transactions transactions to change
+     * @param category new category
+     * @return number of changed transactions
+     * @throws DaoException if database query failed, or a transaction is of a closed year, nothing is changed
+     */
+    @Override
+    public int recategorize(Collection<Transaction> transactions, Category category) throws DaoException {
+        Map<String, List<Integer>> ids = idsByTable(transactions);
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+
+                    int changed = 0;
+                    for (Map.Entry<String, List<Integer>> table : ids.entrySet()) {
+                        changed += executeByIds(conn, "UPDATE " + table.getKey() + " SET " +
+                                        transactionTable.getCategoryColumn() + " = ?, " +
+                                        transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                        " WHERE " + transactionTable.getIdColumn() + " IN ",
+                                Collections.singletonList(category.getId()), table.getValue());
+                    }
+
+                    conn.commit();
+                    return changed;
+
+                } catch (SQLException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Recategorize transactions failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Recategorize transactions query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Recategorize transactions query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Shift dates of transactions
+     *
+     * <p>Dates are set by one batch per year's table, then transactions whose year changed are moved
+     * to the table of their new year, all within a single database transaction.</p>
+     *
+     * @param transactions transactions to change
+     * @param days days to shift dates by, negative to shift them back
+     * @return number of changed transactions
+     * @throws DaoException if database query failed, or a transaction is of a closed year before or after
+     * shift, nothing is changed
+     */
+    @Override
+    public int shiftDates(Collection<Transaction> transactions, int days) throws DaoException {
+        String mainTable = transactionTable.getTableName();
+
+        // Transactions by table of their current year
+        Map<String, List<Transaction>> tables = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            checkWritable(transaction.getDate());
+            checkWritable(transaction.getDate().plusDays(days));
+            tables.computeIfAbsent(YearPartitions.tableFor(mainTable, transaction.getDate()),
+                    table -> new ArrayList<>()).add(transaction);
+        }
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+
+                    int shifted = 0;
+                    for (Map.Entry<String, List<Transaction>> table : tables.entrySet()) {
+                        try (PreparedStatement shift = conn.prepareStatement("UPDATE " + table.getKey() + " SET " +
+                                transactionTable.getDateColumn() + " = ?, " +
+                                transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                " WHERE " + transactionTable.getIdColumn() + " = ?")) {
+                            for (Transaction transaction : table.getValue()) {
+                                shift.setDate(1, Date.valueOf(transaction.getDate().plusDays(days)));
+                                shift.setInt(2, transaction.getId());
+                                shift.addBatch();
+                            }
+                            for (int changed : shift.executeBatch()) {
+                                shifted += Math.max(changed, 0);
+                            }
+                        }
+
+                        // Dates moved to another year's table
+                        for (Transaction transaction : table.getValue()) {
+                            String target = YearPartitions.tableFor(mainTable, transaction.getDate().plusDays(days));
+                            if (!target.equals(table.getKey())) {
+                                YearPartitions.move(conn, table.getKey(), target, transactionTable.getIdColumn(),
+                                        transaction.getId(), false);
+                            }
+                        }
+                    }
+
+                    conn.commit();
+                    return shifted;
+
+                } catch (SQLException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Shift transactions dates failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Shift transactions dates query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Shift transactions dates query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Remove transactions
+     *
+     * <p>Ids are bound in chunks of at most {@value #MAX_PARAMETERS} parameters, one delete per chunk
+     * of each year's table, all within a single database transaction.</p>
+     *
+     * @param transactions transactions to remove
+     * @return number of removed transactions
+     * @throws DaoException if database query failed, or a transaction is of a closed year, nothing is removed
+     */
+    @Override
+    public int remove(Collection<Transaction> transactions) throws DaoException {
+        Map<String, List<Integer>> ids = idsByTable(transactions);
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                try {
+                    conn.setAutoCommit(false);
+
+                    int removed = 0;
+                    for (Map.Entry<String, List<Integer>> table : ids.entrySet()) {
+                        removed += executeByIds(conn, removal(table.getKey()) + transactionTable.getIdColumn() +
+                                " IN ", Collections.emptyList(), table.getValue());
+                    }
+
+                    conn.commit();
+                    return removed;
+
+                } catch (SQLException e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        throw new DaoException("Delete transactions failed, rolling back failed: " + e2.getMessage());
+                    }
+                    throw new DaoException("Delete transactions query failed: " + e.getMessage());
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Delete transactions query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Stream Transactions
+     *
+     * <p>Rows are read on a dedicated connection, so other operations of this data access object
+     * are not blocked while streaming. Within a unit of work rows are read on its shared connection,
+     * including changes of the unit not committed yet.</p>
+     *
+     * @param start stream transactions since date, null for no lower limit
+     * @param end stream transactions until date, null for no upper limit
+     * @param category stream only transactions of category, null for all categories
+     * @param handler rows handler
+     * @return number of streamed rows
+     * @throws DaoException if database query failed
+     * @throws IOException if handler failed
+     */
+    @Override
+    public long stream(LocalDate start, LocalDate end, Category category, TransactionRowHandler handler)
+            throws DaoException, IOException {
+
+        String table = transactionTable.getTableName();
+
+        // Database query
+        StringBuilder query = new StringBuilder("SELECT ")
+                .append(table).append(".").append(transactionTable.getIdColumn()).append(", ")
+                .append(table).append(".").append(transactionTable.getNameColumn()).append(", ")
+                .append(table).append(".").append(transactionTable.getDescriptionColumn()).append(", ")
+                .append(table).append(".").append(transactionTable.getDateColumn()).append(", ")
+                .append(table).append(".").append(transactionTable.getAmountColumn()).append(", ")
+                .append(categoryTable.getTableName()).append(".").append(categoryTable.getIdColumn()).append(", ")
+                .append(categoryTable.getTableName()).append(".").append(categoryTable.getNameColumn()).append(", ")
+                .append(table).append(".").append(transactionTable.getExternalIdColumn())
+                .append(" FROM ").append(source(start, end))
+                .append(" INNER JOIN ").append(categoryTable.getTableName())
+                .append(" ON ").append(table).append(".").append(transactionTable.getCategoryColumn())
+                .append(" = ").append(categoryTable.getTableName()).append(".").append(categoryTable.getIdColumn())
+                .append(" WHERE 1 = 1");
+
+        // Filters
+        if (start != null) {
+            query.append(" AND ").append(table).append(".").append(transactionTable.getDateColumn()).append(" >= ?");
+        }
+        if (end != null) {
+            query.append(" AND ").append(table).append(".").append(transactionTable.getDateColumn()).append(" <= ?");
+        }
+        if (category != null) {
+            query.append(" AND ").append(table).append(".").append(transactionTable.getCategoryColumn()).append(" = ?");
+        }
+        query.append(" ORDER BY ").append(table).append(".").append(transactionTable.getDateColumn())
+                .append(", ").append(table).append(".").append(transactionTable.getIdColumn());
+
+        JdbcSqliteConnection streamConnection = connection instanceof SharedSqliteConnection ?
+                connection : new JdbcSqliteConnection();
+        try (Connection conn = streamConnection.connect();
+             PreparedStatement statement = conn.prepareStatement(query.toString())) {
+
+            int parameter = 1;
+            if (start != null) {
+                statement.setDate(parameter++, Date.valueOf(start));
+            }
+            if (end != null) {
+                statement.setDate(parameter++, Date.valueOf(end));
+            }
+            if (category != null) {
+                statement.setInt(parameter, category.getId());
+            }
+
+            try (ResultSet results = statement.executeQuery()) {
+                RowCursor cursor = new RowCursor();
+                long rows = 0;
+                while (results.next()) {
+                    cursor.read(results);
+                    handler.handle(cursor);
+                    rows++;
+                }
+                return rows;
+            }
+        } catch (SQLException e) {
+            throw new DaoException("Stream transactions query failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Update Transaction
+     *
+     * @param transaction transaction to update
+     * @param updatedTransaction update transaction with this one
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public void update(Transaction transaction, Transaction updatedTransaction) throws DaoException {
+
+        checkWritable(transaction.getDate());
+        checkWritable(updatedTransaction.getDate());
+
+        // Table of updated transaction's year
+        String target = YearPartitions.tableFor(transactionTable.getTableName(), updatedTransaction.getDate());
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+
+                try {
+                    conn.setAutoCommit(false);
+                    addPayee(conn, updatedTransaction.getName());
+
+                    int affectedRows = 0;
+                    for (String table : YearPartitions.tables(transactionTable.getTableName())) {
+                        // Database query
+                        String query = "UPDATE " + table + " SET " +
+                                transactionTable.getNameColumn() + " = ? ," +
+                                transactionTable.getDescriptionColumn() + " = ? ," +
+                                transactionTable.getDateColumn() + " = ? ," +
+                                transactionTable.getAmountColumn() + " = ? ," +
+                                transactionTable.getCategoryColumn() + " = ? ," +
+                                transactionTable.getPayeeColumn() + " = " + PAYEE_ID + " ," +
+                                transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                                " WHERE " + transactionTable.getIdColumn() + " = ?";
+
+                        try (PreparedStatement updateCategory = conn.prepareStatement(query)) {
+                            //Set Data to query
+                            updateCategory.setString(1, updatedTransaction.getName());
+                            updateCategory.setString(2, updatedTransaction.getDescription());
+                            updateCategory.setDate(3, Date.valueOf(updatedTransaction.getDate()));
+                            updateCategory.setLong(4, updatedTransaction.getAmount());
+                            updateCategory.setInt(5, updatedTransaction.getCategory().getId());
+                            updateCategory.setString(6, updatedTransaction.getName());
+                            updateCategory.setInt(7, transaction.getId());
+
+                            //Execute query and get affected rows
+                            affectedRows = updateCategory.executeUpdate();
+                        }
+
+                        if (affectedRows == 1) {
+                            // Date moved to another year's table
+                            if (!table.equals(target)) {
+                                YearPartitions.move(conn, table, target, transactionTable.getIdColumn(),
+                                        transaction.getId(), false);
+                            }
+                            break;
+                        }
+                    }
+
+                    if (affectedRows == 1) {
+                        conn.commit();
+                    } else {
+                        // No affected rows, throw exception
+                        throw new SQLException("The transaction update query failed!");
+                    }
+
+                } catch (Exception e) {
+                    // Statement failed, Rollback
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e2) {
+                        // RollBack failed
+                        throw new DaoException("Update transaction failed, rolling back failed: " + e2.getMessage());
+                    }
+                    // Throw DaoException, statement execution failed
+                    throw new DaoException("Update transaction query failed!");
+                } finally {
+                    // Reset auto commit to default
+                    try {
+                        connection.getConnection().setAutoCommit(true);
+                    } catch (SQLException e) {
+                        // Failed to reset auto-commit
+                        System.out.println("Couldn't reset auto-commit! " + e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                // Connection failed
+                throw new DaoException("Update transaction query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Remove Transaction
+     *
+     * @param transaction transaction to delete
+     * @throws DaoException if delete transaction database query failed
+     */
+    @Override
+    public void remove(Transaction transaction) throws DaoException {
+        checkWritable(transaction.getDate());
+
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                for (String table : YearPartitions.tables(transactionTable.getTableName())) {
+                    // Query
+                    String query = removal(table) + transactionTable.getIdColumn() + " = ?";
+
+                    try (PreparedStatement deleteTransaction = conn.prepareStatement(query)) {
+                        // Delete transaction
+                        deleteTransaction.setInt(1, transaction.getId());
+                        if (deleteTransaction.executeUpdate() == 1) {
+                            break;
+                        }
+                    }
+                }
+
+            } catch (SQLException e) {
+                // Failed throw DaoException
+                throw new DaoException("Delete transaction query failed: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Remove all transactions
+     *
+     * <p>Transactions are removed in chunks of at most {@value #REMOVE_CHUNK} rows, each by its own short
+     * statement, and dao is released between chunks, so the database is not held by a long removal.
+     * In soft delete mode transactions are moved to trash, otherwise external ids of compacted transactions
+     * are forgotten too, as their summary rows are deleted.</p>
+     *
+     * @throws DaoException if delete all transactions database query failed, transactions of chunks already
+     * executed stay removed, or a closed year has transactions, nothing is removed
+     */
+    @Override
+    public void removeAll() throws DaoException {
+        synchronized (this) {
+            try (Connection conn = connection.connect()) {
+                // Closed years are not changed
+                checkClosedPartitions(conn, "1 = 1", Collections.emptyList());
+            } catch (SQLException e) {
+                throw new DaoException("Delete all transactions query failed: " + e.getMessage());
+            }
+        }
+
+        try {
+            for (String table : YearPartitions.openTables(transactionTable.getTableName())) {
+                String query = removal(table) + transactionTable.getIdColumn() + " IN (SELECT " +
+                        transactionTable.getIdColumn() + " FROM " + table +
+                        (softDelete ? " WHERE " + live() : "") + " LIMIT " + REMOVE_CHUNK + ")";
+
+                int removed;
+                do {
+                    synchronized (this) {
+                        try (Connection conn = connection.connect();
+                             Statement deleteTransactions = conn.createStatement()) {
+                            removed = deleteTransactions.executeUpdate(query);
+                        } catch (SQLException e) {
+                            throw new DaoException("Delete all transactions query failed: " + e.getMessage());
+                        }
+                    }
+                } while (removed == REMOVE_CHUNK);
+            }
+
+            if (!softDelete) {
+                synchronized (this) {
+                    try (Connection conn = connection.connect();
+                         Statement deleteIds = conn.createStatement()) {
+                        deleteIds.executeUpdate("DELETE FROM main." + SqliteDatabase.TABLE_COMPACTED_IDS +
+                                " WHERE " + SqliteDatabase.COMPACTED_IDS_COLUMN_LEDGER + " = '" +
+                                transactionTable.getTableName() + "'");
+                    } catch (SQLException e) {
+                        throw new DaoException("Delete all transactions query failed: " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            cache.changed();
+        }
+    }
+
+    /**
+     * Get transaction
+     *
+     * @param id item's id
+     * @return transaction
+     * @throws DaoException if database query failed
+     * @throws DaoEntryNotFoundException if transaction entry not found
+     */
+    @Override
+    public Transaction get(int id) throws DaoException, DaoEntryNotFoundException {
+        // Database query
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(null, null) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " WHERE " + transactionTable.getTableName() + "." + transactionTable.getIdColumn() + " = ?";
+
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 PreparedStatement queryCategory = conn.prepareStatement(query)) {
+
+                queryCategory.setInt(1, id);
+
+                // Execute query and get result
                 try (ResultSet results = queryCategory.executeQuery()) {
                     if (results.next()) {
                         // Get Transaction
@@ -389,227 +1392,977 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
                         transaction.setDate(results.getDate(4).toLocalDate());
                         transaction.setAmount(results.getLong(5));
 
-                        //Get Transaction's category
-                        Category category = new Category();
-                        category.setId(results.getInt(6));
-                        category.setName(results.getString(7));
-                        category.setDescription(results.getString(8));
+                        //Get Transaction's category
+                        Category category = new Category();
+                        category.setId(results.getInt(6));
+                        category.setName(results.getString(7));
+                        category.setDescription(results.getString(8));
+
+                        // Set Category to transaction
+                        transaction.setCategory(category);
+
+                        return transaction;
+                    } else {
+                        throw new DaoEntryNotFoundException("Transaction entry not found!");
+                    }
+                }
+            } catch (SQLException e) {
+                throw new DaoException("Failed to get transaction: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get latest transactions
+     *
+     * @param rows number of row to return
+     * @return transactions list limited to number of rows provided
+     * @throws DaoException if getting transactions database query failed
+     */
+    @Override
+    public List<Transaction> latest(int rows) throws DaoException {
+        // Database query
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(null, null) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " ORDER BY " + dateOrder(" DESC") + " LIMIT " + rows;
+
+        synchronized (this) {
+            try {
+                return getTransactions(query);
+            } catch (SQLException e) {
+                throw new DaoException("Could not load transactions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get latest transactions
+     *
+     * @param since since date
+     * @return transactions list since date provided
+     * @throws DaoException if getting transactions database query failed
+     */
+    @Override
+    public List<Transaction> latest(LocalDate since) throws DaoException {
+
+        // Database query
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(since, null) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " WHERE " + transactionTable.getTableName() + "." + transactionTable.getDateColumn() + " >= ? " +
+                " ORDER BY " + dateOrder(" DESC");
+
+        synchronized (this) {
+            try {
+                return copies(cache.get(query, Collections.singletonList(since),
+                        SQLiteTransactionDaoImpl::weigh, () -> {
+                    try (Connection conn = connection.connect();
+                         PreparedStatement statement = conn.prepareStatement(query)) {
+
+                        statement.setDate(1, Date.valueOf(since));
+
+                        try (ResultSet results = statement.executeQuery()) {
+                            return resultsToTransactionList(results);
+                        }
+                    }
+                }));
+            } catch (SQLException e) {
+                throw new DaoException("Could not load transactions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get all transactions
+     *
+     * @return transactions list ordered by date, latest first
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public List<Transaction> latest() throws DaoException {
+        // Database query
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(null, null) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " ORDER BY " + dateOrder(" DESC");
+
+        try {
+            return getTransactions(query);
+        } catch (SQLException e) {
+            throw new DaoException("Could not load transactions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get changed transactions
+     *
+     * @param afterId transactions added after this id
+     * @param updatedSince transactions changed since this time, milliseconds since epoch
+     * @return added or changed transactions
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public List<Transaction> changed(int afterId, long updatedSince) throws DaoException {
+        // Database query
+        String query = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(null, null) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                " WHERE " + transactionTable.getTableName() + "." + transactionTable.getIdColumn() + " > ?" +
+                " OR " + transactionTable.getTableName() + "." + transactionTable.getUpdatedAtColumn() + " >= ?";
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = conn.prepareStatement(query)) {
+
+                statement.setInt(1, afterId);
+                statement.setLong(2, updatedSince);
+
+                try (ResultSet results = statement.executeQuery()) {
+                    return resultsToTransactionList(results);
+                }
+            } catch (SQLException e) {
+                throw new DaoException("Could not load changed transactions: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get latest change time
+     *
+     * @return latest change time of stored transactions, milliseconds since epoch, 0 if none
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public long lastUpdate() throws DaoException {
+        // Database query
+        String query = "SELECT MAX(" + transactionTable.getUpdatedAtColumn() + ") FROM " + source(null, null);
+
+        synchronized (this) {
+            return cache.get(query, () -> {
+                try (Connection conn = connection.connect();
+                     Statement statement = conn.createStatement();
+                     ResultSet results = statement.executeQuery(query)) {
+
+                    return results.next() ? results.getLong(1) : 0L;
+                } catch (SQLException e) {
+                    throw new DaoException("Latest change time query failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Get ids of stored transactions
+     *
+     * @return transactions' ids
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public Set<Integer> ids() throws DaoException {
+        // Database query
+        String query = "SELECT " + transactionTable.getIdColumn() + " FROM " + source(null, null);
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 Statement statement = conn.createStatement();
+                 ResultSet results = statement.executeQuery(query)) {
+
+                Set<Integer> ids = new HashSet<>();
+                while (results.next()) {
+                    ids.add(results.getInt(1));
+                }
+                return ids;
+            } catch (SQLException e) {
+                throw new DaoException("Transactions ids query failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get transactions matching query
+     *
+     * <p>Query is compiled once to parameterized SQL, category and date criteria use the
+     * (category, date) and date indexes, date and amount orders use date and amount indexes.
+     * Results are cached until a change.</p>
+     *
+     * @param query transaction query
+     * @return matching transactions, sorted and limited as query defines
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public List<Transaction> query(TransactionQuery query) throws DaoException {
+        CompiledQuery compiled = compile(query);
+
+        // Database query
+        String sql = "SELECT " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
+                description() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
+                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
+                " FROM " + source(query.getStart(), query.getEnd()) +
+                " INNER JOIN " + categoryTable.getTableName() +
+                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
+                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
+                compiled.clauses;
+
+        synchronized (this) {
+            try {
+                return copies(cache.get(sql, compiled.parameters, SQLiteTransactionDaoImpl::weigh, () -> {
+                    try (Connection conn = connection.connect()) {
+                        registerFunctions(conn);
+
+                        try (PreparedStatement statement = prepare(conn, sql, compiled.parameters);
+                             ResultSet results = statement.executeQuery()) {
+                            return resultsToTransactionList(results);
+                        }
+                    }
+                }));
+            } catch (SQLException e) {
+                throw new DaoException("Transactions query failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get saved smart views of ledger
+     *
+     * @return smart views, ordered by name
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public List<SmartView> smartViews() throws DaoException {
+        // Database query
+        String query = "SELECT " + SqliteDatabase.SMART_VIEWS_COLUMN_NAME + ", " +
+                SqliteDatabase.SMART_VIEWS_COLUMN_DEFINITION +
+                " FROM " + SqliteDatabase.TABLE_SMART_VIEWS +
+                " WHERE " + SqliteDatabase.SMART_VIEWS_COLUMN_LEDGER + " = ?" +
+                " ORDER BY " + SqliteDatabase.SMART_VIEWS_COLUMN_NAME;
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = conn.prepareStatement(query)) {
+
+                statement.setString(1, transactionTable.getTableName());
+
+                List<SmartView> views = new ArrayList<>();
+                try (ResultSet results = statement.executeQuery()) {
+                    while (results.next()) {
+                        try {
+                            views.add(new SmartView(results.getString(1), TransactionQuery.parse(results.getString(2))));
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("Skipping smart view " + results.getString(1) + ": " + e.getMessage());
+                        }
+                    }
+                }
+                return views;
+            } catch (SQLException e) {
+                throw new DaoException("Could not load smart views: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Save smart view, replacing a view with the same name
+     *
+     * @param view smart view to save
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public void saveSmartView(SmartView view) throws DaoException {
+        // Database query
+        String query = "INSERT OR REPLACE INTO " + SqliteDatabase.TABLE_SMART_VIEWS + "(" +
+                SqliteDatabase.SMART_VIEWS_COLUMN_LEDGER + ", " +
+                SqliteDatabase.SMART_VIEWS_COLUMN_NAME + ", " +
+                SqliteDatabase.SMART_VIEWS_COLUMN_DEFINITION + ") VALUES(?, ?, ?)";
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = conn.prepareStatement(query)) {
+
+                statement.setString(1, transactionTable.getTableName());
+                statement.setString(2, view.getName());
+                statement.setString(3, view.getQuery().toDefinition());
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new DaoException("Could not save smart view: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Remove smart view
+     *
+     * @param name view's name
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public void removeSmartView(String name) throws DaoException {
+        // Database query
+        String query = "DELETE FROM " + SqliteDatabase.TABLE_SMART_VIEWS +
+                " WHERE " + SqliteDatabase.SMART_VIEWS_COLUMN_LEDGER + " = ?" +
+                " AND " + SqliteDatabase.SMART_VIEWS_COLUMN_NAME + " = ?";
+
+        synchronized (this) {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = conn.prepareStatement(query)) {
+
+                statement.setString(1, transactionTable.getTableName());
+                statement.setString(2, name);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                throw new DaoException("Could not remove smart view: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+    }
+
+    /**
+     * Get total amount
+     *
+     * <p>Summary of monthly totals, see {@link #amounts(LocalDate, LocalDate, List)}.</p>
+     *
+     * @return transactions amount summary
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public long getTotalAmount() throws DaoException {
+        return totalAmount(null, null);
+    }
+
+    /**
+     * Get total amount
+     *
+     * <p>Whole months of period are read from monthly totals, see {@link #amounts(LocalDate, LocalDate, List)}.</p>
+     *
+     * @param start summary calculations since date
+     * @param end summary calculations until date
+     * @return transactions amount summary
+     * @throws  DaoException if database query failed
+     */
+    @Override
+    public long getTotalAmount(LocalDate start, LocalDate end) throws DaoException {
+        return totalAmount(start, end);
+    }
+
+    /**
+     * Get total amount
+     *
+     * <p>Whole months since date are read from monthly totals, see {@link #amounts(LocalDate, LocalDate, List)}.</p>
+     *
+     * @param since summary calculation since date
+     * @return transactions amount summary
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public long getTotalAmount(LocalDate since) throws DaoException {
+        return totalAmount(since, null);
+    }
+
+    /**
+     * Count transactions of category
+     *
+     * @param category transactions' category
+     * @return number of transactions, of every year
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public int count(Category category) throws DaoException {
+        return (int) categorySummary(category)[0];
+    }
+
+    /**
+     * Get total amount of category's transactions
+     *
+     * @param category transactions' category
+     * @return transactions amount summary, of every year
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public long getTotalAmount(Category category) throws DaoException {
+        return categorySummary(category)[1];
+    }
+
+    /**
+     * Count and sum transactions of category, by category's index
+     *
+     * @param category transactions' category
+     * @return number of transactions and their amount summary
+     * @throws DaoException if database query failed
+     */
+    private long[] categorySummary(Category category) throws DaoException {
+        String query = "SELECT COUNT(*), COALESCE(SUM(" + transactionTable.getAmountColumn() + "), 0) FROM " +
+                source(null, null) + " WHERE " + transactionTable.getCategoryColumn() + " = ?";
+
+        return cache.get(query, Collections.singletonList(category.getId()),
+                result -> QueryCache.SCALAR_BYTES * 2, () -> {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = conn.prepareStatement(query)) {
+                statement.setInt(1, category.getId());
+                try (ResultSet results = statement.executeQuery()) {
+                    return new long[]{results.getLong(1), results.getLong(2)};
+                }
+            } catch (SQLException e) {
+                throw new DaoException("Transactions of category query failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Get total amount per category
+     *
+     * <p>Whole months of period are read from monthly totals, see {@link #amounts(LocalDate, LocalDate, List)}.</p>
+     *
+     * @param start since date, null for no lower limit
+     * @param end until date, null for no upper limit
+     * @return amounts summaries mapped by category id, categories without transactions are left out
+     * @throws DaoException if database query failed
+     */
+    @Override
+    public Map<Integer, Long> getCategoryTotals(LocalDate start, LocalDate end) throws DaoException {
+        List<Object> parameters = new ArrayList<>();
+        String query = "SELECT c, SUM(a) FROM (" + amounts(start, end, parameters) + ") GROUP BY c";
 
-                        // Set Category to transaction
-                        transaction.setCategory(category);
+        Map<Integer, Long> totals = cache.get(query, parameters,
+                result -> result.size() * QueryCache.SCALAR_BYTES * 2, () -> {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = prepare(conn, query, parameters);
+                 ResultSet results = statement.executeQuery()) {
 
-                        return transaction;
-                    } else {
-                        throw new DaoEntryNotFoundException("Transaction entry not found!");
-                    }
+                Map<Integer, Long> loaded = new LinkedHashMap<>();
+                while (results.next()) {
+                    loaded.put(results.getInt(1), results.getLong(2));
                 }
+                return loaded;
             } catch (SQLException e) {
-                throw new DaoException("Failed to get transaction: " + e.getMessage());
+                throw new DaoException("Transactions amount per category query failed: " + e.getMessage());
             }
-        }
+        });
+        return new LinkedHashMap<>(totals);
     }
 
     /**
-     * Get latest transactions
+     * Get total amount per payee
      *
-     * @param rows number of row to return
-     * @return transactions list limited to number of rows provided
-     * @throws DaoException if getting transactions database query failed
+     * <p>Transactions are grouped by their payee's id, names are read once per payee.</p>
+     *
+     * @param start since date, null for no lower limit
+     * @param end until date, null for no upper limit
+     * @param limit maximum number of payees
+     * @return amounts summaries mapped by payee's name, highest first
+     * @throws DaoException if database query failed
      */
     @Override
-    public List<Transaction> latest(int rows) throws DaoException {
-        // Database query
-        String query = "SELECT " +
-                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
-                " FROM " + transactionTable.getTableName() +
-                " INNER JOIN " + categoryTable.getTableName() +
-                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
-                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
-                " ORDER BY " + transactionTable.getNameColumn() + "." + transactionTable.getDateColumn() +
-                " COLLATE NOCASE DESC LIMIT " + rows;
+    public Map<String, Long> getPayeeTotals(LocalDate start, LocalDate end, int limit) throws DaoException {
+        String table = transactionTable.getTableName();
+        String date = table + "." + transactionTable.getDateColumn();
+        List<Object> parameters = new ArrayList<>();
+
+        StringBuilder sb = new StringBuilder("SELECT p." + SqliteDatabase.PAYEES_COLUMN_NAME + ", SUM(" + table +
+                "." + transactionTable.getAmountColumn() + ") AS total FROM " + source(start, end) +
+                " INNER JOIN main." + SqliteDatabase.TABLE_PAYEES + " AS p ON p." + SqliteDatabase.PAYEES_COLUMN_ID +
+                " = " + table + "." + transactionTable.getPayeeColumn() + " WHERE 1 = 1");
+        if (start != null) {
+            sb.append(" AND ").append(date).append(" >= ?");
+            parameters.add(start);
+        }
+        if (end != null) {
+            sb.append(" AND ").append(date).append(" <= ?");
+            parameters.add(end);
+        }
+        sb.append(" GROUP BY ").append(table).append(".").append(transactionTable.getPayeeColumn())
+                .append(" ORDER BY total DESC, p.").append(SqliteDatabase.PAYEES_COLUMN_NAME).append(" LIMIT ?");
+        parameters.add(limit);
+        String query = sb.toString();
 
-        synchronized (this) {
-            try {
-                return getTransactions(query);
+        Map<String, Long> totals = cache.get(query, parameters,
+                result -> result.size() * QueryCache.SCALAR_BYTES * 4, () -> {
+            try (Connection conn = connection.connect();
+                 PreparedStatement statement = prepare(conn, query, parameters);
+                 ResultSet results = statement.executeQuery()) {
+
+                Map<String, Long> loaded = new LinkedHashMap<>();
+                while (results.next()) {
+                    loaded.put(names.intern(results.getString(1)), results.getLong(2));
+                }
+                return loaded;
             } catch (SQLException e) {
-                throw new DaoException("Could not load transactions: " + e.getMessage());
+                throw new DaoException("Transactions amount per payee query failed: " + e.getMessage());
             }
-        }
+        });
+        return new LinkedHashMap<>(totals);
     }
 
     /**
-     * Get latest transactions
+     * Get total amount of period
      *
-     * @param since since date
-     * @return transactions list since date provided
-     * @throws DaoException if getting transactions database query failed
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @return transactions amount summary
+     * @throws DaoException if database query failed
      */
-    @Override
-    public List<Transaction> latest(LocalDate since) throws DaoException {
+    private long totalAmount(LocalDate start, LocalDate end) throws DaoException {
+        List<Object> parameters = new ArrayList<>();
+        String query = "SELECT SUM(a) AS summary FROM (" + amounts(start, end, parameters) + ")";
 
-        // Database query
-        String query = "SELECT " +
-                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
-                " FROM " + transactionTable.getTableName() +
-                " INNER JOIN " + categoryTable.getTableName() +
-                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
-                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
-                " WHERE " + transactionTable.getTableName() + "." + transactionTable.getDateColumn() + " >= ? " +
-                " ORDER BY " + transactionTable.getNameColumn() + "." + transactionTable.getDateColumn() +
-                " COLLATE NOCASE DESC";
-
-        synchronized (this) {
+        return cache.get(query, parameters, result -> QueryCache.SCALAR_BYTES, () -> {
             try (Connection conn = connection.connect();
-                 PreparedStatement statement = conn.prepareStatement(query)) {
-
-                statement.setDate(1, Date.valueOf(since));
+                 PreparedStatement statement = prepare(conn, query, parameters);
+                 ResultSet results = statement.executeQuery()) {
 
-                try (ResultSet results = statement.executeQuery()) {
-                    return resultsToTransactionList(results);
+                if (results.next()) {
+                    return results.getLong("summary");
                 }
+                return 0L;
             } catch (SQLException e) {
-                throw new DaoException("Could not load transactions: " + e.getMessage());
+                throw new DaoException("Transactions amount summary query failed: " + e.getMessage());
             }
-        }
+        });
     }
 
     /**
-     * Get all transactions
+     * Amounts of period query
      *
-     * @return transactions list ordered by date, latest first
-     * @throws DaoException if database query failed
+     * <p>Selects category (c) and amount (a) rows, whose amounts sum up to the amounts summary of period.
+     * Whole months of period are read from monthly totals, kept by triggers for main table's transactions,
+     * so only transactions of partial months at period's edges are read from main table.
+     * Transactions of year partitions overlapping period are read from partitions' tables.</p>
+     *
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @param parameters list to append query parameters to
+     * @return union query of category and amount rows
      */
-    @Override
-    public List<Transaction> latest() throws DaoException {
-        // Database query
-        String query = "SELECT " +
-                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getNameColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getDateColumn() + ", " +
-                transactionTable.getTableName() + "." + transactionTable.getAmountColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getIdColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getNameColumn() + ", " +
-                categoryTable.getTableName() + "." + categoryTable.getDescriptionColumn() +
-                " FROM " + transactionTable.getTableName() +
-                " INNER JOIN " + categoryTable.getTableName() +
-                " ON " + transactionTable.getTableName() + "." + transactionTable.getCategoryColumn() +
-                " = " + categoryTable.getTableName() + "." + categoryTable.getIdColumn() +
-                " ORDER BY " + transactionTable.getNameColumn() + "." + transactionTable.getDateColumn() +
-                " COLLATE NOCASE DESC";
+    private String amounts(LocalDate start, LocalDate end, List<Object> parameters) {
+        String table = transactionTable.getTableName();
+        String date = transactionTable.getDateColumn();
+        String rows = "SELECT " + transactionTable.getCategoryColumn() + " AS c, " +
+                transactionTable.getAmountColumn() + " AS a FROM ";
+
+        // First whole month, and first month after the last whole month
+        LocalDate firstMonth = start == null ? null :
+                (start.getDayOfMonth() == 1 ? start : start.withDayOfMonth(1).plusMonths(1));
+        LocalDate endMonth = end == null ? null : end.plusDays(1).withDayOfMonth(1);
+
+        List<String> queries = new ArrayList<>();
+
+        if (firstMonth != null && endMonth != null && !firstMonth.isBefore(endMonth)) {
+            // No whole month, transactions of period
+            queries.add(rows + "main." + table + " WHERE " + live() + " AND " + date + " >= ? AND " + date + " <= ?");
+            parameters.add(start);
+            parameters.add(end);
+        } else {
+            // Whole months
+            StringBuilder totals = new StringBuilder("SELECT " + SqliteDatabase.TOTALS_COLUMN_CATEGORY + " AS c, " +
+                    SqliteDatabase.TOTALS_COLUMN_AMOUNT + " AS a FROM " + SqliteDatabase.TABLE_TOTALS +
+                    " WHERE " + SqliteDatabase.TOTALS_COLUMN_LEDGER + " = ?");
+            parameters.add(table);
+            if (firstMonth != null) {
+                totals.append(" AND ").append(SqliteDatabase.TOTALS_COLUMN_MONTH).append(" >= ?");
+                parameters.add(firstMonth.toString().substring(0, 7));
+            }
+            if (endMonth != null) {
+                totals.append(" AND ").append(SqliteDatabase.TOTALS_COLUMN_MONTH).append(" < ?");
+                parameters.add(endMonth.toString().substring(0, 7));
+            }
+            queries.add(totals.toString());
+
+            // Partial months
+            if (start != null && start.isBefore(firstMonth)) {
+                queries.add(rows + "main." + table + " WHERE " + live() + " AND " +
+                        date + " >= ? AND " + date + " < ?");
+                parameters.add(start);
+                parameters.add(firstMonth);
+            }
+            if (end != null && !end.isBefore(endMonth)) {
+                queries.add(rows + "main." + table + " WHERE " + live() + " AND " +
+                        date + " >= ? AND " + date + " <= ?");
+                parameters.add(endMonth);
+                parameters.add(end);
+            }
+        }
 
+        // Year partitions
+        for (String partition : YearPartitions.tables(table, start, end)) {
+            StringBuilder query = new StringBuilder(rows).append(partition).append(" WHERE ").append(live());
+            if (start != null) {
+                query.append(" AND ").append(date).append(" >= ?");
+                parameters.add(start);
+            }
+            if (end != null) {
+                query.append(" AND ").append(date).append(" <= ?");
+                parameters.add(end);
+            }
+            queries.add(query.toString());
+        }
+
+        return String.join(" UNION ALL ", queries);
+    }
+
+    /**
+     * Prepare statement and bind its parameters
+     *
+     * @param conn database connection
+     * @param query query to prepare
+     * @param parameters dates, numbers or strings, in query's order
+     * @return prepared statement
+     * @throws SQLException if preparing failed
+     */
+    private static PreparedStatement prepare(Connection conn, String query, List<Object> parameters)
+            throws SQLException {
+        PreparedStatement statement = conn.prepareStatement(query);
         try {
-            return getTransactions(query);
+            for (int i = 0; i < parameters.size(); i++) {
+                Object parameter = parameters.get(i);
+                if (parameter instanceof LocalDate) {
+                    statement.setDate(i + 1, Date.valueOf((LocalDate) parameter));
+                } else if (parameter instanceof Number) {
+                    statement.setLong(i + 1, ((Number) parameter).longValue());
+                } else {
+                    statement.setString(i + 1, (String) parameter);
+                }
+            }
+            return statement;
         } catch (SQLException e) {
-            throw new DaoException("Could not load transactions: " + e.getMessage());
+            statement.close();
+            throw e;
         }
     }
 
     /**
-     * Get total amount
+     * Description column of lists queries
      *
-     * @return transactions amount summary
-     * @throws DaoException if database query failed
+     * <p>Previews select one more character than preview's length, so longer descriptions
+     * are known to be partial.</p>
+     *
+     * @return description column, or its preview
      */
-    @Override
-    public long getTotalAmount() throws DaoException {
+    private String description() {
+        String column = transactionTable.getTableName() + "." + transactionTable.getDescriptionColumn();
+        int preview = descriptionPreview;
+        return preview < 0 ? column : "substr(" + column + ", 1, " + (preview + 1) + ")";
+    }
+
+    /**
+     * Order by date, ties by id
+     *
+     * <p>Date column is indexed, so rows are read in index order instead of sorted.</p>
+     *
+     * @param direction " ASC" or " DESC"
+     * @return order by terms
+     */
+    private String dateOrder(String direction) {
+        return transactionTable.getTableName() + "." + transactionTable.getDateColumn() + direction + ", " +
+                transactionTable.getTableName() + "." + transactionTable.getIdColumn() + direction;
+    }
+
+    /**
+     * Compile transaction query
+     *
+     * <p>Compiled queries are kept, so saved queries are compiled once.</p>
+     *
+     * @param query transaction query
+     * @return where, order by and limit clauses, with their parameters
+     */
+    private CompiledQuery compile(TransactionQuery query) {
+        synchronized (compiledQueries) {
+            CompiledQuery compiled = compiledQueries.get(query);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+
+        String table = transactionTable.getTableName();
+        String id = table + "." + transactionTable.getIdColumn();
+        String date = table + "." + transactionTable.getDateColumn();
+        String amount = table + "." + transactionTable.getAmountColumn();
 
-        String query = "SELECT SUM(" + transactionTable.getAmountColumn() +
-                ") AS summary FROM " + transactionTable.getTableName();
+        StringBuilder clauses = new StringBuilder(" WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
 
-        try(Connection conn = connection.connect();
-            Statement statement = conn.createStatement();
-            ResultSet results = statement.executeQuery(query)) {
+        // Criteria
+        if (!query.getCategoryIds().isEmpty()) {
+            clauses.append(" AND ").append(table).append(".").append(transactionTable.getCategoryColumn())
+                    .append(" IN (").append(placeholders(query.getCategoryIds().size())).append(")");
+            parameters.addAll(query.getCategoryIds());
+        }
+        if (query.getStart() != null) {
+            clauses.append(" AND ").append(date).append(" >= ?");
+            parameters.add(query.getStart());
+        }
+        if (query.getEnd() != null) {
+            clauses.append(" AND ").append(date).append(" <= ?");
+            parameters.add(query.getEnd());
+        }
+        if (query.getMinAmount() != null) {
+            clauses.append(" AND ").append(amount).append(" >= ?");
+            parameters.add(query.getMinAmount());
+        }
+        if (query.getMaxAmount() != null) {
+            clauses.append(" AND ").append(amount).append(" <= ?");
+            parameters.add(query.getMaxAmount());
+        }
+        if (query.getText() != null) {
+            clauses.append(" AND (instr(").append(FOLD_FUNCTION).append("(").append(table).append(".")
+                    .append(transactionTable.getNameColumn()).append("), ?) > 0")
+                    .append(" OR instr(").append(FOLD_FUNCTION).append("(").append(table).append(".")
+                    .append(transactionTable.getDescriptionColumn()).append("), ?) > 0)");
+            parameters.add(query.getFoldedText());
+            parameters.add(query.getFoldedText());
+        }
 
-            if(results.next()) {
-                return results.getLong("summary");
+        // Order, ties by id
+        String direction = query.isDescending() ? " DESC" : " ASC";
+        if (query.getSort() != null) {
+            String column;
+            switch (query.getSort()) {
+                case AMOUNT_ASC:
+                case AMOUNT_DESC:
+                    column = amount;
+                    break;
+                case NAME_ASC:
+                case NAME_DESC:
+                    column = FOLD_FUNCTION + "(" + table + "." + transactionTable.getNameColumn() + ")";
+                    break;
+                default:
+                    column = date;
             }
-            return 0L;
-        }catch (SQLException e) {
-            throw new DaoException("Transactions amount summary query failed: " + e.getMessage());
+            clauses.append(" ORDER BY ").append(column).append(direction).append(", ").append(id).append(direction);
+        } else if (query.getLimit() > 0) {
+            clauses.append(" ORDER BY ").append(id);
         }
+
+        if (query.getLimit() > 0) {
+            clauses.append(" LIMIT ?");
+            parameters.add(query.getLimit());
+        }
+
+        CompiledQuery compiled = new CompiledQuery(clauses.toString(), parameters);
+        synchronized (compiledQueries) {
+            compiledQueries.put(query, compiled);
+        }
+        return compiled;
     }
 
     /**
-     * Get total amount
+     * Register SQL functions used by transaction queries
      *
-     * @param start summary calculations since date
-     * @param end summary calculations until date
-     * @return transactions amount summary
-     * @throws  DaoException if database query failed
+     * @param conn query connection
+     * @throws SQLException if registration failed
      */
-    @Override
-    public long getTotalAmount(LocalDate start, LocalDate end) throws DaoException {
-        // Query
-        String query = "SELECT SUM(" + transactionTable.getAmountColumn() +
-                ") AS summary FROM " + transactionTable.getTableName() +
-                " WHERE " + transactionTable.getDateColumn() + " BETWEEN ? AND ?";
-
-        // Connection
-        try(Connection conn = connection.connect();
-            PreparedStatement statement = conn.prepareStatement(query)) {
-
-            // Set dates
-            statement.setDate(1, Date.valueOf(start));
-            statement.setDate(2, Date.valueOf(end));
-
-            // Get Result
-            try(ResultSet results = statement.executeQuery()) {
-                if(results.next()) {
-                    return results.getLong("summary");
+    private static void registerFunctions(Connection conn) throws SQLException {
+        Function.create(conn.unwrap(SQLiteConnection.class), FOLD_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                String value = value_text(0);
+                if (value == null) {
+                    result();
+                } else {
+                    result(TransactionQuery.fold(value));
                 }
             }
+        });
+    }
+
+    /**
+     * Query source of transactions in period
+     *
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @return transactions table, or union of its year partitions overlapping period
+     */
+    private String source(LocalDate start, LocalDate end) {
+        return YearPartitions.source(transactionTable.getTableName(), start, end, live());
+    }
+
+    /**
+     * Condition of transactions not in trash
+     *
+     * @return condition on deletion time column
+     */
+    private String live() {
+        return transactionTable.getDeletedAtColumn() + " IS NULL";
+    }
+
+    /**
+     * Statement removing rows of table, to be followed by its condition
+     *
+     * <p>Rows are moved to trash in soft delete mode, marked with their deletion time,
+     * otherwise they are deleted.</p>
+     *
+     * @param table transactions table, main or partition's table
+     * @return delete or update statement, ending with its where clause
+     */
+    private String removal(String table) {
+        if (!softDelete) {
+            return "DELETE FROM " + table + " WHERE ";
+        }
+        return "UPDATE " + table + " SET " +
+                transactionTable.getDeletedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS + ", " +
+                transactionTable.getUpdatedAtColumn() + " = " + SqliteDatabase.NOW_MILLIS +
+                " WHERE " + live() + " AND ";
+    }
 
-            return 0L;
-        }catch (SQLException e) {
-            throw new DaoException("Transactions amount summary query failed: " + e.getMessage());
+    /**
+     * Check that transactions of date can be changed
+     *
+     * @param date transaction's date
+     * @throws DaoException if date's year is closed
+     */
+    private static void checkWritable(LocalDate date) throws DaoException {
+        if (date != null && YearPartitions.isClosed(date.getYear())) {
+            throw new DaoException("Transactions of " + date.getYear() + " are closed");
         }
     }
 
     /**
-     * Get total amount
+     * Move new transaction to its year's partition, if year is partitioned
      *
-     * @param since summary calculation since date
-     * @return transactions amount summary
-     * @throws DaoException if database query failed
+     * @param conn database connection
+     * @param id new transaction's id
+     * @param date transaction's date
+     * @param ignoreDuplicate drop transaction if its external id already exists in partition
+     * @return false if transaction was dropped
+     * @throws SQLException if move failed
      */
-    @Override
-    public long getTotalAmount(LocalDate since) throws DaoException {
-        // Query
-        String query = "SELECT SUM(" + transactionTable.getAmountColumn() +
-                ") AS summary FROM " + transactionTable.getTableName() +
-                " WHERE " + transactionTable.getDateColumn() + " >= ? ";
+    private boolean route(Connection conn, int id, LocalDate date, boolean ignoreDuplicate) throws SQLException {
+        String table = YearPartitions.tableFor(transactionTable.getTableName(), date);
+        if (table.equals(transactionTable.getTableName())) {
+            return true;
+        }
+        return YearPartitions.move(conn, transactionTable.getTableName(), table, transactionTable.getIdColumn(),
+                id, ignoreDuplicate);
+    }
 
-        // Connect
-        try(Connection conn = connection.connect();
-            PreparedStatement statement = conn.prepareStatement(query)) {
+    /**
+     * Group ids of transactions by table of their year
+     *
+     * @param transactions transactions
+     * @return ids of transactions, by table storing them
+     * @throws DaoException if a transaction is of a closed year
+     */
+    private Map<String, List<Integer>> idsByTable(Collection<Transaction> transactions) throws DaoException {
+        Map<String, List<Integer>> ids = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            checkWritable(transaction.getDate());
+            ids.computeIfAbsent(YearPartitions.tableFor(transactionTable.getTableName(), transaction.getDate()),
+                    table -> new ArrayList<>()).add(transaction.getId());
+        }
+        return ids;
+    }
 
-            // Set Since date
-            statement.setDate(1, Date.valueOf(since));
+    /**
+     * Execute statement for ids, bound in chunks of at most {@value #MAX_PARAMETERS} parameters
+     *
+     * @param conn database connection
+     * @param statement statement, ending before its ids' placeholders, i.e. "DELETE FROM t WHERE id IN "
+     * @param parameters parameters preceding ids
+     * @param ids ids
+     * @return number of changed rows
+     * @throws SQLException if statement failed
+     */
+    private static int executeByIds(Connection conn, String statement, List<Object> parameters, List<Integer> ids)
+            throws SQLException {
+        int chunkSize = MAX_PARAMETERS - parameters.size();
+
+        int changed = 0;
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + chunkSize));
+
+            List<Object> chunkParameters = new ArrayList<>(parameters);
+            chunkParameters.addAll(chunk);
+            try (PreparedStatement execute = prepare(conn, statement + "(" + placeholders(chunk.size()) + ")",
+                    chunkParameters)) {
+                changed += execute.executeUpdate();
+            }
+        }
+        return changed;
+    }
 
-            // Get result
-            try(ResultSet results = statement.executeQuery()) {
-                if(results.next()) {
-                    return results.getLong("summary");
+    /**
+     * Select ids, bound in chunks of at most {@value #MAX_PARAMETERS} parameters
+     *
+     * @param conn database connection
+     * @param query query selecting ids, ending before its ids' placeholders, i.e. "SELECT id FROM t WHERE id IN "
+     * @param ids ids
+     * @return selected ids
+     * @throws SQLException if query failed
+     */
+    private static List<Integer> selectIds(Connection conn, String query, List<Integer> ids) throws SQLException {
+        List<Integer> selected = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_PARAMETERS) {
+            List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_PARAMETERS));
+
+            try (PreparedStatement select = prepare(conn, query + "(" + placeholders(chunk.size()) + ")",
+                    new ArrayList<>(chunk));
+                 ResultSet results = select.executeQuery()) {
+                while (results.next()) {
+                    selected.add(results.getInt(1));
                 }
             }
-            return 0L;
-        }catch (SQLException e) {
-            throw new DaoException("Transactions amount summary query failed: " + e.getMessage());
+        }
+        return selected;
+    }
+
+    /**
+     * Add name to payees, if not added yet
+     *
+     * @param conn database connection
+     * @param name transaction's name
+     * @throws SQLException if insert failed
+     */
+    private static void addPayee(Connection conn, String name) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement("INSERT OR IGNORE INTO main." +
+                SqliteDatabase.TABLE_PAYEES + "(" + SqliteDatabase.PAYEES_COLUMN_NAME + ") VALUES(?)")) {
+            insert.setString(1, name);
+            insert.executeUpdate();
         }
     }
 
@@ -622,12 +2375,91 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
      */
     private List<Transaction> getTransactions(String query) throws SQLException {
 
-        try(Connection conn = connection.connect();
-            Statement statement = conn.createStatement();
-            ResultSet results = statement.executeQuery(query)) {
+        return copies(cache.get(query, Collections.emptyList(), SQLiteTransactionDaoImpl::weigh, () -> {
+            try(Connection conn = connection.connect();
+                Statement statement = conn.createStatement();
+                ResultSet results = statement.executeQuery(query)) {
+
+                return resultsToTransactionList(results);
+            }
+        }));
+    }
+
+    /**
+     * Copy cached transactions
+     *
+     * <p>Cached transactions are shared, callers get their own copies.</p>
+     *
+     * @param transactions cached transactions
+     * @return copies of transactions
+     */
+    private static List<Transaction> copies(List<Transaction> transactions) {
+        List<Transaction> copies = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            Transaction copy = new Transaction();
+            copy.setId(transaction.getId());
+            copy.setName(transaction.getName());
+            copy.setDescription(transaction.getDescription());
+            copy.setDate(transaction.getDate());
+            copy.setAmount(transaction.getAmount());
+            copy.setExternalId(transaction.getExternalId());
+            copy.setDescriptionPartial(transaction.isDescriptionPartial());
+            Category category = transaction.getCategory();
+            if (category != null) {
+                copy.setCategory(new Category(category.getId(), category.getName(), category.getDescription()));
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Estimate size of cached transactions
+     *
+     * @param transactions transactions list
+     * @return estimated size in bytes
+     */
+    private static long weigh(List<Transaction> transactions) {
+        long size = 16;
+        for (Transaction transaction : transactions) {
+            size += 256;
+            size += 2L * length(transaction.getName()) + 2L * length(transaction.getDescription());
+        }
+        return size;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
 
-            return resultsToTransactionList(results);
+    /**
+     * Query parameters placeholders
+     *
+     * @param count number of parameters
+     * @return comma separated placeholders, i.e. "?, ?, ?"
+     */
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
         }
+        return sb.toString();
+    }
+
+    /**
+     * Set insert query parameters
+     *
+     * @param statement insert statement
+     * @param transaction transaction to be inserted
+     * @throws SQLException if setting a parameter failed
+     */
+    private void setInsertParameters(PreparedStatement statement, Transaction transaction) throws SQLException {
+        statement.setString(1, transaction.getName());
+        statement.setString(2, transaction.getDescription());
+        statement.setDate(3, Date.valueOf(transaction.getDate()));
+        statement.setLong(4, transaction.getAmount());
+        statement.setInt(5, transaction.getCategory().getId());
+        statement.setString(6, transaction.getExternalId());
     }
 
     /**
@@ -663,9 +2495,17 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
     private Transaction resultsToTransaction(ResultSet results) throws SQLException {
         Transaction transaction = new Transaction();
         transaction.setId(results.getInt(1));
-        transaction.setName(results.getString(2));
+        transaction.setName(names.intern(results.getString(2)));
         transaction.setDescription(results.getString(3));
         transaction.setDate(results.getDate(4).toLocalDate());
+
+        // Preview of a longer description
+        String description = transaction.getDescription();
+        int preview = descriptionPreview;
+        if (preview >= 0 && description != null && description.codePointCount(0, description.length()) > preview) {
+            transaction.setDescription(description.substring(0, description.offsetByCodePoints(0, preview)));
+            transaction.setDescriptionPartial(true);
+        }
         transaction.setAmount(results.getLong(5));
 
         return transaction;
@@ -681,9 +2521,101 @@ abstract class SQLiteTransactionDaoImpl implements TransactionDao {
     private Category resultsToCategory(ResultSet results) throws SQLException {
         Category category = new Category();
         category.setId(results.getInt(6));
-        category.setName(results.getString(7));
-        category.setDescription(results.getString(8));
+        category.setName(names.intern(results.getString(7)));
+        category.setDescription(names.intern(results.getString(8)));
 
         return category;
     }
-}
\ No newline at end of file
+
+    /**
+     * Compiled transaction query clauses and their parameters
+     */
+    private static final class CompiledQuery {
+
+        private final String clauses;
+        private final List<Object> parameters;
+
+        private CompiledQuery(String clauses, List<Object> parameters) {
+            this.clauses = clauses;
+            this.parameters = Collections.unmodifiableList(parameters);
+        }
+    }
+
+    /**
+     * Cursor over streamed rows, reused for every row
+     */
+    private static final class RowCursor implements TransactionCursor {
+
+        private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+        private final TimeZone timeZone = TimeZone.getDefault();
+
+        private int id;
+        private String name;
+        private String description;
+        private long epochDay;
+        private long amount;
+        private int categoryId;
+        private String categoryName;
+        private String externalId;
+
+        /**
+         * Read current row of results
+         *
+         * @param results result set positioned on a row
+         * @throws SQLException if reading row failed
+         */
+        void read(ResultSet results) throws SQLException {
+            id = results.getInt(1);
+            name = results.getString(2);
+            description = results.getString(3);
+            // Dates are stored as milliseconds of local midnight
+            long millis = results.getLong(4);
+            epochDay = Math.floorDiv(millis + timeZone.getOffset(millis), MILLIS_PER_DAY);
+            amount = results.getLong(5);
+            categoryId = results.getInt(6);
+            categoryName = results.getString(7);
+            externalId = results.getString(8);
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public long getEpochDay() {
+            return epochDay;
+        }
+
+        @Override
+        public long getAmount() {
+            return amount;
+        }
+
+        @Override
+        public int getCategoryId() {
+            return categoryId;
+        }
+
+        @Override
+        public String getCategoryName() {
+            return categoryName;
+        }
+
+        @Override
+        public String getExternalId() {
+            return externalId;
+        }
+    }
+}
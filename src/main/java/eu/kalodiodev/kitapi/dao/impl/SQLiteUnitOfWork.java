@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.dao.impl;
+
+import eu.kalodiodev.kitapi.dao.CategoryDao;
+import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.dao.UnitOfWork;
+import eu.kalodiodev.kitapi.db.QueryCache;
+import eu.kalodiodev.kitapi.db.SharedSqliteConnection;
+import eu.kalodiodev.kitapi.exceptions.DaoException;
+
+import java.sql.SQLException;
+
+/**
+ * SQLite Unit Of Work
+ *
+ * <p>Data access objects of the unit use a {@link SharedSqliteConnection}. Nested units are savepoints
+ * of the shared transaction. Query results are not cached while the unit is open.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class SQLiteUnitOfWork implements UnitOfWork {
+
+    private final SharedSqliteConnection connection;
+    private final QueryCache cache = QueryCache.getInstance();
+
+    private final CategoryDao incomeCategoryDao;
+    private final CategoryDao expensesCategoryDao;
+    private final TransactionDao incomeDao;
+    private final TransactionDao expensesDao;
+
+    private boolean committed;
+    private boolean closed;
+
+    /**
+     * Begin unit of work
+     *
+     * @throws DaoException if shared connection could not be opened
+     */
+    public SQLiteUnitOfWork() throws DaoException {
+        try {
+            connection = new SharedSqliteConnection();
+        } catch (SQLException e) {
+            throw new DaoException("Failed to begin unit of work: " + e.getMessage());
+        }
+        cache.suspend();
+
+        incomeCategoryDao = new SQLiteIncomeCategoryDaoImpl(connection);
+        expensesCategoryDao = new SQLiteExpensesCategoryDaoImpl(connection);
+        incomeDao = new SQLiteIncomeDaoImpl(connection);
+        expensesDao = new SQLiteExpenseDaoImpl(connection);
+    }
+
+    @Override
+    public CategoryDao getIncomeCategoryDao() {
+        return incomeCategoryDao;
+    }
+
+    @Override
+    public CategoryDao getExpensesCategoryDao() {
+        return expensesCategoryDao;
+    }
+
+    @Override
+    public TransactionDao getIncomeDao() {
+        return incomeDao;
+    }
+
+    @Override
+    public TransactionDao getExpensesDao() {
+        return expensesDao;
+    }
+
+    @Override
+    public UnitOfWork nested() throws DaoException {
+        checkOpen();
+        try {
+            return new Nested(connection.savepoint());
+        } catch (SQLException e) {
+            throw new DaoException("Failed to begin nested unit of work: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Commit shared transaction
+     *
+     * @throws DaoException if commit failed
+     */
+    @Override
+    public void commit() throws DaoException {
+        checkOpen();
+        try {
+            connection.commit();
+            committed = true;
+        } catch (SQLException e) {
+            throw new DaoException("Failed to commit unit of work: " + e.getMessage());
+        } finally {
+            cache.changed();
+        }
+    }
+
+    /**
+     * Close shared connection, rolling back if not committed
+     *
+     * @throws DaoException if rollback failed
+     */
+    @Override
+    public void close() throws DaoException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            if (!committed) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new DaoException("Failed to roll back unit of work: " + e.getMessage());
+        } finally {
+            connection.close();
+            cache.resume();
+        }
+    }
+
+    private void checkOpen() throws DaoException {
+        if (closed || committed) {
+            throw new DaoException("Unit of work is already " + (closed ? "closed" : "committed"));
+        }
+    }
+
+    /**
+     * Nested unit of work, a savepoint of shared transaction
+     */
+    private class Nested implements UnitOfWork {
+
+        private final String savepoint;
+        private boolean released;
+
+        private Nested(String savepoint) {
+            this.savepoint = savepoint;
+        }
+
+        @Override
+        public CategoryDao getIncomeCategoryDao() {
+            return incomeCategoryDao;
+        }
+
+        @Override
+        public CategoryDao getExpensesCategoryDao() {
+            return expensesCategoryDao;
+        }
+
+        @Override
+        public TransactionDao getIncomeDao() {
+            return incomeDao;
+        }
+
+        @Override
+        public TransactionDao getExpensesDao() {
+            return expensesDao;
+        }
+
+        @Override
+        public UnitOfWork nested() throws DaoException {
+            checkReleased();
+            return SQLiteUnitOfWork.this.nested();
+        }
+
+        /**
+         * Release savepoint, keeping changes in parent unit
+         *
+         * @throws DaoException if release failed
+         */
+        @Override
+        public void commit() throws DaoException {
+            checkReleased();
+            try {
+                connection.release(savepoint);
+                released = true;
+            } catch (SQLException e) {
+                throw new DaoException("Failed to commit nested unit of work: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Roll back to savepoint and release it, if not committed
+         *
+         * @throws DaoException if rollback failed
+         */
+        @Override
+        public void close() throws DaoException {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            try {
+                connection.rollbackTo(savepoint);
+                connection.release(savepoint);
+            } catch (SQLException e) {
+                throw new DaoException("Failed to roll back nested unit of work: " + e.getMessage());
+            } finally {
+                cache.changed();
+            }
+        }
+
+        private void checkReleased() throws DaoException {
+            if (released) {
+                throw new DaoException("Nested unit of work is already closed");
+            }
+        }
+    }
+}
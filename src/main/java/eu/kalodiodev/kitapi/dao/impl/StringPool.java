@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.dao.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * String Intern Pool
+ *
+ * <p>Names repeat across thousands of rows, every row read gets its own string. Pooled strings
+ * are shared by rows loaded by data access objects instead. Pool is bounded by number of strings
+ * and is cleared when full, strings already shared stay valid.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+final class StringPool {
+
+    static final int DEFAULT_MAX_STRINGS = 16384;
+
+    private static final StringPool instance = new StringPool(DEFAULT_MAX_STRINGS);
+
+    private final int maxStrings;
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * String pool constructor
+     *
+     * @param maxStrings maximum number of pooled strings
+     */
+    StringPool(int maxStrings) {
+        this.maxStrings = maxStrings;
+    }
+
+    /**
+     * Get pool shared by data access objects
+     *
+     * @return string pool
+     */
+    static StringPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get pooled string equal to value
+     *
+     * @param value string read
+     * @return pooled string, value itself if not pooled yet, null if value is null
+     */
+    synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String pooled = strings.get(value);
+        if (pooled == null) {
+            if (strings.size() >= maxStrings) {
+                strings.clear();
+            }
+            strings.put(value, value);
+            pooled = value;
+        }
+        return pooled;
+    }
+
+    /**
+     * Get number of pooled strings
+     *
+     * @return pooled strings
+     */
+    synchronized int size() {
+        return strings.size();
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.db;
+
+import eu.kalodiodev.kitapi.exceptions.BackupException;
+import org.sqlite.SQLiteConnection;
+
+import java.io.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online Database Backup Service
+ *
+ * <p>Backs up the database while the application keeps using it, through SQLite's online backup API,
+ * which copies the database file page by page, with its schema, triggers and monthly totals.
+ * Scheduled backups run on a background thread.</p>
+ *
+ * <p>Backups are gzip compressed, named by their creation time and rotated, keeping the newest.
+ * Restore verifies integrity of a backup before it replaces the database, through SQLite's
+ * backup API.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class BackupService {
+
+    private static final String BACKUP_PREFIX = "kitapi-";
+    private static final String BACKUP_SUFFIX = ".db.gz";
+    private static final DateTimeFormatter BACKUP_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String COPY_FILE = "backup.tmp";
+    private static final String RESTORE_FILE = "restore.tmp";
+    private static final String PARTITION_SCHEMA = "partition_copy";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int keep;
+    private final Object lock = new Object();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Backup service constructor
+     *
+     * @param directory backups directory, created on first backup
+     * @param keep number of backups to keep
+     */
+    public BackupService(Path directory, int keep) {
+        this.directory = directory;
+        this.keep = keep;
+    }
+
+    /**
+     * Back up database
+     *
+     * @return backup file
+     * @throws BackupException if backup failed
+     */
+    public Path backup() throws BackupException {
+        synchronized (lock) {
+            Path copy = directory.resolve(COPY_FILE);
+            Path backup = directory.resolve(BACKUP_PREFIX + LocalDateTime.now().format(BACKUP_TIME) + BACKUP_SUFFIX);
+
+            try {
+                Files.createDirectories(directory);
+                copy(copy);
+                compress(copy, backup);
+                rotate();
+                return backup;
+            } catch (IOException | SQLException e) {
+                throw new BackupException("Backup failed: " + e.getMessage(), e);
+            } finally {
+                deleteQuietly(copy);
+            }
+        }
+    }
+
+    /**
+     * Restore database from backup
+     *
+     * <p>Current database is backed up first, so a restore can be undone.</p>
+     *
+     * @param backup backup file
+     * @throws BackupException if backup is not valid or restore failed
+     */
+    public void restore(Path backup) throws BackupException {
+        synchronized (lock) {
+            Path restore = directory.resolve(RESTORE_FILE);
+
+            try {
+                Files.createDirectories(directory);
+                decompress(backup, restore);
+                verify(restore);
+
+                backup();
+
+                JdbcSqliteConnection connection = new JdbcSqliteConnection();
+                try (Connection conn = connect(connection)) {
+                    int result = ((SQLiteConnection) conn).db().restore("main", restore.toString(), null);
+                    if (result != 0) {
+                        throw new BackupException("Restore failed with SQLite error " + result);
+                    }
+                }
+
+                // Restored database is not partitioned
+                YearPartitions.reload();
+
+                // Backups of older versions are upgraded
+                if (!SqliteDatabase.create()) {
+                    throw new BackupException("Restored database upgrade failed");
+                }
+            } catch (IOException | SQLException e) {
+                throw new BackupException("Restore failed: " + e.getMessage(), e);
+            } finally {
+                deleteQuietly(restore);
+            }
+        }
+    }
+
+    /**
+     * Get backups
+     *
+     * @return backup files, newest first
+     * @throws BackupException if backups directory cannot be read
+     */
+    public List<Path> backups() throws BackupException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> backups = files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(BACKUP_PREFIX) && name.endsWith(BACKUP_SUFFIX);
+                    })
+                    .sorted(Collections.reverseOrder())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            return backups;
+        } catch (IOException e) {
+            throw new BackupException("List backups failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get backups directory
+     *
+     * @return backups directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Back up periodically in the background
+     *
+     * <p>First backup runs when a period has passed since the newest backup.</p>
+     *
+     * @param period period between backups
+     * @param unit period's time unit
+     */
+    public synchronized void schedule(long period, TimeUnit unit) {
+        shutdown();
+
+        long delay = 0;
+        try {
+            List<Path> backups = backups();
+            if (!backups.isEmpty()) {
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(backups.get(0)).toMillis();
+                delay = Math.max(0, unit.toMillis(period) - age);
+            }
+        } catch (BackupException | IOException e) {
+            System.out.println("Couldn't read backups: " + e.getMessage());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                backup();
+            } catch (BackupException e) {
+                System.out.println("Scheduled backup failed: " + e.getMessage());
+            }
+        }, delay, unit.toMillis(period), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop periodic backups
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Copy database to file
+     *
+     * <p>Main database and each partition are copied page by page through SQLite's backup API.
+     * Backups are not partitioned, so partitions' copies are then merged to main tables of the copy.</p>
+     *
+     * @param target file to copy to
+     * @throws SQLException if copy failed
+     * @throws IOException if a file cannot be deleted
+     */
+    private void copy(Path target) throws SQLException, IOException {
+        Files.deleteIfExists(target);
+
+        Map<Integer, Path> partitions = new TreeMap<>();
+        try {
+            JdbcSqliteConnection source = new JdbcSqliteConnection();
+            try (Connection conn = connect(source)) {
+                backup(conn, "main", target);
+                for (int year : YearPartitions.getPartitions().keySet()) {
+                    Path partition = target.resolveSibling(COPY_FILE + "." + year);
+                    partitions.put(year, partition);
+                    backup(conn, YearPartitions.schemaName(year), partition);
+                }
+            }
+
+            if (!partitions.isEmpty()) {
+                merge(target, partitions);
+            }
+        } finally {
+            partitions.values().forEach(BackupService::deleteQuietly);
+        }
+    }
+
+    /**
+     * Copy schema of a connection to file, page by page
+     *
+     * @param conn source connection
+     * @param schema main or attached schema
+     * @param target file to copy to
+     * @throws SQLException if copy failed
+     * @throws IOException if target cannot be deleted
+     */
+    private static void backup(Connection conn, String schema, Path target) throws SQLException, IOException {
+        Files.deleteIfExists(target);
+        int result = ((SQLiteConnection) conn).db().backup(schema, target.toString(), null);
+        if (result != 0) {
+            throw new SQLException("Backup of " + schema + " failed with SQLite error " + result);
+        }
+    }
+
+    /**
+     * Merge partitions' copies to main tables of database copy
+     *
+     * <p>Partitions are cleared and monthly totals are rebuilt, to include partitions' transactions.</p>
+     *
+     * @param target database copy
+     * @param partitions copies of partitions by year
+     * @throws SQLException if merging failed
+     */
+    private static void merge(Path target, Map<Integer, Path> partitions) throws SQLException {
+        JdbcSqliteConnection targetConnection = new JdbcSqliteConnection(target);
+        try (Connection conn = connect(targetConnection);
+             Statement statement = conn.createStatement()) {
+
+            for (Map.Entry<Integer, Path> partition : partitions.entrySet()) {
+                statement.execute("ATTACH DATABASE '" + partition.getValue().toString().replace("'", "''") +
+                        "' AS " + PARTITION_SCHEMA);
+                try {
+                    for (String table : new String[]{SqliteDatabase.TABLE_EXPENSES, SqliteDatabase.TABLE_INCOME}) {
+                        statement.executeUpdate("INSERT INTO main." + table + " SELECT * FROM " + PARTITION_SCHEMA +
+                                "." + YearPartitions.tableName(table, partition.getKey()));
+                    }
+                } finally {
+                    statement.execute("DETACH DATABASE " + PARTITION_SCHEMA);
+                }
+            }
+
+            statement.executeUpdate("DELETE FROM " + SqliteDatabase.TABLE_PARTITIONS);
+            SqliteDatabase.rebuildTotals(statement);
+        }
+    }
+
+    /**
+     * Verify database file
+     *
+     * @param database database file
+     * @throws BackupException if database is damaged or not an application's database
+     */
+    private static void verify(Path database) throws BackupException {
+        try (Connection conn = connect(new JdbcSqliteConnection(database));
+             Statement statement = conn.createStatement()) {
+
+            try (ResultSet results = statement.executeQuery("PRAGMA integrity_check")) {
+                String result = results.next() ? results.getString(1) : null;
+                if (!"ok".equals(result)) {
+                    throw new BackupException("Backup integrity check failed: " + result);
+                }
+            }
+
+            try (ResultSet results = statement.executeQuery("SELECT count(*) FROM sqlite_master " +
+                    "WHERE type = 'table' AND name IN ('" +
+                    SqliteDatabase.TABLE_EXPENSES_CATEGORY + "', '" + SqliteDatabase.TABLE_INCOME_CATEGORY + "', '" +
+                    SqliteDatabase.TABLE_EXPENSES + "', '" + SqliteDatabase.TABLE_INCOME + "')")) {
+                if (!results.next() || results.getInt(1) != 4) {
+                    throw new BackupException("Backup is not a kitapi database");
+                }
+            }
+        } catch (SQLException e) {
+            throw new BackupException("Backup verification failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete oldest backups, keeping the newest
+     */
+    private void rotate() throws IOException {
+        try {
+            List<Path> backups = backups();
+            for (int i = keep; i < backups.size(); i++) {
+                Files.deleteIfExists(backups.get(i));
+            }
+        } catch (BackupException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compress file to backup
+     *
+     * <p>Backup is written to a temporary file, which is renamed when complete.</p>
+     */
+    private static void compress(Path source, Path backup) throws IOException {
+        Path partial = backup.resolveSibling(backup.getFileName() + ".part");
+        try {
+            try (OutputStream out = new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial), BUFFER_SIZE), BUFFER_SIZE)) {
+                Files.copy(source, out);
+            }
+            Files.move(partial, backup, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteQuietly(partial);
+        }
+    }
+
+    /**
+     * Decompress backup to file
+     */
+    private static void decompress(Path backup, Path target) throws IOException {
+        try (InputStream in = new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(backup), BUFFER_SIZE), BUFFER_SIZE)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Connection connect(JdbcSqliteConnection connection) throws SQLException {
+        Connection conn = connection.connect();
+        if (conn == null) {
+            throw new SQLException("Couldn't connect to database");
+        }
+        return conn;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("Couldn't delete " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database Change Watcher
+ *
+ * <p>Polls {@code PRAGMA data_version} of main database and its attached partitions on a
+ * connection kept open, and notifies a listener when another connection committed changes,
+ * i.e. another application instance, a script or a restore. Changes made by this application's
+ * own connections are reported too, listeners should refresh incrementally.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class ChangeWatcher {
+
+    private final JdbcSqliteConnection probe;
+    private final Runnable listener;
+
+    private ScheduledExecutorService scheduler;
+
+    // Data version on last poll, -1 before first poll
+    private long dataVersion = -1;
+    // Partitioned years attached to probe connection
+    private Set<Integer> partitions;
+
+    /**
+     * Change watcher of application's database
+     *
+     * @param listener notified on polling thread when database changed
+     */
+    public ChangeWatcher(Runnable listener) {
+        this(new JdbcSqliteConnection(), listener);
+    }
+
+    /**
+     * Change watcher constructor
+     *
+     * @param probe connection to poll data version on, kept open
+     * @param listener notified on polling thread when database changed
+     */
+    public ChangeWatcher(JdbcSqliteConnection probe, Runnable listener) {
+        this.probe = probe;
+        this.listener = listener;
+    }
+
+    /**
+     * Poll periodically in the background
+     *
+     * @param period period between polls
+     * @param unit period's time unit
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        stop();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-watcher");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (poll()) {
+                listener.run();
+            }
+        }, 0, unit.toMillis(period), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop polling
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        probe.disconnect();
+        dataVersion = -1;
+    }
+
+    /**
+     * Check if database changed since last poll
+     *
+     * <p>Probe connection is reopened when years are partitioned or merged, which counts as a change.</p>
+     *
+     * @return true if database changed, false on first poll or if data version could not be read
+     */
+    public synchronized boolean poll() {
+        boolean changed = false;
+
+        Set<Integer> years = new TreeSet<>(YearPartitions.getPartitions().keySet());
+        if (!years.equals(partitions)) {
+            probe.disconnect();
+            changed = dataVersion >= 0;
+            dataVersion = -1;
+            partitions = years;
+        }
+
+        Connection conn = probe.connect();
+        if (conn == null) {
+            return changed;
+        }
+
+        try {
+            long version = SqliteDatabase.dataVersion(conn);
+            changed |= dataVersion >= 0 && version != dataVersion;
+            dataVersion = version;
+        } catch (SQLException e) {
+            System.out.println("Couldn't read data version: " + e.getMessage());
+            probe.disconnect();
+            dataVersion = -1;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.db;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Historical Compaction Service
+ *
+ * <p>Rolls transactions older than a cutoff into one summary row per month and category.
+ * A summary row is dated on the first day of its month, holds the amounts summary of the
+ * transactions it replaces and their number, in the summarized column. Replaced transactions
+ * are moved to an archive database file, with the name of their category.</p>
+ *
+ * <p>Amounts summaries of whole months stay the same, so totals of any period starting
+ * and ending on month boundaries, or not reaching the cutoff, are not changed by compaction.
+ * Months compacted again, because transactions were added to them later, are merged to their
+ * existing summary rows.</p>
+ *
+ * <p>Summary rows of partitioned years are kept in their partition. Closed years are read-only
+ * and not compacted. Soft deleted transactions are left in trash, they are not summarized.</p>
+ *
+ * <p>External ids of archived transactions are kept in the live database, so importing the same
+ * statement lines again does not add them on top of their summary rows.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class CompactionService {
+
+    private static final String ARCHIVE_SCHEMA = "archive";
+    private static final String ARCHIVE_COLUMN_CATEGORY_NAME = "category_name";
+    private static final String ARCHIVE_COLUMN_ARCHIVED = "archived";
+
+    private static final Ledger[] LEDGERS = {
+            new Ledger(SqliteDatabase.TABLE_EXPENSES, SqliteDatabase.EXPENSES_COLUMN_ID,
+                    SqliteDatabase.EXPENSES_COLUMN_NAME, SqliteDatabase.EXPENSES_COLUMN_DESCRIPTION,
+                    SqliteDatabase.EXPENSES_COLUMN_AMOUNT, SqliteDatabase.EXPENSES_COLUMN_DATE,
+                    SqliteDatabase.EXPENSES_COLUMN_CATEGORY, SqliteDatabase.EXPENSES_COLUMN_EXTERNAL_ID,
+                    SqliteDatabase.EXPENSES_COLUMN_SUMMARIZED, SqliteDatabase.EXPENSES_COLUMN_DELETED_AT,
+                    SqliteDatabase.TABLE_EXPENSES_CATEGORY, SqliteDatabase.EXPENSES_CATEGORY_COLUMN_ID,
+                    SqliteDatabase.EXPENSES_CATEGORY_COLUMN_NAME),
+            new Ledger(SqliteDatabase.TABLE_INCOME, SqliteDatabase.INCOME_COLUMN_ID,
+                    SqliteDatabase.INCOME_COLUMN_NAME, SqliteDatabase.INCOME_COLUMN_DESCRIPTION,
+                    SqliteDatabase.INCOME_COLUMN_AMOUNT, SqliteDatabase.INCOME_COLUMN_DATE,
+                    SqliteDatabase.INCOME_COLUMN_CATEGORY, SqliteDatabase.INCOME_COLUMN_EXTERNAL_ID,
+                    SqliteDatabase.INCOME_COLUMN_SUMMARIZED, SqliteDatabase.INCOME_COLUMN_DELETED_AT,
+                    SqliteDatabase.TABLE_INCOME_CATEGORY, SqliteDatabase.INCOME_CATEGORY_COLUMN_ID,
+                    SqliteDatabase.INCOME_CATEGORY_COLUMN_NAME)
+    };
+
+    private final Path archive;
+    private final Object lock = new Object();
+
+    /**
+     * Compaction service constructor
+     *
+     * @param archive archive database file, created on first compaction
+     */
+    public CompactionService(Path archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Compact transactions older than cutoff
+     *
+     * <p>Income and expenses are compacted within a single database transaction, then the database
+     * file is vacuumed, so freed space is returned.</p>
+     *
+     * @param cutoff compact transactions before this date, rounded down to its month's first day
+     * @param summaryName name of summary rows
+     * @return compaction result
+     * @throws SQLException if compaction failed, nothing is compacted
+     */
+    public Result compact(LocalDate cutoff, String summaryName) throws SQLException {
+        LocalDate monthStart = cutoff.withDayOfMonth(1);
+        Result result = new Result();
+
+        synchronized (lock) {
+            try (Connection conn = connect();
+                 Statement statement = conn.createStatement()) {
+
+                statement.execute("ATTACH DATABASE '" + archive.toString().replace("'", "''") + "' AS " +
+                        ARCHIVE_SCHEMA);
+                try {
+                    conn.setAutoCommit(false);
+                    try {
+                        for (Ledger ledger : LEDGERS) {
+                            createArchiveTable(statement, ledger);
+
+                            // Main table and open partitions
+                            compact(conn, ledger, "main." + ledger.table, monthStart, summaryName, result);
+                            for (Map.Entry<Integer, Boolean> year : YearPartitions.getPartitions().entrySet()) {
+                                if (!year.getValue() && year.getKey() < monthStart.getYear() + 1) {
+                                    compact(conn, ledger, YearPartitions.tableName(ledger.table, year.getKey()),
+                                            monthStart, summaryName, result);
+                                }
+                            }
+
+                            // Whole archive, external ids archived before they were kept are added too
+                            keepExternalIds(statement, ledger);
+                        }
+                        conn.commit();
+                    } catch (SQLException e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                } finally {
+                    statement.execute("DETACH DATABASE " + ARCHIVE_SCHEMA);
+                }
+
+                if (result.archived > 0) {
+                    statement.execute("VACUUM main");
+                }
+            } finally {
+                QueryCache.getInstance().changed();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get archive database file
+     *
+     * @return archive file
+     */
+    public Path getArchive() {
+        return archive;
+    }
+
+    /**
+     * Compact transactions of table
+     *
+     * @param conn connection, archive attached, within a transaction
+     * @param ledger ledger of table
+     * @param table main table, qualified, or partition's table
+     * @param cutoff compact transactions before this date, first day of a month
+     * @param summaryName name of summary rows
+     * @param result compaction result to add counts to
+     * @throws SQLException if compaction failed
+     */
+    private static void compact(Connection conn, Ledger ledger, String table, LocalDate cutoff, String summaryName,
+                                Result result) throws SQLException {
+
+        // Months and categories with transactions to compact, with their existing summary rows
+        List<Group> groups = new ArrayList<>();
+        try (PreparedStatement query = conn.prepareStatement("SELECT strftime('%Y-%m', " + ledger.date +
+                " / 1000, 'unixepoch', 'localtime') AS month, " + ledger.category + ", SUM(" + ledger.amount + "), " +
+                "SUM(COALESCE(" + ledger.summarized + ", 1)) FROM " + table +
+                " WHERE " + ledger.date + " < ? AND " + ledger.deletedAt + " IS NULL" +
+                " GROUP BY month, " + ledger.category + " HAVING COUNT(" + ledger.summarized + ") < COUNT(*)")) {
+            query.setDate(1, Date.valueOf(cutoff));
+            try (ResultSet results = query.executeQuery()) {
+                while (results.next()) {
+                    groups.add(new Group(LocalDate.parse(results.getString(1) + "-01"), results.getInt(2),
+                            results.getLong(3), results.getLong(4)));
+                }
+            }
+        }
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        // Archive transactions, every one of them belongs to a group
+        try (PreparedStatement archive = conn.prepareStatement("INSERT INTO " + ARCHIVE_SCHEMA + "." + ledger.table +
+                "(" + ledger.id + ", " + ledger.name + ", " + ledger.description + ", " + ledger.amount + ", " +
+                ledger.date + ", " + ledger.category + ", " + ARCHIVE_COLUMN_CATEGORY_NAME + ", " +
+                ledger.externalId + ", " + ARCHIVE_COLUMN_ARCHIVED + ") " +
+                "SELECT t." + ledger.id + ", t." + ledger.name + ", t." + ledger.description + ", t." + ledger.amount +
+                ", t." + ledger.date + ", t." + ledger.category + ", c." + ledger.categoryName +
+                ", t." + ledger.externalId + ", ? FROM " + table + " AS t LEFT JOIN " + ledger.categoryTable +
+                " AS c ON t." + ledger.category + " = c." + ledger.categoryId +
+                " WHERE t." + ledger.date + " < ? AND t." + ledger.summarized + " IS NULL AND t." + ledger.deletedAt +
+                " IS NULL")) {
+            archive.setDate(1, Date.valueOf(LocalDate.now()));
+            archive.setDate(2, Date.valueOf(cutoff));
+            result.archived += archive.executeUpdate();
+        }
+
+        // Replace transactions and existing summaries of each group by a single summary row
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + table + " WHERE " + ledger.category +
+                " = ? AND " + ledger.date + " >= ? AND " + ledger.date + " < ? AND " + ledger.deletedAt + " IS NULL");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO main." + ledger.table + "(" +
+                     ledger.name + ", " + ledger.description + ", " + ledger.amount + ", " + ledger.date + ", " +
+                     ledger.category + ", " + ledger.summarized + ") VALUES(?, '', ?, ?, ?, ?)")) {
+
+            for (Group group : groups) {
+                delete.setInt(1, group.category);
+                delete.setDate(2, Date.valueOf(group.month));
+                delete.setDate(3, Date.valueOf(group.month.plusMonths(1)));
+                delete.executeUpdate();
+
+                insert.setString(1, summaryName);
+                insert.setLong(2, group.amount);
+                insert.setDate(3, Date.valueOf(group.month));
+                insert.setInt(4, group.category);
+                insert.setLong(5, group.count);
+                insert.executeUpdate();
+
+                // Summary of a partitioned year is moved to its partition, ids stay unique
+                if (!table.equals("main." + ledger.table)) {
+                    int id;
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        keys.next();
+                        id = keys.getInt(1);
+                    }
+                    YearPartitions.move(conn, "main." + ledger.table, table, ledger.id, id, false);
+                }
+                result.summaries++;
+            }
+        }
+    }
+
+    /**
+     * Keep external ids of ledger's archived transactions in the live database
+     */
+    private static void keepExternalIds(Statement statement, Ledger ledger) throws SQLException {
+        statement.executeUpdate("INSERT OR IGNORE INTO main." + SqliteDatabase.TABLE_COMPACTED_IDS + "(" +
+                SqliteDatabase.COMPACTED_IDS_COLUMN_LEDGER + ", " + SqliteDatabase.COMPACTED_IDS_COLUMN_EXTERNAL_ID +
+                ") SELECT '" + ledger.table + "', " + ledger.externalId + " FROM " + ARCHIVE_SCHEMA + "." +
+                ledger.table + " WHERE " + ledger.externalId + " IS NOT NULL");
+    }
+
+    /**
+     * Create archive table of ledger
+     *
+     * <p>Archived ids are not unique, a restored backup may reuse them.</p>
+     */
+    private static void createArchiveTable(Statement statement, Ledger ledger) throws SQLException {
+        statement.execute("CREATE TABLE IF NOT EXISTS " + ARCHIVE_SCHEMA + "." + ledger.table + "(" +
+                ledger.id + " INTEGER NOT NULL, " +
+                ledger.name + " TEXT NOT NULL, " +
+                ledger.description + " TEXT, " +
+                ledger.amount + " INTEGER, " +
+                ledger.date + " DATE, " +
+                ledger.category + " INTEGER, " +
+                ARCHIVE_COLUMN_CATEGORY_NAME + " TEXT, " +
+                ledger.externalId + " TEXT, " +
+                ARCHIVE_COLUMN_ARCHIVED + " DATE)");
+        statement.execute("CREATE INDEX IF NOT EXISTS " + ARCHIVE_SCHEMA + "." + ledger.table + "_" + ledger.date +
+                "_idx ON " + ledger.table + "(" + ledger.date + ")");
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection conn = new JdbcSqliteConnection().connect();
+        if (conn == null) {
+            throw new SQLException("Couldn't connect to database");
+        }
+        return conn;
+    }
+
+    /**
+     * Compaction Result
+     */
+    public static class Result {
+
+        private int summaries;
+        private int archived;
+
+        /**
+         * Get number of summary rows written
+         *
+         * @return summary rows
+         */
+        public int getSummaries() {
+            return summaries;
+        }
+
+        /**
+         * Get number of transactions moved to archive
+         *
+         * @return archived transactions
+         */
+        public int getArchived() {
+            return archived;
+        }
+    }
+
+    /**
+     * Transactions of a month and category
+     */
+    private static final class Group {
+
+        private final LocalDate month;
+        private final int category;
+        private final long amount;
+        private final long count;
+
+        Group(LocalDate month, int category, long amount, long count) {
+            this.month = month;
+            this.category = category;
+            this.amount = amount;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Ledger tables and columns
+     */
+    private static final class Ledger {
+
+        private final String table;
+        private final String id;
+        private final String name;
+        private final String description;
+        private final String amount;
+        private final String date;
+        private final String category;
+        private final String externalId;
+        private final String summarized;
+        private final String deletedAt;
+        private final String categoryTable;
+        private final String categoryId;
+        private final String categoryName;
+
+        Ledger(String table, String id, String name, String description, String amount, String date,
+               String category, String externalId, String summarized, String deletedAt, String categoryTable,
+               String categoryId, String categoryName) {
+            this.table = table;
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.amount = amount;
+            this.date = date;
+            this.category = category;
+            this.externalId = externalId;
+            this.summarized = summarized;
+            this.deletedAt = deletedAt;
+            this.categoryTable = categoryTable;
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package eu.kalodiodev.kitapi.db;
 
 import org.sqlite.SQLiteConfig;
 
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -30,10 +31,31 @@ import java.sql.SQLException;
 public class JdbcSqliteConnection {
 
     private static final String DB_NAME="kitapi.db";
-    private static final String CONNECTION_STRING = "jdbc:sqlite:" + DB_NAME;
+    private static final String CONNECTION_PREFIX = "jdbc:sqlite:";
 
+    private final String connectionString;
+    private final boolean partitioned;
     private Connection conn = null;
 
+    /**
+     * Connection to application's database
+     *
+     * <p>Year partitions are attached, see {@link YearPartitions}.</p>
+     */
+    public JdbcSqliteConnection() {
+        this.connectionString = CONNECTION_PREFIX + DB_NAME;
+        this.partitioned = true;
+    }
+
+    /**
+     * Connection to a database file
+     *
+     * @param database database file, created if it does not exist
+     */
+    public JdbcSqliteConnection(Path database) {
+        this.connectionString = CONNECTION_PREFIX + database;
+        this.partitioned = false;
+    }
 
     /**
      * Connect to database
@@ -45,7 +67,15 @@ public class JdbcSqliteConnection {
             if ((conn == null) || (conn.isClosed())) {
                 SQLiteConfig config = new SQLiteConfig();
                 config.enforceForeignKeys(true);
-                conn = DriverManager.getConnection(CONNECTION_STRING, config.toProperties());
+                conn = DriverManager.getConnection(connectionString, config.toProperties());
+                if (partitioned) {
+                    try {
+                        YearPartitions.attach(conn);
+                    } catch (SQLException e) {
+                        conn.close();
+                        throw e;
+                    }
+                }
             }
             return conn;
 
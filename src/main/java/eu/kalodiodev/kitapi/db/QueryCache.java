@@ -0,0 +1,355 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Query Results Cache
+ *
+ * <p>Caches results of read queries, keyed by query and its parameters. Every write through the
+ * DAOs counts as a change, and {@code PRAGMA data_version} of main database and its attached
+ * partitions is checked on a connection kept open for that purpose, so writes of other processes
+ * are detected too. Data version is checked at most once per probe interval, so a cache hit is
+ * a map lookup. Any change clears the cache.</p>
+ *
+ * <p>Cache is bounded by number of entries and by their estimated size in bytes, least recently
+ * used entries are evicted first.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class QueryCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 1000;
+
+    // Estimated size of a number or boolean result
+    public static final long SCALAR_BYTES = 16;
+    // Estimated size of an entry, besides its result
+    private static final long ENTRY_BYTES = 64;
+
+    private static final QueryCache instance = new QueryCache(new JdbcSqliteConnection(),
+            DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+
+    private final JdbcSqliteConnection probe;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long probeInterval;
+
+    // Entries in access order, least recently used first
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+    private long changes;
+    private long dataVersion = -1;
+    // Time of last data version check, nanoseconds
+    private long probed;
+    private long hits;
+    private long misses;
+    // Open shared transactions, results are not cached while any is open
+    private int suspended;
+
+    /**
+     * Query cache constructor
+     *
+     * @param probe connection to check data version on, kept open
+     * @param maxEntries maximum number of cached results
+     * @param maxBytes maximum estimated size of cached results
+     */
+    public QueryCache(JdbcSqliteConnection probe, int maxEntries, long maxBytes) {
+        this(probe, maxEntries, maxBytes, DEFAULT_PROBE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Query cache constructor
+     *
+     * @param probe connection to check data version on, kept open
+     * @param maxEntries maximum number of cached results
+     * @param maxBytes maximum estimated size of cached results
+     * @param probeInterval minimum time between data version checks, milliseconds
+     */
+    public QueryCache(JdbcSqliteConnection probe, int maxEntries, long maxBytes, long probeInterval) {
+        this.probe = probe;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.probeInterval = TimeUnit.MILLISECONDS.toNanos(probeInterval);
+    }
+
+    /**
+     * Get application's query cache
+     *
+     * @return query cache shared by DAOs
+     */
+    public static QueryCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get cached result, or load and cache it
+     *
+     * <p>Result is loaded without holding the cache, and is cached only if nothing changed
+     * while loading. Cached results are shared, so they should not be modified.</p>
+     *
+     * @param query query
+     * @param parameters query's parameters
+     * @param weigher estimates size of result in bytes
+     * @param loader loads result on a miss
+     * @param <T> result type
+     * @param <E> loader's exception type
+     * @return result
+     * @throws E if loading failed
+     */
+    public <T, E extends Exception> T get(String query, List<?> parameters, ToLongFunction<? super T> weigher,
+                                          Loader<T, E> loader) throws E {
+        List<Object> key = new ArrayList<>(parameters.size() + 1);
+        key.add(query);
+        key.addAll(parameters);
+
+        long changesBefore;
+        long versionBefore;
+
+        synchronized (this) {
+            validate();
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                @SuppressWarnings("unchecked")
+                T result = (T) entry.result;
+                return result;
+            }
+            misses++;
+            changesBefore = changes;
+            versionBefore = dataVersion;
+        }
+
+        T result = loader.load();
+
+        synchronized (this) {
+            validate();
+            if (result != null && changes == changesBefore && dataVersion == versionBefore && versionBefore >= 0 &&
+                    suspended == 0) {
+                put(key, result, ENTRY_BYTES + weigher.applyAsLong(result));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get cached result, or load and cache it
+     *
+     * @param query query
+     * @param loader loads result on a miss
+     * @param parameters query's parameters
+     * @param <T> number or boolean result type
+     * @param <E> loader's exception type
+     * @return result
+     * @throws E if loading failed
+     */
+    public <T, E extends Exception> T get(String query, Loader<T, E> loader, Object... parameters) throws E {
+        return get(query, Arrays.asList(parameters), result -> SCALAR_BYTES, loader);
+    }
+
+    /**
+     * Count a change of database
+     *
+     * <p>Cached results are cleared.</p>
+     */
+    public synchronized void changed() {
+        changes++;
+        clear();
+    }
+
+    /**
+     * Stop caching results while a shared transaction is open
+     *
+     * <p>Results read in an open transaction may include its uncommitted changes, so they are not cached
+     * until every suspension is resumed. Cached results are cleared.</p>
+     */
+    public synchronized void suspend() {
+        suspended++;
+        changed();
+    }
+
+    /**
+     * Resume caching results after a shared transaction was committed or rolled back
+     *
+     * <p>Cached results are cleared.</p>
+     */
+    public synchronized void resume() {
+        if (suspended > 0) {
+            suspended--;
+        }
+        changed();
+    }
+
+    /**
+     * Reset cache after database file or its partitions changed
+     *
+     * <p>Cached results are cleared and data version connection is reopened on next check,
+     * with current partitions attached.</p>
+     */
+    public synchronized void reset() {
+        changed();
+        probe.disconnect();
+        dataVersion = -1;
+    }
+
+    /**
+     * Clear cached results
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Get number of cached results
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get estimated size of cached results
+     *
+     * @return size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get number of results read from cache
+     *
+     * @return cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get number of results loaded
+     *
+     * @return cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Clear cache if data version changed
+     *
+     * <p>Data version is not checked again within probe interval, unless it could not be read.</p>
+     */
+    private void validate() {
+        long now = System.nanoTime();
+        if (dataVersion >= 0 && now - probed < probeInterval) {
+            return;
+        }
+        probed = now;
+
+        long version = dataVersion();
+        if (version != dataVersion || version < 0) {
+            clear();
+            dataVersion = version;
+        }
+    }
+
+    /**
+     * Cache result, evicting least recently used entries beyond bounds
+     */
+    private void put(List<Object> key, Object result, long size) {
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(result, size));
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += size;
+
+        Iterator<Map.Entry<List<Object>, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Get data version of main database and its attached partitions
+     *
+     * @return data version, -1 if it could not be read
+     */
+    private long dataVersion() {
+        Connection conn = probe.connect();
+        if (conn == null) {
+            return -1;
+        }
+
+        try {
+            return SqliteDatabase.dataVersion(conn);
+        } catch (SQLException e) {
+            probe.disconnect();
+            return -1;
+        }
+    }
+
+    /**
+     * Result loader
+     *
+     * @param <T> result type
+     * @param <E> exception type
+     */
+    @FunctionalInterface
+    public interface Loader<T, E extends Exception> {
+
+        /**
+         * Load result
+         *
+         * @return result
+         * @throws E if loading failed
+         */
+        T load() throws E;
+    }
+
+    /**
+     * Cached result and its estimated size
+     */
+    private static class Entry {
+
+        private final Object result;
+        private final long size;
+
+        private Entry(Object result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Shared Connection to Sqlite Database
+ *
+ * <p>One connection to application's database, with year partitions attached, kept in a single
+ * transaction until it is committed or rolled back. Data access objects using it share the connection
+ * and the transaction: closing the connection they get has no effect, and their own transactions become
+ * savepoints, so their commits and rollbacks apply to their part of the shared transaction only.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class SharedSqliteConnection extends JdbcSqliteConnection {
+
+    private final Connection conn;
+    private final Connection shared;
+
+    // Savepoints created, for unique names
+    private int savepoints;
+
+    /**
+     * Open shared connection and begin its transaction
+     *
+     * @throws SQLException if connection could not be opened
+     */
+    public SharedSqliteConnection() throws SQLException {
+        conn = super.connect();
+        if (conn == null) {
+            throw new SQLException("Couldn't connect to database");
+        }
+        conn.setAutoCommit(false);
+        shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new DaoConnection());
+    }
+
+    /**
+     * Get shared connection
+     *
+     * @return connection in shared transaction, closing it has no effect
+     */
+    @Override
+    public Connection connect() {
+        return shared;
+    }
+
+    /**
+     * Get shared connection
+     *
+     * @return connection in shared transaction, closing it has no effect
+     */
+    @Override
+    public Connection getConnection() {
+        return shared;
+    }
+
+    /**
+     * Shared connection is closed by {@link #close()} only
+     */
+    @Override
+    public void disconnect() {
+    }
+
+    /**
+     * Create savepoint in shared transaction
+     *
+     * @return savepoint's name
+     * @throws SQLException if savepoint could not be created
+     */
+    public String savepoint() throws SQLException {
+        String name = "savepoint_" + (++savepoints);
+        execute("SAVEPOINT " + name);
+        return name;
+    }
+
+    /**
+     * Release savepoint, keeping its changes in shared transaction
+     *
+     * @param name savepoint's name
+     * @throws SQLException if savepoint could not be released
+     */
+    public void release(String name) throws SQLException {
+        execute("RELEASE " + name);
+    }
+
+    /**
+     * Roll back changes made since savepoint, savepoint is kept
+     *
+     * @param name savepoint's name
+     * @throws SQLException if rollback failed
+     */
+    public void rollbackTo(String name) throws SQLException {
+        execute("ROLLBACK TO " + name);
+    }
+
+    /**
+     * Commit shared transaction
+     *
+     * @throws SQLException if commit failed
+     */
+    public void commit() throws SQLException {
+        conn.commit();
+    }
+
+    /**
+     * Roll back shared transaction
+     *
+     * @throws SQLException if rollback failed
+     */
+    public void rollback() throws SQLException {
+        conn.rollback();
+    }
+
+    /**
+     * Close connection, uncommitted changes are rolled back
+     */
+    public void close() {
+        super.disconnect();
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * Connection given to data access objects
+     *
+     * <p>Auto-commit mode is emulated: leaving it begins a savepoint, commit releases it and begins
+     * the next one, rollback rolls back to it, and returning to it releases it.</p>
+     */
+    private class DaoConnection implements InvocationHandler {
+
+        // Savepoint of data access object's transaction, null in auto-commit mode
+        private String savepoint;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "getAutoCommit":
+                    return savepoint == null;
+                case "setAutoCommit":
+                    if (!(Boolean) args[0] && savepoint == null) {
+                        savepoint = savepoint();
+                    } else if ((Boolean) args[0] && savepoint != null) {
+                        release(savepoint);
+                        savepoint = null;
+                    }
+                    return null;
+                case "commit":
+                    if (savepoint != null) {
+                        release(savepoint);
+                        savepoint = savepoint();
+                    }
+                    return null;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        if (savepoint != null) {
+                            rollbackTo(savepoint);
+                        }
+                        return null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -17,8 +17,11 @@
 package eu.kalodiodev.kitapi.db;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Sqlite Database Creation or upgrade
@@ -28,7 +31,7 @@ import java.sql.Statement;
 public class SqliteDatabase {
 
     //Database
-    private static final int VERSION = 1;
+    private static final int VERSION = 11;
     //private static final String DATABASE_NAME = "kitapi.db";
 
     //Expenses Category
@@ -62,6 +65,11 @@ public class SqliteDatabase {
     public static final String EXPENSES_COLUMN_AMOUNT = "amount";
     public static final String EXPENSES_COLUMN_DATE = "date";
     public static final String EXPENSES_COLUMN_CATEGORY = "category";
+    public static final String EXPENSES_COLUMN_EXTERNAL_ID = "fitid";
+    public static final String EXPENSES_COLUMN_SUMMARIZED = "summarized";
+    public static final String EXPENSES_COLUMN_UPDATED_AT = "updated_at";
+    public static final String EXPENSES_COLUMN_PAYEE = "payee";
+    public static final String EXPENSES_COLUMN_DELETED_AT = "deleted_at";
     public static final String CREATE_EXPENSES_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_EXPENSES + "(" +
             EXPENSES_COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
             EXPENSES_COLUMN_NAME + " TEXT NOT NULL, " +
@@ -80,6 +88,11 @@ public class SqliteDatabase {
     public static final String INCOME_COLUMN_AMOUNT = "amount";
     public static final String INCOME_COLUMN_DATE = "date";
     public static final String INCOME_COLUMN_CATEGORY = "category";
+    public static final String INCOME_COLUMN_EXTERNAL_ID = "fitid";
+    public static final String INCOME_COLUMN_SUMMARIZED = "summarized";
+    public static final String INCOME_COLUMN_UPDATED_AT = "updated_at";
+    public static final String INCOME_COLUMN_PAYEE = "payee";
+    public static final String INCOME_COLUMN_DELETED_AT = "deleted_at";
     public static final String CREATE_INCOME_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_INCOME + "(" +
             INCOME_COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
             INCOME_COLUMN_NAME + " TEXT NOT NULL, " +
@@ -90,6 +103,162 @@ public class SqliteDatabase {
             " FOREIGN KEY(" + INCOME_COLUMN_CATEGORY +") REFERENCES " +
             TABLE_INCOME_CATEGORY + "(" + INCOME_CATEGORY_COLUMN_ID + ") ON DELETE CASCADE)";
 
+    // Version 2: bank statement transaction id (FITID), unique when present
+    private static final String[] UPGRADE_TO_VERSION_2 = {
+            "ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + EXPENSES_COLUMN_EXTERNAL_ID + " TEXT",
+            "CREATE UNIQUE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_EXTERNAL_ID + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_EXTERNAL_ID + ")",
+            "ALTER TABLE " + TABLE_INCOME + " ADD COLUMN " + INCOME_COLUMN_EXTERNAL_ID + " TEXT",
+            "CREATE UNIQUE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_EXTERNAL_ID + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_EXTERNAL_ID + ")"
+    };
+
+
+    //Year Partitions
+    public static final String TABLE_PARTITIONS = "partitions";
+    public static final String PARTITIONS_COLUMN_YEAR = "year";
+    public static final String PARTITIONS_COLUMN_CLOSED = "closed";
+
+    // Version 3: registry of years moved to partition files
+    private static final String[] UPGRADE_TO_VERSION_3 = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_PARTITIONS + "(" +
+                    PARTITIONS_COLUMN_YEAR + " INTEGER PRIMARY KEY, " +
+                    PARTITIONS_COLUMN_CLOSED + " INTEGER NOT NULL DEFAULT 0)"
+    };
+
+
+    // Version 4: number of transactions a compacted monthly summary row stands for, null for transactions
+    private static final String[] UPGRADE_TO_VERSION_4 = {
+            "ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + EXPENSES_COLUMN_SUMMARIZED + " INTEGER",
+            "ALTER TABLE " + TABLE_INCOME + " ADD COLUMN " + INCOME_COLUMN_SUMMARIZED + " INTEGER"
+    };
+
+
+    //Monthly Totals
+    public static final String TABLE_TOTALS = "monthly_totals";
+    public static final String TOTALS_COLUMN_LEDGER = "ledger";
+    public static final String TOTALS_COLUMN_MONTH = "month";
+    public static final String TOTALS_COLUMN_CATEGORY = "category";
+    public static final String TOTALS_COLUMN_AMOUNT = "amount";
+    public static final String TOTALS_COLUMN_ENTRIES = "entries";
+    public static final String CREATE_TOTALS_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE_TOTALS + "(" +
+            TOTALS_COLUMN_LEDGER + " TEXT NOT NULL, " +
+            TOTALS_COLUMN_MONTH + " TEXT NOT NULL, " +
+            TOTALS_COLUMN_CATEGORY + " INTEGER NOT NULL, " +
+            TOTALS_COLUMN_AMOUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            TOTALS_COLUMN_ENTRIES + " INTEGER NOT NULL DEFAULT 0, " +
+            "PRIMARY KEY(" + TOTALS_COLUMN_LEDGER + ", " + TOTALS_COLUMN_MONTH + ", " + TOTALS_COLUMN_CATEGORY + ")) " +
+            "WITHOUT ROWID";
+
+    // Ledgers with monthly totals: transactions table, date, amount, category, summarized and deleted at columns
+    private static final String[][] TOTALS_LEDGERS = {
+            {TABLE_EXPENSES, EXPENSES_COLUMN_DATE, EXPENSES_COLUMN_AMOUNT, EXPENSES_COLUMN_CATEGORY,
+                    EXPENSES_COLUMN_SUMMARIZED, EXPENSES_COLUMN_DELETED_AT},
+            {TABLE_INCOME, INCOME_COLUMN_DATE, INCOME_COLUMN_AMOUNT, INCOME_COLUMN_CATEGORY,
+                    INCOME_COLUMN_SUMMARIZED, INCOME_COLUMN_DELETED_AT}
+    };
+
+
+    // Current time in milliseconds since epoch, as an SQL expression
+    public static final String NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+
+    // Version 6: time of last change of transactions, milliseconds since epoch
+    private static final String[] UPGRADE_TO_VERSION_6 = {
+            "ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + EXPENSES_COLUMN_UPDATED_AT + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_UPDATED_AT + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_UPDATED_AT + ")",
+            "ALTER TABLE " + TABLE_INCOME + " ADD COLUMN " + INCOME_COLUMN_UPDATED_AT + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_UPDATED_AT + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_UPDATED_AT + ")"
+    };
+
+    // Transactions tables with change times: table, id and updated at columns
+    private static final String[][] UPDATED_AT_TABLES = {
+            {TABLE_EXPENSES, EXPENSES_COLUMN_ID, EXPENSES_COLUMN_UPDATED_AT},
+            {TABLE_INCOME, INCOME_COLUMN_ID, INCOME_COLUMN_UPDATED_AT}
+    };
+
+
+    //Smart Views
+    public static final String TABLE_SMART_VIEWS = "smart_views";
+    public static final String SMART_VIEWS_COLUMN_LEDGER = "ledger";
+    public static final String SMART_VIEWS_COLUMN_NAME = "name";
+    public static final String SMART_VIEWS_COLUMN_DEFINITION = "definition";
+
+    // Version 7: indexes of transaction queries' criteria, saved queries per ledger
+    private static final String[] UPGRADE_TO_VERSION_7 = {
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_DATE + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_DATE + ")",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_CATEGORY + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_CATEGORY + ", " + EXPENSES_COLUMN_DATE + ")",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_DATE + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_DATE + ")",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_CATEGORY + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_CATEGORY + ", " + INCOME_COLUMN_DATE + ")",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SMART_VIEWS + "(" +
+                    SMART_VIEWS_COLUMN_LEDGER + " TEXT NOT NULL, " +
+                    SMART_VIEWS_COLUMN_NAME + " TEXT NOT NULL, " +
+                    SMART_VIEWS_COLUMN_DEFINITION + " TEXT NOT NULL, " +
+                    "PRIMARY KEY(" + SMART_VIEWS_COLUMN_LEDGER + ", " + SMART_VIEWS_COLUMN_NAME + "))"
+    };
+
+    // Version 8: amount indexes, for sorting by amount in storage
+    private static final String[] UPGRADE_TO_VERSION_8 = {
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_AMOUNT + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_AMOUNT + ")",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_AMOUNT + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_AMOUNT + ")"
+    };
+
+
+    //Payees
+    public static final String TABLE_PAYEES = "payees";
+    public static final String PAYEES_COLUMN_ID = "_id";
+    public static final String PAYEES_COLUMN_NAME = "name";
+
+    // Version 9: dictionary of transaction names shared by ledgers, transactions reference their payee
+    private static final String[] UPGRADE_TO_VERSION_9 = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_PAYEES + "(" +
+                    PAYEES_COLUMN_ID + " INTEGER PRIMARY KEY, " +
+                    PAYEES_COLUMN_NAME + " TEXT NOT NULL UNIQUE)",
+            "ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + EXPENSES_COLUMN_PAYEE + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_PAYEE + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_PAYEE + ")",
+            "ALTER TABLE " + TABLE_INCOME + " ADD COLUMN " + INCOME_COLUMN_PAYEE + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_PAYEE + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_PAYEE + ")"
+    };
+
+    // Transactions tables with payees: table, id, name and payee columns
+    private static final String[][] PAYEE_TABLES = {
+            {TABLE_EXPENSES, EXPENSES_COLUMN_ID, EXPENSES_COLUMN_NAME, EXPENSES_COLUMN_PAYEE},
+            {TABLE_INCOME, INCOME_COLUMN_ID, INCOME_COLUMN_NAME, INCOME_COLUMN_PAYEE}
+    };
+
+    // Version 10: deletion time of soft deleted transactions, kept in trash until purged
+    private static final String[] UPGRADE_TO_VERSION_10 = {
+            "ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + EXPENSES_COLUMN_DELETED_AT + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_EXPENSES + "_" + EXPENSES_COLUMN_DELETED_AT + "_idx ON " +
+                    TABLE_EXPENSES + "(" + EXPENSES_COLUMN_DELETED_AT + ")",
+            "ALTER TABLE " + TABLE_INCOME + " ADD COLUMN " + INCOME_COLUMN_DELETED_AT + " INTEGER",
+            "CREATE INDEX IF NOT EXISTS " + TABLE_INCOME + "_" + INCOME_COLUMN_DELETED_AT + "_idx ON " +
+                    TABLE_INCOME + "(" + INCOME_COLUMN_DELETED_AT + ")"
+    };
+
+    //Compacted External Ids
+    public static final String TABLE_COMPACTED_IDS = "compacted_ids";
+    public static final String COMPACTED_IDS_COLUMN_LEDGER = "ledger";
+    public static final String COMPACTED_IDS_COLUMN_EXTERNAL_ID = "external_id";
+
+    // Version 11: external ids of transactions moved to archive, so imported again they are duplicates
+    private static final String[] UPGRADE_TO_VERSION_11 = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_COMPACTED_IDS + "(" +
+                    COMPACTED_IDS_COLUMN_LEDGER + " TEXT NOT NULL, " +
+                    COMPACTED_IDS_COLUMN_EXTERNAL_ID + " TEXT NOT NULL, " +
+                    "PRIMARY KEY(" + COMPACTED_IDS_COLUMN_LEDGER + ", " + COMPACTED_IDS_COLUMN_EXTERNAL_ID + ")" +
+                    ") WITHOUT ROWID"
+    };
+
 
     private static JdbcSqliteConnection connection = new JdbcSqliteConnection();
 
@@ -110,8 +279,15 @@ public class SqliteDatabase {
                 statement.execute(CREATE_EXPENSES_TABLE);
                 statement.execute(CREATE_INCOME_TABLE);
 
+                boolean upgraded = upgrade(statement);
+
                 conn.commit();
 
+                // Partitions' tables get new columns on next connection
+                if (upgraded) {
+                    YearPartitions.schemaChanged();
+                }
+
                 return true;
             } catch (Exception e){
                 System.out.println("Table creation failed: " + e.getMessage());
@@ -136,4 +312,280 @@ public class SqliteDatabase {
             return false;
         }
     }
+
+    /**
+     * Upgrade database schema
+     *
+     * <p>Applies every schema change newer than the version stored in database's user_version
+     * and stores current version. Executed within table creation transaction.</p>
+     *
+     * @param statement statement of table creation connection
+     * @return true if schema was upgraded
+     * @throws SQLException if an upgrade statement failed
+     */
+    private static boolean upgrade(Statement statement) throws SQLException {
+        int version;
+        try (ResultSet results = statement.executeQuery("PRAGMA user_version")) {
+            version = results.next() ? results.getInt(1) : 0;
+        }
+
+        if (version < 2) {
+            for (String query : UPGRADE_TO_VERSION_2) {
+                statement.execute(query);
+            }
+        }
+
+        if (version < 3) {
+            for (String query : UPGRADE_TO_VERSION_3) {
+                statement.execute(query);
+            }
+        }
+
+        if (version < 4) {
+            for (String query : UPGRADE_TO_VERSION_4) {
+                statement.execute(query);
+            }
+        }
+
+        // Version 5: monthly totals per category, triggers and totals are created by version 10
+        if (version < 5) {
+            statement.execute(CREATE_TOTALS_TABLE);
+        }
+
+        // Version 6: change times, kept by triggers for rows changed outside of the application
+        if (version < 6) {
+            for (String query : UPGRADE_TO_VERSION_6) {
+                statement.execute(query);
+            }
+            for (String[] table : UPDATED_AT_TABLES) {
+                createUpdatedAtTriggers(statement, table);
+            }
+        }
+
+        if (version < 7) {
+            for (String query : UPGRADE_TO_VERSION_7) {
+                statement.execute(query);
+            }
+        }
+
+        if (version < 8) {
+            for (String query : UPGRADE_TO_VERSION_8) {
+                statement.execute(query);
+            }
+        }
+
+        // Version 9: payees, kept by triggers for rows written without one
+        if (version < 9) {
+            for (String query : UPGRADE_TO_VERSION_9) {
+                statement.execute(query);
+            }
+            for (String[] table : PAYEE_TABLES) {
+                createPayeeTriggers(statement, table);
+                fillPayees(statement, table[0], table[2], table[3]);
+            }
+        }
+
+        // Version 10: soft deleted transactions, left out of monthly totals
+        if (version < 10) {
+            for (String query : UPGRADE_TO_VERSION_10) {
+                statement.execute(query);
+            }
+            for (String[] ledger : TOTALS_LEDGERS) {
+                createTotalsTriggers(statement, ledger);
+            }
+            rebuildTotals(statement);
+        }
+
+        // Version 11: external ids of compacted transactions, filled from archive on next compaction
+        if (version < 11) {
+            for (String query : UPGRADE_TO_VERSION_11) {
+                statement.execute(query);
+            }
+        }
+
+        if (version < VERSION) {
+            statement.execute("PRAGMA user_version = " + VERSION);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get data version of main database and its attached databases
+     *
+     * <p>Data version of a schema changes when another connection commits changes to it, and
+     * only increases, so their sum changes on any commit of another connection.</p>
+     *
+     * @param conn connection to check on, kept open between checks
+     * @return data version
+     * @throws SQLException if data version could not be read
+     */
+    public static long dataVersion(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            List<String> schemas = new ArrayList<>();
+            try (ResultSet results = statement.executeQuery("PRAGMA database_list")) {
+                while (results.next()) {
+                    schemas.add(results.getString("name"));
+                }
+            }
+
+            long version = 0;
+            for (String schema : schemas) {
+                try (ResultSet results = statement.executeQuery("PRAGMA " + schema + ".data_version")) {
+                    if (results.next()) {
+                        version += results.getLong(1);
+                    }
+                }
+            }
+            return version;
+        }
+    }
+
+    /**
+     * Get month of date column
+     *
+     * @param date date column or expression, milliseconds of local midnight
+     * @return expression of date's month, as yyyy-MM
+     */
+    public static String monthOf(String date) {
+        return "IFNULL(strftime('%Y-%m', " + date + " / 1000, 'unixepoch', 'localtime'), '')";
+    }
+
+    /**
+     * Rebuild monthly totals from transactions
+     *
+     * <p>Totals include the transactions of main tables only, transactions of year partitions
+     * are summed from their tables. Soft deleted transactions are left out.</p>
+     *
+     * @param statement statement of a connection, main database not partitioned
+     * @throws SQLException if rebuilding failed
+     */
+    public static void rebuildTotals(Statement statement) throws SQLException {
+        statement.execute("DELETE FROM " + TABLE_TOTALS);
+        for (String[] ledger : TOTALS_LEDGERS) {
+            statement.execute("INSERT INTO " + TABLE_TOTALS + "(" + TOTALS_COLUMN_LEDGER + ", " +
+                    TOTALS_COLUMN_MONTH + ", " + TOTALS_COLUMN_CATEGORY + ", " + TOTALS_COLUMN_AMOUNT + ", " +
+                    TOTALS_COLUMN_ENTRIES + ") SELECT '" + ledger[0] + "', " + monthOf(ledger[1]) + ", IFNULL(" +
+                    ledger[3] + ", 0), IFNULL(SUM(" + ledger[2] + "), 0), SUM(IFNULL(" + ledger[4] + ", 1)) FROM main." +
+                    ledger[0] + " WHERE " + ledger[5] + " IS NULL GROUP BY 2, 3");
+        }
+    }
+
+    /**
+     * Create triggers adding inserted, updated and deleted transactions to monthly totals
+     *
+     * <p>A summary row of compacted transactions counts as the number of transactions it stands for.
+     * Totals of months and categories left without transactions are deleted. Soft deleted transactions
+     * are not counted, soft deleting a transaction subtracts it and restoring it adds it again.</p>
+     *
+     * <p>Triggers of earlier versions are replaced.</p>
+     *
+     * @param statement statement of table creation connection
+     * @param ledger transactions table and its date, amount, category, summarized and deleted at columns
+     * @throws SQLException if a trigger could not be created
+     */
+    private static void createTotalsTriggers(Statement statement, String[] ledger) throws SQLException {
+        String add = totalsUpdate(ledger, "new", "+");
+        String subtract = totalsUpdate(ledger, "old", "-") +
+                "DELETE FROM " + TABLE_TOTALS + totalsKey(ledger, "old") + " AND " + TOTALS_COLUMN_ENTRIES + " = 0; ";
+        String updateOf = " AFTER UPDATE OF " + ledger[1] + ", " + ledger[2] + ", " + ledger[3] + ", " + ledger[4] +
+                ", " + ledger[5] + " ON " + ledger[0];
+
+        for (String trigger : new String[]{"_totals_insert", "_totals_update", "_totals_delete"}) {
+            statement.execute("DROP TRIGGER IF EXISTS " + ledger[0] + trigger);
+        }
+
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + ledger[0] + "_totals_insert AFTER INSERT ON " +
+                ledger[0] + " WHEN new." + ledger[5] + " IS NULL BEGIN " + add + "END");
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + ledger[0] + "_totals_update_old" + updateOf +
+                " WHEN old." + ledger[5] + " IS NULL BEGIN " + subtract + "END");
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + ledger[0] + "_totals_update_new" + updateOf +
+                " WHEN new." + ledger[5] + " IS NULL BEGIN " + add + "END");
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + ledger[0] + "_totals_delete AFTER DELETE ON " +
+                ledger[0] + " WHEN old." + ledger[5] + " IS NULL BEGIN " + subtract + "END");
+    }
+
+    /**
+     * Create triggers setting change time of inserted and updated transactions
+     *
+     * <p>Triggers only set change time if the statement did not, so the application sets it
+     * itself for tables of year partitions, which have no triggers.</p>
+     *
+     * @param statement statement of table creation connection
+     * @param table transactions table and its id and updated at columns
+     * @throws SQLException if a trigger could not be created
+     */
+    private static void createUpdatedAtTriggers(Statement statement, String[] table) throws SQLException {
+        String update = " BEGIN UPDATE " + table[0] + " SET " + table[2] + " = " + NOW_MILLIS +
+                " WHERE " + table[1] + " = new." + table[1] + "; END";
+
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + table[0] + "_updated_at_insert AFTER INSERT ON " +
+                table[0] + " WHEN new." + table[2] + " IS NULL" + update);
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + table[0] + "_updated_at_update AFTER UPDATE ON " +
+                table[0] + " WHEN new." + table[2] + " IS old." + table[2] + update);
+    }
+
+    /**
+     * Create triggers setting payee of inserted and renamed transactions
+     *
+     * <p>Triggers only set payee if the statement did not, so the application sets it itself
+     * for tables of year partitions, which have no triggers.</p>
+     *
+     * @param statement statement of table creation connection
+     * @param table transactions table and its id, name and payee columns
+     * @throws SQLException if a trigger could not be created
+     */
+    private static void createPayeeTriggers(Statement statement, String[] table) throws SQLException {
+        String update = " BEGIN INSERT OR IGNORE INTO " + TABLE_PAYEES + "(" + PAYEES_COLUMN_NAME + ") VALUES(new." +
+                table[2] + "); UPDATE " + table[0] + " SET " + table[3] + " = (SELECT " + PAYEES_COLUMN_ID +
+                " FROM " + TABLE_PAYEES + " WHERE " + TABLE_PAYEES + "." + PAYEES_COLUMN_NAME + " = new." + table[2] +
+                ") WHERE " + table[1] + " = new." + table[1] + "; END";
+
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + table[0] + "_payee_insert AFTER INSERT ON " +
+                table[0] + " WHEN new." + table[3] + " IS NULL" + update);
+        statement.execute("CREATE TRIGGER IF NOT EXISTS " + table[0] + "_payee_update AFTER UPDATE OF " +
+                table[2] + " ON " + table[0] + " WHEN new." + table[3] + " IS old." + table[3] +
+                " AND new." + table[2] + " IS NOT old." + table[2] + update);
+    }
+
+    /**
+     * Set payee of transactions without one, adding their names to payees
+     *
+     * @param statement statement of a connection of main database
+     * @param table transactions table, main or partition's table
+     * @param nameColumn table's name column
+     * @param payeeColumn table's payee column
+     * @throws SQLException if filling failed
+     */
+    public static void fillPayees(Statement statement, String table, String nameColumn, String payeeColumn)
+            throws SQLException {
+        statement.execute("INSERT OR IGNORE INTO main." + TABLE_PAYEES + "(" + PAYEES_COLUMN_NAME + ") " +
+                "SELECT DISTINCT " + nameColumn + " FROM " + table + " WHERE " + payeeColumn + " IS NULL");
+        statement.execute("UPDATE " + table + " SET " + payeeColumn + " = (SELECT p." + PAYEES_COLUMN_ID +
+                " FROM main." + TABLE_PAYEES + " AS p WHERE p." + PAYEES_COLUMN_NAME + " = " + table + "." +
+                nameColumn + ") WHERE " + payeeColumn + " IS NULL");
+    }
+
+    /**
+     * Trigger statements adding a row to, or subtracting it from, its monthly total
+     */
+    private static String totalsUpdate(String[] ledger, String row, String operator) {
+        return "INSERT OR IGNORE INTO " + TABLE_TOTALS + "(" + TOTALS_COLUMN_LEDGER + ", " + TOTALS_COLUMN_MONTH + ", " +
+                TOTALS_COLUMN_CATEGORY + ") VALUES('" + ledger[0] + "', " + monthOf(row + "." + ledger[1]) +
+                ", IFNULL(" + row + "." + ledger[3] + ", 0)); " +
+                "UPDATE " + TABLE_TOTALS + " SET " +
+                TOTALS_COLUMN_AMOUNT + " = " + TOTALS_COLUMN_AMOUNT + " " + operator + " IFNULL(" + row + "." +
+                ledger[2] + ", 0), " +
+                TOTALS_COLUMN_ENTRIES + " = " + TOTALS_COLUMN_ENTRIES + " " + operator + " IFNULL(" + row + "." +
+                ledger[4] + ", 1)" + totalsKey(ledger, row) + "; ";
+    }
+
+    /**
+     * Trigger's where clause, selecting monthly total of a row
+     */
+    private static String totalsKey(String[] ledger, String row) {
+        return " WHERE " + TOTALS_COLUMN_LEDGER + " = '" + ledger[0] + "' AND " +
+                TOTALS_COLUMN_MONTH + " = " + monthOf(row + "." + ledger[1]) + " AND " +
+                TOTALS_COLUMN_CATEGORY + " = IFNULL(" + row + "." + ledger[3] + ", 0)";
+    }
 }
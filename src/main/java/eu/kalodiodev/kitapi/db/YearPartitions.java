@@ -0,0 +1,651 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Year Partitions of Transactions
+ *
+ * <p>Optional storage layout, where transactions of a year are moved from the main database
+ * to a database file of their own (kitapi-YYYY.db). Partition files are attached to every
+ * application connection; their tables are named after the year (i.e. expenses_2015), so names
+ * are unique across attached databases. Years not partitioned stay in the main tables.</p>
+ *
+ * <p>Queries read from the union of main and partition tables, pruned to the partitions
+ * overlapping the queried period. Ids stay unique across partitions, since transactions
+ * are always inserted to the main tables first. Deleted categories are cascaded to partitions
+ * by temporary triggers. Closed partitions are kept read-only by data access objects.</p>
+ *
+ * <p>SQLite attaches at most 10 databases per connection, so at most {@value #MAX_PARTITIONS}
+ * years can be partitioned, leaving room for backups and archives.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public final class YearPartitions {
+
+    public static final int MAX_PARTITIONS = 8;
+
+    private static final String FILE_PREFIX = "kitapi-";
+    private static final String FILE_SUFFIX = ".db";
+    private static final String SCHEMA_PREFIX = "y";
+
+    // Ledgers: transactions table, its date and category columns, categories table and its id column,
+    // transactions table's name and payee columns
+    private static final String[][] LEDGERS = {
+            {SqliteDatabase.TABLE_EXPENSES, SqliteDatabase.EXPENSES_COLUMN_DATE, SqliteDatabase.EXPENSES_COLUMN_CATEGORY,
+                    SqliteDatabase.TABLE_EXPENSES_CATEGORY, SqliteDatabase.EXPENSES_CATEGORY_COLUMN_ID,
+                    SqliteDatabase.EXPENSES_COLUMN_NAME, SqliteDatabase.EXPENSES_COLUMN_PAYEE},
+            {SqliteDatabase.TABLE_INCOME, SqliteDatabase.INCOME_COLUMN_DATE, SqliteDatabase.INCOME_COLUMN_CATEGORY,
+                    SqliteDatabase.TABLE_INCOME_CATEGORY, SqliteDatabase.INCOME_CATEGORY_COLUMN_ID,
+                    SqliteDatabase.INCOME_COLUMN_NAME, SqliteDatabase.INCOME_COLUMN_PAYEE}
+    };
+
+    // Partitioned years and if they are closed, null until loaded
+    private static volatile NavigableMap<Integer, Boolean> partitions;
+
+    // Partitions whose tables have been synchronized with main tables
+    private static final Set<Integer> synced = ConcurrentHashMap.newKeySet();
+
+    private YearPartitions() {
+        // Prevent instantiation - all methods are static
+    }
+
+    /**
+     * Get partitioned years
+     *
+     * @return partitioned years, mapped to true if closed
+     */
+    public static NavigableMap<Integer, Boolean> getPartitions() {
+        NavigableMap<Integer, Boolean> loaded = partitions;
+        if (loaded == null) {
+            // Connecting loads partitions
+            try (Connection conn = connect()) {
+                loaded = load(conn);
+            } catch (SQLException e) {
+                System.out.println("Couldn't load partitions: " + e.getMessage());
+                loaded = new TreeMap<>();
+            }
+        }
+        return Collections.unmodifiableNavigableMap(loaded);
+    }
+
+    /**
+     * Check if year is partitioned
+     *
+     * @param year year
+     * @return true if year's transactions are stored in a partition
+     */
+    public static boolean isPartitioned(int year) {
+        return getPartitions().containsKey(year);
+    }
+
+    /**
+     * Check if year is closed
+     *
+     * @param year year
+     * @return true if year is partitioned and closed
+     */
+    public static boolean isClosed(int year) {
+        return Boolean.TRUE.equals(getPartitions().get(year));
+    }
+
+    /**
+     * Get partition's file
+     *
+     * @param year partitioned year
+     * @return database file of year
+     */
+    public static Path file(int year) {
+        return Paths.get(FILE_PREFIX + year + FILE_SUFFIX);
+    }
+
+    /**
+     * Get partition's table name
+     *
+     * @param table main table
+     * @param year partitioned year
+     * @return table of year
+     */
+    public static String tableName(String table, int year) {
+        return table + "_" + year;
+    }
+
+    /**
+     * Get table storing transactions of date
+     *
+     * @param table main table
+     * @param date transaction's date
+     * @return partition's table if date's year is partitioned, otherwise main table
+     */
+    public static String tableFor(String table, LocalDate date) {
+        return isPartitioned(date.getYear()) ? tableName(table, date.getYear()) : table;
+    }
+
+    /**
+     * Get tables storing transactions
+     *
+     * @param table main table
+     * @return main table followed by partitions' tables
+     */
+    public static List<String> tables(String table) {
+        List<String> tables = new ArrayList<>();
+        tables.add(table);
+        for (int year : getPartitions().keySet()) {
+            tables.add(tableName(table, year));
+        }
+        return tables;
+    }
+
+    /**
+     * Get tables storing transactions that can be changed
+     *
+     * @param table main table
+     * @return main table followed by open partitions' tables
+     */
+    public static List<String> openTables(String table) {
+        List<String> tables = new ArrayList<>();
+        tables.add(table);
+        for (Map.Entry<Integer, Boolean> partition : getPartitions().entrySet()) {
+            if (!partition.getValue()) {
+                tables.add(tableName(table, partition.getKey()));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Get partitions' tables overlapping period
+     *
+     * @param table main table
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @return tables of partitioned years within period
+     */
+    public static List<String> tables(String table, LocalDate start, LocalDate end) {
+        List<String> tables = new ArrayList<>();
+        int from = start == null ? Integer.MIN_VALUE : start.getYear();
+        int to = end == null ? Integer.MAX_VALUE : end.getYear();
+        if (from <= to) {
+            for (int year : getPartitions().subMap(from, true, to, true).keySet()) {
+                tables.add(tableName(table, year));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Get query source of transactions in period
+     *
+     * <p>Source is the main table if no partition overlaps the period, otherwise the union
+     * of main table and overlapping partitions' tables, named as the main table.
+     * Main table is left out if every year of period is partitioned.</p>
+     *
+     * @param table main table
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @return table name or sub-query to select from
+     */
+    public static String source(String table, LocalDate start, LocalDate end) {
+        return source(table, start, end, null);
+    }
+
+    /**
+     * Get query source of transactions in period, filtered
+     *
+     * <p>Filter is applied to each table of the source, a sub-query of a single table is flattened
+     * by SQLite, so its indexes are still used.</p>
+     *
+     * @param table main table
+     * @param start period start, null for no lower limit
+     * @param end period end, null for no upper limit
+     * @param filter condition on columns of table, null for no filter
+     * @return table name or sub-query to select from
+     */
+    public static String source(String table, LocalDate start, LocalDate end, String filter) {
+        String where = filter == null ? "" : " WHERE " + filter;
+        String mainOnly = filter == null ? table : "(SELECT * FROM " + table + where + ") AS " + table;
+
+        NavigableMap<Integer, Boolean> years = getPartitions();
+        if (years.isEmpty()) {
+            return mainOnly;
+        }
+
+        int from = start == null ? Integer.MIN_VALUE : start.getYear();
+        int to = end == null ? Integer.MAX_VALUE : end.getYear();
+        if (from > to) {
+            return mainOnly;
+        }
+        Set<Integer> overlapping = years.subMap(from, true, to, true).keySet();
+        if (overlapping.isEmpty()) {
+            return mainOnly;
+        }
+
+        boolean main = start == null || end == null || overlapping.size() < to - from + 1;
+
+        StringBuilder source = new StringBuilder("(");
+        if (main) {
+            source.append("SELECT * FROM main.").append(table).append(where);
+        }
+        for (int year : overlapping) {
+            if (source.length() > 1) {
+                source.append(" UNION ALL ");
+            }
+            source.append("SELECT * FROM ").append(tableName(table, year)).append(where);
+        }
+        return source.append(") AS ").append(table).toString();
+    }
+
+    /**
+     * Move transaction between main and partition tables
+     *
+     * @param conn connection, partitions attached
+     * @param from table storing transaction
+     * @param to table to move transaction to
+     * @param idColumn id column
+     * @param id transaction's id
+     * @param ignoreDuplicate drop transaction if it conflicts with a unique index of target table
+     * @return true if moved, false if dropped as duplicate
+     * @throws SQLException if move failed
+     */
+    public static boolean move(Connection conn, String from, String to, String idColumn, int id,
+                               boolean ignoreDuplicate) throws SQLException {
+        boolean moved;
+        try (PreparedStatement insert = conn.prepareStatement("INSERT " + (ignoreDuplicate ? "OR IGNORE " : "") +
+                "INTO " + to + " SELECT * FROM " + from + " WHERE " + idColumn + " = ?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM " + from +
+                     " WHERE " + idColumn + " = ?")) {
+            insert.setInt(1, id);
+            moved = insert.executeUpdate() == 1;
+            delete.setInt(1, id);
+            delete.executeUpdate();
+        }
+        return moved;
+    }
+
+    /**
+     * Move transactions of year to a partition
+     *
+     * @param year year to partition
+     * @return true if partitioned, false if already partitioned
+     * @throws SQLException if partitioning failed, or partitions limit reached
+     */
+    public static synchronized boolean partition(int year) throws SQLException {
+        try (Connection conn = connect();
+             Statement statement = conn.createStatement()) {
+
+            NavigableMap<Integer, Boolean> years = load(conn);
+            if (years.containsKey(year)) {
+                return false;
+            }
+            if (years.size() >= MAX_PARTITIONS) {
+                throw new SQLException("At most " + MAX_PARTITIONS + " years can be partitioned");
+            }
+
+            // Leftover of a merged partition
+            deleteFile(year);
+
+            statement.execute("ATTACH DATABASE '" + file(year) + "' AS " + schemaName(year));
+            createTables(statement, year);
+
+            LocalDate start = LocalDate.of(year, 1, 1);
+            conn.setAutoCommit(false);
+            try {
+                for (String[] ledger : LEDGERS) {
+                    String period = " WHERE " + ledger[1] + " >= ? AND " + ledger[1] + " < ?";
+                    executeUpdate(conn, "INSERT INTO " + tableName(ledger[0], year) +
+                            " SELECT * FROM main." + ledger[0] + period, start, start.plusYears(1));
+                    executeUpdate(conn, "DELETE FROM main." + ledger[0] + period, start, start.plusYears(1));
+                }
+
+                try (PreparedStatement register = conn.prepareStatement("INSERT INTO " +
+                        SqliteDatabase.TABLE_PARTITIONS + "(" + SqliteDatabase.PARTITIONS_COLUMN_YEAR + ") VALUES(?)")) {
+                    register.setInt(1, year);
+                    register.executeUpdate();
+                }
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return true;
+        } finally {
+            reload();
+        }
+    }
+
+    /**
+     * Partition every year before given year
+     *
+     * <p>Years are partitioned oldest first, until partitions limit is reached.</p>
+     *
+     * @param year partition years before this year
+     * @return partitioned years
+     * @throws SQLException if partitioning failed
+     */
+    public static synchronized List<Integer> partitionBefore(int year) throws SQLException {
+        SortedSet<Integer> years = new TreeSet<>();
+
+        try (Connection conn = connect();
+             Statement statement = conn.createStatement()) {
+            for (String[] ledger : LEDGERS) {
+                try (ResultSet results = statement.executeQuery("SELECT DISTINCT CAST(strftime('%Y', " + ledger[1] +
+                        " / 1000, 'unixepoch', 'localtime') AS INTEGER) FROM main." + ledger[0])) {
+                    while (results.next()) {
+                        if (results.getInt(1) < year) {
+                            years.add(results.getInt(1));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Integer> partitioned = new ArrayList<>();
+        for (int partitionYear : years) {
+            if (getPartitions().size() >= MAX_PARTITIONS) {
+                break;
+            }
+            if (partition(partitionYear)) {
+                partitioned.add(partitionYear);
+            }
+        }
+        return partitioned;
+    }
+
+    /**
+     * Move transactions of a partitioned year back to main tables
+     *
+     * @param year partitioned year
+     * @throws SQLException if merging failed
+     */
+    public static synchronized void merge(int year) throws SQLException {
+        try (Connection conn = connect();
+             Statement statement = conn.createStatement()) {
+
+            if (!load(conn).containsKey(year)) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                for (String[] ledger : LEDGERS) {
+                    statement.executeUpdate("INSERT INTO main." + ledger[0] +
+                            " SELECT * FROM " + tableName(ledger[0], year));
+                }
+                statement.executeUpdate("DELETE FROM " + SqliteDatabase.TABLE_PARTITIONS +
+                        " WHERE " + SqliteDatabase.PARTITIONS_COLUMN_YEAR + " = " + year);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            statement.execute("DETACH DATABASE " + schemaName(year));
+        } finally {
+            reload();
+        }
+        deleteFile(year);
+    }
+
+    /**
+     * Close a partitioned year
+     *
+     * <p>Transactions of closed years cannot be added, updated or removed.
+     * Partition's file is compacted.</p>
+     *
+     * @param year partitioned year
+     * @throws SQLException if year is not partitioned or closing failed
+     */
+    public static synchronized void close(int year) throws SQLException {
+        try (Connection conn = connect();
+             Statement statement = conn.createStatement()) {
+
+            if (!load(conn).containsKey(year)) {
+                throw new SQLException("Year " + year + " is not partitioned");
+            }
+
+            statement.executeUpdate("UPDATE " + SqliteDatabase.TABLE_PARTITIONS +
+                    " SET " + SqliteDatabase.PARTITIONS_COLUMN_CLOSED + " = 1" +
+                    " WHERE " + SqliteDatabase.PARTITIONS_COLUMN_YEAR + " = " + year);
+            statement.execute("VACUUM " + schemaName(year));
+        } finally {
+            reload();
+        }
+    }
+
+    /**
+     * Reload partitions on next connection
+     *
+     * <p>Cached query results are cleared, see {@link QueryCache#reset()}.</p>
+     */
+    public static void reload() {
+        partitions = null;
+        QueryCache.getInstance().reset();
+    }
+
+    /**
+     * Synchronize partitions' tables with main tables again on next connection
+     *
+     * <p>Called after main database's schema was upgraded.</p>
+     */
+    public static void schemaChanged() {
+        synced.clear();
+        reload();
+    }
+
+    /**
+     * Attach partitions to a connection of main database
+     *
+     * <p>Partitions' tables are synchronized with main tables once, so columns and indexes
+     * added by later schema versions are added to partitions too.</p>
+     *
+     * @param conn new connection of main database
+     * @throws SQLException if attaching failed
+     */
+    static void attach(Connection conn) throws SQLException {
+        NavigableMap<Integer, Boolean> years = load(conn);
+        if (years.isEmpty()) {
+            return;
+        }
+
+        try (Statement statement = conn.createStatement()) {
+            for (int year : years.keySet()) {
+                statement.execute("ATTACH DATABASE '" + file(year) + "' AS " + schemaName(year));
+
+                if (synced.add(year)) {
+                    createTables(statement, year);
+                }
+
+                // Cascade deleted categories, triggers cannot reference tables of other databases
+                for (String[] ledger : LEDGERS) {
+                    statement.execute("CREATE TEMP TRIGGER IF NOT EXISTS " + tableName(ledger[3], year) +
+                            "_delete AFTER DELETE ON main." + ledger[3] + " BEGIN DELETE FROM " +
+                            tableName(ledger[0], year) + " WHERE " + ledger[2] + " = old." + ledger[4] + "; END");
+                }
+            }
+        }
+    }
+
+    /**
+     * Load partitioned years
+     *
+     * @param conn connection of main database
+     * @return partitioned years, empty if database has not been created yet
+     */
+    private static NavigableMap<Integer, Boolean> load(Connection conn) {
+        NavigableMap<Integer, Boolean> loaded = partitions;
+        if (loaded != null) {
+            return loaded;
+        }
+
+        loaded = new TreeMap<>();
+        try (Statement statement = conn.createStatement();
+             ResultSet results = statement.executeQuery("SELECT " + SqliteDatabase.PARTITIONS_COLUMN_YEAR + ", " +
+                     SqliteDatabase.PARTITIONS_COLUMN_CLOSED + " FROM main." + SqliteDatabase.TABLE_PARTITIONS)) {
+            while (results.next()) {
+                loaded.put(results.getInt(1), results.getInt(2) != 0);
+            }
+        } catch (SQLException e) {
+            // No partitions table yet
+            return loaded;
+        }
+
+        partitions = loaded;
+        return loaded;
+    }
+
+    /**
+     * Create or complete partition's tables and indexes, as main tables
+     *
+     * @param statement statement of connection, partition attached
+     * @param year partitioned year
+     * @throws SQLException if creation failed
+     */
+    private static void createTables(Statement statement, int year) throws SQLException {
+        String schema = schemaName(year);
+
+        for (String[] ledger : LEDGERS) {
+            String table = tableName(ledger[0], year);
+            Set<String> existing = columns(statement, schema, table).keySet();
+            Map<String, String> columns = columns(statement, "main", ledger[0]);
+
+            if (existing.isEmpty()) {
+                statement.execute("CREATE TABLE " + schema + "." + table +
+                        "(" + String.join(", ", columns.values()) + ")");
+            } else {
+                for (Map.Entry<String, String> column : columns.entrySet()) {
+                    if (!existing.contains(column.getKey())) {
+                        statement.execute("ALTER TABLE " + schema + "." + table + " ADD COLUMN " + column.getValue());
+                    }
+                }
+            }
+
+            for (String index : indexes(statement, ledger[0])) {
+                statement.execute(index.replace("{schema}", schema).replace("{year}", String.valueOf(year))
+                        .replace("{table}", table));
+            }
+
+            // Partitions have no triggers, set payees of rows partitioned before payees existed
+            if (columns.containsKey(ledger[6])) {
+                SqliteDatabase.fillPayees(statement, table, ledger[5], ledger[6]);
+            }
+        }
+    }
+
+    /**
+     * Get column definitions of table
+     *
+     * <p>Primary key is kept, ids are given by main table, foreign keys are left out.</p>
+     *
+     * @return column names mapped to their definitions, empty if table does not exist
+     */
+    private static Map<String, String> columns(Statement statement, String schema, String table) throws SQLException {
+        Map<String, String> columns = new LinkedHashMap<>();
+        try (ResultSet results = statement.executeQuery("PRAGMA " + schema + ".table_info(" + table + ")")) {
+            while (results.next()) {
+                StringBuilder definition = new StringBuilder(results.getString("name"))
+                        .append(" ").append(results.getString("type"));
+                if (results.getInt("pk") == 1) {
+                    definition.append(" PRIMARY KEY");
+                }
+                if (results.getInt("notnull") == 1) {
+                    definition.append(" NOT NULL");
+                }
+                if (results.getString("dflt_value") != null) {
+                    definition.append(" DEFAULT ").append(results.getString("dflt_value"));
+                }
+                columns.put(results.getString("name"), definition.toString());
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Get index templates of main table
+     *
+     * <p>Only indexes on plain columns, without a WHERE clause, are copied to partitions.</p>
+     *
+     * @return create index queries, with {schema}, {year} and {table} placeholders
+     */
+    private static List<String> indexes(Statement statement, String table) throws SQLException {
+        Map<String, Boolean> created = new LinkedHashMap<>();
+        try (ResultSet results = statement.executeQuery("PRAGMA main.index_list(" + table + ")")) {
+            while (results.next()) {
+                if ("c".equals(results.getString("origin")) && results.getInt("partial") == 0) {
+                    created.put(results.getString("name"), results.getInt("unique") == 1);
+                }
+            }
+        }
+
+        List<String> indexes = new ArrayList<>();
+        for (Map.Entry<String, Boolean> index : created.entrySet()) {
+            List<String> columns = new ArrayList<>();
+            try (ResultSet results = statement.executeQuery("PRAGMA main.index_info(" + index.getKey() + ")")) {
+                while (results.next()) {
+                    columns.add(results.getString("name"));
+                }
+            }
+            if (columns.isEmpty() || columns.contains(null)) {
+                continue;
+            }
+            indexes.add("CREATE " + (index.getValue() ? "UNIQUE " : "") + "INDEX IF NOT EXISTS {schema}." +
+                    index.getKey() + "_{year} ON {table}(" + String.join(", ", columns) + ")");
+        }
+        return indexes;
+    }
+
+    static String schemaName(int year) {
+        return SCHEMA_PREFIX + year;
+    }
+
+    private static void executeUpdate(Connection conn, String query, LocalDate start, LocalDate end)
+            throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(query)) {
+            statement.setDate(1, java.sql.Date.valueOf(start));
+            statement.setDate(2, java.sql.Date.valueOf(end));
+            statement.executeUpdate();
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection conn = new JdbcSqliteConnection().connect();
+        if (conn == null) {
+            throw new SQLException("Couldn't connect to database");
+        }
+        return conn;
+    }
+
+    private static void deleteFile(int year) throws SQLException {
+        synced.remove(year);
+        try {
+            Files.deleteIfExists(file(year));
+        } catch (IOException e) {
+            throw new SQLException("Couldn't delete partition file: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.export;
+
+/**
+ * Export File Format
+ *
+ * @author Raptodimos Thanos
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values, with a header row
+     */
+    CSV("csv"),
+
+    /**
+     * JSON Lines, one JSON object per line
+     */
+    JSON_LINES("jsonl");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get file extension
+     *
+     * @return file extension, without dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
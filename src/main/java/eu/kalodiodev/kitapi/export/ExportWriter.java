@@ -0,0 +1,344 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Export Writer
+ *
+ * <p>Encodes values as UTF-8 straight into a direct buffer, which is written to the file channel
+ * whenever it fills up. Numbers, amounts and dates are formatted without intermediate strings,
+ * so writing a row does not allocate.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+final class ExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Longest UTF-8 sequence of a code point
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // Digits of a long, written backwards
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Export writer constructor
+     *
+     * <p>File is created, or truncated if it exists.</p>
+     *
+     * @param file file to write
+     * @throws IOException if file cannot be opened
+     */
+    ExportWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Write ASCII character
+     *
+     * @param c character to write
+     * @throws IOException if writing failed
+     */
+    void write(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Write text as is
+     *
+     * @param text text to write
+     * @throws IOException if writing failed
+     */
+    void write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            i = writeChar(text, i);
+        }
+    }
+
+    /**
+     * Write a number
+     *
+     * @param value number to write
+     * @throws IOException if writing failed
+     */
+    void writeLong(long value) throws IOException {
+        ensure(digits.length);
+
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+
+        // Negative remainders, so that Long.MIN_VALUE needs no special case
+        int position = digits.length;
+        long rest = value < 0 ? value : -value;
+        do {
+            digits[--position] = (byte) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    /**
+     * Write an amount of cents as a decimal number with two fraction digits
+     *
+     * @param cents amount in cents
+     * @throws IOException if writing failed
+     */
+    void writeAmount(long cents) throws IOException {
+        long whole = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+
+        if (cents < 0 && whole == 0) {
+            write('-');
+        }
+        writeLong(whole);
+
+        ensure(3);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fraction / 10));
+        buffer.put((byte) ('0' + fraction % 10));
+    }
+
+    /**
+     * Write a date in ISO format (yyyy-MM-dd)
+     *
+     * @param epochDay days since 1970-01-01
+     * @throws IOException if writing failed
+     */
+    void writeDate(long epochDay) throws IOException {
+        // Civil date from days, proleptic Gregorian calendar with years starting at March
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year >= 0 && year <= 9999) {
+            ensure(4);
+            buffer.put((byte) ('0' + year / 1000));
+            buffer.put((byte) ('0' + year / 100 % 10));
+            buffer.put((byte) ('0' + year / 10 % 10));
+            buffer.put((byte) ('0' + year % 10));
+        } else {
+            writeLong(year);
+        }
+
+        ensure(6);
+        buffer.put((byte) '-');
+        buffer.put((byte) ('0' + month / 10));
+        buffer.put((byte) ('0' + month % 10));
+        buffer.put((byte) '-');
+        buffer.put((byte) ('0' + day / 10));
+        buffer.put((byte) ('0' + day % 10));
+    }
+
+    /**
+     * Write a CSV field
+     *
+     * <p>Field is quoted only if it contains a separator, a quote or a line break.
+     * Null is written as an empty field.</p>
+     *
+     * @param text field to write, may be null
+     * @throws IOException if writing failed
+     */
+    void writeCsv(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+
+        if (!needsQuotes(text)) {
+            write(text);
+            return;
+        }
+
+        write('"');
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                write('"');
+            }
+            i = writeChar(text, i);
+        }
+        write('"');
+    }
+
+    /**
+     * Write a JSON string
+     *
+     * <p>Null is written as JSON null.</p>
+     *
+     * @param text string to write, may be null
+     * @throws IOException if writing failed
+     */
+    void writeJson(String text) throws IOException {
+        if (text == null) {
+            ensure(NULL.length);
+            buffer.put(NULL);
+            return;
+        }
+
+        write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    ensure(2);
+                    buffer.put((byte) '\\');
+                    buffer.put((byte) c);
+                    break;
+                case '\n':
+                    ensure(2);
+                    buffer.put((byte) '\\');
+                    buffer.put((byte) 'n');
+                    break;
+                case '\r':
+                    ensure(2);
+                    buffer.put((byte) '\\');
+                    buffer.put((byte) 'r');
+                    break;
+                case '\t':
+                    ensure(2);
+                    buffer.put((byte) '\\');
+                    buffer.put((byte) 't');
+                    break;
+                default:
+                    if (c < 0x20) {
+                        ensure(6);
+                        buffer.put((byte) '\\');
+                        buffer.put((byte) 'u');
+                        buffer.put((byte) '0');
+                        buffer.put((byte) '0');
+                        buffer.put(HEX[c >> 4]);
+                        buffer.put(HEX[c & 0xF]);
+                    } else {
+                        i = writeChar(text, i);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Write buffered bytes to file and close it
+     *
+     * @throws IOException if writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encode character at index as UTF-8
+     *
+     * @param text text to encode
+     * @param index character's index
+     * @return index of last character consumed, surrogate pairs consume two
+     * @throws IOException if writing failed
+     */
+    private int writeChar(String text, int index) throws IOException {
+        ensure(MAX_CHAR_BYTES);
+
+        char c = text.charAt(index);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+            buffer.put((byte) (0xF0 | codePoint >> 18));
+            buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | codePoint & 0x3F));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            // Unpaired surrogate
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | c >> 12));
+            buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        }
+        return index;
+    }
+
+    /**
+     * Check if CSV field must be quoted
+     *
+     * @param text field
+     * @return true if field contains a separator, a quote or a line break
+     */
+    private static boolean needsQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Make room in buffer
+     *
+     * @param bytes bytes to be put
+     * @throws IOException if writing failed
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Write buffered bytes to file
+     *
+     * @throws IOException if writing failed
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
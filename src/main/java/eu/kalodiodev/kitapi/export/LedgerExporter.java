@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.export;
+
+import eu.kalodiodev.kitapi.dao.TransactionCursor;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Ledger Exporter
+ *
+ * <p>Exports income, expenses and categories to CSV or JSON Lines files. Transactions are streamed
+ * from persistence storage straight to the file, so memory use does not depend on ledger's size.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class LedgerExporter {
+
+    private static final String TRANSACTIONS_HEADER = "id,date,name,description,amount,category_id,category,external_id";
+    private static final String CATEGORIES_HEADER = "id,name,description";
+
+    private final ExportFormat format;
+
+    /**
+     * Ledger exporter constructor
+     *
+     * @param format export file format
+     */
+    public LedgerExporter(ExportFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Export transactions
+     *
+     * @param service transaction service (income or expenses)
+     * @param start export transactions since date, null for no lower limit
+     * @param end export transactions until date, null for no upper limit
+     * @param category export only transactions of category, null for all categories
+     * @param file file to export to
+     * @return number of exported transactions
+     * @throws RequestFailException if persistence storage operation failed
+     * @throws IOException if writing file failed
+     */
+    public long exportTransactions(ITransactionService service, LocalDate start, LocalDate end, Category category,
+                                   Path file) throws RequestFailException, IOException {
+
+        try (ExportWriter writer = new ExportWriter(file)) {
+            if (format == ExportFormat.CSV) {
+                writer.write(TRANSACTIONS_HEADER);
+                writer.write('\n');
+                return service.stream(start, end, category, row -> writeCsv(writer, row));
+            } else {
+                return service.stream(start, end, category, row -> writeJson(writer, row));
+            }
+        }
+    }
+
+    /**
+     * Export categories
+     *
+     * @param categories categories to export
+     * @param file file to export to
+     * @return number of exported categories
+     * @throws IOException if writing file failed
+     */
+    public long exportCategories(Iterable<Category> categories, Path file) throws IOException {
+        long rows = 0;
+
+        try (ExportWriter writer = new ExportWriter(file)) {
+            if (format == ExportFormat.CSV) {
+                writer.write(CATEGORIES_HEADER);
+                writer.write('\n');
+            }
+
+            for (Category category : categories) {
+                if (format == ExportFormat.CSV) {
+                    writer.writeLong(category.getId());
+                    writer.write(',');
+                    writer.writeCsv(category.getName());
+                    writer.write(',');
+                    writer.writeCsv(category.getDescription());
+                } else {
+                    writer.write("{\"id\":");
+                    writer.writeLong(category.getId());
+                    writer.write(",\"name\":");
+                    writer.writeJson(category.getName());
+                    writer.write(",\"description\":");
+                    writer.writeJson(category.getDescription());
+                    writer.write('}');
+                }
+                writer.write('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Write transaction as CSV row
+     */
+    private static void writeCsv(ExportWriter writer, TransactionCursor row) throws IOException {
+        writer.writeLong(row.getId());
+        writer.write(',');
+        writer.writeDate(row.getEpochDay());
+        writer.write(',');
+        writer.writeCsv(row.getName());
+        writer.write(',');
+        writer.writeCsv(row.getDescription());
+        writer.write(',');
+        writer.writeAmount(row.getAmount());
+        writer.write(',');
+        writer.writeLong(row.getCategoryId());
+        writer.write(',');
+        writer.writeCsv(row.getCategoryName());
+        writer.write(',');
+        writer.writeCsv(row.getExternalId());
+        writer.write('\n');
+    }
+
+    /**
+     * Write transaction as JSON line
+     */
+    private static void writeJson(ExportWriter writer, TransactionCursor row) throws IOException {
+        writer.write("{\"id\":");
+        writer.writeLong(row.getId());
+        writer.write(",\"date\":\"");
+        writer.writeDate(row.getEpochDay());
+        writer.write("\",\"name\":");
+        writer.writeJson(row.getName());
+        writer.write(",\"description\":");
+        writer.writeJson(row.getDescription());
+        writer.write(",\"amount\":");
+        writer.writeAmount(row.getAmount());
+        writer.write(",\"category_id\":");
+        writer.writeLong(row.getCategoryId());
+        writer.write(",\"category\":");
+        writer.writeJson(row.getCategoryName());
+        writer.write(",\"external_id\":");
+        writer.writeJson(row.getExternalId());
+        writer.write("}\n");
+    }
+}
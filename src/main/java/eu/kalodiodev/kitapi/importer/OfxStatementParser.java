@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.StatementParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * OFX Statement Parser
+ *
+ * <p>Streaming parser of OFX bank and credit card statements, both SGML (OFX 1.x) and
+ * XML (OFX 2.x) flavours. Statement is tokenized one character at a time and only the
+ * fields of current STMTTRN aggregate are kept in memory.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class OfxStatementParser implements StatementParser {
+
+    // Longest text kept for a single element, longer values are truncated
+    private static final int MAX_VALUE_LENGTH = 1024;
+
+    private final Reader reader;
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+
+    // Current STMTTRN aggregate
+    private boolean inTransaction;
+    private String element;
+    private String amount;
+    private String datePosted;
+    private String dateUser;
+    private String name;
+    private String memo;
+    private String fitId;
+
+    /**
+     * OFX statement parser constructor
+     *
+     * @param reader statement reader
+     */
+    public OfxStatementParser(Reader reader) {
+        this.reader = (reader instanceof BufferedReader) ? reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Read next statement entry
+     *
+     * @return next entry, null at end of statement
+     * @throws IOException if reading statement failed
+     * @throws StatementParseException if a transaction is malformed
+     */
+    @Override
+    public StatementEntry next() throws IOException, StatementParseException {
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c != '<') {
+                // Keep text only of current transaction's element
+                if (element != null && text.length() < MAX_VALUE_LENGTH) {
+                    text.append((char) c);
+                }
+                continue;
+            }
+
+            readTag();
+            // Processing instructions, declarations and comments
+            if (tag.length() == 0 || tag.charAt(0) == '?' || tag.charAt(0) == '!') {
+                continue;
+            }
+
+            // SGML elements may have no end tag, value ends at next tag
+            endElement();
+
+            boolean closing = tag.charAt(0) == '/';
+            String tagName = (closing ? tag.substring(1) : tag.toString()).trim().toUpperCase();
+
+            if ("STMTTRN".equals(tagName)) {
+                if (closing) {
+                    inTransaction = false;
+                    return buildEntry();
+                }
+                startTransaction();
+            } else if (inTransaction && !closing) {
+                element = tagName;
+            }
+        }
+
+        if (inTransaction) {
+            throw new StatementParseException("Unexpected end of statement, transaction is not closed.");
+        }
+        return null;
+    }
+
+    /**
+     * Close statement reader
+     *
+     * @throws IOException if closing reader failed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Read tag's content up to closing '&gt;'
+     *
+     * @throws IOException if reading statement failed
+     * @throws StatementParseException if tag is not closed
+     */
+    private void readTag() throws IOException, StatementParseException {
+        tag.setLength(0);
+        int c;
+        while ((c = reader.read()) != '>') {
+            if (c == -1) {
+                throw new StatementParseException("Unexpected end of statement, tag is not closed.");
+            }
+            if (tag.length() < MAX_VALUE_LENGTH) {
+                tag.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Start new transaction aggregate
+     */
+    private void startTransaction() {
+        inTransaction = true;
+        element = null;
+        amount = null;
+        datePosted = null;
+        dateUser = null;
+        name = null;
+        memo = null;
+        fitId = null;
+    }
+
+    /**
+     * End current element and keep its value
+     */
+    private void endElement() {
+        if (element != null) {
+            String value = StatementValues.emptyToNull(decode(text));
+            switch (element) {
+                case "TRNAMT":
+                    amount = value;
+                    break;
+                case "DTPOSTED":
+                    datePosted = value;
+                    break;
+                case "DTUSER":
+                    dateUser = value;
+                    break;
+                case "NAME":
+                    name = value;
+                    break;
+                case "MEMO":
+                    memo = value;
+                    break;
+                case "FITID":
+                    fitId = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        element = null;
+        text.setLength(0);
+    }
+
+    /**
+     * Build entry of current transaction aggregate
+     *
+     * @return statement entry
+     * @throws StatementParseException if amount or date is missing or malformed
+     */
+    private StatementEntry buildEntry() throws StatementParseException {
+        String date = (datePosted != null) ? datePosted : dateUser;
+
+        return new StatementEntry(StatementValues.parseOfxDate(date),
+                StatementValues.parseAmount(amount), name, memo, fitId);
+    }
+
+    /**
+     * Decode character entities
+     *
+     * @param value encoded text
+     * @return decoded text
+     */
+    private static String decode(CharSequence value) {
+        String decoded = value.toString();
+        if (decoded.indexOf('&') < 0) {
+            return decoded;
+        }
+        return decoded.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.StatementParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * QIF Statement Parser
+ *
+ * <p>Streaming parser of QIF bank, cash and credit card statements. Statement is read
+ * line by line, only current record's fields are kept in memory. Account lists and
+ * investment sections are skipped.</p>
+ *
+ * <p>QIF has no transaction id, entries of QIF statements have no external id.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class QifStatementParser implements StatementParser {
+
+    private final BufferedReader reader;
+    private final boolean dayFirst;
+
+    // Skip records of current section
+    private boolean skipSection;
+    private int lineNumber;
+
+    /**
+     * QIF statement parser constructor
+     *
+     * <p>Dates are read in month first order (MM/DD/YYYY), as exported by Quicken.</p>
+     *
+     * @param reader statement reader
+     */
+    public QifStatementParser(Reader reader) {
+        this(reader, false);
+    }
+
+    /**
+     * QIF statement parser constructor
+     *
+     * @param reader statement reader
+     * @param dayFirst true if statement's dates are in DD/MM/YYYY order, false for MM/DD/YYYY
+     */
+    public QifStatementParser(Reader reader, boolean dayFirst) {
+        this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+        this.dayFirst = dayFirst;
+    }
+
+    /**
+     * Read next statement entry
+     *
+     * @return next entry, null at end of statement
+     * @throws IOException if reading statement failed
+     * @throws StatementParseException if a record is malformed
+     */
+    @Override
+    public StatementEntry next() throws IOException, StatementParseException {
+        String date = null;
+        String amount = null;
+        String payee = null;
+        String memo = null;
+        boolean hasFields = false;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            char field = line.charAt(0);
+            String value = line.substring(1).trim();
+
+            if (field == '!') {
+                // Section header, i.e. !Type:Bank or !Account
+                String header = value.toLowerCase();
+                skipSection = header.startsWith("account") || header.startsWith("type:invst") ||
+                        header.startsWith("type:cat") || header.startsWith("type:class") ||
+                        header.startsWith("type:memorized");
+                continue;
+            }
+
+            if (field == '^') {
+                // End of record
+                if (skipSection) {
+                    // Account list entries end the !Account section
+                    skipSection = false;
+                    continue;
+                }
+                if (!hasFields) {
+                    continue;
+                }
+                return new StatementEntry(parseDate(date), parseAmount(amount),
+                        StatementValues.emptyToNull(payee), StatementValues.emptyToNull(memo), null);
+            }
+
+            if (skipSection) {
+                continue;
+            }
+
+            hasFields = true;
+            switch (field) {
+                case 'D':
+                    date = value;
+                    break;
+                case 'T':
+                case 'U':
+                    amount = value;
+                    break;
+                case 'P':
+                    payee = value;
+                    break;
+                case 'M':
+                    memo = value;
+                    break;
+                default:
+                    // Check number, category, cleared status, address and split lines are not used
+                    break;
+            }
+        }
+
+        if (hasFields) {
+            throw new StatementParseException("Unexpected end of statement, record is not closed.");
+        }
+        return null;
+    }
+
+    /**
+     * Close statement reader
+     *
+     * @throws IOException if closing reader failed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Parse record amount
+     *
+     * @param value amount text
+     * @return amount in cents
+     * @throws StatementParseException if amount is malformed
+     */
+    private long parseAmount(String value) throws StatementParseException {
+        try {
+            return StatementValues.parseAmount(value);
+        } catch (StatementParseException e) {
+            throw new StatementParseException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse record date
+     *
+     * <p>Accepts "/", "-", "." or "'" separated dates, i.e. 3/15/2017, 3/15'17 and 2017-03-15.
+     * Two digit years following "'" are 2000 onwards.</p>
+     *
+     * @param value date text
+     * @return date
+     * @throws StatementParseException if date is missing or malformed
+     */
+    private LocalDate parseDate(String value) throws StatementParseException {
+        if (value == null)
+            throw new StatementParseException("Line " + lineNumber + ": Date is missing");
+
+        String[] parts = value.replace(" ", "").split("[/\\-.']");
+        if (parts.length != 3)
+            throw new StatementParseException("Line " + lineNumber + ": Invalid date: " + value);
+
+        try {
+            int first = Integer.parseInt(parts[0]);
+            int second = Integer.parseInt(parts[1]);
+            int third = Integer.parseInt(parts[2]);
+
+            // ISO date
+            if (parts[0].length() == 4) {
+                return LocalDate.of(first, second, third);
+            }
+
+            int year = third;
+            if (parts[2].length() <= 2) {
+                year += (value.indexOf('\'') >= 0 || third < 70) ? 2000 : 1900;
+            }
+            return dayFirst ? LocalDate.of(year, second, first) : LocalDate.of(year, first, second);
+
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new StatementParseException("Line " + lineNumber + ": Invalid date: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import java.time.LocalDate;
+
+/**
+ * Bank statement entry
+ *
+ * <p>Immutable entry as read from a bank statement. Amount is signed and in cents,
+ * positive amounts are credits (income) and negative amounts are debits (expenses).</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public final class StatementEntry {
+
+    private final LocalDate date;
+    private final long amount;
+    private final String name;
+    private final String memo;
+    private final String externalId;
+
+    /**
+     * Statement entry constructor
+     *
+     * @param date posted date
+     * @param amount signed amount in cents
+     * @param name payee or entry name, may be null
+     * @param memo memo, may be null
+     * @param externalId bank's transaction id (FITID), may be null
+     */
+    public StatementEntry(LocalDate date, long amount, String name, String memo, String externalId) {
+        this.date = date;
+        this.amount = amount;
+        this.name = name;
+        this.memo = memo;
+        this.externalId = externalId;
+    }
+
+    /**
+     * Get posted date
+     *
+     * @return posted date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Get signed amount in cents
+     *
+     * @return amount
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get payee or entry name
+     *
+     * @return name, null if statement does not provide one
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get memo
+     *
+     * @return memo, null if statement does not provide one
+     */
+    public String getMemo() {
+        return memo;
+    }
+
+    /**
+     * Get bank's transaction id
+     *
+     * @return external id, null if statement does not provide one
+     */
+    public String getExternalId() {
+        return externalId;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementEntry{" +
+                "date=" + date +
+                ", amount=" + amount +
+                ", name='" + name + '\'' +
+                ", memo='" + memo + '\'' +
+                ", externalId='" + externalId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.*;
+import eu.kalodiodev.kitapi.matching.PayeeMatcher;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.service.ITransactionService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Bank Statement Importer
+ *
+ * <p>Reads statement entries from a parser and stores them to income (positive amounts)
+ * or expenses (negative amounts). Entries are buffered and stored in batches of fixed size,
+ * so memory use does not depend on statement's size. Entries already imported, having
+ * the same bank transaction id (FITID), are skipped. Entries duplicating a stored transaction
+ * are skipped or flagged, depending on {@link DuplicatePolicy}.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class StatementImporter {
+
+    // Entries stored per batch
+    private static final int BATCH_SIZE = 500;
+
+    private final ITransactionService incomeService;
+    private final ITransactionService expensesService;
+
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.SKIP;
+    private boolean payeeMatching;
+    private Executor storeExecutor = Runnable::run;
+
+    /**
+     * Handling of entries duplicating a stored transaction
+     * (same date, amount and normalized name)
+     */
+    public enum DuplicatePolicy {
+        /**
+         * Import duplicates, only count them
+         */
+        FLAG,
+        /**
+         * Do not import duplicates
+         */
+        SKIP
+    }
+
+    /**
+     * Statement importer constructor
+     *
+     * @param incomeService income service, credits are stored as income
+     * @param expensesService expenses service, debits are stored as expenses
+     */
+    public StatementImporter(ITransactionService incomeService, ITransactionService expensesService) {
+        this.incomeService = incomeService;
+        this.expensesService = expensesService;
+    }
+
+    /**
+     * Set duplicates handling
+     *
+     * <p>Default policy is {@link DuplicatePolicy#SKIP}</p>
+     *
+     * @param duplicatePolicy duplicates handling policy
+     */
+    public void setDuplicatePolicy(DuplicatePolicy duplicatePolicy) {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Set payee matching
+     *
+     * <p>When enabled, imported names similar to a known name of the ledger are replaced by it,
+     * the name given by the bank is kept as description if entry has no memo.</p>
+     *
+     * @param payeeMatching true to match names to known names, false to keep names as given
+     */
+    public void setPayeeMatching(boolean payeeMatching) {
+        this.payeeMatching = payeeMatching;
+    }
+
+    /**
+     * Set executor of batch storing
+     *
+     * <p>Batches are stored in importing thread by default. When statement is imported in a background
+     * thread, batches can be stored in the thread owning transactions lists, importing waits for each batch.</p>
+     *
+     * @param storeExecutor executor running batch storing
+     */
+    public void setStoreExecutor(Executor storeExecutor) {
+        this.storeExecutor = storeExecutor;
+    }
+
+    /**
+     * Import statement
+     *
+     * <p>Parser is read until end of statement, but not closed.</p>
+     *
+     * @param parser statement parser
+     * @param incomeCategory category of imported income
+     * @param expensesCategory category of imported expenses
+     * @return import result
+     * @throws IOException if reading statement failed
+     * @throws StatementParseException if statement is malformed, batches already stored are kept
+     * @throws RequestFailException if storing a batch failed, batches already stored are kept
+     */
+    public Result importStatement(StatementParser parser, Category incomeCategory, Category expensesCategory)
+            throws IOException, StatementParseException, RequestFailException {
+
+        Result result = new Result();
+        PayeeMatcher incomePayees = payeeMatching ? incomeService.createPayeeMatcher() : null;
+        PayeeMatcher expensesPayees = payeeMatching ? expensesService.createPayeeMatcher() : null;
+        List<Transaction> income = new ArrayList<>(BATCH_SIZE);
+        List<Transaction> expenses = new ArrayList<>(BATCH_SIZE);
+
+        StatementEntry entry;
+        while ((entry = parser.next()) != null) {
+            result.read++;
+
+            if (entry.getAmount() == 0) {
+                // Zero amount entries, i.e. balance notes
+                result.skipped++;
+                continue;
+            }
+
+            boolean credit = entry.getAmount() > 0;
+            ITransactionService service = credit ? incomeService : expensesService;
+            Transaction transaction = toTransaction(entry, credit ? incomeCategory : expensesCategory);
+            matchPayee(credit ? incomePayees : expensesPayees, transaction);
+
+            // Exact duplicate of a stored transaction
+            if (service.isDuplicate(transaction)) {
+                result.duplicates++;
+                if (duplicatePolicy == DuplicatePolicy.SKIP) {
+                    result.skipped++;
+                    continue;
+                }
+            }
+
+            if (credit) {
+                income.add(transaction);
+                if (income.size() == BATCH_SIZE) {
+                    result.income += store(incomeService, income, result);
+                }
+            } else {
+                expenses.add(transaction);
+                if (expenses.size() == BATCH_SIZE) {
+                    result.expenses += store(expensesService, expenses, result);
+                }
+            }
+        }
+
+        // Store remaining entries
+        result.income += store(incomeService, income, result);
+        result.expenses += store(expensesService, expenses, result);
+
+        return result;
+    }
+
+    /**
+     * Store batch and clear it
+     *
+     * @param service transaction service of batch's ledger
+     * @param batch transactions to store
+     * @param result import result, skipped entries are counted
+     * @return number of stored transactions
+     * @throws RequestFailException if storing batch failed
+     */
+    private int store(ITransactionService service, List<Transaction> batch, Result result)
+            throws RequestFailException {
+
+        if (batch.isEmpty())
+            return 0;
+
+        List<Transaction> transactions = new ArrayList<>(batch);
+        batch.clear();
+
+        FutureTask<Integer> store = new FutureTask<>(() -> service.addAll(transactions).size());
+        storeExecutor.execute(store);
+
+        try {
+            int added = store.get();
+            result.skipped += transactions.size() - added;
+            return added;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RequestFailException)
+                throw (RequestFailException) e.getCause();
+            // Entries are always complete, see toTransaction
+            throw new RequestFailException("Import statement failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestFailException("Import statement interrupted", e);
+        }
+    }
+
+    /**
+     * Replace transaction's name with known similar name
+     *
+     * @param payeeMatcher payee matcher of transaction's ledger, null if payee matching is disabled
+     * @param transaction imported transaction
+     */
+    private static void matchPayee(PayeeMatcher payeeMatcher, Transaction transaction) {
+        if (payeeMatcher == null)
+            return;
+
+        String name = transaction.getName();
+        Optional<String> match = payeeMatcher.match(name);
+        if (match.isPresent() && !match.get().equals(name)) {
+            transaction.setName(match.get());
+            if (transaction.getDescription().isEmpty()) {
+                transaction.setDescription(name);
+            }
+        }
+        payeeMatcher.add(transaction.getName());
+    }
+
+    /**
+     * Statement entry to transaction
+     *
+     * <p>Entry's name is used as transaction's name and memo as description.
+     * Entries without name are named after their memo.</p>
+     *
+     * @param entry statement entry
+     * @param category transaction's category
+     * @return transaction, amount is always positive
+     */
+    private static Transaction toTransaction(StatementEntry entry, Category category) {
+        String name = entry.getName();
+        String description = (entry.getMemo() != null) ? entry.getMemo() : "";
+        if (name == null) {
+            name = description.isEmpty() ? "-" : description;
+            description = "";
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setName(name);
+        transaction.setDescription(description);
+        transaction.setDate(entry.getDate());
+        transaction.setAmount(Math.abs(entry.getAmount()));
+        transaction.setCategory(category);
+        transaction.setExternalId(entry.getExternalId());
+
+        return transaction;
+    }
+
+    /**
+     * Statement import result
+     */
+    public static class Result {
+
+        private int read;
+        private int income;
+        private int expenses;
+        private int skipped;
+        private int duplicates;
+
+        /**
+         * Get number of entries read from statement
+         *
+         * @return entries read
+         */
+        public int getRead() {
+            return read;
+        }
+
+        /**
+         * Get number of entries stored as income
+         *
+         * @return income entries
+         */
+        public int getIncome() {
+            return income;
+        }
+
+        /**
+         * Get number of entries stored as expenses
+         *
+         * @return expenses entries
+         */
+        public int getExpenses() {
+            return expenses;
+        }
+
+        /**
+         * Get number of entries duplicating a stored transaction
+         *
+         * <p>Duplicates are skipped or imported depending on importer's duplicate policy.</p>
+         *
+         * @return duplicate entries
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Get number of skipped entries
+         *
+         * <p>Entries already imported, skipped duplicates or entries with zero amount</p>
+         *
+         * @return skipped entries
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.StatementParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Bank Statement Parser Interface
+ *
+ * <p>Pull parser: entries are read one at a time from the underlying reader,
+ * so memory use does not depend on statement's size.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public interface StatementParser extends Closeable {
+
+    /**
+     * Read next statement entry
+     *
+     * @return next entry, null when there are no more entries
+     * @throws IOException if reading statement failed
+     * @throws StatementParseException if statement entry is malformed
+     */
+    StatementEntry next() throws IOException, StatementParseException;
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.StatementParseException;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Statement values parsing helper
+ *
+ * @author Raptodimos Thanos
+ */
+final class StatementValues {
+
+    // Prevent instantiation - all methods are static
+    private StatementValues() {}
+
+    /**
+     * Parse amount to cents
+     *
+     * <p>Accepts both '.' and ',' as decimal separator, the other one (if any) is considered
+     * thousands separator. A separator followed by more than two digits is a thousands separator.
+     * Amount in parentheses is negative.</p>
+     *
+     * @param value amount text, i.e. "-1,234.56"
+     * @return signed amount in cents
+     * @throws StatementParseException if value is not an amount
+     */
+    static long parseAmount(String value) throws StatementParseException {
+        if (value == null)
+            throw new StatementParseException("Amount is missing");
+
+        String text = value.trim().replace(" ", "");
+        boolean negative = false;
+
+        if (text.startsWith("(") && text.endsWith(")")) {
+            negative = true;
+            text = text.substring(1, text.length() - 1);
+        }
+        if (text.startsWith("-")) {
+            negative = !negative;
+            text = text.substring(1);
+        } else if (text.startsWith("+")) {
+            text = text.substring(1);
+        }
+
+        // Find decimal separator
+        int separator = Math.max(text.lastIndexOf('.'), text.lastIndexOf(','));
+        if (separator >= 0 && text.length() - separator - 1 > 2) {
+            separator = -1;
+        }
+
+        long units = 0;
+        long cents = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == ',') {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new StatementParseException("Invalid amount: " + value);
+            }
+            if (separator >= 0 && i > separator) {
+                cents = cents * 10 + (c - '0');
+                digits++;
+            } else {
+                units = units * 10 + (c - '0');
+            }
+        }
+        if (text.isEmpty() || (separator == 0 && digits == 0)) {
+            throw new StatementParseException("Invalid amount: " + value);
+        }
+        if (digits == 1) {
+            cents *= 10;
+        }
+
+        long amount = units * 100 + cents;
+        return negative ? -amount : amount;
+    }
+
+    /**
+     * Parse OFX date
+     *
+     * <p>OFX dates are in YYYYMMDD[HHMMSS[.XXX][[gmt offset[:tz name]]]] format, only date part is used.</p>
+     *
+     * @param value date text
+     * @return date
+     * @throws StatementParseException if value is not a date
+     */
+    static LocalDate parseOfxDate(String value) throws StatementParseException {
+        if (value == null || value.trim().length() < 8)
+            throw new StatementParseException("Invalid date: " + value);
+
+        String text = value.trim();
+        try {
+            return LocalDate.of(Integer.parseInt(text.substring(0, 4)),
+                    Integer.parseInt(text.substring(4, 6)),
+                    Integer.parseInt(text.substring(6, 8)));
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new StatementParseException("Invalid date: " + value, e);
+        }
+    }
+
+    /**
+     * Empty text to null
+     *
+     * @param value text
+     * @return trimmed text, null if text is null or blank
+     */
+    static String emptyToNull(String value) {
+        if (value == null)
+            return null;
+
+        String text = value.trim();
+        return text.isEmpty() ? null : text;
+    }
+}
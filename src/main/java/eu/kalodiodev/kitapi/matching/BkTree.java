@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.matching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * BK-tree of strings
+ *
+ * <p>Metric index over Levenshtein distance. Search for terms within distance k of a query
+ * visits only children whose edge distance d' satisfies |d - d'| &lt;= k, so most of the tree
+ * is pruned instead of comparing the query with every term.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class BkTree {
+
+    private Node root;
+    private int size;
+
+    /**
+     * Add term
+     *
+     * @param term term to add, duplicates are ignored
+     * @return true if term added, false if already present
+     */
+    public boolean add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return true;
+        }
+
+        Node node = root;
+        while (true) {
+            int distance = Levenshtein.distance(term, node.term);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(term));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Search terms within distance
+     *
+     * @param query query term
+     * @param maxDistance maximum edit distance
+     * @return matching terms, unordered
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int distance = Levenshtein.distance(query, node.term);
+            if (distance <= maxDistance) {
+                matches.add(new Match(node.term, distance));
+            }
+
+            // Triangle inequality, only children within [distance - max, distance + max] may match
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.distances[i] - distance) <= maxDistance) {
+                    nodes.push(node.children[i]);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Get number of terms
+     *
+     * @return number of terms
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Search match
+     */
+    public static final class Match {
+
+        private final String term;
+        private final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        /**
+         * Get matching term
+         *
+         * @return term
+         */
+        public String getTerm() {
+            return term;
+        }
+
+        /**
+         * Get distance from query
+         *
+         * @return edit distance
+         */
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Tree node, children are kept in parallel arrays indexed by edge distance
+     */
+    private static final class Node {
+
+        private final String term;
+        private int[] distances = new int[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+
+        Node(String term) {
+            this.term = term;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (distances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                distances = Arrays.copyOf(distances, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            distances[childCount] = distance;
+            children[childCount] = child;
+            childCount++;
+        }
+    }
+}
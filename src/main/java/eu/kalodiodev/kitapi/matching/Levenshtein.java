@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.matching;
+
+/**
+ * Levenshtein edit distance
+ *
+ * @author Raptodimos Thanos
+ */
+public final class Levenshtein {
+
+    // Prevent instantiation - all methods are static
+    private Levenshtein() {}
+
+    /**
+     * Edit distance of two strings
+     *
+     * @param a first string
+     * @param b second string
+     * @return minimum number of single character insertions, deletions or substitutions
+     */
+    public static int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Bounded edit distance of two strings
+     *
+     * <p>Computation stops as soon as distance is known to exceed max.</p>
+     *
+     * @param a first string
+     * @param b second string
+     * @param max maximum distance of interest
+     * @return edit distance, or max + 1 if distance is greater than max
+     */
+    public static int distance(String a, String b, int max) {
+        // Shorter string indexes the rows
+        if (a.length() > b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        if (b.length() - a.length() > max) {
+            return max + 1;
+        }
+
+        int[] previous = new int[a.length() + 1];
+        int[] current = new int[a.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            previous[i] = i;
+        }
+
+        for (int j = 1; j <= b.length(); j++) {
+            char c = b.charAt(j - 1);
+            current[0] = j;
+            int rowMin = current[0];
+
+            for (int i = 1; i <= a.length(); i++) {
+                int cost = (a.charAt(i - 1) == c) ? 0 : 1;
+                current[i] = Math.min(Math.min(current[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                rowMin = Math.min(rowMin, current[i]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return Math.min(previous[a.length()], max + 1);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.matching;
+
+import eu.kalodiodev.kitapi.service.DuplicateDetector;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Payee Matcher
+ *
+ * <p>Matches and clusters similar transaction names, i.e. "AMAZON MKTPLACE 1234" and
+ * "Amazon Marketplace". Names are reduced to a payee key (normalized, without tokens containing
+ * digits) and keys are indexed in a {@link BkTree}, so lookups do not compare every pair of names.</p>
+ * <p>Allowed edit distance grows with key's length, one edit per five characters, up to four edits.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class PayeeMatcher {
+
+    // Maximum edit distance of similar keys
+    private static final int MAX_DISTANCE = 4;
+
+    private static final Pattern DIGIT_TOKENS = Pattern.compile("\\S*\\d\\S*");
+    private static final Pattern SPACES = Pattern.compile(" +");
+
+    private final BkTree tree = new BkTree();
+    private final Map<String, Payee> payees = new HashMap<>();
+
+    /**
+     * Payee matcher of names
+     *
+     * @param names known names
+     * @return payee matcher
+     */
+    public static PayeeMatcher of(Iterable<String> names) {
+        PayeeMatcher matcher = new PayeeMatcher();
+        for (String name : names) {
+            matcher.add(name);
+        }
+        return matcher;
+    }
+
+    /**
+     * Add known name
+     *
+     * @param name transaction's name
+     */
+    public void add(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return;
+        }
+
+        String key = key(name);
+        Payee payee = payees.get(key);
+        if (payee == null) {
+            payee = new Payee();
+            payees.put(key, payee);
+            tree.add(key);
+        }
+        payee.variants.merge(name, 1, Integer::sum);
+    }
+
+    /**
+     * Match name to a known name
+     *
+     * @param name name to match
+     * @return most used known name among similar payees, closest payee on equal use,
+     * empty if no payee is similar
+     */
+    public Optional<String> match(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return Optional.empty();
+        }
+
+        String key = key(name);
+        BkTree.Match best = null;
+        for (BkTree.Match match : tree.search(key, maxDistance(key))) {
+            if (best == null) {
+                best = match;
+                continue;
+            }
+            int count = payees.get(match.getTerm()).count();
+            int bestCount = payees.get(best.getTerm()).count();
+            if (count > bestCount || (count == bestCount && match.getDistance() < best.getDistance())) {
+                best = match;
+            }
+        }
+
+        return (best == null) ? Optional.empty() : Optional.of(payees.get(best.getTerm()).name());
+    }
+
+    /**
+     * Cluster similar names
+     *
+     * <p>Each payee key joins the cluster of the first key found similar to it. Only clusters
+     * of two or more different names are returned, largest clusters first.</p>
+     *
+     * @return clusters of similar names
+     */
+    public List<Cluster> clusters() {
+        Set<String> assigned = new HashSet<>();
+        List<Cluster> clusters = new ArrayList<>();
+
+        for (String key : payees.keySet()) {
+            if (assigned.contains(key)) {
+                continue;
+            }
+
+            Map<String, Integer> variants = new HashMap<>();
+            for (BkTree.Match match : tree.search(key, maxDistance(key))) {
+                if (assigned.add(match.getTerm())) {
+                    payees.get(match.getTerm()).variants.forEach((name, count) -> variants.merge(name, count, Integer::sum));
+                }
+            }
+
+            if (variants.size() > 1) {
+                clusters.add(new Cluster(variants));
+            }
+        }
+
+        clusters.sort((c1, c2) -> Integer.compare(c2.getCount(), c1.getCount()));
+        return clusters;
+    }
+
+    /**
+     * Get payee key of name
+     *
+     * @param name transaction's name
+     * @return normalized name without tokens containing digits, i.e. card or reference numbers
+     */
+    static String key(String name) {
+        String normalized = DuplicateDetector.normalize(name);
+        String key = SPACES.matcher(DIGIT_TOKENS.matcher(normalized).replaceAll("")).replaceAll(" ").trim();
+
+        return key.isEmpty() ? normalized : key;
+    }
+
+    /**
+     * Maximum edit distance of keys similar to key
+     *
+     * @param key payee key
+     * @return maximum edit distance
+     */
+    private static int maxDistance(String key) {
+        return Math.min(MAX_DISTANCE, key.length() / 5);
+    }
+
+    /**
+     * Names sharing a payee key
+     */
+    private static final class Payee {
+
+        private final Map<String, Integer> variants = new HashMap<>(2);
+
+        String name() {
+            return Collections.max(variants.entrySet(), Map.Entry.comparingByValue()).getKey();
+        }
+
+        int count() {
+            int count = 0;
+            for (int variantCount : variants.values()) {
+                count += variantCount;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Cluster of similar names
+     */
+    public static final class Cluster {
+
+        private final String name;
+        private final List<String> names;
+        private final int count;
+
+        Cluster(Map<String, Integer> variants) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(variants.entrySet());
+            entries.sort((e1, e2) -> Integer.compare(e2.getValue(), e1.getValue()));
+
+            List<String> clusterNames = new ArrayList<>(entries.size());
+            int total = 0;
+            for (Map.Entry<String, Integer> entry : entries) {
+                clusterNames.add(entry.getKey());
+                total += entry.getValue();
+            }
+
+            this.name = clusterNames.get(0);
+            this.names = Collections.unmodifiableList(clusterNames);
+            this.count = total;
+        }
+
+        /**
+         * Get suggested name of cluster
+         *
+         * @return most used name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get cluster's names
+         *
+         * @return names, most used first
+         */
+        public List<String> getNames() {
+            return names;
+        }
+
+        /**
+         * Get number of transactions
+         *
+         * @return transactions named with any of cluster's names
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return name + " \u2190 " + String.join(", ", names.subList(1, names.size()));
+        }
+    }
+}
@@ -19,22 +19,30 @@ package eu.kalodiodev.kitapi.model;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 
+import java.util.Objects;
+
 /**
  * This Class provides Category Model
  *
+ * <p>Values are kept in plain fields, JavaFX properties are created on first request.</p>
+ *
  * @author Raptodimos Thanos
  */
 public class Category {
 
-    private SimpleIntegerProperty id = new SimpleIntegerProperty(-1);
-    private SimpleStringProperty name = new SimpleStringProperty();
-    private SimpleStringProperty description = new SimpleStringProperty();
+    private int id = -1;
+    private String name;
+    private String description;
+
+    // Properties, created on first request
+    private SimpleIntegerProperty idProperty;
+    private SimpleStringProperty nameProperty;
+    private SimpleStringProperty descriptionProperty;
 
     /**
      * Category Constructor
      */
     public Category() {
-        this.id.set(-1);
     }
 
     /**
@@ -45,9 +53,9 @@ public class Category {
      * @param description category's description
      */
     public Category(int id, String name, String description) {
-        this.id.set(id);
-        this.name.set(name);
-        this.description.set(description);
+        this.id = id;
+        this.name = name;
+        this.description = description;
     }
 
     /**
@@ -57,9 +65,8 @@ public class Category {
      * @param description category's description
      */
     public Category(String name, String description) {
-        this.name.set(name);
-        this.description.set(description);
-        this.id.set(-1);
+        this.name = name;
+        this.description = description;
     }
 
     /**
@@ -68,7 +75,7 @@ public class Category {
      * @return category's id
      */
     public int getId() {
-        return id.get();
+        return idProperty != null ? idProperty.get() : id;
     }
 
     /**
@@ -77,7 +84,10 @@ public class Category {
      * @return id property
      */
     public SimpleIntegerProperty idProperty() {
-        return id;
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, "id", id);
+        }
+        return idProperty;
     }
 
     /**
@@ -86,7 +96,11 @@ public class Category {
      * @param id category's id
      */
     public void setId(int id) {
-        this.id.set(id);
+        if (idProperty != null) {
+            idProperty.set(id);
+        } else {
+            this.id = id;
+        }
     }
 
     /**
@@ -95,7 +109,7 @@ public class Category {
      * @return category's name
      */
     public String getName() {
-        return name.get();
+        return nameProperty != null ? nameProperty.get() : name;
     }
 
     /**
@@ -104,7 +118,10 @@ public class Category {
      * @return name property
      */
     public SimpleStringProperty nameProperty() {
-        return name;
+        if (nameProperty == null) {
+            nameProperty = new SimpleStringProperty(this, "name", name);
+        }
+        return nameProperty;
     }
 
     /**
@@ -113,7 +130,11 @@ public class Category {
      * @param name category's name
      */
     public void setName(String name) {
-        this.name.set(name);
+        if (nameProperty != null) {
+            nameProperty.set(name);
+        } else {
+            this.name = name;
+        }
     }
 
     /**
@@ -122,7 +143,7 @@ public class Category {
      * @return category's description
      */
     public String getDescription() {
-        return description.get();
+        return descriptionProperty != null ? descriptionProperty.get() : description;
     }
 
     /**
@@ -131,7 +152,10 @@ public class Category {
      * @return description property
      */
     public SimpleStringProperty descriptionProperty() {
-        return description;
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
     }
 
     /**
@@ -140,14 +164,17 @@ public class Category {
      * @param description category's description
      */
     public void setDescription(String description) {
-        this.description.set(description);
+        if (descriptionProperty != null) {
+            descriptionProperty.set(description);
+        } else {
+            this.description = description;
+        }
     }
 
     @Override
     public int hashCode() {
-        int result = id != null ? id.hashCode() : 0;
-        result = 31 * result + (name != null ? name.hashCode() : 0);
-        result = 31 * result + (description != null ? description.hashCode() : 0);
+        int result = Objects.hashCode(getName());
+        result = 31 * result + Objects.hashCode(getDescription());
         return result;
     }
 
@@ -164,30 +191,15 @@ public class Category {
 
         Category other = (Category) obj;
 
-        if(name.get() == null) {
-            if(other.name.get() != null) {
-                return false;
-            }
-        } else if (!name.get().equals(other.name.get())) {
-            return false;
-        }
-
-        if(description.get() == null) {
-            if(other.description.get() != null) {
-                return false;
-            }
-        } else if(!description.get().equals(other.description.get())) {
-            return false;
-        }
-
-        return true;
+        return Objects.equals(getName(), other.getName()) &&
+                Objects.equals(getDescription(), other.getDescription());
     }
 
     @Override
     public String toString() {
         return "Category{" +
-                "name='" + name.get() + '\'' +
-                ", description='" + description.get() + '\'' +
+                "name='" + getName() + '\'' +
+                ", description='" + getDescription() + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.model;
+
+/**
+ * Smart view model
+ *
+ * <p>Named transaction query, saved per ledger to be reused across sessions.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class SmartView {
+
+    private final String name;
+    private final TransactionQuery query;
+
+    /**
+     * Smart view constructor
+     *
+     * @param name view's name, unique per ledger
+     * @param query view's query
+     */
+    public SmartView(String name, TransactionQuery query) {
+        this.name = name;
+        this.query = query;
+    }
+
+    /**
+     * Get view's name
+     *
+     * @return view's name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get view's query
+     *
+     * @return transaction query
+     */
+    public TransactionQuery getQuery() {
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -14,26 +14,43 @@
  * limitations under the License.
  */
 
+
 package eu.kalodiodev.kitapi.model;
 
 import javafx.beans.property.*;
 import java.time.LocalDate;
+import java.util.Objects;
 
 /**
  * This Class provides Transaction model
  *
  * Amount (of money) must be in cents.
  *
+ * <p>Values are kept in plain fields. A JavaFX property is created only when it is first
+ * requested, i.e. by the cell value factory of a table row actually rendered, and holds
+ * the value from then on.</p>
+ *
  * @author Raptodimos Thanos
  */
 public class Transaction {
 
-    private SimpleIntegerProperty id = new SimpleIntegerProperty();
-    private SimpleStringProperty name = new SimpleStringProperty();
-    private SimpleStringProperty description = new SimpleStringProperty();
-    private SimpleLongProperty amount = new SimpleLongProperty();
-    private SimpleObjectProperty<LocalDate> date = new SimpleObjectProperty<>();
-    private SimpleObjectProperty<Category> category = new SimpleObjectProperty<>();
+    private int id;
+    private String name;
+    private String description;
+    private long amount;
+    private LocalDate date;
+    private Category category;
+    private String externalId;
+    private boolean descriptionPartial;
+
+    // Properties, created on first request
+    private SimpleIntegerProperty idProperty;
+    private SimpleStringProperty nameProperty;
+    private SimpleStringProperty descriptionProperty;
+    private SimpleLongProperty amountProperty;
+    private SimpleObjectProperty<LocalDate> dateProperty;
+    private SimpleObjectProperty<Category> categoryProperty;
+    private SimpleStringProperty externalIdProperty;
 
 
     /**
@@ -42,7 +59,7 @@ public class Transaction {
      * @return id
      */
     public int getId() {
-        return id.get();
+        return idProperty != null ? idProperty.get() : id;
     }
 
     /**
@@ -51,7 +68,11 @@ public class Transaction {
      * @param id transaction's id
      */
     public void setId(int id) {
-        this.id.set(id);
+        if (idProperty != null) {
+            idProperty.set(id);
+        } else {
+            this.id = id;
+        }
     }
 
     /**
@@ -60,7 +81,10 @@ public class Transaction {
      * @return id property
      */
     public SimpleIntegerProperty idProperty() {
-        return id;
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, "id", id);
+        }
+        return idProperty;
     }
 
     /**
@@ -69,7 +93,7 @@ public class Transaction {
      * @return name
      */
     public String getName() {
-        return name.get();
+        return nameProperty != null ? nameProperty.get() : name;
     }
 
     /**
@@ -78,7 +102,10 @@ public class Transaction {
      * @return name property
      */
     public SimpleStringProperty nameProperty() {
-        return name;
+        if (nameProperty == null) {
+            nameProperty = new SimpleStringProperty(this, "name", name);
+        }
+        return nameProperty;
     }
 
     /**
@@ -87,7 +114,11 @@ public class Transaction {
      * @param name transaction's name
      */
     public void setName(String name) {
-        this.name.set(name);
+        if (nameProperty != null) {
+            nameProperty.set(name);
+        } else {
+            this.name = name;
+        }
     }
 
     /**
@@ -96,7 +127,7 @@ public class Transaction {
      * @return description
      */
     public String getDescription() {
-        return description.get();
+        return descriptionProperty != null ? descriptionProperty.get() : description;
     }
 
     /**
@@ -105,7 +136,10 @@ public class Transaction {
      * @return description property
      */
     public SimpleStringProperty descriptionProperty() {
-        return description;
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
     }
 
     /**
@@ -114,7 +148,32 @@ public class Transaction {
      * @param description transaction's description
      */
     public void setDescription(String description) {
-        this.description.set(description);
+        if (descriptionProperty != null) {
+            descriptionProperty.set(description);
+        } else {
+            this.description = description;
+        }
+        this.descriptionPartial = false;
+    }
+
+    /**
+     * Check if Transaction's description is a preview of its stored description
+     *
+     * <p>Lists may be loaded with description previews, full description is loaded on demand.</p>
+     *
+     * @return true if description is partial
+     */
+    public boolean isDescriptionPartial() {
+        return descriptionPartial;
+    }
+
+    /**
+     * Set if Transaction's description is a preview of its stored description
+     *
+     * @param descriptionPartial true if description is partial
+     */
+    public void setDescriptionPartial(boolean descriptionPartial) {
+        this.descriptionPartial = descriptionPartial;
     }
 
     /**
@@ -123,7 +182,7 @@ public class Transaction {
      * @return amount
      */
     public long getAmount() {
-        return amount.get();
+        return amountProperty != null ? amountProperty.get() : amount;
     }
 
     /**
@@ -134,7 +193,10 @@ public class Transaction {
      * @return amount property
      */
     public SimpleLongProperty amountProperty() {
-        return amount;
+        if (amountProperty == null) {
+            amountProperty = new SimpleLongProperty(this, "amount", amount);
+        }
+        return amountProperty;
     }
 
     /**
@@ -143,7 +205,7 @@ public class Transaction {
      * @param amount amount
      */
     public void setAmountInCents(double amount) {
-        this.amount.set(Math.round(amount * 100));
+        setAmount(Math.round(amount * 100));
     }
 
     /**
@@ -152,7 +214,11 @@ public class Transaction {
      * @param amount transaction's amount
      */
     public void setAmount(long amount) {
-        this.amount.set(amount);
+        if (amountProperty != null) {
+            amountProperty.set(amount);
+        } else {
+            this.amount = amount;
+        }
     }
 
     /**
@@ -161,7 +227,7 @@ public class Transaction {
      * @return local date
      */
     public LocalDate getDate() {
-        return date.get();
+        return dateProperty != null ? dateProperty.get() : date;
     }
 
     /**
@@ -170,7 +236,10 @@ public class Transaction {
      * @return date property
      */
     public SimpleObjectProperty<LocalDate> dateProperty() {
-        return date;
+        if (dateProperty == null) {
+            dateProperty = new SimpleObjectProperty<>(this, "date", date);
+        }
+        return dateProperty;
     }
 
     /**
@@ -179,7 +248,11 @@ public class Transaction {
      * @param date transaction's local date
      */
     public void setDate(LocalDate date) {
-        this.date.set(date);
+        if (dateProperty != null) {
+            dateProperty.set(date);
+        } else {
+            this.date = date;
+        }
     }
 
     /**
@@ -187,7 +260,9 @@ public class Transaction {
      *
      * @return category @see {@link Category}
      */
-    public Category getCategory() { return category.get(); }
+    public Category getCategory() {
+        return categoryProperty != null ? categoryProperty.get() : category;
+    }
 
     /**
      * Get Transaction's category property
@@ -195,7 +270,10 @@ public class Transaction {
      * @return category property
      */
     public SimpleObjectProperty<Category> categoryProperty() {
-        return category;
+        if (categoryProperty == null) {
+            categoryProperty = new SimpleObjectProperty<>(this, "category", category);
+        }
+        return categoryProperty;
     }
 
     /**
@@ -203,16 +281,58 @@ public class Transaction {
      *
      * @param category transaction's category @see {@link Category}
      */
-    public void setCategory(Category category) { this.category.set(category); }
+    public void setCategory(Category category) {
+        if (categoryProperty != null) {
+            categoryProperty.set(category);
+        } else {
+            this.category = category;
+        }
+    }
+
+    /**
+     * Get Transaction's external id
+     *
+     * <p>Id given to transaction by its source, i.e. bank statement's FITID</p>
+     *
+     * @return external id, null if transaction has no external source
+     */
+    public String getExternalId() {
+        return externalIdProperty != null ? externalIdProperty.get() : externalId;
+    }
+
+    /**
+     * Get Transaction's external id property
+     *
+     * @return external id property
+     */
+    public SimpleStringProperty externalIdProperty() {
+        if (externalIdProperty == null) {
+            externalIdProperty = new SimpleStringProperty(this, "externalId", externalId);
+        }
+        return externalIdProperty;
+    }
+
+    /**
+     * Set Transaction's external id
+     *
+     * @param externalId transaction's external id
+     */
+    public void setExternalId(String externalId) {
+        if (externalIdProperty != null) {
+            externalIdProperty.set(externalId);
+        } else {
+            this.externalId = externalId;
+        }
+    }
 
 
     @Override
     public String toString() {
         return "Transaction{" +
-                "name='" + name.get() + '\'' +
-                ", description='" + description.get() + '\'' +
-                ", amount=" + amount.get() +
-                ", date=" + date.get() +
+                "name='" + getName() + '\'' +
+                ", description='" + getDescription() + '\'' +
+                ", amount=" + getAmount() +
+                ", date=" + getDate() +
                 '}';
     }
 
@@ -226,32 +346,22 @@ public class Transaction {
 
         Transaction that = (Transaction) obj;
 
-        if (id.get() != that.id.get())
-            return false;
-
-        if (amount.get() != that.amount.get())
-            return false;
-
-        if (name != null ? !name.get().equals(that.name.get()) : that.name != null)
-            return false;
-
-        if (description != null ? !description.get().equals(that.description.get()) : that.description != null)
-            return false;
-
-        if (date != null ? !date.get().equals(that.date.get()) : that.date != null)
-            return false;
-
-        return category != null ? category.get().equals(that.category.get()) : that.category == null;
+        return getId() == that.getId() &&
+                getAmount() == that.getAmount() &&
+                Objects.equals(getName(), that.getName()) &&
+                Objects.equals(getDescription(), that.getDescription()) &&
+                Objects.equals(getDate(), that.getDate()) &&
+                Objects.equals(getCategory(), that.getCategory());
     }
 
     @Override
     public int hashCode() {
-        int result = id.get();
-        result = 31 * result + (name != null ? name.get().hashCode() : 0);
-        result = 31 * result + (description != null ? description.get().hashCode() : 0);
-        result = 31 * result + (int) amount.get();
-        result = 31 * result + (date != null ? date.get().hashCode() : 0);
-        result = 31 * result + (category != null ? category.get().hashCode() : 0);
+        int result = getId();
+        result = 31 * result + Objects.hashCode(getName());
+        result = 31 * result + Objects.hashCode(getDescription());
+        result = 31 * result + (int) getAmount();
+        result = 31 * result + Objects.hashCode(getDate());
+        result = 31 * result + Objects.hashCode(getCategory());
         return result;
     }
-}
\ No newline at end of file
+}
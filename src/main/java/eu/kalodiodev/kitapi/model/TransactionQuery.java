@@ -0,0 +1,541 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.model;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Transaction query model
+ *
+ * <p>Criteria combined with AND: categories, date range, amount range and text of name or description,
+ * followed by sort order and limit. Queries are compiled to SQL by transaction data access objects,
+ * and {@link #predicate()} and {@link #comparator()} match the same transactions in the same order
+ * on a loaded list.</p>
+ * <p>Queries are immutable, equal queries have equal criteria, so compiled queries can be cached.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class TransactionQuery {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Sort order, ties are ordered by id in the same direction
+     */
+    public enum Sort {
+        DATE_ASC, DATE_DESC, AMOUNT_ASC, AMOUNT_DESC, NAME_ASC, NAME_DESC
+    }
+
+    private final Set<Integer> categoryIds;
+    private final LocalDate start;
+    private final LocalDate end;
+    private final Long minAmount;
+    private final Long maxAmount;
+    private final String text;
+    private final Sort sort;
+    private final int limit;
+
+    /**
+     * Transaction query constructor
+     *
+     * @param builder query builder
+     */
+    private TransactionQuery(QueryBuilder builder) {
+        this.categoryIds = Collections.unmodifiableSet(new TreeSet<>(builder.categoryIds));
+        this.start = builder.start;
+        this.end = builder.end;
+        this.minAmount = builder.minAmount;
+        this.maxAmount = builder.maxAmount;
+        this.text = (builder.text == null || builder.text.trim().isEmpty()) ? null : builder.text.trim();
+        this.sort = builder.sort;
+        this.limit = Math.max(0, builder.limit);
+    }
+
+    /**
+     * Get categories' ids
+     *
+     * @return ids of matching categories, empty for all categories
+     */
+    public Set<Integer> getCategoryIds() {
+        return categoryIds;
+    }
+
+    /**
+     * Get period start
+     *
+     * @return transactions since date, null for no lower limit
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Get period end
+     *
+     * @return transactions until date, null for no upper limit
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * Get minimum amount
+     *
+     * @return minimum amount in cents, null for no lower limit
+     */
+    public Long getMinAmount() {
+        return minAmount;
+    }
+
+    /**
+     * Get maximum amount
+     *
+     * @return maximum amount in cents, null for no upper limit
+     */
+    public Long getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * Get text
+     *
+     * @return text contained in name or description, null for any
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get text, folded for comparison
+     *
+     * @return folded text, null for any
+     */
+    public String getFoldedText() {
+        return text == null ? null : fold(text);
+    }
+
+    /**
+     * Get sort order
+     *
+     * @return sort order, null for storage order
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Get limit
+     *
+     * @return maximum number of transactions, 0 for no limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Create predicate matching transactions of query
+     *
+     * <p>Text is matched on loaded descriptions, so text past the preview of a partially loaded
+     * description (see {@link Transaction#isDescriptionPartial()}) is not matched.</p>
+     *
+     * @return transactions predicate, sort order and limit are not applied
+     */
+    public Predicate<Transaction> predicate() {
+        String folded = getFoldedText();
+
+        return transaction -> {
+            if (!categoryIds.isEmpty() &&
+                    (transaction.getCategory() == null || !categoryIds.contains(transaction.getCategory().getId())))
+                return false;
+            if (start != null && transaction.getDate().isBefore(start))
+                return false;
+            if (end != null && transaction.getDate().isAfter(end))
+                return false;
+            if (minAmount != null && transaction.getAmount() < minAmount)
+                return false;
+            if (maxAmount != null && transaction.getAmount() > maxAmount)
+                return false;
+            return folded == null || contains(transaction.getName(), folded) ||
+                    contains(transaction.getDescription(), folded);
+        };
+    }
+
+    /**
+     * Create comparator of query's sort order
+     *
+     * @return transactions comparator, null if query is not sorted
+     */
+    public Comparator<Transaction> comparator() {
+        if (sort == null) {
+            return null;
+        }
+
+        Comparator<Transaction> comparator;
+        switch (sort) {
+            case AMOUNT_ASC:
+            case AMOUNT_DESC:
+                comparator = Comparator.comparingLong(Transaction::getAmount);
+                break;
+            case NAME_ASC:
+            case NAME_DESC:
+                comparator = Comparator.comparing(transaction -> fold(transaction.getName()));
+                break;
+            default:
+                comparator = Comparator.comparing(Transaction::getDate);
+        }
+        comparator = comparator.thenComparingInt(Transaction::getId);
+
+        return isDescending() ? comparator.reversed() : comparator;
+    }
+
+    /**
+     * Get query of the same criteria, neither sorted nor limited
+     *
+     * @return criteria query
+     */
+    public TransactionQuery criteria() {
+        QueryBuilder builder = new QueryBuilder();
+        builder.categoryIds.addAll(categoryIds);
+        return builder.setStart(start).setEnd(end).setMinAmount(minAmount).setMaxAmount(maxAmount)
+                .setText(text).build();
+    }
+
+    /**
+     * Check if sort order is descending
+     *
+     * @return true if sorted in descending order
+     */
+    public boolean isDescending() {
+        return sort == Sort.DATE_DESC || sort == Sort.AMOUNT_DESC || sort == Sort.NAME_DESC;
+    }
+
+    /**
+     * Apply query to loaded transactions
+     *
+     * @param transactions loaded transactions
+     * @return matching transactions, sorted and limited
+     */
+    public List<Transaction> apply(Collection<Transaction> transactions) {
+        List<Transaction> matching = transactions.stream().filter(predicate()).collect(Collectors.toList());
+
+        Comparator<Transaction> comparator = comparator();
+        if (comparator == null && limit > 0) {
+            comparator = Comparator.comparingInt(Transaction::getId);
+        }
+        if (comparator != null) {
+            matching.sort(comparator);
+        }
+        return (limit > 0 && matching.size() > limit) ? new ArrayList<>(matching.subList(0, limit)) : matching;
+    }
+
+    /**
+     * Fold text for comparison
+     *
+     * <p>Text is lower cased and its diacritics are removed, so accented Greek text matches
+     * text typed without accents.</p>
+     *
+     * @param value text
+     * @return folded text
+     */
+    public static String fold(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Check if value contains folded text
+     *
+     * @param value name or description, may be null
+     * @param folded folded text
+     * @return true if folded value contains text
+     */
+    public static boolean contains(String value, String folded) {
+        return value != null && fold(value).contains(folded);
+    }
+
+    /**
+     * Get query definition
+     *
+     * <p>Definition is a URL encoded form of criteria, to be stored and parsed later.</p>
+     *
+     * @return query definition
+     */
+    public String toDefinition() {
+        List<String> parameters = new ArrayList<>();
+        if (!categoryIds.isEmpty()) {
+            parameters.add("categories=" + categoryIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        if (start != null) {
+            parameters.add("start=" + start);
+        }
+        if (end != null) {
+            parameters.add("end=" + end);
+        }
+        if (minAmount != null) {
+            parameters.add("min=" + minAmount);
+        }
+        if (maxAmount != null) {
+            parameters.add("max=" + maxAmount);
+        }
+        if (text != null) {
+            parameters.add("text=" + encode(text));
+        }
+        if (sort != null) {
+            parameters.add("sort=" + sort.name());
+        }
+        if (limit > 0) {
+            parameters.add("limit=" + limit);
+        }
+        return String.join("&", parameters);
+    }
+
+    /**
+     * Parse query definition
+     *
+     * <p>Unknown criteria are ignored.</p>
+     *
+     * @param definition query definition, see {@link #toDefinition()}
+     * @return transaction query
+     * @throws IllegalArgumentException if definition is invalid, i.e. a number or date cannot be parsed
+     */
+    public static TransactionQuery parse(String definition) {
+        QueryBuilder builder = new QueryBuilder();
+        if (definition == null || definition.isEmpty()) {
+            return builder.build();
+        }
+
+        try {
+            for (String parameter : definition.split("&")) {
+                int separator = parameter.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Invalid query criterion: " + parameter);
+                }
+                String value = parameter.substring(separator + 1);
+
+                switch (parameter.substring(0, separator)) {
+                    case "categories":
+                        for (String id : value.split(",")) {
+                            builder.addCategoryId(Integer.parseInt(id));
+                        }
+                        break;
+                    case "start":
+                        builder.setStart(LocalDate.parse(value));
+                        break;
+                    case "end":
+                        builder.setEnd(LocalDate.parse(value));
+                        break;
+                    case "min":
+                        builder.setMinAmount(Long.parseLong(value));
+                        break;
+                    case "max":
+                        builder.setMaxAmount(Long.parseLong(value));
+                        break;
+                    case "text":
+                        builder.setText(URLDecoder.decode(value, ENCODING));
+                        break;
+                    case "sort":
+                        builder.setSort(Sort.valueOf(value));
+                        break;
+                    case "limit":
+                        builder.setLimit(Integer.parseInt(value));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (DateTimeParseException | UnsupportedEncodingException e) {
+            throw new IllegalArgumentException("Invalid query definition: " + e.getMessage(), e);
+        }
+        return builder.build();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+
+        TransactionQuery other = (TransactionQuery) obj;
+        return limit == other.limit &&
+                categoryIds.equals(other.categoryIds) &&
+                Objects.equals(start, other.start) &&
+                Objects.equals(end, other.end) &&
+                Objects.equals(minAmount, other.minAmount) &&
+                Objects.equals(maxAmount, other.maxAmount) &&
+                Objects.equals(text, other.text) &&
+                sort == other.sort;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(categoryIds, start, end, minAmount, maxAmount, text, sort, limit);
+    }
+
+    @Override
+    public String toString() {
+        return toDefinition();
+    }
+
+    /**
+     * Query Builder Class
+     */
+    public static class QueryBuilder {
+
+        private Set<Integer> categoryIds = new TreeSet<>();
+        private LocalDate start;
+        private LocalDate end;
+        private Long minAmount;
+        private Long maxAmount;
+        private String text;
+        private Sort sort;
+        private int limit;
+
+        /**
+         * Add category
+         *
+         * @param category category of matching transactions
+         * @return query builder
+         */
+        public QueryBuilder addCategory(Category category) {
+            return addCategoryId(category.getId());
+        }
+
+        /**
+         * Add category id
+         *
+         * @param categoryId category id of matching transactions
+         * @return query builder
+         */
+        public QueryBuilder addCategoryId(int categoryId) {
+            this.categoryIds.add(categoryId);
+            return this;
+        }
+
+        /**
+         * Set period start
+         *
+         * @param start transactions since date, null for no lower limit
+         * @return query builder
+         */
+        public QueryBuilder setStart(LocalDate start) {
+            this.start = start;
+            return this;
+        }
+
+        /**
+         * Set period end
+         *
+         * @param end transactions until date, null for no upper limit
+         * @return query builder
+         */
+        public QueryBuilder setEnd(LocalDate end) {
+            this.end = end;
+            return this;
+        }
+
+        /**
+         * Set minimum amount
+         *
+         * @param minAmount minimum amount in cents, null for no lower limit
+         * @return query builder
+         */
+        public QueryBuilder setMinAmount(Long minAmount) {
+            this.minAmount = minAmount;
+            return this;
+        }
+
+        /**
+         * Set maximum amount
+         *
+         * @param maxAmount maximum amount in cents, null for no upper limit
+         * @return query builder
+         */
+        public QueryBuilder setMaxAmount(Long maxAmount) {
+            this.maxAmount = maxAmount;
+            return this;
+        }
+
+        /**
+         * Set text
+         *
+         * @param text text contained in name or description, ignoring case and diacritics
+         * @return query builder
+         */
+        public QueryBuilder setText(String text) {
+            this.text = text;
+            return this;
+        }
+
+        /**
+         * Set sort order
+         *
+         * @param sort sort order, null for storage order
+         * @return query builder
+         */
+        public QueryBuilder setSort(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        /**
+         * Set limit
+         *
+         * @param limit maximum number of transactions, 0 for no limit
+         * @return query builder
+         */
+        public QueryBuilder setLimit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Build query
+         *
+         * @return transaction query
+         */
+        public TransactionQuery build() {
+            return new TransactionQuery(this);
+        }
+    }
+}
@@ -31,6 +31,10 @@ public class TransactionTable {
     private String dateColumn;
     private String amountColumn;
     private String categoryColumn;
+    private String externalIdColumn;
+    private String updatedAtColumn;
+    private String payeeColumn;
+    private String deletedAtColumn;
 
     /**
      * Transaction table constructor
@@ -45,6 +49,10 @@ public class TransactionTable {
         this.dateColumn = builder.dateColumn;
         this.amountColumn = builder.amountColumn;
         this.categoryColumn = builder.categoryColumn;
+        this.externalIdColumn = builder.externalIdColumn;
+        this.updatedAtColumn = builder.updatedAtColumn;
+        this.payeeColumn = builder.payeeColumn;
+        this.deletedAtColumn = builder.deletedAtColumn;
     }
 
     /**
@@ -110,6 +118,42 @@ public class TransactionTable {
         return categoryColumn;
     }
 
+    /**
+     * Get external id's column name
+     *
+     * @return external id's column name
+     */
+    public String getExternalIdColumn() {
+        return externalIdColumn;
+    }
+
+    /**
+     * Get change time's column name
+     *
+     * @return change time's column name
+     */
+    public String getUpdatedAtColumn() {
+        return updatedAtColumn;
+    }
+
+    /**
+     * Get payee's column name
+     *
+     * @return payee's column name
+     */
+    public String getPayeeColumn() {
+        return payeeColumn;
+    }
+
+    /**
+     * Get deletion time's column name
+     *
+     * @return deletion time's column name
+     */
+    public String getDeletedAtColumn() {
+        return deletedAtColumn;
+    }
+
     /**
      * Table Builder Class
      */
@@ -122,6 +166,10 @@ public class TransactionTable {
         private String dateColumn;
         private String amountColumn;
         private String categoryColumn;
+        private String externalIdColumn;
+        private String updatedAtColumn;
+    private String payeeColumn;
+        private String deletedAtColumn;
 
         /**
          * Set table's name
@@ -200,6 +248,50 @@ public class TransactionTable {
             return this;
         }
 
+        /**
+         * Set external id's column name
+         *
+         * @param externalIdColumn external id's column name
+         * @return table builder
+         */
+        public TableBuilder setExternalIdColumn(String externalIdColumn) {
+            this.externalIdColumn = externalIdColumn;
+            return this;
+        }
+
+        /**
+         * Set change time's column name
+         *
+         * @param updatedAtColumn change time's column name
+         * @return table builder
+         */
+        public TableBuilder setUpdatedAtColumn(String updatedAtColumn) {
+            this.updatedAtColumn = updatedAtColumn;
+            return this;
+        }
+
+        /**
+         * Set payee's column name
+         *
+         * @param payeeColumn payee's column name
+         * @return table builder
+         */
+        public TableBuilder setPayeeColumn(String payeeColumn) {
+            this.payeeColumn = payeeColumn;
+            return this;
+        }
+
+        /**
+         * Set deletion time's column name
+         *
+         * @param deletedAtColumn deletion time's column name
+         * @return table builder
+         */
+        public TableBuilder setDeletedAtColumn(String deletedAtColumn) {
+            this.deletedAtColumn = deletedAtColumn;
+            return this;
+        }
+
         /**
          * Table build
          *
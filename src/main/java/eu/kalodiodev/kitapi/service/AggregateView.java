@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+/**
+ * Transactions Aggregate View
+ *
+ * <p>Live amount summary and count of a ledger's transactions matching a filter.</p>
+ * <p>Aggregates are calculated once from ledger's transactions list and then follow list's changes
+ * by deltas, so neither the list is filtered nor its transactions are streamed again. Transactions
+ * changed in place must be re-counted through {@link #remove(Transaction)} and
+ * {@link #add(Transaction)}.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class AggregateView {
+
+    private final Predicate<Transaction> filter;
+    private final ObservableList<Transaction> transactions;
+    private final ListChangeListener<Transaction> listener;
+
+    private final ReadOnlyLongWrapper sum = new ReadOnlyLongWrapper();
+    private final ReadOnlyIntegerWrapper count = new ReadOnlyIntegerWrapper();
+
+    /**
+     * Aggregate view constructor
+     *
+     * @param transactions ledger's transactions, aggregates follow list's changes
+     * @param filter transactions to aggregate
+     */
+    AggregateView(ObservableList<Transaction> transactions, Predicate<Transaction> filter) {
+        this.filter = filter;
+        this.transactions = transactions;
+
+        long total = 0;
+        int matching = 0;
+        for (Transaction transaction : transactions) {
+            if (filter.test(transaction)) {
+                total += transaction.getAmount();
+                matching++;
+            }
+        }
+        sum.set(total);
+        count.set(matching);
+
+        listener = change -> {
+            while (change.next()) {
+                if (change.wasPermutated() || change.wasUpdated())
+                    continue;
+
+                for (Transaction removed : change.getRemoved()) {
+                    remove(removed);
+                }
+                for (Transaction added : change.getAddedSubList()) {
+                    add(added);
+                }
+            }
+        };
+        transactions.addListener(listener);
+    }
+
+    /**
+     * Create filter of transactions
+     *
+     * @param category transactions of category, null for all categories
+     * @param start transactions since date, null for no lower limit
+     * @param end transactions until date, null for no upper limit
+     * @return transactions filter
+     */
+    public static Predicate<Transaction> filter(Category category, LocalDate start, LocalDate end) {
+        // Categories are compared by id, so that renamed categories still match
+        Integer categoryId = (category == null) ? null : category.getId();
+
+        return transaction -> {
+            if (categoryId != null &&
+                    (transaction.getCategory() == null || transaction.getCategory().getId() != categoryId))
+                return false;
+            if (start != null && transaction.getDate().isBefore(start))
+                return false;
+            return end == null || !transaction.getDate().isAfter(end);
+        };
+    }
+
+    /**
+     * Get filter of aggregated transactions
+     *
+     * @return transactions filter
+     */
+    public Predicate<Transaction> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Get amount summary of matching transactions
+     *
+     * @return amount summary in cents
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Amount summary property
+     *
+     * @return amount summary in cents property
+     */
+    public ReadOnlyLongProperty sumProperty() {
+        return sum.getReadOnlyProperty();
+    }
+
+    /**
+     * Get number of matching transactions
+     *
+     * @return transactions count
+     */
+    public int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Transactions count property
+     *
+     * @return transactions count property
+     */
+    public ReadOnlyIntegerProperty countProperty() {
+        return count.getReadOnlyProperty();
+    }
+
+    /**
+     * Count transaction, if it matches filter
+     *
+     * @param transaction transaction
+     */
+    void add(Transaction transaction) {
+        if (filter.test(transaction)) {
+            sum.set(sum.get() + transaction.getAmount());
+            count.set(count.get() + 1);
+        }
+    }
+
+    /**
+     * Discount transaction, if it matches filter
+     *
+     * @param transaction transaction, as it was when counted
+     */
+    void remove(Transaction transaction) {
+        if (filter.test(transaction)) {
+            sum.set(sum.get() - transaction.getAmount());
+            count.set(count.get() - 1);
+        }
+    }
+
+    /**
+     * Stop following transactions list
+     */
+    void detach() {
+        transactions.removeListener(listener);
+    }
+}
@@ -21,12 +21,16 @@ import eu.kalodiodev.kitapi.dao.GenericDao;
 import eu.kalodiodev.kitapi.exceptions.*;
 import eu.kalodiodev.kitapi.model.Category;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.utils.CollationKeys;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.SortedList;
 
-import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Category Service
@@ -47,6 +51,15 @@ public class CategoryService implements ICategoryService{
      */
     private ObservableList<Category> categories;
 
+    /**
+     * Service of same ledger's transactions
+     */
+    private ITransactionService transactionService;
+
+    /**
+     * Changes are published to this bus
+     */
+    private ChangeBus changeBus = ChangeBus.getInstance();
 
     /**
      * Category Service Constructor
@@ -83,7 +96,7 @@ public class CategoryService implements ICategoryService{
     @Override
     public SortedList<Category> getSortedList() {
         return new SortedList<>(getObservableList(),
-                (o1, o2) -> Collator.getInstance().compare(o1.getName(), o2.getName())).sorted();
+                CollationKeys.getInstance().comparing(Category::getName)).sorted();
     }
 
     /**
@@ -106,6 +119,35 @@ public class CategoryService implements ICategoryService{
         this.dao = dao;
     }
 
+    /**
+     * Set service of categories' transactions
+     *
+     * @param transactionService service of same ledger's transactions
+     */
+    @Override
+    public void setTransactionService(ITransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * Get service of categories' transactions
+     *
+     * @return service of same ledger's transactions, null if not set
+     */
+    @Override
+    public ITransactionService getTransactionService() {
+        return transactionService;
+    }
+
+    /**
+     * Set change bus
+     *
+     * @param changeBus bus to publish changes to
+     */
+    public void setChangeBus(ChangeBus changeBus) {
+        this.changeBus = changeBus;
+    }
+
     /**
      * Get all categories
      *
@@ -119,6 +161,7 @@ public class CategoryService implements ICategoryService{
             List<Category> categoriesList = dao.all(GenericDao.OrderBy.NONE);
             // Set categories list to observable list
             categories.setAll(categoriesList);
+            publish(ChangeEvent.Type.BULK, categoriesList);
             // Return categories list
             return categoriesList;
         } catch (DaoException e) {
@@ -126,6 +169,62 @@ public class CategoryService implements ICategoryService{
         }
     }
 
+    /**
+     * Refresh categories list with changes of persistence storage
+     *
+     * <p>Categories are few, so all are loaded, but list is replaced only if they changed.</p>
+     *
+     * @return true if categories list changed
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public boolean refresh() throws RequestFailException {
+        try {
+            List<Category> categoriesList = dao.all(GenericDao.OrderBy.NONE);
+            if (sameCategories(categoriesList)) {
+                return false;
+            }
+            categories.setAll(categoriesList);
+            publish(ChangeEvent.Type.BULK, categoriesList);
+            return true;
+        } catch (DaoException e) {
+            throw new RequestFailException("Refresh categories, persistence storage operation failed: " +
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Publish change of categories
+     *
+     * @param type change type
+     * @param changed changed categories
+     */
+    private void publish(ChangeEvent.Type type, List<Category> changed) {
+        changeBus.publish(new ChangeEvent<>(this, Category.class, type, changed));
+    }
+
+    /**
+     * Check if loaded categories are the listed ones
+     *
+     * @param loaded loaded categories
+     * @return true if ids, names and descriptions are the same
+     */
+    private boolean sameCategories(List<Category> loaded) {
+        if (loaded.size() != categories.size()) {
+            return false;
+        }
+        Map<Integer, Category> listed = new HashMap<>();
+        for (Category category : categories) {
+            listed.put(category.getId(), category);
+        }
+        for (Category category : loaded) {
+            if (!category.equals(listed.get(category.getId()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get all categories
      * Ordered by name in <strong>descending</strong> order
@@ -140,6 +239,7 @@ public class CategoryService implements ICategoryService{
             List<Category> categoriesList = dao.all(GenericDao.OrderBy.DESC);
             // Set categories list to observable list
             categories.setAll(categoriesList);
+            publish(ChangeEvent.Type.BULK, categoriesList);
             // Return categories list
             return categoriesList;
         } catch (DaoException e) {
@@ -161,6 +261,7 @@ public class CategoryService implements ICategoryService{
             List<Category> categoriesList = dao.all(GenericDao.OrderBy.ASC);
             // Set categories list to observable list
             categories.setAll(categoriesList);
+            publish(ChangeEvent.Type.BULK, categoriesList);
             // Return categories list
             return categoriesList;
         } catch (DaoException e) {
@@ -227,6 +328,7 @@ public class CategoryService implements ICategoryService{
             // Add category to observable list
             category.setId(id);
             categories.add(category);
+            publish(ChangeEvent.Type.ADDED, Collections.singletonList(category));
 
             return id;
         } catch (DaoException e) {
@@ -270,8 +372,11 @@ public class CategoryService implements ICategoryService{
         try {
             dao.update(currentCategory, updatedCategory);
 
+            if(!currentCategory.getName().equals(updatedCategory.getName()))
+                CollationKeys.getInstance().invalidate(currentCategory.getName());
             currentCategory.setName(updatedCategory.getName());
             currentCategory.setDescription(updatedCategory.getDescription());
+            publish(ChangeEvent.Type.UPDATED, Collections.singletonList(currentCategory));
         } catch (DaoException e) {
             throw new RequestFailException("Failed to execute request in database");
         }
@@ -322,14 +427,75 @@ public class CategoryService implements ICategoryService{
         if(dao.count(name, GenericDao.CountCriteria.EQUAL) == 0)
             throw new EntryNotFoundException("Category to delete not found.");
 
-        // Delete Category
+        // Delete Category, with its transactions when they are served
         try {
-            dao.remove(name);
+            if(transactionService != null)
+                transactionService.removeCategory(dao.get(name));
+            else
+                dao.remove(name);
+
+            List<Category> removed = new ArrayList<>();
+            for(Category category : categories) {
+                if(name.equals(category.getName()))
+                    removed.add(category);
+            }
+            publish(ChangeEvent.Type.REMOVED, removed);
+        } catch (DaoEntryNotFoundException e) {
+            throw new EntryNotFoundException("Category to delete not found.");
         } catch (DaoException e) {
             throw new RequestFailException("Failed to execute request in database");
         }
     }
 
+    /**
+     * Merge category into another
+     *
+     * <p>Transactions are moved with a single update and source category is removed in storage as one unit,
+     * then listed transactions and categories are changed in place.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws NullInputException if a category is null
+     * @throws EntryNotFoundException if a category not found
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int merge(Category source, Category target) throws NullInputException, EntryNotFoundException,
+            RequestFailException {
+
+        // Validation
+        if((source == null) || (target == null))
+            throw new NullInputException("Merge category failed, category is null.");
+
+        if(source.getId() == target.getId())
+            return 0;
+
+        if(transactionService == null)
+            throw new RequestFailException("Merge category failed, categories have no transactions service.");
+
+        try {
+            if(!dao.exists(source.getId()) || !dao.exists(target.getId()))
+                throw new EntryNotFoundException("Category to merge not found.");
+        } catch (DaoException e) {
+            throw new RequestFailException("Merge category, persistence storage operation failed: " + e.getMessage());
+        }
+
+        // Merge category
+        int moved = transactionService.mergeCategory(source, target);
+
+        List<Category> removed = new ArrayList<>();
+        for(Category category : categories) {
+            if(category.getId() == source.getId())
+                removed.add(category);
+        }
+        categories.removeAll(removed);
+        CollationKeys.getInstance().invalidate(source.getName());
+        publish(ChangeEvent.Type.REMOVED, removed);
+
+        return moved;
+    }
+
     /**
      * Remove all categories
      *
@@ -341,6 +507,7 @@ public class CategoryService implements ICategoryService{
             dao.removeAll();
             // Remove all from observable list
             categories.removeAll();
+            publish(ChangeEvent.Type.BULK, Collections.emptyList());
         } catch (DaoException e) {
             throw new RequestFailException("Failed to execute request in database");
         }
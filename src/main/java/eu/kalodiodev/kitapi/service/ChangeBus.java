@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.service;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Change Event Bus
+ *
+ * <p>Services publish a {@link ChangeEvent} after every change. Events are not delivered one by one,
+ * they are collected and listeners are notified once with all of them on the next animation pulse,
+ * so a bulk operation or a burst of changes causes a single refresh.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class ChangeBus {
+
+    private static final ChangeBus instance = new ChangeBus(ChangeBus::onNextPulse);
+
+    // Runs delivery of pending events
+    private final Executor pulse;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Events published since last delivery
+    private List<ChangeEvent<?>> pending = new ArrayList<>();
+    private boolean scheduled;
+
+    /**
+     * Change bus constructor
+     *
+     * @param pulse executor delivering pending events, once per scheduled delivery
+     */
+    public ChangeBus(Executor pulse) {
+        this.pulse = pulse;
+    }
+
+    /**
+     * Get application's change bus
+     *
+     * @return change bus delivering events on JavaFX animation pulses
+     */
+    public static ChangeBus getInstance() {
+        return instance;
+    }
+
+    /**
+     * Add listener
+     *
+     * @param listener notified with events published since last notification
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove listener
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Publish change event
+     *
+     * <p>Event is delivered on next pulse, along with any other published until then.
+     * Events are dropped if there are no listeners.</p>
+     *
+     * @param event change event
+     */
+    public void publish(ChangeEvent<?> event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            pending.add(event);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        pulse.execute(this::deliver);
+    }
+
+    /**
+     * Notify listeners with pending events
+     */
+    private void deliver() {
+        List<ChangeEvent<?>> events;
+        synchronized (this) {
+            events = pending;
+            pending = new ArrayList<>();
+            scheduled = false;
+        }
+
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.changed(events);
+        }
+    }
+
+    /**
+     * Run on next animation pulse of JavaFX thread
+     *
+     * @param runnable runnable to run
+     */
+    private static void onNextPulse(Runnable runnable) {
+        Platform.runLater(() -> new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                runnable.run();
+            }
+        }.start());
+    }
+
+    /**
+     * Change listener
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Entries changed
+         *
+         * @param events events published since last notification, in order
+         */
+        void changed(List<ChangeEvent<?>> events);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change Event
+ *
+ * <p>Published by services through {@link ChangeBus} after their entries changed, both in
+ * persistence storage and in their observable list.</p>
+ *
+ * @param <T> entry type, transaction or category
+ * @author Raptodimos Thanos
+ */
+public class ChangeEvent<T> {
+
+    /**
+     * Change type
+     */
+    public enum Type {
+        ADDED, UPDATED, REMOVED,
+        /**
+         * Many entries added, updated or removed at once, or entries reloaded
+         */
+        BULK
+    }
+
+    private final Object source;
+    private final Class<T> entryType;
+    private final Type type;
+    private final List<T> entries;
+
+    /**
+     * Change event constructor
+     *
+     * @param source service that changed
+     * @param entryType type of changed entries
+     * @param type change type
+     * @param entries changed entries, may be empty if not known
+     */
+    public ChangeEvent(Object source, Class<T> entryType, Type type, Collection<? extends T> entries) {
+        this.source = source;
+        this.entryType = entryType;
+        this.type = type;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Get service that changed
+     *
+     * @return source service
+     */
+    public Object getSource() {
+        return source;
+    }
+
+    /**
+     * Get type of changed entries
+     *
+     * @return entry type
+     */
+    public Class<T> getEntryType() {
+        return entryType;
+    }
+
+    /**
+     * Get change type
+     *
+     * @return change type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get changed entries
+     *
+     * @return unmodifiable list of changed entries
+     */
+    public List<T> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Check if any of the events was published by source
+     *
+     * @param events events
+     * @param source service
+     * @return true if source changed
+     */
+    public static boolean changed(List<ChangeEvent<?>> events, Object source) {
+        for (ChangeEvent<?> event : events) {
+            if (event.source == source) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + entries.size() + " " + entryType.getSimpleName();
+    }
+}
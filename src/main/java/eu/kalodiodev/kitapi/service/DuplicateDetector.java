@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Transaction;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Transactions Duplicate Detector
+ *
+ * <p>Keeps a hash index of a ledger's transactions over (date, amount, normalized name),
+ * so checking if a transaction is an exact duplicate is O(1).</p>
+ * <p>Index is loaded once from ledger's transactions list and then follows list's changes.
+ * Transactions changed in place must be re-indexed through {@link #remove(Transaction)}
+ * and {@link #add(Transaction)}.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class DuplicateDetector {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Number of transactions per key
+    private final Map<Key, Integer> index;
+
+    /**
+     * Duplicate detector constructor
+     *
+     * @param transactions ledger's transactions, index follows list's changes
+     */
+    DuplicateDetector(ObservableList<Transaction> transactions) {
+        this.index = new HashMap<>(Math.max(16, transactions.size() * 2));
+
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+
+        transactions.addListener((ListChangeListener<Transaction>) change -> {
+            while (change.next()) {
+                for (Transaction removed : change.getRemoved()) {
+                    remove(removed);
+                }
+                for (Transaction added : change.getAddedSubList()) {
+                    add(added);
+                }
+            }
+        });
+    }
+
+    /**
+     * Check if an exact duplicate of transaction exists
+     *
+     * @param transaction transaction to check
+     * @return true if a transaction with same date, amount and normalized name exists
+     */
+    public boolean isDuplicate(Transaction transaction) {
+        Key key = key(transaction);
+        return key != null && index.containsKey(key);
+    }
+
+    /**
+     * Add transaction to index
+     *
+     * @param transaction transaction to add
+     */
+    void add(Transaction transaction) {
+        Key key = key(transaction);
+        if (key != null) {
+            index.merge(key, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Remove transaction from index
+     *
+     * @param transaction transaction to remove
+     */
+    void remove(Transaction transaction) {
+        Key key = key(transaction);
+        if (key != null) {
+            index.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Normalize transaction's name
+     *
+     * <p>Case, accents, punctuation and repeated whitespace are ignored,
+     * i.e. "Caf\u00e9  Central" and "CAFE CENTRAL." are normalized to "cafe central".</p>
+     *
+     * @param name name to normalize
+     * @return normalized name
+     */
+    public static String normalize(String name) {
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("");
+        normalized = SEPARATORS.matcher(normalized).replaceAll(" ");
+
+        return normalized.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get transaction's index key
+     *
+     * @param transaction transaction
+     * @return index key, null if transaction is incomplete
+     */
+    private static Key key(Transaction transaction) {
+        if (transaction == null || transaction.getDate() == null || transaction.getName() == null) {
+            return null;
+        }
+        return new Key(transaction.getDate().toEpochDay(), transaction.getAmount(),
+                normalize(transaction.getName()));
+    }
+
+    /**
+     * Index key
+     */
+    private static final class Key {
+
+        private final long day;
+        private final long amount;
+        private final String name;
+        private final int hash;
+
+        Key(long day, long amount, String name) {
+            this.day = day;
+            this.amount = amount;
+            this.name = name;
+
+            int result = Long.hashCode(day);
+            result = 31 * result + Long.hashCode(amount);
+            this.hash = 31 * result + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+
+            if (!(obj instanceof Key))
+                return false;
+
+            Key that = (Key) obj;
+            return day == that.day && amount == that.amount && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -36,6 +36,20 @@ public interface ICategoryService extends IGenericService<Category> {
      */
     void setDao(CategoryDao dao);
 
+    /**
+     * Set service of categories' transactions
+     *
+     * @param transactionService service of same ledger's transactions
+     */
+    void setTransactionService(ITransactionService transactionService);
+
+    /**
+     * Get service of categories' transactions
+     *
+     * @return service of same ledger's transactions, null if not set
+     */
+    ITransactionService getTransactionService();
+
     /**
      * Get category
      *
@@ -99,4 +113,20 @@ public interface ICategoryService extends IGenericService<Category> {
      */
     void remove(String name) throws EmptyInputException,
             EntryNotFoundException, RequestFailException, NullInputException;
+
+    /**
+     * Merge category into another
+     *
+     * <p>Transactions of source category are moved to target category, then source category is removed.
+     * Nothing is merged if categories are the same.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws NullInputException if a category is null
+     * @throws EntryNotFoundException if a category not found
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int merge(Category source, Category target) throws NullInputException, EntryNotFoundException,
+            RequestFailException;
 }
@@ -77,6 +77,17 @@ public interface IGenericService<T> {
      */
     List<T> allAscOrder() throws RequestFailException;
 
+    /**
+     * Refresh entries list with changes of persistence storage
+     *
+     * <p>Changes made outside of this service, i.e. by another application instance, are loaded.
+     * Entries should have been loaded before, see {@link #all()}.</p>
+     *
+     * @return true if entries list changed
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    boolean refresh() throws RequestFailException;
+
     /**
      * Remove all entries from table
      *
@@ -17,11 +17,20 @@
 package eu.kalodiodev.kitapi.service;
 
 import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.dao.TransactionRowHandler;
 import eu.kalodiodev.kitapi.exceptions.*;
+import eu.kalodiodev.kitapi.matching.PayeeMatcher;
 import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.SmartView;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Transaction Service Interface
@@ -32,6 +41,14 @@ import java.time.LocalDate;
  */
 public interface ITransactionService extends IGenericService<Transaction>{
 
+    /**
+     * Get data access object
+     *
+     * @return data access object
+     */
+    @Override
+    TransactionDao getDao();
+
     /**
      * Set data access object
      *
@@ -39,6 +56,13 @@ public interface ITransactionService extends IGenericService<Transaction>{
      */
     void setDao(TransactionDao dao);
 
+    /**
+     * Get snapshot of transactions list
+     *
+     * @return latest immutable transactions snapshot, readable on any thread
+     */
+    TransactionSnapshot snapshot();
+
     /**
      * Get transaction
      *
@@ -50,6 +74,17 @@ public interface ITransactionService extends IGenericService<Transaction>{
      */
     Transaction get(int id) throws EntryNotFoundException, RequestFailException, InvalidIdException;
 
+    /**
+     * Load full description of a transaction loaded with a description preview
+     *
+     * @param transaction transaction, its description is replaced if partial
+     * @throws NullInputException if transaction is null
+     * @throws EntryNotFoundException if transaction not found
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    void loadDescription(Transaction transaction) throws NullInputException, EntryNotFoundException,
+            RequestFailException;
+
     /**
      * Add transaction
      *
@@ -61,6 +96,21 @@ public interface ITransactionService extends IGenericService<Transaction>{
      */
     int add(Transaction transaction) throws NullInputException, EmptyInputException, RequestFailException, EmptyDateException;
 
+    /**
+     * Add transactions
+     *
+     * <p>Transactions are stored in one batch. Transactions with an external id already stored are skipped.</p>
+     *
+     * @param transactions transactions to add
+     * @return added transactions
+     * @throws NullInputException if a transaction is null
+     * @throws EmptyInputException if a transaction's name is empty
+     * @throws EmptyDateException if a transaction's date is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    List<Transaction> addAll(List<Transaction> transactions) throws NullInputException, EmptyInputException,
+            EmptyDateException, RequestFailException;
+
     /**
      * Update transaction
      *
@@ -93,6 +143,253 @@ public interface ITransactionService extends IGenericService<Transaction>{
      */
     boolean exists(int id) throws RequestFailException;
 
+    /**
+     * Check if transaction is a duplicate
+     *
+     * <p>A duplicate has same date, amount and normalized name with a listed transaction.</p>
+     *
+     * @param transaction transaction to check
+     * @return true if transaction is a duplicate
+     */
+    boolean isDuplicate(Transaction transaction);
+
+    /**
+     * Create payee matcher
+     *
+     * @return payee matcher of listed transactions' names
+     */
+    PayeeMatcher createPayeeMatcher();
+
+    /**
+     * Merge category into another
+     *
+     * <p>Transactions of source category are moved to target category and source category is removed
+     * from storage. Listed transactions are moved in place.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws NullInputException if a category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int mergeCategory(Category source, Category target) throws NullInputException, RequestFailException;
+
+    /**
+     * Remove category and its transactions
+     *
+     * <p>Category and its transactions are removed from storage, then its listed transactions are removed
+     * from transactions list with a single change.</p>
+     *
+     * @param category category to remove
+     * @return number of removed transactions
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int removeCategory(Category category) throws NullInputException, RequestFailException;
+
+    /**
+     * Change category of transactions
+     *
+     * <p>Transactions are changed in storage as a single unit, then changed in place.</p>
+     *
+     * @param transactions listed transactions to change
+     * @param category new category
+     * @return number of changed transactions
+     * @throws NullInputException if transactions or category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int recategorize(Collection<Transaction> transactions, Category category) throws NullInputException,
+            RequestFailException;
+
+    /**
+     * Shift dates of transactions
+     *
+     * <p>Transactions are changed in storage as a single unit, then changed in place.</p>
+     *
+     * @param transactions listed transactions to change
+     * @param days days to shift dates by, negative to shift them back
+     * @return number of changed transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int shiftDates(Collection<Transaction> transactions, int days) throws NullInputException, RequestFailException;
+
+    /**
+     * Remove transactions
+     *
+     * <p>Transactions are removed from storage as a single unit, then from transactions list with a
+     * single change.</p>
+     *
+     * @param transactions listed transactions to remove
+     * @return number of removed transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int remove(Collection<Transaction> transactions) throws NullInputException, RequestFailException;
+
+    /**
+     * Get transactions in trash
+     *
+     * @return soft deleted transactions, latest deleted first
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    List<Transaction> trash() throws RequestFailException;
+
+    /**
+     * Restore transactions from trash
+     *
+     * <p>Transactions are restored in storage as a single unit, then appended to transactions list
+     * with a single change.</p>
+     *
+     * @param transactions transactions in trash to restore
+     * @return number of restored transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int restore(Collection<Transaction> transactions) throws NullInputException, RequestFailException;
+
+    /**
+     * Merge transaction names
+     *
+     * <p>Transactions named with any of given names are renamed to the given name.</p>
+     *
+     * @param names names to merge
+     * @param name merged name
+     * @return number of renamed transactions
+     * @throws NullInputException if names or name is null
+     * @throws EmptyInputException if merged name is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int mergeNames(Collection<String> names, String name) throws NullInputException, EmptyInputException,
+            RequestFailException;
+
+    /**
+     * Stream stored transactions
+     *
+     * <p>Transactions are read from persistence storage row by row, ordered by date,
+     * without loading them to the transactions list.</p>
+     *
+     * @param start stream transactions since date, null for no lower limit
+     * @param end stream transactions until date, null for no upper limit
+     * @param category stream only transactions of category, null for all categories
+     * @param handler rows handler
+     * @return number of streamed transactions
+     * @throws RequestFailException if persistence storage operation failed
+     * @throws IOException if handler failed
+     */
+    long stream(LocalDate start, LocalDate end, Category category, TransactionRowHandler handler)
+            throws RequestFailException, IOException;
+
+    /**
+     * Get stored transactions amount summaries per category
+     *
+     * <p>Summaries are calculated by persistence storage, whole months are read from
+     * maintained monthly totals without loading transactions.</p>
+     *
+     * @param start summaries since date, null for no lower limit
+     * @param end summaries until date, null for no upper limit
+     * @return amounts summaries in cents, mapped by category id
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    Map<Integer, Long> categoryTotals(LocalDate start, LocalDate end) throws RequestFailException;
+
+    /**
+     * Count stored transactions of category
+     *
+     * @param category transactions' category
+     * @return number of transactions
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    int count(Category category) throws NullInputException, RequestFailException;
+
+    /**
+     * Get stored transactions amount summary of category
+     *
+     * @param category transactions' category
+     * @return amount summary in cents
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    long totalAmount(Category category) throws NullInputException, RequestFailException;
+
+    /**
+     * Get payees with highest stored transactions amount summaries
+     *
+     * <p>Summaries are calculated by persistence storage, grouped by payee.</p>
+     *
+     * @param start summaries since date, null for no lower limit
+     * @param end summaries until date, null for no upper limit
+     * @param limit maximum number of payees
+     * @return amounts summaries in cents mapped by payee's name, highest first
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    Map<String, Long> topPayees(LocalDate start, LocalDate end, int limit) throws RequestFailException;
+
+    /**
+     * Get stored transactions matching query
+     *
+     * @param query transaction query
+     * @return matching transactions, sorted and limited as query defines
+     * @throws NullInputException if query is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    List<Transaction> query(TransactionQuery query) throws NullInputException, RequestFailException;
+
+    /**
+     * Create predicate matching listed transactions of query
+     *
+     * @param query transaction query, sort order and limit are not applied
+     * @return listed transactions predicate
+     * @throws NullInputException if query is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    Predicate<Transaction> filter(TransactionQuery query) throws NullInputException, RequestFailException;
+
+    /**
+     * Get saved smart views
+     *
+     * @return smart views, ordered by name
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    List<SmartView> smartViews() throws RequestFailException;
+
+    /**
+     * Save smart view, replacing a view with the same name
+     *
+     * @param view smart view to save
+     * @throws NullInputException if view, its name or its query is null
+     * @throws EmptyInputException if view's name is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    void saveSmartView(SmartView view) throws NullInputException, EmptyInputException, RequestFailException;
+
+    /**
+     * Remove smart view
+     *
+     * @param name view's name
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    void removeSmartView(String name) throws RequestFailException;
+
+    /**
+     * Register aggregate view
+     *
+     * <p>View keeps amount summary and count of matching transactions, following transactions
+     * changes without filtering transactions list.</p>
+     *
+     * @param filter transactions to aggregate
+     * @return aggregate view
+     */
+    AggregateView createView(Predicate<Transaction> filter);
+
+    /**
+     * Remove aggregate view
+     *
+     * @param view view to stop maintaining
+     */
+    void removeView(AggregateView view);
+
     /**
      * Filter list and get total amount
      *
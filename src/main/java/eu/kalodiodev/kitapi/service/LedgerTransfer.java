@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.dao.DaoFactory;
+import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.dao.UnitOfWork;
+import eu.kalodiodev.kitapi.exceptions.DaoEntryNotFoundException;
+import eu.kalodiodev.kitapi.exceptions.DaoException;
+import eu.kalodiodev.kitapi.exceptions.NullInputException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ledger Transfer
+ *
+ * <p>Moves transactions between income and expenses, i.e. an expense refunded and recorded as income.
+ * Transactions are added to the other ledger and deleted from their own within a single unit of work,
+ * so either both ledgers change or none does. Lists of both services are refreshed with the committed
+ * changes.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class LedgerTransfer {
+
+    private final DaoFactory factory;
+    private final ITransactionService incomeService;
+    private final ITransactionService expensesService;
+
+    /**
+     * Ledger transfer constructor
+     *
+     * @param factory dao factory of ledgers' storage
+     * @param incomeService income service
+     * @param expensesService expenses service
+     */
+    public LedgerTransfer(DaoFactory factory, ITransactionService incomeService,
+                          ITransactionService expensesService) {
+        this.factory = factory;
+        this.incomeService = incomeService;
+        this.expensesService = expensesService;
+    }
+
+    /**
+     * Move income transactions to expenses
+     *
+     * @param transactions listed income transactions
+     * @param category expenses category of moved transactions
+     * @return number of moved transactions
+     * @throws NullInputException if transactions or category is null
+     * @throws RequestFailException if persistence storage operation failed, no transaction is moved
+     */
+    public int toExpenses(Collection<Transaction> transactions, Category category) throws
+            NullInputException, RequestFailException {
+        return move(transactions, category, UnitOfWork::getIncomeDao, UnitOfWork::getExpensesDao);
+    }
+
+    /**
+     * Move expenses transactions to income
+     *
+     * @param transactions listed expenses transactions
+     * @param category income category of moved transactions
+     * @return number of moved transactions
+     * @throws NullInputException if transactions or category is null
+     * @throws RequestFailException if persistence storage operation failed, no transaction is moved
+     */
+    public int toIncome(Collection<Transaction> transactions, Category category) throws
+            NullInputException, RequestFailException {
+        return move(transactions, category, UnitOfWork::getExpensesDao, UnitOfWork::getIncomeDao);
+    }
+
+    /**
+     * Move transactions between ledgers
+     *
+     * <p>Moved transactions are deleted from their ledger, not kept in its trash.</p>
+     *
+     * @param transactions listed transactions
+     * @param category category of target ledger
+     * @param from dao of transactions' ledger within unit
+     * @param to dao of target ledger within unit
+     * @return number of moved transactions
+     * @throws NullInputException if transactions or category is null
+     * @throws RequestFailException if persistence storage operation failed, no transaction is moved
+     */
+    private int move(Collection<Transaction> transactions, Category category,
+                     Function<UnitOfWork, TransactionDao> from, Function<UnitOfWork, TransactionDao> to)
+            throws NullInputException, RequestFailException {
+
+        // Validation
+        if((transactions == null) || (category == null))
+            throw new NullInputException("Move transactions failed, input is null.");
+        if(transactions.isEmpty())
+            return 0;
+
+        int moved;
+        try (UnitOfWork work = factory.beginWork()) {
+            TransactionDao source = from.apply(work);
+
+            List<Transaction> copies = new ArrayList<>(transactions.size());
+            for(Transaction transaction : transactions) {
+                copies.add(copy(source, transaction, category));
+            }
+            moved = to.apply(work).addAll(copies).size();
+
+            if(source.remove(transactions) != transactions.size())
+                throw new DaoException("transactions are no longer stored");
+
+            work.commit();
+        } catch (DaoException | DaoEntryNotFoundException e) {
+            throw new RequestFailException("Move transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+
+        incomeService.refresh();
+        expensesService.refresh();
+        return moved;
+    }
+
+    /**
+     * Copy transaction to another ledger
+     *
+     * @param source dao of transaction's ledger, full description is loaded if listed partially
+     * @param transaction listed transaction
+     * @param category category of target ledger
+     * @return new transaction, not stored
+     * @throws DaoException if description could not be loaded
+     * @throws DaoEntryNotFoundException if transaction is no longer stored
+     */
+    private static Transaction copy(TransactionDao source, Transaction transaction, Category category)
+            throws DaoException, DaoEntryNotFoundException {
+        Transaction copy = new Transaction();
+        copy.setName(transaction.getName());
+        copy.setDescription(transaction.isDescriptionPartial() ?
+                source.get(transaction.getId()).getDescription() : transaction.getDescription());
+        copy.setDate(transaction.getDate());
+        copy.setAmount(transaction.getAmount());
+        copy.setCategory(category);
+        return copy;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import javafx.application.Platform;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Report Executor
+ *
+ * <p>Runs aggregations of reports over {@link TransactionSnapshot}s on a fork join pool, so independent
+ * reports run in parallel instead of one after another. Scans larger than the split threshold are split
+ * into subtasks, and their partial accumulators are merged. Each report's result is delivered as soon as
+ * it completes.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class ReportExecutor {
+
+    /**
+     * Scans of more transactions are split into subtasks
+     */
+    public static final int DEFAULT_SPLIT_THRESHOLD = 8192;
+
+    private static final ReportExecutor instance = new ReportExecutor(ForkJoinPool.commonPool(),
+            Platform::runLater, DEFAULT_SPLIT_THRESHOLD);
+
+    private final ForkJoinPool pool;
+    private final Executor delivery;
+    private final int threshold;
+
+    /**
+     * Report executor constructor
+     *
+     * @param pool pool running aggregations
+     * @param delivery executor delivering results
+     * @param threshold scans of more transactions are split into subtasks
+     */
+    public ReportExecutor(ForkJoinPool pool, Executor delivery, int threshold) {
+        this.pool = pool;
+        this.delivery = delivery;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    /**
+     * Get application's report executor
+     *
+     * @return report executor on common pool, delivering results on JavaFX thread
+     */
+    public static ReportExecutor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Run aggregation over snapshot
+     *
+     * @param snapshot transactions to aggregate
+     * @param aggregation report's aggregation
+     * @param onResult notified with result on delivery executor, may be null
+     * @param <A> accumulator type
+     * @param <R> result type
+     * @return future result
+     */
+    public <A, R> CompletableFuture<R> submit(TransactionSnapshot snapshot, Aggregation<A, R> aggregation,
+                                              Consumer<? super R> onResult) {
+        CompletableFuture<R> result = CompletableFuture.supplyAsync(() ->
+                aggregation.finish(new ScanTask<>(snapshot, aggregation, 0, snapshot.size()).invoke()), pool);
+
+        if (onResult != null) {
+            result.thenAcceptAsync(onResult, delivery);
+        }
+        return result;
+    }
+
+    /**
+     * Amount summary of matching transactions
+     *
+     * @param filter transactions to sum, see {@link AggregateView#filter}
+     * @return aggregation of amount summary in cents
+     */
+    public static Aggregation<long[], Long> sum(Predicate<Transaction> filter) {
+        return new Aggregation<long[], Long>() {
+            @Override
+            public long[] create() {
+                return new long[1];
+            }
+
+            @Override
+            public void add(long[] accumulator, Transaction transaction) {
+                if (filter.test(transaction))
+                    accumulator[0] += transaction.getAmount();
+            }
+
+            @Override
+            public long[] merge(long[] accumulator, long[] other) {
+                accumulator[0] += other[0];
+                return accumulator;
+            }
+
+            @Override
+            public Long finish(long[] accumulator) {
+                return accumulator[0];
+            }
+        };
+    }
+
+    /**
+     * Amount summaries per category, of a period
+     *
+     * @param start transactions since date, null for no lower limit
+     * @param end transactions until date, null for no upper limit
+     * @return aggregation of amount summaries in cents, by category's id
+     */
+    public static Aggregation<Map<Integer, long[]>, Map<Integer, Long>> categoryTotals(LocalDate start,
+                                                                                      LocalDate end) {
+        Predicate<Transaction> period = AggregateView.filter(null, start, end);
+
+        return new Aggregation<Map<Integer, long[]>, Map<Integer, Long>>() {
+            @Override
+            public Map<Integer, long[]> create() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public void add(Map<Integer, long[]> accumulator, Transaction transaction) {
+                Category category = transaction.getCategory();
+                if (category != null && period.test(transaction))
+                    accumulator.computeIfAbsent(category.getId(), id -> new long[1])[0] += transaction.getAmount();
+            }
+
+            @Override
+            public Map<Integer, long[]> merge(Map<Integer, long[]> accumulator, Map<Integer, long[]> other) {
+                other.forEach((id, sum) -> accumulator.merge(id, sum, (a, b) -> {
+                    a[0] += b[0];
+                    return a;
+                }));
+                return accumulator;
+            }
+
+            @Override
+            public Map<Integer, Long> finish(Map<Integer, long[]> accumulator) {
+                Map<Integer, Long> totals = new HashMap<>();
+                accumulator.forEach((id, sum) -> totals.put(id, sum[0]));
+                return totals;
+            }
+        };
+    }
+
+    /**
+     * Amount summaries per month of years, for year over year comparison
+     *
+     * @param firstYear first year
+     * @param years number of years
+     * @return aggregation of amount summaries in cents, 12 months per year, first year's January first
+     */
+    public static Aggregation<long[], long[]> monthlyTotals(int firstYear, int years) {
+        return new Aggregation<long[], long[]>() {
+            @Override
+            public long[] create() {
+                return new long[years * 12];
+            }
+
+            @Override
+            public void add(long[] accumulator, Transaction transaction) {
+                LocalDate date = transaction.getDate();
+                int year = date.getYear() - firstYear;
+                if (year >= 0 && year < years)
+                    accumulator[year * 12 + date.getMonthValue() - 1] += transaction.getAmount();
+            }
+
+            @Override
+            public long[] merge(long[] accumulator, long[] other) {
+                for (int i = 0; i < accumulator.length; i++) {
+                    accumulator[i] += other[i];
+                }
+                return accumulator;
+            }
+
+            @Override
+            public long[] finish(long[] accumulator) {
+                return accumulator;
+            }
+        };
+    }
+
+    /**
+     * Report's aggregation
+     *
+     * <p>Each subtask accumulates its range of transactions into its own accumulator, and
+     * accumulators of subtasks are merged.</p>
+     *
+     * @param <A> accumulator type
+     * @param <R> result type
+     */
+    public interface Aggregation<A, R> {
+
+        /**
+         * Create empty accumulator
+         *
+         * @return accumulator
+         */
+        A create();
+
+        /**
+         * Accumulate transaction
+         *
+         * @param accumulator subtask's accumulator
+         * @param transaction transaction
+         */
+        void add(A accumulator, Transaction transaction);
+
+        /**
+         * Merge accumulators of two subtasks
+         *
+         * @param accumulator accumulator of earlier transactions
+         * @param other accumulator of later transactions
+         * @return merged accumulator
+         */
+        A merge(A accumulator, A other);
+
+        /**
+         * Get result of merged accumulator
+         *
+         * @param accumulator accumulator of all transactions
+         * @return result
+         */
+        R finish(A accumulator);
+    }
+
+    /**
+     * Scan of a range of snapshot's transactions, split above threshold
+     */
+    private class ScanTask<A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TransactionSnapshot snapshot;
+        private final Aggregation<A, ?> aggregation;
+        private final int from;
+        private final int to;
+
+        private ScanTask(TransactionSnapshot snapshot, Aggregation<A, ?> aggregation, int from, int to) {
+            this.snapshot = snapshot;
+            this.aggregation = aggregation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= threshold) {
+                A accumulator = aggregation.create();
+                for (int i = from; i < to; i++) {
+                    aggregation.add(accumulator, snapshot.get(i));
+                }
+                return accumulator;
+            }
+
+            int middle = (from + to) >>> 1;
+            ScanTask<A> left = new ScanTask<>(snapshot, aggregation, from, middle);
+            left.fork();
+            A right = new ScanTask<>(snapshot, aggregation, middle, to).compute();
+            return aggregation.merge(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transactions Snapshot Publisher
+ *
+ * <p>Follows a ledger's transactions list on the thread changing it, and publishes a new
+ * {@link TransactionSnapshot} after every change. Readers get the latest published snapshot
+ * through a volatile read, so they never block the list's writer and never see a change half made.</p>
+ * <p>Copies of listed transactions are kept by identity and reused by later versions.
+ * Transactions changed in place must be re-copied through {@link #changed(Collection)}.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+class SnapshotPublisher {
+
+    private final ObservableList<Transaction> transactions;
+
+    // Copies of listed transactions, accessed by writer only
+    private final Map<Transaction, Transaction> copies = new IdentityHashMap<>();
+
+    private volatile TransactionSnapshot snapshot = TransactionSnapshot.EMPTY;
+
+    // Nested holds and first position changed while held, -1 if none
+    private int holds;
+    private int dirtyFrom = -1;
+
+    /**
+     * Snapshot publisher constructor
+     *
+     * @param transactions ledger's transactions, snapshots follow list's changes
+     */
+    SnapshotPublisher(ObservableList<Transaction> transactions) {
+        this.transactions = transactions;
+
+        transactions.addListener((ListChangeListener<Transaction>) change -> {
+            int from = -1;
+            while (change.next()) {
+                for (Transaction removed : change.getRemoved()) {
+                    copies.remove(removed);
+                }
+                if (change.wasUpdated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        copies.remove(transactions.get(i));
+                    }
+                }
+                from = (from < 0) ? change.getFrom() : Math.min(from, change.getFrom());
+            }
+            if (from >= 0) {
+                dirty(from);
+            }
+        });
+    }
+
+    /**
+     * Get latest published snapshot
+     *
+     * @return transactions snapshot
+     */
+    TransactionSnapshot get() {
+        return snapshot;
+    }
+
+    /**
+     * Re-copy transactions changed in place
+     *
+     * @param changed listed transactions that changed
+     */
+    void changed(Collection<Transaction> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Set<Transaction> identities = Collections.newSetFromMap(new IdentityHashMap<>());
+        identities.addAll(changed);
+        copies.keySet().removeAll(identities);
+
+        for (int i = 0; i < transactions.size(); i++) {
+            if (identities.contains(transactions.get(i))) {
+                dirty(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hold publishing, so that several changes are published as one version
+     */
+    void hold() {
+        holds++;
+    }
+
+    /**
+     * Release hold, publishing changes made while held
+     */
+    void release() {
+        if (holds > 0 && --holds == 0 && dirtyFrom >= 0) {
+            int from = dirtyFrom;
+            dirtyFrom = -1;
+            publish(from);
+        }
+    }
+
+    /**
+     * Publish changes from position, or keep position while held
+     */
+    private void dirty(int from) {
+        if (holds > 0) {
+            dirtyFrom = (dirtyFrom < 0) ? from : Math.min(dirtyFrom, from);
+        } else {
+            publish(from);
+        }
+    }
+
+    /**
+     * Publish next snapshot version
+     */
+    private void publish(int from) {
+        snapshot = snapshot.next(from, transactions, transaction -> copies.computeIfAbsent(transaction,
+                SnapshotPublisher::copy));
+    }
+
+    /**
+     * Copy transaction, and its category
+     *
+     * @param transaction listed transaction
+     * @return detached copy
+     */
+    private static Transaction copy(Transaction transaction) {
+        Transaction copy = new Transaction();
+        copy.setId(transaction.getId());
+        copy.setName(transaction.getName());
+        copy.setDescription(transaction.getDescription());
+        copy.setDescriptionPartial(transaction.isDescriptionPartial());
+        copy.setDate(transaction.getDate());
+        copy.setAmount(transaction.getAmount());
+        copy.setExternalId(transaction.getExternalId());
+        Category category = transaction.getCategory();
+        if (category != null) {
+            copy.setCategory(new Category(category.getId(), category.getName(), category.getDescription()));
+        }
+        return copy;
+    }
+}
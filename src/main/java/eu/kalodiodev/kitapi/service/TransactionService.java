@@ -18,16 +18,31 @@ package eu.kalodiodev.kitapi.service;
 
 import eu.kalodiodev.kitapi.dao.GenericDao;
 import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.dao.TransactionRowHandler;
 import eu.kalodiodev.kitapi.exceptions.*;
+import eu.kalodiodev.kitapi.matching.PayeeMatcher;
 import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.SmartView;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
+import eu.kalodiodev.kitapi.utils.CollationKeys;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 
 
 /**
@@ -50,6 +65,32 @@ public class TransactionService implements ITransactionService{
     private ObservableList<Transaction> transactions;
     private FilteredList<Transaction> transactionFilteredList;
 
+    /**
+     * Duplicates index, loaded on first use
+     */
+    private DuplicateDetector duplicateDetector;
+
+    /**
+     * Publishes snapshots of transactions list
+     */
+    private final SnapshotPublisher snapshots;
+
+    /**
+     * Registered aggregate views
+     */
+    private final List<AggregateView> views = new ArrayList<>();
+
+    /**
+     * Last loaded id and change time, for incremental refresh. Change time is -1 until loaded.
+     */
+    private int lastId;
+    private long lastUpdate = -1;
+
+    /**
+     * Changes are published to this bus
+     */
+    private ChangeBus changeBus = ChangeBus.getInstance();
+
     /**
      * Transaction service constructor
      *
@@ -58,6 +99,7 @@ public class TransactionService implements ITransactionService{
     public TransactionService(TransactionDao dao) {
         this.dao = dao;
         this.transactions = FXCollections.observableArrayList();
+        this.snapshots = new SnapshotPublisher(transactions);
     }
 
     /**
@@ -66,6 +108,7 @@ public class TransactionService implements ITransactionService{
     public TransactionService() {
         this.transactions = FXCollections.observableArrayList();
         this.transactionFilteredList = new FilteredList<>(transactions);
+        this.snapshots = new SnapshotPublisher(transactions);
     }
 
     /**
@@ -108,6 +151,20 @@ public class TransactionService implements ITransactionService{
                 }).sorted();
     }
 
+    /**
+     * Get snapshot of transactions list
+     *
+     * <p>Snapshot is published by the thread changing transactions list, after each change, so it
+     * can be read on any thread without locking. Changes made by one service operation are published
+     * as one version.</p>
+     *
+     * @return latest transactions snapshot
+     */
+    @Override
+    public TransactionSnapshot snapshot() {
+        return snapshots.get();
+    }
+
     /**
      * Set data access object
      *
@@ -118,6 +175,15 @@ public class TransactionService implements ITransactionService{
         this.dao = dao;
     }
 
+    /**
+     * Set change bus
+     *
+     * @param changeBus bus to publish changes to
+     */
+    public void setChangeBus(ChangeBus changeBus) {
+        this.changeBus = changeBus;
+    }
+
     /**
      * Get transactions
      *
@@ -127,8 +193,11 @@ public class TransactionService implements ITransactionService{
     @Override
     public List<Transaction> all() throws RequestFailException {
         try {
+            long update = dao.lastUpdate();
             List<Transaction> transactionList = dao.all(GenericDao.OrderBy.NONE);
             transactions.setAll(transactionList);
+            loaded(transactionList, update);
+            publish(ChangeEvent.Type.BULK, transactionList);
             return transactionList;
         } catch (DaoException e) {
             throw new RequestFailException("Get transactions, " +
@@ -146,8 +215,11 @@ public class TransactionService implements ITransactionService{
     @Override
     public List<Transaction> allDescOrder() throws RequestFailException {
         try {
+            long update = dao.lastUpdate();
             List<Transaction> transactionList = dao.all(GenericDao.OrderBy.DESC);
             transactions.setAll(transactionList);
+            loaded(transactionList, update);
+            publish(ChangeEvent.Type.BULK, transactionList);
             return transactionList;
         } catch (DaoException e) {
             throw new RequestFailException("Get transactions, " +
@@ -165,8 +237,11 @@ public class TransactionService implements ITransactionService{
     @Override
     public List<Transaction> allAscOrder() throws RequestFailException {
         try {
+            long update = dao.lastUpdate();
             List<Transaction> transactionList = dao.all(GenericDao.OrderBy.ASC);
             transactions.setAll(transactionList);
+            loaded(transactionList, update);
+            publish(ChangeEvent.Type.BULK, transactionList);
             return transactionList;
         } catch (DaoException e) {
             throw new RequestFailException("Get transactions, " +
@@ -174,6 +249,74 @@ public class TransactionService implements ITransactionService{
         }
     }
 
+    /**
+     * Refresh transactions list with changes of persistence storage
+     *
+     * <p>Only transactions added after the last loaded id, or changed since the last refresh,
+     * are loaded. Transactions no longer stored are removed. Unchanged transactions are kept,
+     * so list is not modified if storage changes were made through this service.</p>
+     *
+     * @return true if transactions list changed
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public synchronized boolean refresh() throws RequestFailException {
+        if (lastUpdate < 0) {
+            return false;
+        }
+
+        snapshots.hold();
+        try {
+            long update = dao.lastUpdate();
+            List<Transaction> changed = dao.changed(lastId, lastUpdate);
+            List<Transaction> modified = new ArrayList<>();
+
+            // Listed transactions by id
+            Map<Integer, Integer> positions = new HashMap<>();
+            for (int i = 0; i < transactions.size(); i++) {
+                positions.put(transactions.get(i).getId(), i);
+            }
+
+            // Changed transactions
+            List<Transaction> added = new ArrayList<>();
+            for (Transaction transaction : changed) {
+                Integer position = positions.get(transaction.getId());
+                if (position == null) {
+                    added.add(transaction);
+                } else if (!sameContent(transactions.get(position), transaction)) {
+                    transactions.set(position, transaction);
+                    modified.add(transaction);
+                }
+            }
+            if (!added.isEmpty()) {
+                transactions.addAll(added);
+                modified.addAll(added);
+            }
+
+            // Removed transactions, ids are loaded only if some are missing
+            if (dao.count() != transactions.size()) {
+                Set<Integer> ids = dao.ids();
+                for (int i = transactions.size() - 1; i >= 0; i--) {
+                    if (!ids.contains(transactions.get(i).getId())) {
+                        modified.add(transactions.remove(i));
+                    }
+                }
+            }
+
+            loaded(transactions, update);
+            if (modified.isEmpty()) {
+                return false;
+            }
+            publish(ChangeEvent.Type.BULK, modified);
+            return true;
+        } catch (DaoException e) {
+            throw new RequestFailException("Refresh transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        } finally {
+            snapshots.release();
+        }
+    }
+
     /**
      * Get transaction
      *
@@ -200,6 +343,36 @@ public class TransactionService implements ITransactionService{
         }
     }
 
+    /**
+     * Load full description of a transaction loaded with a description preview
+     *
+     * <p>Transaction changes in place, no change is published.</p>
+     *
+     * @param transaction transaction, its description is replaced if partial
+     * @throws NullInputException if transaction is null
+     * @throws EntryNotFoundException if transaction not found
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public void loadDescription(Transaction transaction) throws NullInputException, EntryNotFoundException,
+            RequestFailException {
+        if(transaction == null)
+            throw new NullInputException("Load description failed, transaction is null.");
+
+        if(!transaction.isDescriptionPartial())
+            return;
+
+        try {
+            transaction.setDescription(dao.getDescription(transaction.getId()));
+            snapshots.changed(Collections.singletonList(transaction));
+        } catch (DaoException e) {
+            throw new RequestFailException("Load description, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        } catch (DaoEntryNotFoundException e) {
+            throw new EntryNotFoundException("Load description failed, transaction not found.");
+        }
+    }
+
     /**
      * Add transaction
      *
@@ -226,6 +399,7 @@ public class TransactionService implements ITransactionService{
             int id = dao.add(transaction);
             transaction.setId(id);
             transactions.add(transaction);
+            publish(ChangeEvent.Type.ADDED, Collections.singletonList(transaction));
             return id;
         } catch (DaoException e) {
             throw new RequestFailException("Add transaction, " +
@@ -233,6 +407,50 @@ public class TransactionService implements ITransactionService{
         }
     }
 
+    /**
+     * Add transactions
+     *
+     * <p>Transactions are validated before storing any of them and stored in one batch.
+     * Added transactions are appended to observable list with a single change.</p>
+     *
+     * @param transactions transactions to add
+     * @return added transactions, transactions with an external id already stored are not included
+     * @throws NullInputException if a transaction is null
+     * @throws EmptyInputException if a transaction's name is empty
+     * @throws EmptyDateException if a transaction's date is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public List<Transaction> addAll(List<Transaction> transactions) throws
+            NullInputException, EmptyInputException, EmptyDateException, RequestFailException {
+
+        // Validation
+        if(transactions == null)
+            throw new NullInputException("Adding transactions failed, transactions list is null.");
+        for(Transaction transaction : transactions) {
+            if((transaction == null) || (transaction.getName() == null))
+                throw new NullInputException("Adding transactions failed, transaction is null.");
+            if(transaction.getName().isEmpty())
+                throw new EmptyInputException("Adding transactions failed, transaction's name is empty.");
+            if(transaction.getDate() == null)
+                throw new EmptyDateException("Adding transactions failed, transaction's date is null.");
+        }
+
+        if(transactions.isEmpty())
+            return transactions;
+
+        // Add transactions
+        try {
+            List<Transaction> added = dao.addAll(transactions);
+            this.transactions.addAll(added);
+            publish(ChangeEvent.Type.BULK, added);
+            return added;
+        } catch (DaoException e) {
+            throw new RequestFailException("Add transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
     /**
      * Update transaction
      *
@@ -268,12 +486,25 @@ public class TransactionService implements ITransactionService{
         try {
             dao.update(currentTransaction, updatedTransaction);
 
+            // Transaction changes in place, re-index it
+            if(duplicateDetector != null)
+                duplicateDetector.remove(currentTransaction);
+            views.forEach(view -> view.remove(currentTransaction));
+
+            if(!currentTransaction.getName().equals(updatedTransaction.getName()))
+                CollationKeys.getInstance().invalidate(currentTransaction.getName());
             currentTransaction.setName(updatedTransaction.getName());
             currentTransaction.setDescription(updatedTransaction.getDescription());
             currentTransaction.setDate(updatedTransaction.getDate());
             currentTransaction.setAmount(updatedTransaction.getAmount());
             currentTransaction.setCategory(updatedTransaction.getCategory());
 
+            if(duplicateDetector != null)
+                duplicateDetector.add(currentTransaction);
+            views.forEach(view -> view.add(currentTransaction));
+            snapshots.changed(Collections.singletonList(currentTransaction));
+
+            publish(ChangeEvent.Type.UPDATED, Collections.singletonList(currentTransaction));
         } catch (DaoException e) {
             throw new RequestFailException("Update transaction, " +
                     "persistence storage operation failed: " + e.getMessage());
@@ -307,6 +538,7 @@ public class TransactionService implements ITransactionService{
         try {
             dao.remove(transaction);
             transactions.remove(transaction);
+            publish(ChangeEvent.Type.REMOVED, Collections.singletonList(transaction));
         } catch (DaoException e) {
             throw new RequestFailException("Remove transaction, " +
                     "persistence storage operation failed: " + e.getMessage());
@@ -316,16 +548,25 @@ public class TransactionService implements ITransactionService{
     /**
      * Remove all transactions
      *
+     * <p>Transactions are removed from storage, then transactions list is cleared with a single change,
+     * which duplicates index, aggregate views and snapshots follow.</p>
+     *
      * @throws RequestFailException if persistence storage operation failed
      */
     @Override
     public void removeAll() throws RequestFailException {
+        snapshots.hold();
         try {
             dao.removeAll();
-            transactions.removeAll();
+
+            List<Transaction> removedTransactions = new ArrayList<>(transactions);
+            transactions.clear();
+            publish(ChangeEvent.Type.REMOVED, removedTransactions);
         } catch (DaoException e) {
             throw new RequestFailException("Remove all transactions, " +
                     "persistence storage operation failed: " + e.getMessage());
+        } finally {
+            snapshots.release();
         }
     }
 
@@ -380,6 +621,622 @@ public class TransactionService implements ITransactionService{
         }
     }
 
+    /**
+     * Stream stored transactions
+     *
+     * @param start stream transactions since date, null for no lower limit
+     * @param end stream transactions until date, null for no upper limit
+     * @param category stream only transactions of category, null for all categories
+     * @param handler rows handler
+     * @return number of streamed transactions
+     * @throws RequestFailException if persistence storage operation failed
+     * @throws IOException if handler failed
+     */
+    @Override
+    public long stream(LocalDate start, LocalDate end, Category category, TransactionRowHandler handler)
+            throws RequestFailException, IOException {
+        try {
+            return dao.stream(start, end, category, handler);
+        } catch (DaoException e) {
+            throw new RequestFailException("Stream transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get stored transactions amount summaries per category
+     *
+     * @param start summaries since date, null for no lower limit
+     * @param end summaries until date, null for no upper limit
+     * @return amounts summaries in cents, mapped by category id
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public Map<Integer, Long> categoryTotals(LocalDate start, LocalDate end) throws RequestFailException {
+        try {
+            return dao.getCategoryTotals(start, end);
+        } catch (DaoException e) {
+            throw new RequestFailException("Category totals, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count stored transactions of category
+     *
+     * @param category transactions' category
+     * @return number of transactions
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int count(Category category) throws NullInputException, RequestFailException {
+        if(category == null)
+            throw new NullInputException("Count transactions failed, category is null.");
+
+        try {
+            return dao.count(category);
+        } catch (DaoException e) {
+            throw new RequestFailException("Count transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get stored transactions amount summary of category
+     *
+     * @param category transactions' category
+     * @return amount summary in cents
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public long totalAmount(Category category) throws NullInputException, RequestFailException {
+        if(category == null)
+            throw new NullInputException("Total amount failed, category is null.");
+
+        try {
+            return dao.getTotalAmount(category);
+        } catch (DaoException e) {
+            throw new RequestFailException("Total amount, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get payees with highest stored transactions amount summaries
+     *
+     * @param start summaries since date, null for no lower limit
+     * @param end summaries until date, null for no upper limit
+     * @param limit maximum number of payees
+     * @return amounts summaries in cents mapped by payee's name, highest first
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public Map<String, Long> topPayees(LocalDate start, LocalDate end, int limit) throws RequestFailException {
+        try {
+            return dao.getPayeeTotals(start, end, limit);
+        } catch (DaoException e) {
+            throw new RequestFailException("Top payees, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get stored transactions matching query
+     *
+     * <p>Same transactions are matched on a loaded list by {@link TransactionQuery#apply(Collection)},
+     * if descriptions are loaded in full, otherwise listed transactions are matched by
+     * {@link #filter(TransactionQuery)}.</p>
+     *
+     * @param query transaction query
+     * @return matching transactions, sorted and limited as query defines
+     * @throws NullInputException if query is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public List<Transaction> query(TransactionQuery query) throws NullInputException, RequestFailException {
+        if(query == null)
+            throw new NullInputException("Query transactions failed, query is null.");
+
+        try {
+            return dao.query(query);
+        } catch (DaoException e) {
+            throw new RequestFailException("Query transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create predicate matching listed transactions of query
+     *
+     * <p>Query's predicate is used, unless text is queried and descriptions are listed partially, whose text
+     * past preview would not be matched. Transactions with partial descriptions are then matched by id,
+     * against stored transactions matching query's criteria.</p>
+     *
+     * @param query transaction query, sort order and limit are not applied
+     * @return listed transactions predicate
+     * @throws NullInputException if query is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public Predicate<Transaction> filter(TransactionQuery query) throws NullInputException, RequestFailException {
+        if(query == null)
+            throw new NullInputException("Filter transactions failed, query is null.");
+
+        Predicate<Transaction> predicate = query.predicate();
+        if(query.getText() == null || transactions.stream().noneMatch(Transaction::isDescriptionPartial))
+            return predicate;
+
+        Set<Integer> matching = new HashSet<>();
+        for(Transaction transaction : query(query.criteria()))
+            matching.add(transaction.getId());
+
+        return transaction -> transaction.isDescriptionPartial() ?
+                matching.contains(transaction.getId()) : predicate.test(transaction);
+    }
+
+    /**
+     * Get saved smart views
+     *
+     * @return smart views, ordered by name
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public List<SmartView> smartViews() throws RequestFailException {
+        try {
+            return dao.smartViews();
+        } catch (DaoException e) {
+            throw new RequestFailException("Get smart views, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Save smart view, replacing a view with the same name
+     *
+     * @param view smart view to save
+     * @throws NullInputException if view, its name or its query is null
+     * @throws EmptyInputException if view's name is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public void saveSmartView(SmartView view) throws NullInputException, EmptyInputException, RequestFailException {
+        // Validation
+        if((view == null) || (view.getName() == null) || (view.getQuery() == null))
+            throw new NullInputException("Save smart view failed, view is null.");
+        if(view.getName().trim().isEmpty())
+            throw new EmptyInputException("Save smart view failed, view's name is empty.");
+
+        try {
+            dao.saveSmartView(view);
+        } catch (DaoException e) {
+            throw new RequestFailException("Save smart view, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove smart view
+     *
+     * @param name view's name
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public void removeSmartView(String name) throws RequestFailException {
+        try {
+            dao.removeSmartView(name);
+        } catch (DaoException e) {
+            throw new RequestFailException("Remove smart view, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Keep last loaded id and change time
+     *
+     * @param loaded loaded transactions
+     * @param update latest change time, read before loading
+     */
+    private synchronized void loaded(List<Transaction> loaded, long update) {
+        int id = 0;
+        for (Transaction transaction : loaded) {
+            id = Math.max(id, transaction.getId());
+        }
+        lastId = id;
+        lastUpdate = update;
+    }
+
+    /**
+     * Publish change of transactions
+     *
+     * @param type change type
+     * @param changed changed transactions
+     */
+    private void publish(ChangeEvent.Type type, List<Transaction> changed) {
+        changeBus.publish(new ChangeEvent<>(this, Transaction.class, type, changed));
+    }
+
+    /**
+     * Check if transactions have the same content
+     *
+     * @param transaction listed transaction
+     * @param other loaded transaction
+     * @return true if every field is equal
+     */
+    private static boolean sameContent(Transaction transaction, Transaction other) {
+        return transaction.getId() == other.getId() &&
+                transaction.getAmount() == other.getAmount() &&
+                Objects.equals(transaction.getName(), other.getName()) &&
+                Objects.equals(transaction.getDescription(), other.getDescription()) &&
+                Objects.equals(transaction.getDate(), other.getDate()) &&
+                Objects.equals(transaction.getCategory(), other.getCategory()) &&
+                (transaction.getCategory() == null || transaction.getCategory().getId() == other.getCategory().getId());
+    }
+
+    /**
+     * Check if transaction is a duplicate
+     *
+     * <p>Duplicates index is loaded on first check, then follows transactions list.</p>
+     *
+     * @param transaction transaction to check
+     * @return true if a transaction with same date, amount and normalized name is already listed
+     */
+    @Override
+    public boolean isDuplicate(Transaction transaction) {
+        if(duplicateDetector == null)
+            duplicateDetector = new DuplicateDetector(transactions);
+
+        return duplicateDetector.isDuplicate(transaction);
+    }
+
+    /**
+     * Register aggregate view
+     *
+     * <p>View's amount summary and count are calculated once, then follow transactions changes.</p>
+     *
+     * @param filter transactions to aggregate
+     * @return aggregate view
+     */
+    @Override
+    public AggregateView createView(Predicate<Transaction> filter) {
+        AggregateView view = new AggregateView(transactions, filter);
+        views.add(view);
+        return view;
+    }
+
+    /**
+     * Remove aggregate view
+     *
+     * @param view view to stop maintaining
+     */
+    @Override
+    public void removeView(AggregateView view) {
+        if(views.remove(view))
+            view.detach();
+    }
+
+    /**
+     * Create payee matcher
+     *
+     * <p>Matcher is a snapshot, it does not follow later changes of transactions.</p>
+     *
+     * @return payee matcher of listed transactions' names
+     */
+    @Override
+    public PayeeMatcher createPayeeMatcher() {
+        PayeeMatcher matcher = new PayeeMatcher();
+        for(Transaction transaction : transactions) {
+            matcher.add(transaction.getName());
+        }
+        return matcher;
+    }
+
+    /**
+     * Merge category into another
+     *
+     * <p>Transactions are moved and source category is removed in storage as a single unit,
+     * then listed transactions of source category are moved to target category.</p>
+     *
+     * @param source category to merge and remove
+     * @param target category to merge into
+     * @return number of moved transactions
+     * @throws NullInputException if a category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int mergeCategory(Category source, Category target) throws NullInputException, RequestFailException {
+        // Validation
+        if((source == null) || (target == null))
+            throw new NullInputException("Merge category failed, category is null.");
+
+        // Move transactions
+        try {
+            int moved = dao.mergeCategory(source, target);
+
+            List<Transaction> movedTransactions = new ArrayList<>();
+            for(Transaction transaction : transactions) {
+                if(transaction.getCategory() != null && transaction.getCategory().getId() == source.getId()) {
+                    movedTransactions.add(transaction);
+                    views.forEach(view -> view.remove(transaction));
+
+                    transaction.setCategory(target);
+
+                    views.forEach(view -> view.add(transaction));
+                }
+            }
+            snapshots.changed(movedTransactions);
+            if(!movedTransactions.isEmpty())
+                publish(ChangeEvent.Type.BULK, movedTransactions);
+            return moved;
+        } catch (DaoException e) {
+            throw new RequestFailException("Merge category, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove category and its transactions
+     *
+     * <p>Category and its transactions are removed from storage as a single unit, then listed transactions
+     * of category are removed with a single change, which duplicates index, aggregate views and snapshots
+     * follow.</p>
+     *
+     * @param category category to remove
+     * @return number of removed transactions
+     * @throws NullInputException if category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int removeCategory(Category category) throws NullInputException, RequestFailException {
+        // Validation
+        if(category == null)
+            throw new NullInputException("Remove category failed, category is null.");
+
+        try {
+            int removed = dao.removeCategory(category);
+
+            List<Transaction> removedTransactions = new ArrayList<>();
+            for(Transaction transaction : transactions) {
+                if(transaction.getCategory() != null && transaction.getCategory().getId() == category.getId())
+                    removedTransactions.add(transaction);
+            }
+            if(!removedTransactions.isEmpty()) {
+                transactions.removeAll(new HashSet<>(removedTransactions));
+                publish(ChangeEvent.Type.REMOVED, removedTransactions);
+            }
+            return removed;
+        } catch (DaoException e) {
+            throw new RequestFailException("Remove category, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Change category of transactions
+     *
+     * <p>Transactions are changed in storage as a single unit, then changed in place and re-indexed,
+     * published as one change.</p>
+     *
+     * @param transactions listed transactions to change
+     * @param category new category
+     * @return number of changed transactions
+     * @throws NullInputException if transactions or category is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int recategorize(Collection<Transaction> transactions, Category category) throws
+            NullInputException, RequestFailException {
+
+        // Validation
+        if((transactions == null) || (category == null))
+            throw new NullInputException("Recategorize transactions failed, input is null.");
+        if(transactions.isEmpty())
+            return 0;
+
+        try {
+            int changed = dao.recategorize(transactions, category);
+
+            List<Transaction> changedTransactions = new ArrayList<>(transactions);
+            for(Transaction transaction : changedTransactions) {
+                views.forEach(view -> view.remove(transaction));
+
+                transaction.setCategory(category);
+
+                views.forEach(view -> view.add(transaction));
+            }
+            snapshots.changed(changedTransactions);
+            publish(ChangeEvent.Type.BULK, changedTransactions);
+            return changed;
+        } catch (DaoException e) {
+            throw new RequestFailException("Recategorize transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shift dates of transactions
+     *
+     * <p>Transactions are changed in storage as a single unit, then changed in place and re-indexed,
+     * published as one change.</p>
+     *
+     * @param transactions listed transactions to change
+     * @param days days to shift dates by, negative to shift them back
+     * @return number of changed transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int shiftDates(Collection<Transaction> transactions, int days) throws
+            NullInputException, RequestFailException {
+
+        // Validation
+        if(transactions == null)
+            throw new NullInputException("Shift dates failed, transactions is null.");
+        if(transactions.isEmpty() || (days == 0))
+            return 0;
+
+        try {
+            int shifted = dao.shiftDates(transactions, days);
+
+            List<Transaction> shiftedTransactions = new ArrayList<>(transactions);
+            for(Transaction transaction : shiftedTransactions) {
+                if(duplicateDetector != null)
+                    duplicateDetector.remove(transaction);
+                views.forEach(view -> view.remove(transaction));
+
+                transaction.setDate(transaction.getDate().plusDays(days));
+
+                if(duplicateDetector != null)
+                    duplicateDetector.add(transaction);
+                views.forEach(view -> view.add(transaction));
+            }
+            snapshots.changed(shiftedTransactions);
+            publish(ChangeEvent.Type.BULK, shiftedTransactions);
+            return shifted;
+        } catch (DaoException e) {
+            throw new RequestFailException("Shift dates, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove transactions
+     *
+     * <p>Transactions are removed from storage as a single unit, then from transactions list with a
+     * single change, which duplicates index, aggregate views and snapshots follow.</p>
+     *
+     * @param transactions listed transactions to remove
+     * @return number of removed transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int remove(Collection<Transaction> transactions) throws NullInputException, RequestFailException {
+        // Validation
+        if(transactions == null)
+            throw new NullInputException("Remove transactions failed, transactions is null.");
+        if(transactions.isEmpty())
+            return 0;
+
+        try {
+            List<Transaction> removedTransactions = new ArrayList<>(transactions);
+            int removed = dao.remove(removedTransactions);
+
+            this.transactions.removeAll(new HashSet<>(removedTransactions));
+            publish(ChangeEvent.Type.REMOVED, removedTransactions);
+            return removed;
+        } catch (DaoException e) {
+            throw new RequestFailException("Remove transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get transactions in trash
+     *
+     * @return soft deleted transactions, latest deleted first
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public List<Transaction> trash() throws RequestFailException {
+        try {
+            return dao.trash();
+        } catch (DaoException e) {
+            throw new RequestFailException("Load trash, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restore transactions from trash
+     *
+     * <p>Transactions are restored in storage as a single unit, then appended to transactions list with a
+     * single change, which duplicates index, aggregate views and snapshots follow. Transactions no longer
+     * in trash, purged or restored meanwhile, are not appended.</p>
+     *
+     * @param transactions transactions in trash to restore
+     * @return number of restored transactions
+     * @throws NullInputException if transactions is null
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int restore(Collection<Transaction> transactions) throws NullInputException, RequestFailException {
+        // Validation
+        if(transactions == null)
+            throw new NullInputException("Restore transactions failed, transactions is null.");
+        if(transactions.isEmpty())
+            return 0;
+
+        try {
+            List<Transaction> restored = dao.restore(new ArrayList<>(transactions));
+
+            this.transactions.addAll(restored);
+            publish(ChangeEvent.Type.ADDED, restored);
+            return restored.size();
+        } catch (DaoException e) {
+            throw new RequestFailException("Restore transactions, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Merge transaction names
+     *
+     * <p>Transactions are renamed in storage as a single unit, then listed transactions are renamed.</p>
+     *
+     * @param names names to merge
+     * @param name merged name
+     * @return number of renamed transactions
+     * @throws NullInputException if names or name is null
+     * @throws EmptyInputException if merged name is empty
+     * @throws RequestFailException if persistence storage operation failed
+     */
+    @Override
+    public int mergeNames(Collection<String> names, String name) throws
+            NullInputException, EmptyInputException, RequestFailException {
+
+        // Validation
+        if((names == null) || (name == null))
+            throw new NullInputException("Merge names failed, name is null.");
+        if(name.isEmpty())
+            throw new EmptyInputException("Merge names failed, merged name is empty.");
+
+        Set<String> merged = new HashSet<>(names);
+        merged.remove(name);
+        if(merged.isEmpty())
+            return 0;
+
+        // Rename transactions
+        try {
+            int renamed = dao.rename(merged, name);
+
+            List<Transaction> renamedTransactions = new ArrayList<>();
+            for(Transaction transaction : transactions) {
+                if(merged.contains(transaction.getName())) {
+                    renamedTransactions.add(transaction);
+                    if(duplicateDetector != null)
+                        duplicateDetector.remove(transaction);
+                    views.forEach(view -> view.remove(transaction));
+
+                    transaction.setName(name);
+
+                    if(duplicateDetector != null)
+                        duplicateDetector.add(transaction);
+                    views.forEach(view -> view.add(transaction));
+                }
+            }
+            merged.forEach(CollationKeys.getInstance()::invalidate);
+            snapshots.changed(renamedTransactions);
+            if(!renamedTransactions.isEmpty())
+                publish(ChangeEvent.Type.BULK, renamedTransactions);
+            return renamed;
+        } catch (DaoException e) {
+            throw new RequestFailException("Merge names, " +
+                    "persistence storage operation failed: " + e.getMessage());
+        }
+    }
+
     /**
      * Filter list and get total amount
      *
@@ -471,28 +1328,24 @@ public class TransactionService implements ITransactionService{
     /**
      * Calculate total amount
      *
+     * <p>Calculated on latest snapshot of transactions list, so it can be called on any thread.</p>
+     *
      * @return total amount
      */
     public double calculateTotal() {
-        synchronized (this) {
-            return transactions.stream().mapToDouble(Transaction::getAmount).sum() / 100d;
-        }
+        return snapshot().sum(null, null) / 100d;
     }
 
     /**
      * Calculate total amount
      *
+     * <p>Calculated on latest snapshot of transactions list, so it can be called on any thread.</p>
+     *
      * @param since since date
      * @param until until date
      * @return total amount
      */
     public double calculateTotal(LocalDate since, LocalDate until) {
-        synchronized (this) {
-            return transactions.stream()
-                    .filter(transaction -> (
-                            transaction.getDate()
-                                    .isAfter(since.minusDays(1)) && transaction.getDate().isBefore(until.plusDays(1))))
-                    .mapToDouble(Transaction::getAmount).sum() / 100d;
-        }
+        return snapshot().sum(since, until) / 100d;
     }
-}
\ No newline at end of file
+}
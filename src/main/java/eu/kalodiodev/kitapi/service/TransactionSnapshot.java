@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Transactions Snapshot
+ *
+ * <p>Immutable, versioned copy of a ledger's transactions list, so reports and exports can iterate
+ * transactions on any thread, without locking, while the list keeps changing. Snapshot's transactions
+ * are copies of listed transactions and must not be modified.</p>
+ *
+ * <p>Transactions are kept in fixed size chunks. A new version copies only the chunks from the first
+ * changed position on and shares the rest with the previous version, so appending a transaction
+ * copies a single chunk.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public final class TransactionSnapshot {
+
+    /**
+     * Number of transactions per chunk
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Empty snapshot, version 0
+     */
+    static final TransactionSnapshot EMPTY = new TransactionSnapshot(0, new Transaction[0][], 0);
+
+    private final long version;
+    private final Transaction[][] chunks;
+    private final int size;
+
+    private TransactionSnapshot(long version, Transaction[][] chunks, int size) {
+        this.version = version;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Get version, increased on every change of transactions list
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get number of transactions
+     *
+     * @return transactions count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get transaction
+     *
+     * @param index transaction's position in list
+     * @return transaction's copy
+     */
+    public Transaction get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+    }
+
+    /**
+     * Get transactions
+     *
+     * @return unmodifiable list of transactions' copies, in list's order
+     */
+    public List<Transaction> getTransactions() {
+        return new Transactions();
+    }
+
+    /**
+     * Calculate amount summary of matching transactions
+     *
+     * @param filter transactions to sum, see {@link AggregateView#filter}
+     * @return amount summary in cents
+     */
+    public long sum(Predicate<Transaction> filter) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            Transaction transaction = chunks[i / CHUNK_SIZE][i % CHUNK_SIZE];
+            if (filter.test(transaction)) {
+                sum += transaction.getAmount();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Calculate amount summary of transactions of a period
+     *
+     * @param start transactions since date, null for no lower limit
+     * @param end transactions until date, null for no upper limit
+     * @return amount summary in cents
+     */
+    public long sum(LocalDate start, LocalDate end) {
+        return sum(AggregateView.filter(null, start, end));
+    }
+
+    /**
+     * Create next version
+     *
+     * <p>Chunks before the one containing {@code from} are shared, the rest are rebuilt from
+     * listed transactions.</p>
+     *
+     * @param from first changed position
+     * @param listed transactions list, as changed
+     * @param copy gets copy of a listed transaction
+     * @return next version
+     */
+    TransactionSnapshot next(int from, List<Transaction> listed, Function<Transaction, Transaction> copy) {
+        int newSize = listed.size();
+        int shared = Math.min(Math.max(from, 0), Math.min(size, newSize)) / CHUNK_SIZE;
+
+        Transaction[][] newChunks = Arrays.copyOf(chunks, (newSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int c = shared; c < newChunks.length; c++) {
+            int start = c * CHUNK_SIZE;
+            Transaction[] chunk = new Transaction[Math.min(CHUNK_SIZE, newSize - start)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = copy.apply(listed.get(start + i));
+            }
+            newChunks[c] = chunk;
+        }
+        return new TransactionSnapshot(version + 1, newChunks, newSize);
+    }
+
+    /**
+     * Snapshot's transactions as list
+     */
+    private class Transactions extends AbstractList<Transaction> implements RandomAccess {
+
+        @Override
+        public Transaction get(int index) {
+            return TransactionSnapshot.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.dao.TransactionDao;
+import eu.kalodiodev.kitapi.exceptions.DaoException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trash Purger
+ *
+ * <p>Periodically deletes transactions kept in trash longer than the retention period. Transactions are
+ * deleted in chunks of limited size, each in its own short statement, so the database is not held by a
+ * long delete while the application is used.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class TrashPurger {
+
+    private final List<TransactionDao> daos;
+    private final long retention;
+    private final int chunk;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Trash purger constructor
+     *
+     * @param retention how long transactions are kept in trash
+     * @param unit retention's time unit
+     * @param chunk maximum number of transactions deleted at once
+     * @param daos transaction daos of purged trash
+     */
+    public TrashPurger(long retention, TimeUnit unit, int chunk, TransactionDao... daos) {
+        this.daos = Arrays.asList(daos);
+        this.retention = unit.toMillis(retention);
+        this.chunk = chunk;
+    }
+
+    /**
+     * Purge periodically in the background
+     *
+     * @param period period between purges
+     * @param unit period's time unit
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        stop();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trash-purger");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (DaoException e) {
+                System.out.println("Couldn't purge trash: " + e.getMessage());
+            }
+        }, 0, unit.toMillis(period), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop purging
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Purge transactions kept in trash longer than the retention period
+     *
+     * <p>Chunks are purged until one is not full, daos are released between chunks.</p>
+     *
+     * @return number of purged transactions
+     * @throws DaoException if database query failed
+     */
+    public int purge() throws DaoException {
+        long deletedBefore = System.currentTimeMillis() - retention;
+
+        int purged = 0;
+        for (TransactionDao dao : daos) {
+            int chunkPurged;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    return purged;
+                }
+                chunkPurged = dao.purge(deletedBefore, chunk);
+                purged += chunkPurged;
+            } while (chunkPurged == chunk);
+        }
+        return purged;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.utils;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Collation Keys Cache
+ *
+ * <p>Caches collation keys of names, so sorting by name compares precomputed keys as plain
+ * bytes instead of collating both strings on every comparison. Keys are cached per name,
+ * renamed entries should invalidate their old name's key.</p>
+ *
+ * <p>Application's cache collates in locale of {@link LanguageResource}.</p>
+ *
+ * @author Raptodimos Thanos
+ */
+public class CollationKeys {
+
+    public static final int DEFAULT_MAX_KEYS = 65536;
+
+    private static CollationKeys instance;
+
+    private final Locale locale;
+    private final Collator collator;
+    private final int maxKeys;
+
+    private final Map<String, CollationKey> keys = new HashMap<>();
+
+    /**
+     * Collation keys constructor
+     *
+     * @param locale collator's locale
+     * @param maxKeys maximum number of cached keys, cache is cleared beyond it
+     */
+    public CollationKeys(Locale locale, int maxKeys) {
+        this.locale = locale;
+        this.collator = Collator.getInstance(locale);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Get application's collation keys
+     *
+     * <p>A new cache is created when locale of language resource changed.</p>
+     *
+     * @return collation keys of language resource's locale
+     */
+    public static synchronized CollationKeys getInstance() {
+        Locale locale = LanguageResource.getLocale();
+        if (instance == null || !instance.locale.equals(locale)) {
+            instance = new CollationKeys(locale, DEFAULT_MAX_KEYS);
+        }
+        return instance;
+    }
+
+    /**
+     * Get collator's locale
+     *
+     * @return locale
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Get collation key of name, computed once
+     *
+     * @param name name
+     * @return collation key, null if name is null
+     */
+    public synchronized CollationKey key(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        CollationKey key = keys.get(name);
+        if (key == null) {
+            if (keys.size() >= maxKeys) {
+                keys.clear();
+            }
+            // Collator is not thread safe, keys are computed holding the cache
+            key = collator.getCollationKey(name);
+            keys.put(name, key);
+        }
+        return key;
+    }
+
+    /**
+     * Invalidate key of a name no longer used, i.e. old name of a renamed entry
+     *
+     * @param name name
+     */
+    public synchronized void invalidate(String name) {
+        if (name != null) {
+            keys.remove(name);
+        }
+    }
+
+    /**
+     * Get number of cached keys
+     *
+     * @return cached keys
+     */
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    /**
+     * Compare names by their collation keys, null names first
+     *
+     * @param name1 first name
+     * @param name2 second name
+     * @return negative, zero or positive as first name sorts before, equal or after second
+     */
+    public int compare(String name1, String name2) {
+        if (name1 == null || name2 == null) {
+            return name1 == null ? (name2 == null ? 0 : -1) : 1;
+        }
+        return key(name1).compareTo(key(name2));
+    }
+
+    /**
+     * Comparator of names
+     *
+     * @return names comparator
+     */
+    public Comparator<String> comparator() {
+        return this::compare;
+    }
+
+    /**
+     * Comparator of entries by name
+     *
+     * @param name entry's name
+     * @param <T> entry type
+     * @return entries comparator
+     */
+    public <T> Comparator<T> comparing(Function<? super T, String> name) {
+        return (o1, o2) -> compare(name.apply(o1), name.apply(o2));
+    }
+}
@@ -17,6 +17,7 @@
 package eu.kalodiodev.kitapi.utils;
 
 
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 /**
@@ -41,4 +42,14 @@ public class LanguageResource {
     public static ResourceBundle getResource() {
         return ResourceBundle.getBundle(source);
     }
+
+    /**
+     * Get locale of resource bundle
+     *
+     * @return bundle's locale, english for default strings
+     */
+    public static Locale getLocale() {
+        Locale locale = getResource().getLocale();
+        return locale.getLanguage().isEmpty() ? Locale.ENGLISH : locale;
+    }
 }
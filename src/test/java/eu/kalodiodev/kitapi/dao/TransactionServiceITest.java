@@ -16,17 +16,32 @@
 
 package eu.kalodiodev.kitapi.dao;
 
+import eu.kalodiodev.kitapi.db.CompactionService;
 import eu.kalodiodev.kitapi.db.SqliteDatabase;
+import eu.kalodiodev.kitapi.db.YearPartitions;
 import eu.kalodiodev.kitapi.exceptions.*;
 import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.SmartView;
 import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.model.TransactionQuery;
+import eu.kalodiodev.kitapi.service.AggregateView;
 import eu.kalodiodev.kitapi.service.CategoryService;
+import eu.kalodiodev.kitapi.service.ChangeBus;
+import eu.kalodiodev.kitapi.service.ChangeEvent;
 import eu.kalodiodev.kitapi.service.TransactionService;
+import eu.kalodiodev.kitapi.service.TransactionSnapshot;
 import org.junit.Rule;
 import org.junit.rules.ExpectedException;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -54,6 +69,7 @@ abstract public class TransactionServiceITest {
     TransactionServiceITest(TransactionDao transactionDao, CategoryDao categoryDao) {
         this.transactionService.setDao(transactionDao);
         this.categoryService.setDao(categoryDao);
+        this.categoryService.setTransactionService(transactionService);
     }
 
     /**
@@ -142,6 +158,136 @@ abstract public class TransactionServiceITest {
         addTransaction("", "Test 1 Transaction", LocalDate.now(), 110, category);
     }
 
+    /**
+     * Add Transactions Test
+     *
+     * Transactions are added in batch, transactions with an external id already stored are skipped
+     */
+    @org.junit.Test
+    public void addAll() throws RequestFailException, NullInputException, DuplicateEntryException,
+            EmptyInputException, EmptyDateException, EntryNotFoundException, InvalidIdException {
+
+        // Add Category
+        Category category = addCategory("Test Category", "My Test Category");
+
+        // Transaction already imported
+        Transaction imported = newTransaction("Test 1", "Test 1 Transaction", LocalDate.now(), 110, category);
+        imported.setExternalId("FITID-1");
+        transactionService.addAll(Collections.singletonList(imported));
+
+        // Batch with same external id and two new transactions
+        Transaction duplicate = newTransaction("Test 1", "Test 1 Transaction", LocalDate.now(), 110, category);
+        duplicate.setExternalId("FITID-1");
+        Transaction transaction2 = newTransaction("Test 2", "Test 2 Transaction", LocalDate.now(), 120, category);
+        transaction2.setExternalId("FITID-2");
+        Transaction transaction3 = newTransaction("Test 3", "Test 3 Transaction", LocalDate.now(), 130, category);
+
+        List<Transaction> added = transactionService.addAll(Arrays.asList(duplicate, transaction2, transaction3));
+
+        //Assertions
+        assertEquals("Transaction with stored external id should be skipped.", 2, added.size());
+        assertEquals("Should be three transactions in table.", 3, transactionService.count());
+        assertEquals("Added transaction should be stored.", transaction2, transactionService.get(transaction2.getId()));
+        assertEquals("Added transaction should be stored.", transaction3, transactionService.get(transaction3.getId()));
+        assertEquals("Observable list should contain added transactions.",
+                3, transactionService.getObservableList().getSource().size());
+    }
+
+    /**
+     * Duplicate Transaction Test
+     *
+     * Transactions with same date, amount and normalized name are duplicates
+     */
+    @org.junit.Test
+    public void isDuplicate() throws RequestFailException, NullInputException, DuplicateEntryException,
+            EmptyInputException, EmptyDateException, EntryNotFoundException {
+
+        // Add Category
+        Category category = addCategory("Test Category", "My Test Category");
+
+        // Add Transaction
+        Transaction transaction = addTransaction("Caf\u00e9 Central", "Coffee", LocalDate.of(2017, 3, 15), 3, category);
+
+        //Assertions
+        assertTrue("Name differing in case, accents and punctuation should be duplicate.",
+                transactionService.isDuplicate(newTransaction("CAFE  central.", "", LocalDate.of(2017, 3, 15), 3, category)));
+        assertFalse("Transaction with different amount should not be duplicate.",
+                transactionService.isDuplicate(newTransaction("Cafe Central", "", LocalDate.of(2017, 3, 15), 4, category)));
+
+        // Update transaction, index should follow
+        Transaction updated = newTransaction("Bakery", "Bread", LocalDate.of(2017, 3, 15), 3, category);
+        transactionService.update(transaction, updated);
+        assertFalse("Updated transaction's old values should not be duplicate.",
+                transactionService.isDuplicate(newTransaction("Cafe Central", "", LocalDate.of(2017, 3, 15), 3, category)));
+        assertTrue("Updated transaction's new values should be duplicate.",
+                transactionService.isDuplicate(newTransaction("bakery", "", LocalDate.of(2017, 3, 15), 3, category)));
+
+        // Remove transaction
+        transactionService.remove(transaction);
+        assertFalse("Removed transaction should not be duplicate.",
+                transactionService.isDuplicate(newTransaction("Bakery", "", LocalDate.of(2017, 3, 15), 3, category)));
+    }
+
+    /**
+     * Merge Names Test
+     *
+     * Transactions named with merged names are renamed, in storage and in list
+     */
+    @org.junit.Test
+    public void mergeNames() throws RequestFailException, NullInputException, DuplicateEntryException,
+            EmptyInputException, EmptyDateException, EntryNotFoundException, InvalidIdException {
+
+        // Add Category
+        Category category = addCategory("Test Category", "My Test Category");
+
+        // Add Transactions
+        Transaction transaction1 = addTransaction("AMAZON MKTPLACE 1234", "", LocalDate.now(), 10, category);
+        Transaction transaction2 = addTransaction("Amazon Mktplace", "", LocalDate.now(), 20, category);
+        Transaction transaction3 = addTransaction("Bakery", "", LocalDate.now(), 30, category);
+
+        int renamed = transactionService.mergeNames(
+                Arrays.asList("AMAZON MKTPLACE 1234", "Amazon Mktplace"), "Amazon Marketplace");
+
+        //Assertions
+        assertEquals("Two transactions should be renamed.", 2, renamed);
+        assertEquals("Listed transaction should be renamed.", "Amazon Marketplace", transaction1.getName());
+        assertEquals("Stored transaction should be renamed.",
+                "Amazon Marketplace", transactionService.get(transaction2.getId()).getName());
+        assertEquals("Other transactions should not be renamed.",
+                "Bakery", transactionService.get(transaction3.getId()).getName());
+    }
+
+    /**
+     * Stream Transactions Test
+     *
+     * Streamed rows are filtered by period and category and ordered by date
+     */
+    @org.junit.Test
+    public void stream() throws RequestFailException, NullInputException, DuplicateEntryException,
+            EmptyInputException, EmptyDateException, IOException {
+
+        // Add Categories
+        Category category = addCategory("Test Category", "My Test Category");
+        Category otherCategory = addCategory("Other Category", "My Other Category");
+
+        // Add Transactions
+        addTransaction("Test 2", "", LocalDate.of(2017, 3, 20), 20, category);
+        addTransaction("Test 1", "", LocalDate.of(2017, 3, 1), 10, category);
+        addTransaction("Test 3", "", LocalDate.of(2017, 4, 1), 30, category);
+        addTransaction("Test 4", "", LocalDate.of(2017, 3, 10), 40, otherCategory);
+
+        List<String> rows = new ArrayList<>();
+        long count = transactionService.stream(LocalDate.of(2017, 3, 1), LocalDate.of(2017, 3, 31), category,
+                row -> rows.add(row.getName() + " " + LocalDate.ofEpochDay(row.getEpochDay()) + " " +
+                        row.getAmount() + " " + row.getCategoryName()));
+
+        //Assertions
+        assertEquals("Two transactions should be streamed.", 2, count);
+        assertEquals(Arrays.asList("Test 1 2017-03-01 1000 Test Category", "Test 2 2017-03-20 2000 Test Category"), rows);
+        assertEquals("All transactions should be streamed without filters.",
+                4, transactionService.stream(null, null, null, row -> { }));
+    }
+
     /**
      * Delete Transaction Test
      */
@@ -453,6 +599,805 @@ abstract public class TransactionServiceITest {
                 transactionService.calculateTotal(LocalDate.now().minusDays(1), LocalDate.now()),0.1);
     }
 
+    /**
+     * Year Partitions Test
+     *
+     * Transactions of a partitioned year are read, updated, removed and cascaded as before,
+     * closed years are read-only
+     */
+    @org.junit.Test
+    public void partitionedYear() throws Exception {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        int year = lastYear.getYear();
+
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        Transaction transaction1 = addTransaction("Test 1", "Test 1 Transaction", lastYear, 100, category);
+        Transaction transaction2 = addTransaction("Test 2", "Test 2 Transaction", LocalDate.now(), 135, category);
+
+        try {
+            assertTrue("Year should be partitioned.", YearPartitions.partition(year));
+            assertTrue(YearPartitions.isPartitioned(year));
+
+            assertEquals(2, transactionService.count());
+            assertEquals(transaction1, transactionService.get(transaction1.getId()));
+            assertEquals(235, transactionService.calculateTotal(), 0.1);
+            assertEquals(100, transactionService.calculateTotal(
+                    LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31)), 0.1);
+
+            // Move transaction to partitioned year
+            Transaction updated = newTransaction("Test 2", "Test 2 Transaction", lastYear, 135, category);
+            updated.setId(transaction2.getId());
+            transactionService.update(transaction2, updated);
+            assertEquals(235, transactionService.calculateTotal(
+                    LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31)), 0.1);
+            assertEquals(0, transactionService.calculateTotal(LocalDate.now(), LocalDate.now()), 0.1);
+
+            // Transaction added to partitioned year
+            addTransaction("Test 3", "Test 3 Transaction", lastYear, 200, category);
+            transactionService.remove(transaction1);
+            assertEquals(2, transactionService.count());
+
+            // Removed category is cascaded to partition
+            Category otherCategory = addCategory("Other", "Other Category");
+            addTransaction("Test 5", "Test 5 Transaction", lastYear, 10, otherCategory);
+            assertEquals(3, transactionService.count());
+            categoryService.remove(otherCategory);
+            assertEquals(2, transactionService.count());
+
+            // Closed year is read-only
+            YearPartitions.close(year);
+            try {
+                addTransaction("Test 4", "Test 4 Transaction", lastYear, 50, category);
+                fail("Transactions of closed year should not be added.");
+            } catch (RequestFailException e) {
+                assertEquals(2, transactionService.count());
+            }
+
+            // Category with transactions of closed year is not removed
+            try {
+                categoryService.remove(category);
+                fail("Category with transactions of closed year should not be removed.");
+            } catch (RequestFailException e) {
+                assertEquals(2, transactionService.count());
+            }
+
+            // Transactions of closed year are not renamed
+            try {
+                transactionService.mergeNames(Collections.singletonList("Test 3"), "Test");
+                fail("Transactions of closed year should not be renamed.");
+            } catch (RequestFailException e) {
+                assertEquals(1, transactionService.countEqual("Test 3"));
+            }
+
+            // Transactions of closed year are not removed
+            try {
+                transactionService.removeAll();
+                fail("Transactions of closed year should not be removed.");
+            } catch (RequestFailException e) {
+                assertEquals(2, transactionService.count());
+            }
+        } finally {
+            YearPartitions.merge(year);
+        }
+        assertFalse(YearPartitions.isPartitioned(year));
+    }
+
+    /**
+     * Compaction Test
+     *
+     * Transactions before cutoff are replaced by a summary per month and category, amounts summaries are kept
+     */
+    @org.junit.Test
+    public void compact() throws Exception {
+        // Add Categories
+        Category category = addCategory("Test Category", "My Test Category");
+        Category otherCategory = addCategory("Other Category", "My Other Category");
+
+        // Add Transactions
+        addTransaction("Coffee 1", "", LocalDate.of(2015, 3, 2), 3, category);
+        addTransaction("Coffee 2", "", LocalDate.of(2015, 3, 20), 4, category);
+        addTransaction("Coffee 3", "", LocalDate.of(2015, 3, 31), 5, otherCategory);
+        addTransaction("Coffee 4", "", LocalDate.of(2015, 4, 1), 6, category);
+        addTransaction("Recent", "", LocalDate.of(2016, 1, 1), 10, category);
+
+        TransactionDao dao = transactionService.getDao();
+        long total = dao.getTotalAmount();
+        Path archive = Files.createTempFile("kitapi-archive", ".db");
+
+        try {
+            CompactionService compactionService = new CompactionService(archive);
+            CompactionService.Result result = compactionService.compact(LocalDate.of(2016, 1, 1), "Summary");
+
+            //Assertions
+            assertEquals("Transactions before cutoff should be archived.", 4, result.getArchived());
+            assertEquals("Should be a summary per month and category.", 3, result.getSummaries());
+            assertEquals("Should be three summaries and one transaction.", 4, transactionService.count());
+            assertEquals("Total amount should not change.", total, dao.getTotalAmount());
+            assertEquals("Month's amount should not change.", 1200,
+                    dao.getTotalAmount(LocalDate.of(2015, 3, 1), LocalDate.of(2015, 3, 31)));
+            assertEquals(1, transactionService.countEqual("Recent"));
+
+            // Transaction added to a compacted month is merged to its summary
+            addTransaction("Coffee 5", "", LocalDate.of(2015, 3, 10), 2, category);
+            result = compactionService.compact(LocalDate.of(2016, 1, 1), "Summary");
+            assertEquals(1, result.getArchived());
+            assertEquals(1, result.getSummaries());
+            assertEquals(4, transactionService.count());
+            assertEquals(total + 200, dao.getTotalAmount());
+            assertEquals("Listed total should follow storage.", (total + 200) / 100d,
+                    transactionService.all().stream().mapToLong(Transaction::getAmount).sum() / 100d, 0.001);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    /**
+     * Compacted Import Test
+     *
+     * Statement lines imported again after their transactions were compacted are not added
+     */
+    @org.junit.Test
+    public void compactedImport() throws Exception {
+        // Add Category
+        Category category = addCategory("Test Category", "My Test Category");
+
+        // Import Transactions
+        transactionService.addAll(statementLines(category));
+
+        TransactionDao dao = transactionService.getDao();
+        Path archive = Files.createTempFile("kitapi-archive", ".db");
+
+        try {
+            CompactionService compactionService = new CompactionService(archive);
+            assertEquals(2, compactionService.compact(LocalDate.of(2016, 1, 1), "Summary").getArchived());
+            long total = dao.getTotalAmount();
+
+            // Import same statement again
+            assertTrue("Compacted lines should not be added.",
+                    transactionService.addAll(statementLines(category)).isEmpty());
+            assertEquals(1, transactionService.count());
+            assertEquals(total, dao.getTotalAmount());
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    /**
+     * Monthly Totals Test
+     *
+     * Amounts summaries of whole and partial months follow added, updated and removed transactions
+     */
+    @org.junit.Test
+    public void monthlyTotals() throws Exception {
+        // Add Categories
+        Category category = addCategory("Test Category", "My Test Category");
+        Category otherCategory = addCategory("Other Category", "My Other Category");
+
+        // Add Transactions
+        Transaction transaction1 = addTransaction("Test 1", "", LocalDate.of(2015, 2, 28), 1, category);
+        addTransaction("Test 2", "", LocalDate.of(2015, 3, 1), 2, category);
+        Transaction transaction3 = addTransaction("Test 3", "", LocalDate.of(2015, 3, 15), 4, otherCategory);
+        addTransaction("Test 4", "", LocalDate.of(2015, 4, 10), 8, category);
+        addTransaction("Test 5", "", LocalDate.of(2015, 4, 30), 16, otherCategory);
+
+        TransactionDao dao = transactionService.getDao();
+
+        // Assertions
+        assertEquals(3100, dao.getTotalAmount());
+        assertEquals("Whole month", 600, dao.getTotalAmount(LocalDate.of(2015, 3, 1), LocalDate.of(2015, 3, 31)));
+        assertEquals("Partial months", 1500, dao.getTotalAmount(LocalDate.of(2015, 2, 28), LocalDate.of(2015, 4, 10)));
+        assertEquals("Within month", 400, dao.getTotalAmount(LocalDate.of(2015, 3, 2), LocalDate.of(2015, 3, 20)));
+        assertEquals(2800, dao.getTotalAmount(LocalDate.of(2015, 3, 15)));
+
+        Map<Integer, Long> totals = transactionService.categoryTotals(LocalDate.of(2015, 3, 1), null);
+        assertEquals(2, totals.size());
+        assertEquals(1000L, (long) totals.get(category.getId()));
+        assertEquals(2000L, (long) totals.get(otherCategory.getId()));
+
+        // Update moves amount to other month and category
+        Transaction updated = newTransaction("Test 3", "", LocalDate.of(2015, 4, 1), 5, category);
+        updated.setId(transaction3.getId());
+        transactionService.update(transaction3, updated);
+        assertEquals(200, dao.getTotalAmount(LocalDate.of(2015, 3, 1), LocalDate.of(2015, 3, 31)));
+        assertEquals(2900, dao.getTotalAmount(LocalDate.of(2015, 4, 1), LocalDate.of(2015, 4, 30)));
+
+        totals = transactionService.categoryTotals(null, null);
+        assertEquals(1600L, (long) totals.get(category.getId()));
+        assertEquals(1600L, (long) totals.get(otherCategory.getId()));
+
+        // Remove
+        transactionService.remove(transaction1);
+        assertEquals(0, dao.getTotalAmount(LocalDate.of(2015, 2, 1), LocalDate.of(2015, 2, 28)));
+        assertEquals(3100, dao.getTotalAmount());
+    }
+
+    /**
+     * Refresh Test
+     *
+     * Changes of another service instance are loaded incrementally, own changes leave list unmodified
+     */
+    @org.junit.Test
+    public void refresh() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        Transaction transaction1 = addTransaction("Test 1", "Test 1 Transaction", LocalDate.of(2016, 1, 1), 1, category);
+        Transaction transaction2 = addTransaction("Test 2", "Test 2 Transaction", LocalDate.of(2016, 1, 2), 2, category);
+        transactionService.all();
+
+        addTransaction("Test 3", "Test 3 Transaction", LocalDate.of(2016, 1, 3), 3, category);
+        assertFalse("Own changes should not modify list.", transactionService.refresh());
+
+        // Another instance
+        TransactionService otherService = new TransactionService();
+        otherService.setDao(transactionService.getDao());
+        otherService.all();
+
+        Transaction updated = newTransaction("Test 1 Updated", "Test 1 Transaction", LocalDate.of(2016, 1, 1), 10,
+                category);
+        updated.setId(transaction1.getId());
+        otherService.update(otherService.get(transaction1.getId()), updated);
+        otherService.remove(otherService.get(transaction2.getId()));
+        otherService.add(newTransaction("Test 4", "Test 4 Transaction", LocalDate.of(2016, 1, 4), 4, category));
+
+        // Assertions
+        assertTrue("Changes of another instance should be loaded.", transactionService.refresh());
+        List<Transaction> listed = new ArrayList<>(transactionService.getObservableList());
+        assertEquals(3, listed.size());
+        assertTrue(listed.stream().anyMatch(transaction -> transaction.getName().equals("Test 1 Updated") &&
+                transaction.getAmount() == 1000));
+        assertFalse(listed.stream().anyMatch(transaction -> transaction.getId() == transaction2.getId()));
+        assertTrue(listed.stream().anyMatch(transaction -> transaction.getName().equals("Test 4")));
+        assertFalse("Nothing changed since last refresh.", transactionService.refresh());
+    }
+
+    /**
+     * Refresh Duplicates Test
+     *
+     * Duplicates index follows refreshed changes once
+     */
+    @org.junit.Test
+    public void refreshDuplicates() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add exact duplicates
+        LocalDate date = LocalDate.of(2016, 1, 1);
+        addTransaction("Coffee", null, date, 3, category);
+        Transaction duplicate = addTransaction("Coffee", null, date, 3, category);
+        transactionService.all();
+        assertTrue(transactionService.isDuplicate(newTransaction("Coffee", null, date, 3, category)));
+
+        // Another instance removes one of them
+        TransactionService otherService = new TransactionService();
+        otherService.setDao(transactionService.getDao());
+        otherService.all();
+        otherService.remove(otherService.get(duplicate.getId()));
+
+        assertTrue(transactionService.refresh());
+        assertTrue("Remaining transaction should still be a duplicate.",
+                transactionService.isDuplicate(newTransaction("Coffee", null, date, 3, category)));
+    }
+
+    /**
+     * Aggregate View Test
+     *
+     * Views follow transactions changes by deltas, transactions list is not filtered
+     */
+    @org.junit.Test
+    public void aggregateView() throws Exception {
+        // Add Categories
+        Category category1 = addCategory("Test 1", "Test Category 1");
+        Category category2 = addCategory("Test 2", "Test Category 2");
+
+        LocalDate date = LocalDate.of(2016, 1, 10);
+        addTransaction("Test 1", "Test 1 Transaction", date, 1, category1);
+        addTransaction("Test 2", "Test 2 Transaction", date, 2, category2);
+        transactionService.all();
+
+        AggregateView view = transactionService.createView(AggregateView.filter(category1, date, date.plusDays(5)));
+        assertEquals(100, view.getSum());
+        assertEquals(1, view.getCount());
+
+        // Added, out of period and of other category
+        Transaction transaction = addTransaction("Test 3", "Test 3 Transaction", date.plusDays(1), 3, category1);
+        addTransaction("Test 4", "Test 4 Transaction", date.plusDays(10), 4, category1);
+        addTransaction("Test 5", "Test 5 Transaction", date, 5, category2);
+        assertEquals(400, view.getSum());
+        assertEquals(2, view.getCount());
+
+        // Updated in place, moved to other category
+        Transaction updated = newTransaction("Test 3", "Test 3 Transaction", date.plusDays(1), 30, category1);
+        transactionService.update(transaction, updated);
+        assertEquals(3100, view.getSum());
+        updated.setCategory(category2);
+        transactionService.update(transaction, updated);
+        assertEquals(100, view.getSum());
+        assertEquals(1, view.getCount());
+
+        // Removed
+        transactionService.remove(transactionService.getObservableList().stream()
+                .filter(listed -> listed.getName().equals("Test 1")).findFirst().get());
+        assertEquals(0, view.getSum());
+        assertEquals(0, view.getCount());
+
+        assertNull("Transactions list should not be filtered.", transactionService.getObservableList().getPredicate());
+        assertEquals(4, transactionService.getObservableList().size());
+
+        // Removed view does not follow changes
+        transactionService.removeView(view);
+        addTransaction("Test 6", "Test 6 Transaction", date, 6, category1);
+        assertEquals(0, view.getSum());
+    }
+
+    /**
+     * Query Test
+     *
+     * Queries compiled to SQL match the same transactions, in the same order, as on the loaded list
+     */
+    @org.junit.Test
+    public void query() throws Exception {
+        // Add Categories
+        Category category1 = addCategory("Test 1", "Test Category 1");
+        Category category2 = addCategory("Test 2", "Test Category 2");
+
+        // Add Transactions, first is named coffee in Greek, with accent
+        String coffee = "\u039a\u03b1\u03c6\u03ad\u03c2";
+        LocalDate date = LocalDate.of(2016, 3, 1);
+        addTransaction(coffee, "Morning", date, 3, category1);
+        addTransaction("Market", "Weekly", date.plusDays(1), 40, category1);
+        addTransaction("Rent", "Monthly", date.plusDays(2), 400, category2);
+        addTransaction("coffee", "Afternoon \u03ba\u03b1\u03c6\u03b5\u03c2", date.plusDays(2), 3, category2);
+        addTransaction("Books", null, date.plusDays(20), 25, category1);
+        List<Transaction> loaded = transactionService.all();
+
+        List<TransactionQuery> queries = Arrays.asList(
+                new TransactionQuery.QueryBuilder().addCategory(category1).setStart(date).setEnd(date.plusDays(10))
+                        .setSort(TransactionQuery.Sort.AMOUNT_DESC).setLimit(2).build(),
+                new TransactionQuery.QueryBuilder().setText("\u039a\u0391\u03a6\u0395")
+                        .setSort(TransactionQuery.Sort.DATE_DESC).build(),
+                new TransactionQuery.QueryBuilder().setMinAmount(300L).setMaxAmount(4000L)
+                        .setSort(TransactionQuery.Sort.NAME_ASC).build(),
+                new TransactionQuery.QueryBuilder().addCategory(category1).addCategory(category2).setLimit(3).build());
+
+        // Assertions
+        for (TransactionQuery query : queries) {
+            assertEquals("Query should match loaded list: " + query,
+                    ids(query.apply(loaded)), ids(transactionService.query(query)));
+        }
+        assertEquals(Arrays.asList("Market", coffee), names(transactionService.query(queries.get(0))));
+        assertEquals(Arrays.asList("coffee", coffee), names(transactionService.query(queries.get(1))));
+        assertEquals(Arrays.asList("Books", "coffee", "Market", coffee), names(transactionService.query(queries.get(2))));
+    }
+
+    /**
+     * Sort Test
+     *
+     * Stored transactions are queried in storage's order, ties ordered by id, listed transactions are kept
+     */
+    @org.junit.Test
+    public void sort() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        LocalDate date = LocalDate.of(2016, 3, 1);
+        Transaction first = addTransaction("First", null, date, 10, category);
+        Transaction second = addTransaction("Second", null, date.plusDays(1), 20, category);
+        Transaction third = addTransaction("Third", null, date.plusDays(1), 10, category);
+        List<Integer> listed = ids(transactionService.all());
+
+        // Assertions
+        assertEquals(Arrays.asList(second.getId(), third.getId(), first.getId()), ids(transactionService.query(
+                new TransactionQuery.QueryBuilder().setSort(TransactionQuery.Sort.AMOUNT_DESC).build())));
+        assertEquals(Arrays.asList(first.getId(), second.getId(), third.getId()), ids(transactionService.query(
+                new TransactionQuery.QueryBuilder().setSort(TransactionQuery.Sort.DATE_ASC).build())));
+        assertEquals(listed, ids(transactionService.getObservableList()));
+    }
+
+    /**
+     * Top Payees Test
+     *
+     * Amounts are summed per payee, payees follow updates and renames
+     */
+    @org.junit.Test
+    public void topPayees() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        LocalDate date = LocalDate.of(2016, 3, 1);
+        addTransaction("Rent", "March", date, 400, category);
+        addTransaction("Rent", "April", date.plusMonths(1), 400, category);
+        addTransaction("Market", null, date.plusDays(1), 40, category);
+        Transaction coffee = addTransaction("Coffee", null, date.plusDays(2), 3, category);
+
+        // Assertions
+        Map<String, Long> payees = transactionService.topPayees(null, null, 2);
+        assertEquals(Arrays.asList("Rent", "Market"), new ArrayList<>(payees.keySet()));
+        assertEquals(80000L, (long) payees.get("Rent"));
+        assertEquals(40000L, (long) transactionService.topPayees(null, date, 10).get("Rent"));
+
+        // Names read are shared by loaded transactions
+        List<Transaction> loaded = transactionService.all();
+        Transaction rent = loaded.get(0);
+        for (Transaction transaction : loaded) {
+            if (transaction.getName().equals("Rent")) {
+                assertSame(rent.getName(), transaction.getName());
+            }
+        }
+
+        Transaction updated = newTransaction("Bakery", null, coffee.getDate(), 50, category);
+        updated.setId(coffee.getId());
+        transactionService.update(coffee, updated);
+        transactionService.mergeNames(Collections.singletonList("Market"), "Bakery");
+
+        payees = transactionService.topPayees(null, null, 10);
+        assertEquals(Arrays.asList("Rent", "Bakery"), new ArrayList<>(payees.keySet()));
+        assertEquals(9000L, (long) payees.get("Bakery"));
+    }
+
+    /**
+     * Description Preview Test
+     *
+     * Lists carry previews of descriptions, full description is loaded on demand
+     */
+    @org.junit.Test
+    public void descriptionPreview() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        addTransaction("Long", "A long description", LocalDate.now(), 10, category);
+        addTransaction("Short", "Short", LocalDate.now(), 20, category);
+
+        transactionService.getDao().setDescriptionPreview(5);
+        try {
+            List<Transaction> loaded = transactionService.all();
+            Transaction preview = loaded.get(0).getName().equals("Long") ? loaded.get(0) : loaded.get(1);
+            Transaction full = loaded.get(0) == preview ? loaded.get(1) : loaded.get(0);
+
+            // Assertions
+            assertEquals("A lon", preview.getDescription());
+            assertTrue("Truncated description should be partial.", preview.isDescriptionPartial());
+            assertEquals("Short", full.getDescription());
+            assertFalse(full.isDescriptionPartial());
+
+            // Text past preview is matched by stored description
+            TransactionQuery query = new TransactionQuery.QueryBuilder().setText("DESCRIPTION").build();
+            assertTrue("Preview should not match text past it.", query.apply(loaded).isEmpty());
+            assertEquals(ids(transactionService.query(query)),
+                    ids(transactionService.getObservableList().filtered(transactionService.filter(query))));
+            assertEquals(Collections.singletonList(preview.getId()), ids(transactionService.query(query)));
+
+            transactionService.loadDescription(preview);
+            assertEquals("A long description", preview.getDescription());
+            assertFalse(preview.isDescriptionPartial());
+            assertEquals(preview, transactionService.get(preview.getId()));
+        } finally {
+            transactionService.getDao().setDescriptionPreview(TransactionDao.FULL_DESCRIPTION);
+        }
+    }
+
+    /**
+     * Snapshot Test
+     *
+     * Snapshots follow transactions list, published snapshots do not change
+     */
+    @org.junit.Test
+    public void snapshot() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        Transaction transaction = addTransaction("Test", "Test Transaction", LocalDate.now(), 100, category);
+        addTransaction("Test 1", "Test 1 Transaction", LocalDate.now(), 30, category);
+
+        TransactionSnapshot before = transactionService.snapshot();
+        assertEquals(2, before.size());
+        assertEquals(13000L, before.sum(null, null));
+
+        // Update in place
+        Transaction updated = newTransaction("Updated", null, transaction.getDate(), 50, category);
+        updated.setId(transaction.getId());
+        transactionService.update(transaction, updated);
+
+        // Assertions
+        TransactionSnapshot after = transactionService.snapshot();
+        assertTrue("Version should increase.", after.getVersion() > before.getVersion());
+        assertEquals(8000L, after.sum(null, null));
+        assertTrue(names(after.getTransactions()).contains("Updated"));
+        assertEquals("Published snapshot should not change.", 13000L, before.sum(null, null));
+        assertTrue(names(before.getTransactions()).contains("Test"));
+        for (Transaction copy : after.getTransactions()) {
+            assertNotSame("Snapshot should hold copies.", transaction, copy);
+        }
+        assertEquals(8000, transactionService.calculateTotal() * 100, 0.001);
+    }
+
+    /**
+     * Merge Category Test
+     *
+     * Transactions are moved to target category, source category is removed
+     */
+    @org.junit.Test
+    public void mergeCategory() throws Exception {
+        // Add Categories
+        Category source = addCategory("Source", "Source Category");
+        Category target = addCategory("Target", "Target Category");
+
+        // Add Transactions
+        Transaction moved = addTransaction("Test", null, LocalDate.now(), 100, source);
+        addTransaction("Test 1", null, LocalDate.now(), 30, source);
+        addTransaction("Test 2", null, LocalDate.now(), 20, target);
+        AggregateView view = transactionService.createView(AggregateView.filter(target, null, null));
+
+        // Assertions
+        assertEquals(2, categoryService.merge(source, target));
+        assertEquals(target.getId(), moved.getCategory().getId());
+        assertEquals(3, view.getCount());
+        assertEquals(15000L, view.getSum());
+        assertFalse(categoryService.getObservableList().contains(source));
+        assertEquals(target.getId(), transactionService.get(moved.getId()).getCategory().getId());
+        assertEquals("Transactions should not be removed.", 3, transactionService.count());
+
+        thrown.expect(EntryNotFoundException.class);
+        categoryService.get("Source");
+    }
+
+    /**
+     * Merge Category of Closed Year Test
+     *
+     * Category with transactions of a closed year is not merged
+     */
+    @org.junit.Test
+    public void mergeCategoryClosedYear() throws Exception {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        int year = lastYear.getYear();
+
+        // Add Categories
+        Category source = addCategory("Source", "Source Category");
+        Category target = addCategory("Target", "Target Category");
+
+        // Add Transactions
+        Transaction closed = addTransaction("Test", null, lastYear, 100, source);
+        addTransaction("Test 1", null, LocalDate.now(), 30, source);
+
+        try {
+            assertTrue(YearPartitions.partition(year));
+            YearPartitions.close(year);
+
+            try {
+                categoryService.merge(source, target);
+                fail("Category with transactions of closed year should not be merged.");
+            } catch (RequestFailException e) {
+                assertEquals(2, transactionService.count(source));
+                assertEquals(source.getId(), transactionService.get(closed.getId()).getCategory().getId());
+                assertEquals(source.getId(), categoryService.get("Source").getId());
+            }
+        } finally {
+            YearPartitions.merge(year);
+        }
+    }
+
+    /**
+     * Remove Category Test
+     *
+     * Impact is previewed, category's transactions are removed from storage and list with it
+     */
+    @org.junit.Test
+    public void removeCategory() throws Exception {
+        // Add Categories
+        Category removed = addCategory("Removed", "Removed Category");
+        Category kept = addCategory("Kept", "Kept Category");
+
+        // Add Transactions
+        addTransaction("Test", null, LocalDate.now(), 100, removed);
+        addTransaction("Test 1", null, LocalDate.now(), 30, removed);
+        Transaction other = addTransaction("Test 2", null, LocalDate.now(), 20, kept);
+        AggregateView view = transactionService.createView(AggregateView.filter(null, null, null));
+
+        // Preview
+        assertEquals(2, transactionService.count(removed));
+        assertEquals(13000L, transactionService.totalAmount(removed));
+
+        categoryService.remove(removed);
+
+        // Assertions
+        assertEquals(0, transactionService.count(removed));
+        assertEquals(Collections.singletonList("Test 2"), names(transactionService.getObservableList()));
+        assertEquals(1, view.getCount());
+        assertEquals(2000L, view.getSum());
+        assertEquals(other, transactionService.get(other.getId()));
+        assertFalse(categoryService.getObservableList().contains(removed));
+
+        thrown.expect(EntryNotFoundException.class);
+        categoryService.get("Removed");
+    }
+
+    /**
+     * Bulk Edit Test
+     *
+     * Selected transactions are re-categorized, shifted and removed together, in storage and list
+     */
+    @org.junit.Test
+    public void bulkEdit() throws Exception {
+        // Add Categories
+        Category category = addCategory("Test", "Test Category");
+        Category other = addCategory("Other", "Other Category");
+
+        // Add Transactions
+        LocalDate date = LocalDate.of(LocalDate.now().getYear(), 1, 2);
+        Transaction first = addTransaction("Test", null, date, 100, category);
+        Transaction second = addTransaction("Test 1", null, date, 30, category);
+        Transaction kept = addTransaction("Test 2", null, date, 20, category);
+        List<Transaction> selected = Arrays.asList(first, second);
+        AggregateView view = transactionService.createView(AggregateView.filter(other, null, null));
+
+        // Re-categorize
+        assertEquals(2, transactionService.recategorize(selected, other));
+        assertEquals(other.getId(), first.getCategory().getId());
+        assertEquals(other.getId(), transactionService.get(second.getId()).getCategory().getId());
+        assertEquals(category.getId(), transactionService.get(kept.getId()).getCategory().getId());
+        assertEquals(2, view.getCount());
+        assertEquals(13000L, view.getSum());
+
+        // Shift dates back, to previous year
+        assertEquals(2, transactionService.shiftDates(selected, -5));
+        assertEquals(date.minusDays(5), first.getDate());
+        assertEquals(date.minusDays(5), transactionService.get(second.getId()).getDate());
+        assertEquals(date, transactionService.get(kept.getId()).getDate());
+
+        // Remove
+        assertEquals(2, transactionService.remove(selected));
+        assertEquals(Collections.singletonList("Test 2"), names(transactionService.getObservableList()));
+        assertEquals(0, view.getCount());
+        assertEquals(1, transactionService.count());
+    }
+
+    /**
+     * Soft Delete Test
+     *
+     * Removed transactions are kept in trash, left out of lists and totals, until restored or purged
+     */
+    @org.junit.Test
+    public void softDelete() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        // Add Transactions
+        LocalDate date = LocalDate.of(LocalDate.now().getYear(), 1, 2);
+        LocalDate start = date.withDayOfYear(1);
+        LocalDate end = date.withMonth(12).withDayOfMonth(31);
+        Transaction removed = addTransaction("Test", null, date, 100, category);
+        addTransaction("Test 1", null, date, 30, category);
+
+        TransactionDao dao = transactionService.getDao();
+        dao.setSoftDelete(true);
+        try {
+            // Remove to trash
+            transactionService.remove(removed);
+            assertEquals(Collections.singletonList("Test 1"), names(transactionService.all()));
+            assertEquals(1, transactionService.count(category));
+            assertEquals(3000L, dao.getTotalAmount(start, end));
+
+            List<Transaction> trash = transactionService.trash();
+            assertEquals(Collections.singletonList("Test"), names(trash));
+
+            // Restore
+            assertEquals(1, transactionService.restore(trash));
+            assertTrue(transactionService.trash().isEmpty());
+            assertEquals(2, transactionService.getObservableList().size());
+            assertEquals(13000L, dao.getTotalAmount(start, end));
+            assertEquals(2, transactionService.all().size());
+
+            // Restoring again lists no duplicate
+            assertEquals(0, transactionService.restore(trash));
+            assertEquals(2, transactionService.getObservableList().size());
+
+            // Purge
+            transactionService.remove(transactionService.get(removed.getId()));
+            assertEquals(0, dao.purge(0, 10));
+            assertEquals(1, dao.purge(Long.MAX_VALUE, 10));
+            assertTrue(transactionService.trash().isEmpty());
+            assertEquals(3000L, dao.getTotalAmount(start, end));
+
+            // Remove all to trash
+            transactionService.removeAll();
+            assertTrue(transactionService.getObservableList().isEmpty());
+            assertEquals(0L, dao.getTotalAmount(start, end));
+            assertEquals(Collections.singletonList("Test 1"), names(transactionService.trash()));
+        } finally {
+            dao.setSoftDelete(false);
+            dao.purge(Long.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Smart Views Test
+     *
+     * Saved queries are loaded as saved
+     */
+    @org.junit.Test
+    public void smartViews() throws Exception {
+        TransactionQuery query = new TransactionQuery.QueryBuilder().addCategoryId(2).addCategoryId(1)
+                .setStart(LocalDate.of(2016, 1, 1)).setMaxAmount(1000L).setText("a & b = c")
+                .setSort(TransactionQuery.Sort.NAME_DESC).setLimit(10).build();
+        assertEquals(query, TransactionQuery.parse(query.toDefinition()));
+
+        try {
+            transactionService.saveSmartView(new SmartView("Test View", query));
+            transactionService.saveSmartView(new SmartView("Other View", new TransactionQuery.QueryBuilder().build()));
+
+            List<SmartView> views = transactionService.smartViews();
+            assertEquals(2, views.size());
+            assertEquals("Other View", views.get(0).getName());
+            assertEquals("Test View", views.get(1).getName());
+            assertEquals(query, views.get(1).getQuery());
+        } finally {
+            transactionService.removeSmartView("Test View");
+            transactionService.removeSmartView("Other View");
+        }
+        assertTrue(transactionService.smartViews().isEmpty());
+    }
+
+    /**
+     * Change Events Test
+     *
+     * Changes are published as typed events, delivered together on next pulse
+     */
+    @org.junit.Test
+    public void changeEvents() throws Exception {
+        // Add Category
+        Category category = addCategory("Test", "Test Category");
+
+        List<Runnable> pulses = new ArrayList<>();
+        List<List<ChangeEvent<?>>> notifications = new ArrayList<>();
+        ChangeBus bus = new ChangeBus(pulses::add);
+        bus.addListener(notifications::add);
+        transactionService.setChangeBus(bus);
+
+        try {
+            Transaction transaction = addTransaction("Test 1", "Test 1 Transaction", LocalDate.now(), 1, category);
+            transactionService.addAll(Arrays.asList(
+                    newTransaction("Test 2", "Test 2 Transaction", LocalDate.now(), 2, category),
+                    newTransaction("Test 3", "Test 3 Transaction", LocalDate.now(), 3, category)));
+            transactionService.remove(transaction);
+
+            // Assertions
+            assertEquals("Delivery should be scheduled once.", 1, pulses.size());
+            pulses.get(0).run();
+            assertEquals("Listener should be notified once.", 1, notifications.size());
+
+            List<ChangeEvent<?>> events = notifications.get(0);
+            assertEquals(3, events.size());
+            assertEquals(ChangeEvent.Type.ADDED, events.get(0).getType());
+            assertEquals(ChangeEvent.Type.BULK, events.get(1).getType());
+            assertEquals(2, events.get(1).getEntries().size());
+            assertEquals(ChangeEvent.Type.REMOVED, events.get(2).getType());
+            assertEquals(Collections.singletonList(transaction), events.get(2).getEntries());
+            assertTrue(ChangeEvent.changed(events, transactionService));
+        } finally {
+            transactionService.setChangeBus(ChangeBus.getInstance());
+        }
+    }
+
+    private static List<Integer> ids(List<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+
+    private static List<String> names(List<Transaction> transactions) {
+        List<String> names = new ArrayList<>();
+        transactions.forEach(transaction -> names.add(transaction.getName()));
+        return names;
+    }
+
     /**
      * Add Category
      *
@@ -493,6 +1438,26 @@ abstract public class TransactionServiceITest {
             throws NullInputException, RequestFailException, EmptyInputException, EmptyDateException {
 
         // New transaction
+        Transaction transaction = newTransaction(name, description, date, amount, category);
+
+        // Get transaction's id
+        int transactionId = transactionService.add(transaction);
+        transaction.setId(transactionId);
+
+        return transaction;
+    }
+
+    /**
+     * New Transaction, not stored
+     *
+     * @param name transaction's name
+     * @param description transaction's description
+     * @param date transactions's date
+     * @param amount transaction's amount
+     * @param category transaction's category
+     * @return transaction
+     */
+    private Transaction newTransaction(String name, String description, LocalDate date, int amount, Category category) {
         Transaction transaction = new Transaction();
         transaction.setName(name);
         transaction.setDescription(description);
@@ -501,13 +1466,25 @@ abstract public class TransactionServiceITest {
         transaction.setAmount(amount * 100);
         transaction.setCategory(category);
 
-        // Get transaction's id
-        int transactionId = transactionService.add(transaction);
-        transaction.setId(transactionId);
-
         return transaction;
     }
 
+    /**
+     * Statement lines of category, not stored
+     *
+     * <p>Two transactions of 2015, with external ids as imported from a bank statement.</p>
+     *
+     * @param category transactions' category
+     * @return statement transactions
+     */
+    private List<Transaction> statementLines(Category category) {
+        Transaction first = newTransaction("Coffee 1", "", LocalDate.of(2015, 3, 2), 3, category);
+        first.setExternalId("FITID-2015-1");
+        Transaction second = newTransaction("Coffee 2", "", LocalDate.of(2015, 3, 20), 4, category);
+        second.setExternalId("FITID-2015-2");
+        return Arrays.asList(first, second);
+    }
+
     /**
      * Clear Table entries
      */
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.dao;
+
+import eu.kalodiodev.kitapi.db.SqliteDatabase;
+import eu.kalodiodev.kitapi.exceptions.DaoException;
+import eu.kalodiodev.kitapi.exceptions.RequestFailException;
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+import eu.kalodiodev.kitapi.service.LedgerTransfer;
+import eu.kalodiodev.kitapi.service.TransactionService;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit Of Work Integration Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class UnitOfWorkITest {
+
+    private final DaoFactory factory = DaoFactory.getFactory(DaoFactory.SQLITE);
+    private final TransactionDao expensesDao = factory.getExpensesDao();
+    private final CategoryDao categoryDao = factory.getExpensesCategoryDao();
+    private final TransactionDao incomeDao = factory.getIncomeDao();
+    private final CategoryDao incomeCategoryDao = factory.getIncomeCategoryDao();
+
+    @org.junit.BeforeClass
+    public static void setupOnce() {
+        SqliteDatabase.create();
+    }
+
+    @org.junit.Before
+    public void setup() throws DaoException {
+        clearTables();
+    }
+
+    @org.junit.After
+    public void tearDown() throws DaoException {
+        clearTables();
+    }
+
+    /**
+     * Category and its transactions are stored together on commit
+     */
+    @org.junit.Test
+    public void commit() throws DaoException, IOException {
+        try (UnitOfWork work = factory.beginWork()) {
+            Category category = new Category("Test", "Test Category");
+            category.setId(work.getExpensesCategoryDao().add(category));
+            work.getExpensesDao().addAll(transactions(category, 500));
+
+            assertEquals("Uncommitted changes should not be visible outside unit.", 0, expensesDao.count());
+            assertEquals(500, work.getExpensesDao().count());
+            assertEquals(500, work.getExpensesDao().stream(null, null, null, row -> { }));
+            work.commit();
+        }
+
+        assertEquals(1, categoryDao.count());
+        assertEquals(500, expensesDao.count());
+    }
+
+    /**
+     * Changes are discarded if unit is closed without commit
+     */
+    @org.junit.Test
+    public void rollback() throws DaoException {
+        try (UnitOfWork work = factory.beginWork()) {
+            Category category = new Category("Test", "Test Category");
+            category.setId(work.getExpensesCategoryDao().add(category));
+            work.getExpensesDao().addAll(transactions(category, 10));
+        }
+
+        assertEquals(0, categoryDao.count());
+        assertEquals(0, expensesDao.count());
+    }
+
+    /**
+     * Nested unit's changes are discarded on their own, or committed with parent
+     */
+    @org.junit.Test
+    public void nested() throws DaoException {
+        try (UnitOfWork work = factory.beginWork()) {
+            Category category = new Category("Test", "Test Category");
+            category.setId(work.getExpensesCategoryDao().add(category));
+
+            try (UnitOfWork discarded = work.nested()) {
+                discarded.getExpensesDao().addAll(transactions(category, 10));
+                assertEquals(10, discarded.getExpensesDao().count());
+            }
+            assertEquals(0, work.getExpensesDao().count());
+
+            try (UnitOfWork kept = work.nested()) {
+                kept.getExpensesDao().addAll(transactions(category, 3));
+                kept.commit();
+            }
+            work.commit();
+        }
+
+        assertEquals(1, categoryDao.count());
+        assertEquals(3, expensesDao.count());
+    }
+
+    /**
+     * Transactions moved to the other ledger are stored and listed by both services together
+     */
+    @org.junit.Test
+    public void transfer() throws Exception {
+        Category expensesCategory = new Category("Test", "Test Category");
+        expensesCategory.setId(categoryDao.add(expensesCategory));
+        Category incomeCategory = new Category("Refunds", "Refunds Category");
+        incomeCategory.setId(incomeCategoryDao.add(incomeCategory));
+        expensesDao.addAll(transactions(expensesCategory, 3));
+
+        TransactionService expensesService = new TransactionService();
+        expensesService.setDao(expensesDao);
+        TransactionService incomeService = new TransactionService();
+        incomeService.setDao(incomeDao);
+        List<Transaction> expenses = expensesService.all();
+        incomeService.all();
+
+        LedgerTransfer transfer = new LedgerTransfer(factory, incomeService, expensesService);
+        assertEquals(2, transfer.toIncome(expenses.subList(0, 2), incomeCategory));
+
+        assertEquals(1, expensesDao.count());
+        assertEquals(2, incomeDao.count());
+        assertEquals(1, expensesService.getObservableList().size());
+        assertEquals(2, incomeService.getObservableList().size());
+        assertEquals(incomeCategory, incomeService.getObservableList().get(0).getCategory());
+
+        // Transactions no longer stored are not moved
+        try {
+            transfer.toIncome(expenses.subList(0, 1), incomeCategory);
+            fail("Transactions no longer stored should not be moved.");
+        } catch (RequestFailException e) {
+            assertEquals(2, incomeDao.count());
+        }
+    }
+
+    private static List<Transaction> transactions(Category category, int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setName("Test " + i);
+            transaction.setDate(LocalDate.now());
+            transaction.setAmount(100 + i);
+            transaction.setCategory(category);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private void clearTables() throws DaoException {
+        expensesDao.removeAll();
+        categoryDao.removeAll();
+        incomeDao.removeAll();
+        incomeCategoryDao.removeAll();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.db;
+
+import eu.kalodiodev.kitapi.exceptions.BackupException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Backup Service Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class BackupServiceTest {
+
+    private Path directory;
+    private BackupService backupService;
+
+    @org.junit.Before
+    public void setup() throws IOException, SQLException {
+        SqliteDatabase.create();
+        directory = Files.createTempDirectory("kitapi-backups");
+        backupService = new BackupService(directory, 2);
+
+        execute("DELETE FROM " + SqliteDatabase.TABLE_EXPENSES_CATEGORY);
+        // Categories spanning many database pages
+        execute("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 2500) " +
+                "INSERT INTO " + SqliteDatabase.TABLE_EXPENSES_CATEGORY + " (name) SELECT 'Category ' || i FROM n");
+    }
+
+    @org.junit.After
+    public void tearDown() throws IOException, SQLException {
+        execute("DELETE FROM " + SqliteDatabase.TABLE_EXPENSES_CATEGORY);
+        for (Path file : Files.list(directory).toArray(Path[]::new)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Backup restored after changes brings back backed up rows and schema, oldest backups are rotated
+     */
+    @org.junit.Test
+    public void backupAndRestore() throws BackupException, SQLException {
+        int schema = countSchema();
+        Path backup = backupService.backup();
+        backupService.backup();
+        backupService.backup();
+
+        List<Path> backups = backupService.backups();
+        assertEquals("Two backups should be kept.", 2, backups.size());
+        assertFalse("Oldest backup should be deleted.", backups.contains(backup));
+
+        execute("DELETE FROM " + SqliteDatabase.TABLE_EXPENSES_CATEGORY + " WHERE _id % 2 = 0");
+        assertEquals(1250, countCategories());
+
+        backupService.restore(backups.get(0));
+        assertEquals("Backed up categories should be restored.", 2500, countCategories());
+        assertEquals("Indexes and triggers should be restored.", schema, countSchema());
+    }
+
+    /**
+     * Damaged backup is not restored
+     */
+    @org.junit.Test
+    public void restoreDamagedBackup() throws IOException, SQLException {
+        Path backup = directory.resolve("damaged.db.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(backup))) {
+            out.write("SQLite format 3\0 damaged".getBytes());
+        }
+
+        try {
+            backupService.restore(backup);
+            fail("Damaged backup should not be restored.");
+        } catch (BackupException e) {
+            assertEquals("Database should not change.", 2500, countCategories());
+        }
+    }
+
+    private static int countCategories() throws SQLException {
+        try (Connection conn = new JdbcSqliteConnection().connect();
+             Statement statement = conn.createStatement();
+             ResultSet results = statement.executeQuery("SELECT count(*) FROM " +
+                     SqliteDatabase.TABLE_EXPENSES_CATEGORY)) {
+            results.next();
+            return results.getInt(1);
+        }
+    }
+
+    private static int countSchema() throws SQLException {
+        try (Connection conn = new JdbcSqliteConnection().connect();
+             Statement statement = conn.createStatement();
+             ResultSet results = statement.executeQuery("SELECT count(*) FROM main.sqlite_master")) {
+            results.next();
+            return results.getInt(1);
+        }
+    }
+
+    private static void execute(String query) throws SQLException {
+        try (Connection conn = new JdbcSqliteConnection().connect();
+             Statement statement = conn.createStatement()) {
+            statement.execute(query);
+        }
+    }
+}
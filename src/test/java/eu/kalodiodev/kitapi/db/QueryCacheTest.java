@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Query Cache Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class QueryCacheTest {
+
+    private static final String COUNT = "SELECT COUNT(*) FROM items";
+
+    private Path database;
+    private JdbcSqliteConnection probe;
+    private QueryCache cache;
+
+    @org.junit.Before
+    public void setup() throws IOException, SQLException {
+        database = Files.createTempFile("kitapi-cache", ".db");
+        probe = new JdbcSqliteConnection(database);
+        cache = new QueryCache(probe, 3, 1024, 0);
+        execute("CREATE TABLE items(name TEXT)");
+    }
+
+    @org.junit.After
+    public void tearDown() throws IOException {
+        probe.disconnect();
+        Files.delete(database);
+    }
+
+    /**
+     * Results are cached until a change is counted
+     */
+    @org.junit.Test
+    public void changed() throws SQLException {
+        assertEquals(0, count());
+        assertEquals(0, count());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        cache.changed();
+        assertEquals(0, cache.size());
+        assertEquals(0, count());
+        assertEquals(2, cache.getMisses());
+    }
+
+    /**
+     * Commits of other connections clear cached results
+     */
+    @org.junit.Test
+    public void dataVersion() throws SQLException {
+        assertEquals(0, count());
+
+        execute("INSERT INTO items(name) VALUES('Item')");
+        assertEquals("Write of another connection should be detected.", 1, count());
+        assertEquals(0, cache.getHits());
+    }
+
+    /**
+     * Data version is not checked on hits within probe interval
+     */
+    @org.junit.Test
+    public void probeInterval() throws SQLException {
+        cache = new QueryCache(probe, 3, 1024, TimeUnit.HOURS.toMillis(1));
+        assertEquals(0, count());
+
+        execute("INSERT INTO items(name) VALUES('Item')");
+        assertEquals("Hit should not check data version.", 0, count());
+        assertEquals(1, cache.getHits());
+
+        cache.changed();
+        assertEquals(1, count());
+    }
+
+    /**
+     * Least recently used results are evicted beyond entries and bytes bounds
+     */
+    @org.junit.Test
+    public void eviction() {
+        for (int i = 0; i < 4; i++) {
+            int result = i;
+            cache.get("Query " + i, () -> result);
+        }
+        assertEquals("Entries should be bounded.", 3, cache.size());
+
+        // Query 1 is used, Query 2 is least recently used
+        cache.get("Query 1", () -> -1);
+        assertEquals(1, cache.getHits());
+        cache.get("Query 4", Collections.emptyList(), result -> 900L, () -> 4);
+        assertEquals("Bytes should be bounded.", 1, cache.size());
+        assertTrue(cache.getBytes() <= 1024);
+
+        // Results larger than bound are not cached
+        cache.get("Query 5", Collections.emptyList(), result -> 2048L, () -> 5);
+        assertEquals(1, cache.size());
+    }
+
+    private int count() throws SQLException {
+        return cache.get(COUNT, () -> {
+            try (Connection conn = new JdbcSqliteConnection(database).connect();
+                 Statement statement = conn.createStatement();
+                 ResultSet results = statement.executeQuery(COUNT)) {
+                return results.getInt(1);
+            }
+        });
+    }
+
+    private void execute(String query) throws SQLException {
+        try (Connection conn = new JdbcSqliteConnection(database).connect();
+             Statement statement = conn.createStatement()) {
+            statement.execute(query);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.export;
+
+import eu.kalodiodev.kitapi.model.Category;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ledger Exporter and Export Writer Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class LedgerExporterTest {
+
+    /**
+     * Numbers, amounts and dates are formatted as java.time and Long formatting
+     */
+    @org.junit.Test
+    public void formatValues() throws IOException {
+        Path file = Files.createTempFile("kitapi", ".txt");
+        long[] days = {LocalDate.of(1969, 12, 31).toEpochDay(), LocalDate.of(2000, 2, 29).toEpochDay(),
+                LocalDate.of(2017, 3, 1).toEpochDay(), 0};
+
+        try (ExportWriter writer = new ExportWriter(file)) {
+            writer.writeLong(Long.MIN_VALUE);
+            writer.write(' ');
+            writer.writeAmount(-5);
+            writer.write(' ');
+            writer.writeAmount(123456);
+            writer.write(' ');
+            writer.writeAmount(-150);
+            for (long day : days) {
+                writer.write(' ');
+                writer.writeDate(day);
+            }
+        }
+
+        assertEquals(Long.MIN_VALUE + " -0.05 1234.56 -1.50 1969-12-31 2000-02-29 2017-03-01 1970-01-01",
+                read(file));
+    }
+
+    /**
+     * Categories are exported with CSV quoting and JSON escaping
+     */
+    @org.junit.Test
+    public void exportCategories() throws IOException {
+        Path file = Files.createTempFile("kitapi", ".csv");
+        Iterable<Category> categories = Arrays.asList(
+                new Category(1, "Caf\u00e9, \"bar\"", null),
+                new Category(2, "Rent", "Line\nbreak \ud83c\udfe0"));
+
+        assertEquals(2, new LedgerExporter(ExportFormat.CSV).exportCategories(categories, file));
+        assertEquals("id,name,description\n1,\"Caf\u00e9, \"\"bar\"\"\",\n2,Rent,\"Line\nbreak \ud83c\udfe0\"\n",
+                read(file));
+
+        assertEquals(2, new LedgerExporter(ExportFormat.JSON_LINES).exportCategories(categories, file));
+        assertEquals("{\"id\":1,\"name\":\"Caf\u00e9, \\\"bar\\\"\",\"description\":null}\n" +
+                "{\"id\":2,\"name\":\"Rent\",\"description\":\"Line\\nbreak \ud83c\udfe0\"}\n", read(file));
+    }
+
+    private static String read(Path file) throws IOException {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.importer;
+
+import eu.kalodiodev.kitapi.exceptions.StatementParseException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Statement Parsers Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class StatementParserTest {
+
+    /**
+     * OFX 1.x (SGML) statement, elements without end tags
+     */
+    @org.junit.Test
+    public void ofxSgml() throws IOException, StatementParseException {
+        String statement = "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\n\n" +
+                "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n" +
+                "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20170315120000[-5:EST]<TRNAMT>-1,234.56" +
+                "<FITID>A-1<NAME>AMAZON MKTPLACE &amp; CO<MEMO>Order 1234</STMTTRN>\n" +
+                "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20170401<TRNAMT>2500,5<FITID>A-2" +
+                "<NAME>Salary</STMTTRN>\n" +
+                "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+
+        try (StatementParser parser = new OfxStatementParser(new StringReader(statement))) {
+            StatementEntry debit = parser.next();
+            assertEquals("Date should be posted date.", LocalDate.of(2017, 3, 15), debit.getDate());
+            assertEquals("Debit should be negative, in cents.", -123456L, debit.getAmount());
+            assertEquals("Entities should be decoded.", "AMAZON MKTPLACE & CO", debit.getName());
+            assertEquals("Memo should be read.", "Order 1234", debit.getMemo());
+            assertEquals("FITID should be read.", "A-1", debit.getExternalId());
+
+            StatementEntry credit = parser.next();
+            assertEquals("Credit should be positive, in cents.", 250050L, credit.getAmount());
+            assertNull("Missing memo should be null.", credit.getMemo());
+
+            assertNull("Statement should have two entries.", parser.next());
+        }
+    }
+
+    /**
+     * OFX 2.x (XML) statement
+     */
+    @org.junit.Test
+    public void ofxXml() throws IOException, StatementParseException {
+        String statement = "<?xml version=\"1.0\"?><?OFX OFXHEADER=\"200\"?>" +
+                "<OFX><CREDITCARDMSGSRSV1><CCSTMTTRNRS><CCSTMTRS><BANKTRANLIST>" +
+                "<STMTTRN>\n  <DTPOSTED>20161231</DTPOSTED>\n  <TRNAMT>-9.9</TRNAMT>\n" +
+                "  <FITID>X9</FITID>\n  <NAME>Coffee</NAME>\n</STMTTRN>" +
+                "</BANKTRANLIST></CCSTMTRS></CCSTMTTRNRS></CREDITCARDMSGSRSV1></OFX>";
+
+        try (StatementParser parser = new OfxStatementParser(new StringReader(statement))) {
+            StatementEntry entry = parser.next();
+            assertEquals("Amount should be in cents.", -990L, entry.getAmount());
+            assertEquals("Name should be trimmed.", "Coffee", entry.getName());
+            assertEquals("FITID should be read.", "X9", entry.getExternalId());
+            assertNull("Statement should have one entry.", parser.next());
+        }
+    }
+
+    /**
+     * QIF statement, account list is skipped
+     */
+    @org.junit.Test
+    public void qif() throws IOException, StatementParseException {
+        String statement = "!Account\nNChecking\nTBank\n^\n" +
+                "!Type:Bank\n" +
+                "D3/15'17\nT-1,234.56\nPAMAZON MKTPLACE\nMOrder 1234\n^\n" +
+                "D04/01/2017\nU2,500.00\nT2,500.00\nPSalary\n^\n";
+
+        try (StatementParser parser = new QifStatementParser(new StringReader(statement))) {
+            StatementEntry debit = parser.next();
+            assertEquals("Date should be month first.", LocalDate.of(2017, 3, 15), debit.getDate());
+            assertEquals("Debit should be negative, in cents.", -123456L, debit.getAmount());
+            assertEquals("Payee should be read as name.", "AMAZON MKTPLACE", debit.getName());
+            assertNull("QIF has no external id.", debit.getExternalId());
+
+            StatementEntry credit = parser.next();
+            assertEquals("Credit should be positive, in cents.", 250000L, credit.getAmount());
+            assertEquals("Date should be month first.", LocalDate.of(2017, 4, 1), credit.getDate());
+
+            assertNull("Statement should have two entries.", parser.next());
+        }
+    }
+
+    /**
+     * Malformed amount must throw StatementParseException
+     */
+    @org.junit.Test(expected = StatementParseException.class)
+    public void malformedAmount() throws IOException, StatementParseException {
+        String statement = "!Type:Bank\nD3/15/2017\nTabc\n^\n";
+
+        try (StatementParser parser = new QifStatementParser(new StringReader(statement))) {
+            parser.next();
+        }
+    }
+}
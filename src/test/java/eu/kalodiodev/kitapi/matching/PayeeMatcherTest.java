@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.kalodiodev.kitapi.matching;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Payee Matcher and BK-tree Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class PayeeMatcherTest {
+
+    /**
+     * Edit distance, bounded distance stops above max
+     */
+    @org.junit.Test
+    public void levenshtein() {
+        assertEquals("Distance should be three.", 3, Levenshtein.distance("kitten", "sitting"));
+        assertEquals("Equal strings distance should be zero.", 0, Levenshtein.distance("kitapi", "kitapi"));
+        assertEquals("Bounded distance should be max + 1.", 2, Levenshtein.distance("kitten", "sitting", 1));
+    }
+
+    /**
+     * BK-tree search must find the same terms as comparing every term
+     */
+    @org.junit.Test
+    public void bkTreeSearch() {
+        Random random = new Random(42);
+        List<String> terms = new ArrayList<>();
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            String term = randomTerm(random);
+            terms.add(term);
+            tree.add(term);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            String query = randomTerm(random);
+            Set<String> expected = terms.stream()
+                    .filter(term -> Levenshtein.distance(query, term) <= 2)
+                    .collect(Collectors.toSet());
+            Set<String> found = tree.search(query, 2).stream()
+                    .map(BkTree.Match::getTerm)
+                    .collect(Collectors.toSet());
+
+            assertEquals("BK-tree should find all terms within distance.", expected, found);
+        }
+    }
+
+    /**
+     * Similar names match to the most used known name
+     */
+    @org.junit.Test
+    public void match() {
+        PayeeMatcher matcher = PayeeMatcher.of(Arrays.asList(
+                "Amazon Marketplace", "Amazon Marketplace", "AMAZON MKTPLACE 1234", "Bakery"));
+
+        assertEquals("Card number and abbreviation should match.",
+                Optional.of("Amazon Marketplace"), matcher.match("AMAZON MKTPLACE 5678"));
+        assertEquals("Unknown name should not match.", Optional.empty(), matcher.match("Supermarket"));
+    }
+
+    /**
+     * Similar names are clustered
+     */
+    @org.junit.Test
+    public void clusters() {
+        PayeeMatcher matcher = PayeeMatcher.of(Arrays.asList(
+                "Amazon Marketplace", "Amazon Marketplace", "AMAZON MKTPLACE 1234", "Bakery", "Supermarket"));
+
+        List<PayeeMatcher.Cluster> clusters = matcher.clusters();
+
+        assertEquals("Should be one cluster of different names.", 1, clusters.size());
+        assertEquals("Most used name should be cluster's name.", "Amazon Marketplace", clusters.get(0).getName());
+        assertEquals("Cluster should contain both names.", 2, clusters.get(0).getNames().size());
+        assertEquals("Cluster should count all transactions.", 3, clusters.get(0).getCount());
+    }
+
+    /**
+     * Random lowercase term
+     *
+     * @param random random generator
+     * @return term of 4 to 10 characters
+     */
+    private static String randomTerm(Random random) {
+        char[] chars = new char[4 + random.nextInt(7)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(6));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.kalodiodev.kitapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Change Bus Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class ChangeBusTest {
+
+    // Scheduled deliveries, run by test as pulses
+    private List<Runnable> pulses = new ArrayList<>();
+    private ChangeBus bus = new ChangeBus(pulses::add);
+
+    private List<List<ChangeEvent<?>>> notifications = new ArrayList<>();
+
+    @org.junit.Before
+    public void setup() {
+        bus.addListener(notifications::add);
+    }
+
+    /**
+     * Events published until next pulse are delivered together
+     */
+    @org.junit.Test
+    public void coalesce() {
+        ChangeEvent<String> added = event(ChangeEvent.Type.ADDED, "A");
+        ChangeEvent<String> removed = event(ChangeEvent.Type.REMOVED, "B");
+        bus.publish(added);
+        bus.publish(removed);
+        assertEquals("Delivery should be scheduled once.", 1, pulses.size());
+        assertTrue(notifications.isEmpty());
+
+        pulse();
+        assertEquals(1, notifications.size());
+        assertEquals(Arrays.asList(added, removed), notifications.get(0));
+
+        // Next event, next pulse
+        bus.publish(event(ChangeEvent.Type.BULK, "C", "D"));
+        pulse();
+        assertEquals(2, notifications.size());
+        assertEquals(Arrays.asList("C", "D"), notifications.get(1).get(0).getEntries());
+    }
+
+    /**
+     * Events are dropped without listeners, removed listeners are not notified
+     */
+    @org.junit.Test
+    public void removeListener() {
+        ChangeBus.Listener listener = notifications::add;
+        ChangeBus other = new ChangeBus(pulses::add);
+
+        other.publish(event(ChangeEvent.Type.ADDED, "A"));
+        assertTrue("Nothing should be scheduled without listeners.", pulses.isEmpty());
+
+        other.addListener(listener);
+        other.publish(event(ChangeEvent.Type.ADDED, "A"));
+        other.removeListener(listener);
+        pulse();
+        assertTrue(notifications.isEmpty());
+    }
+
+    private ChangeEvent<String> event(ChangeEvent.Type type, String... entries) {
+        return new ChangeEvent<>(this, String.class, type, Arrays.asList(entries));
+    }
+
+    private void pulse() {
+        List<Runnable> scheduled = new ArrayList<>(pulses);
+        pulses.clear();
+        scheduled.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.service;
+
+import eu.kalodiodev.kitapi.model.Category;
+import eu.kalodiodev.kitapi.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Report Executor Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class ReportExecutorTest {
+
+    // Results delivered, run by test
+    private List<Runnable> deliveries = Collections.synchronizedList(new ArrayList<>());
+    private ForkJoinPool pool = new ForkJoinPool(4);
+    private ReportExecutor executor = new ReportExecutor(pool, deliveries::add, 100);
+
+    private TransactionSnapshot snapshot;
+
+    @org.junit.Before
+    public void setup() {
+        Category food = new Category(1, "Food", null);
+        Category rent = new Category(2, "Rent", null);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setId(i);
+            transaction.setAmount(i);
+            transaction.setDate(LocalDate.of(2016 + i % 2, 1 + i % 12, 1));
+            transaction.setCategory(i % 3 == 0 ? rent : food);
+            transactions.add(transaction);
+        }
+        snapshot = TransactionSnapshot.EMPTY.next(0, transactions, transaction -> transaction);
+    }
+
+    @org.junit.After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Split scans merge to the same results as a single scan
+     */
+    @org.junit.Test
+    public void aggregations() throws Exception {
+        long total = 10000L * 9999 / 2;
+
+        assertEquals(total, (long) executor.submit(snapshot, ReportExecutor.sum(transaction -> true), null).get());
+        assertEquals(snapshot.sum(LocalDate.of(2017, 1, 1), null), (long) executor.submit(snapshot,
+                ReportExecutor.sum(AggregateView.filter(null, LocalDate.of(2017, 1, 1), null)), null).get());
+
+        Map<Integer, Long> categories = executor.submit(snapshot,
+                ReportExecutor.categoryTotals(null, null), null).get();
+        assertEquals(total, categories.get(1) + categories.get(2));
+        assertEquals(snapshot.sum(AggregateView.filter(new Category(2, "Rent", null), null, null)),
+                (long) categories.get(2));
+
+        long[] months = executor.submit(snapshot, ReportExecutor.monthlyTotals(2016, 2), null).get();
+        assertEquals(24, months.length);
+        long sum = 0;
+        for (long month : months) {
+            sum += month;
+        }
+        assertEquals(total, sum);
+    }
+
+    /**
+     * Results are delivered through delivery executor
+     */
+    @org.junit.Test
+    public void delivery() throws Exception {
+        List<Long> results = new ArrayList<>();
+        executor.submit(snapshot, ReportExecutor.sum(transaction -> true), results::add).get();
+        executor.submit(TransactionSnapshot.EMPTY, ReportExecutor.sum(transaction -> true), results::add).get();
+
+        // Deliveries are scheduled once results complete
+        pool.awaitQuiescence(5, TimeUnit.SECONDS);
+        new ArrayList<>(deliveries).forEach(Runnable::run);
+        assertEquals(2, results.size());
+        assertTrue(results.contains(0L));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Athanasios Raptodimos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package eu.kalodiodev.kitapi.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Collation Keys Test class
+ *
+ * @author Raptodimos Thanos
+ */
+public class CollationKeysTest {
+
+    /**
+     * Names are sorted as collator sorts them, keys are computed once per name
+     */
+    @org.junit.Test
+    public void sort() {
+        CollationKeys keys = new CollationKeys(new Locale("el", "GR"), 16);
+
+        // Greek names, with and without accent, and latin names
+        List<String> names = new ArrayList<>(Arrays.asList("\u03b2\u03b9\u03b2\u03bb\u03af\u03b1",
+                "Market", "\u03ac\u03bb\u03bb\u03b1", "coffee", null, "\u0391\u03b3\u03bf\u03c1\u03ac"));
+        names.sort(keys.comparator());
+
+        assertEquals(Arrays.asList(null, "coffee", "Market", "\u0391\u03b3\u03bf\u03c1\u03ac",
+                "\u03ac\u03bb\u03bb\u03b1", "\u03b2\u03b9\u03b2\u03bb\u03af\u03b1"), names);
+        assertEquals("Each name should be collated once.", 5, keys.size());
+        assertSame(keys.key("Market"), keys.key("Market"));
+    }
+
+    /**
+     * Invalidated and excess keys are dropped
+     */
+    @org.junit.Test
+    public void invalidate() {
+        CollationKeys keys = new CollationKeys(Locale.ENGLISH, 2);
+
+        keys.key("Old name");
+        keys.invalidate("Old name");
+        assertEquals(0, keys.size());
+
+        keys.key("First");
+        keys.key("Second");
+        keys.key("Third");
+        assertTrue("Keys should be bounded.", keys.size() <= 2);
+    }
+}